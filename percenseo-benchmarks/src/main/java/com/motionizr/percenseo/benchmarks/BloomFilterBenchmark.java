@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.benchmarks;
+
+import com.motionizr.percenseo.commons.BloomFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookups of numbers on a {@link BloomFilter Bloom filter} of completed numbers, half of which were added.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BloomFilterBenchmark {
+
+    /**
+     * The mask of the numbers looked up, a power of two minus one.
+     */
+    private static final int LOOKUPS_MASK = (1 << 16) - 1;
+
+    /**
+     * The number of numbers added to the filter.
+     */
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    /**
+     * The target false positive rate of the filter.
+     */
+    @Param({"0.01", "0.001"})
+    public double falsePositiveRate;
+
+    /**
+     * The filter file.
+     */
+    private Path file;
+
+    /**
+     * The filter.
+     */
+    private BloomFilter filter;
+
+    /**
+     * The numbers looked up, in random order.
+     */
+    private long[] lookups;
+
+    /**
+     * The index of the next number looked up.
+     */
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("percenseo", ".bloom");
+        filter = BloomFilter.create(file, size, falsePositiveRate);
+        for (int i = 0; i < size; i++) {
+            filter.put(16170000000L + 2L * i);
+        }
+
+        Random random = new Random(42);
+        lookups = new long[LOOKUPS_MASK + 1];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = 16170000000L + random.nextInt(2 * size);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public boolean mightContain() {
+        return filter.mightContain(lookups[next++ & LOOKUPS_MASK]);
+    }
+}
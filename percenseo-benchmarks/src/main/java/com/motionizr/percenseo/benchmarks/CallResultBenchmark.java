@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.benchmarks;
+
+import com.feedzai.commons.sql.abstraction.entry.EntityEntry;
+import com.google.common.collect.ImmutableMap;
+import com.motionizr.percenseo.commons.CallResult;
+import com.twilio.sdk.TwilioRestClient;
+import com.twilio.sdk.resource.instance.Call;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversions of {@link CallResult call results}: from the status callback request received by the
+ * handler, from the call returned when queueing, and to the database entity.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallResultBenchmark {
+
+    /**
+     * A status callback of a completed call.
+     */
+    private HttpServletRequest statusCallback;
+
+    /**
+     * A call as returned when it's queued, without a duration yet.
+     */
+    private Call queuedCall;
+
+    /**
+     * A completed call.
+     */
+    private Call completedCall;
+
+    /**
+     * The call result converted to an entity.
+     */
+    private CallResult result;
+
+    @Setup
+    public void setUp() {
+        statusCallback = new ParameterRequest(ImmutableMap.<String, String>builder()
+                .put("To", "+16175551212")
+                .put("CallSid", "CA1234567890abcdef1234567890abcdef")
+                .put("CallDuration", "28")
+                .put("AnsweredBy", "human")
+                .put("CallStatus", "completed")
+                .put("Direction", "outbound-api")
+                .put("Digits", "1")
+                .put(CallResult.CAMPAIGN_PARAMETER, "benchmark")
+                .put("Timestamp", "Wed, 18 Nov 2015 19:00:00 +0000")
+                .build());
+
+        TwilioRestClient client = new TwilioRestClient("AC34567890123456789012345678901234", "anAuthToken");
+        queuedCall = new Call(client, ImmutableMap.<String, Object>builder()
+                .put("to", "+16175551212")
+                .put("sid", "CA1234567890abcdef1234567890abcdef")
+                .put("status", "queued")
+                .put("date_created", "Wed, 18 Nov 2015 19:00:00 +0000")
+                .put("direction", "outbound-api")
+                .build());
+        completedCall = new Call(client, ImmutableMap.<String, Object>builder()
+                .put("to", "+16175551212")
+                .put("sid", "CA1234567890abcdef1234567890abcdef")
+                .put("duration", "28")
+                .put("answered_by", "human")
+                .put("status", "completed")
+                .put("date_created", "Wed, 18 Nov 2015 19:00:00 +0000")
+                .put("direction", "outbound-api")
+                .build());
+
+        result = CallResult.fromHttpServletRequest(statusCallback);
+    }
+
+    @Benchmark
+    public CallResult fromHttpServletRequest() {
+        return CallResult.fromHttpServletRequest(statusCallback);
+    }
+
+    @Benchmark
+    public CallResult fromQueuedCall() {
+        return CallResult.fromCall(queuedCall, "benchmark");
+    }
+
+    @Benchmark
+    public CallResult fromCompletedCall() {
+        return CallResult.fromCall(completedCall, "benchmark");
+    }
+
+    @Benchmark
+    public EntityEntry toEntity() {
+        return result.toEntity();
+    }
+
+    /**
+     * Request serving fixed parameters with plain virtual calls, so the benchmark does not measure reflection.
+     */
+    private static final class ParameterRequest extends HttpServletRequestWrapper {
+
+        /**
+         * The request parameters.
+         */
+        private final Map<String, String> parameters;
+
+        /**
+         * Creates a new instance of {@link ParameterRequest}.
+         *
+         * @param parameters    The request parameters.
+         */
+        ParameterRequest(Map<String, String> parameters) {
+            super((HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                    new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                        throw new UnsupportedOperationException(method.getName());
+                    }));
+            this.parameters = parameters;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            return parameters.get(name);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallResultCodec;
+import com.motionizr.percenseo.commons.CallResultView;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.twilio.sdk.TwilioRestClient;
+import com.twilio.sdk.resource.instance.Call;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of encoding and decoding {@link CallResult call results} with {@link CallResultCodec}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallResultCodecBenchmark {
+
+    /**
+     * The call result being encoded.
+     */
+    private CallResult result;
+
+    /**
+     * Buffer used as the encoding target.
+     */
+    private ByteBuffer target;
+
+    /**
+     * Buffer holding an already encoded record.
+     */
+    private ByteBuffer encoded;
+
+    /**
+     * View reused across invocations.
+     */
+    private CallResultView view;
+
+    @Setup
+    public void setUp() {
+        Call call = new Call(new TwilioRestClient("AC34567890123456789012345678901234", "anAuthToken"), ImmutableMap.<String, Object>builder()
+                .put("to", "+16175551212")
+                .put("sid", "CA1234567890abcdef1234567890abcdef")
+                .put("duration", "28")
+                .put("answered_by", "human")
+                .put("status", "completed")
+                .put("date_created", "Wed, 18 Nov 2015 19:00:00 +0000")
+                .put("direction", "outbound-api")
+                .build());
+
+        result = CallResult.fromCall(call);
+        target = ByteBuffer.allocateDirect(CallResultCodec.RECORD_SIZE);
+        encoded = ByteBuffer.allocateDirect(CallResultCodec.RECORD_SIZE);
+        CallResultCodec.encode(result, encoded);
+        encoded.flip();
+        view = new CallResultView();
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        target.clear();
+        CallResultCodec.encode(result, target);
+        return target;
+    }
+
+    @Benchmark
+    public CallResult decode() {
+        encoded.rewind();
+        return CallResultCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public long viewNumber() {
+        return view.wrap(encoded, 0).getNumber();
+    }
+
+    @Benchmark
+    public CallStatus viewStatus() {
+        return view.wrap(encoded, 0).getStatus();
+    }
+}
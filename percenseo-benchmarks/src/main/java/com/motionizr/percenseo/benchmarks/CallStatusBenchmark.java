@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.benchmarks;
+
+import com.motionizr.percenseo.commons.CallStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookups of {@link CallStatus statuses} by Twilio description and by internal code.
+ * <p/>
+ * Every invocation looks up the next status of the cycle, so the JIT can't fold a constant argument.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallStatusBenchmark {
+
+    /**
+     * The descriptions looked up, built at runtime as they would be parsed from a request.
+     */
+    private String[] descs;
+
+    /**
+     * The internal codes looked up.
+     */
+    private int[] internalCodes;
+
+    /**
+     * The position in the cycle.
+     */
+    private int next;
+
+    @Setup
+    public void setUp() {
+        descs = Arrays.stream(CallStatus.values())
+                .map(status -> new String(status.getDesc().toCharArray()))
+                .toArray(String[]::new);
+        internalCodes = Arrays.stream(CallStatus.values())
+                .mapToInt(CallStatus::getInternalCode)
+                .toArray();
+    }
+
+    @Benchmark
+    public CallStatus fromDesc() {
+        next = next + 1 == descs.length ? 0 : next + 1;
+        return CallStatus.fromDesc(descs[next]);
+    }
+
+    @Benchmark
+    public CallStatus fromInternalCode() {
+        next = next + 1 == internalCodes.length ? 0 : next + 1;
+        return CallStatus.fromInternalCode(internalCodes[next]);
+    }
+}
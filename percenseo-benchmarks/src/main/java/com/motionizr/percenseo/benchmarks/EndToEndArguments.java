@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.benchmarks;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Configuration arguments of the {@link EndToEndBenchmark}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class EndToEndArguments {
+
+    /**
+     * The help parameter used to print the help menu.
+     */
+    @Parameter(names = {"-h", "--help"}, help = true, description = "Shows this help menu")
+    public boolean help;
+
+    /**
+     * The sizes of the campaigns to run, one run per size.
+     */
+    @Parameter(names = {"--sizes"}, description = "Comma separated sizes of the campaigns to run, e.g. 10000,100000,1000000")
+    public String sizes = "10000";
+
+    /**
+     * The label identifying the build being measured.
+     */
+    @Parameter(names = {"--label"}, description = "The label identifying the build being measured in the report")
+    public String label = "local";
+
+    /**
+     * The path of the JSON report.
+     */
+    @Parameter(names = {"-o", "--output"}, description = "The path of the JSON report")
+    public String output = "end-to-end-report.json";
+
+    /**
+     * The directory holding the databases of the runs.
+     */
+    @Parameter(names = {"--workdir"}, description = "The directory holding the databases of the runs, defaults to a temporary one")
+    public String workDirectory;
+
+    /**
+     * Whether the emulated API is served over HTTPS.
+     */
+    @Parameter(names = {"--https"}, description = "Serves the emulated API over HTTPS, so the TLS handshakes are measured too")
+    public boolean https;
+
+    /**
+     * The number of calls queued concurrently.
+     */
+    @Parameter(names = {"--concurrency"}, description = "The number of calls queued concurrently")
+    public int dialConcurrency = 32;
+
+    /**
+     * The maximum number of persistent connections to the emulated API.
+     */
+    @Parameter(names = {"--maxconnections"}, description = "The maximum number of persistent connections to the emulated API")
+    public int maxConnections = 64;
+
+    /**
+     * The maximum number of calls queued per second by the dialer.
+     */
+    @Parameter(names = {"--cps"}, description = "The maximum number of calls queued per second by the dialer")
+    public double callsPerSecond = 100_000;
+
+    /**
+     * The number of threads of the handler.
+     */
+    @Parameter(names = {"--handlerthreads"}, description = "The number of threads serving the handler")
+    public int handlerThreads = 64;
+
+    /**
+     * The number of threads of the emulated API sending webhooks.
+     */
+    @Parameter(names = {"--webhookthreads"}, description = "The number of threads of the emulated API sending webhooks")
+    public int webhookThreads = 64;
+
+    /**
+     * The factor applied to the durations of the emulated calls.
+     */
+    @Parameter(names = {"--timescale"}, description = "The factor applied to the durations of the emulated calls")
+    public double timeScale = 0.001;
+
+    /**
+     * The maximum number of seconds to wait for the callbacks once every call is queued.
+     */
+    @Parameter(names = {"--draintimeout"}, description = "The maximum number of seconds to wait for the callbacks once every call is queued")
+    public int drainTimeoutSeconds = 600;
+
+    /**
+     * Prints the help menu and exits the execution.
+     *
+     * @param cmd   The reference to the Jcommander instance.
+     */
+    public void printHelpAndExit(JCommander cmd) {
+        cmd.setProgramName("java -cp benchmarks.jar com.motionizr.percenseo.benchmarks.EndToEndBenchmark");
+
+        StringBuilder helpBuilder = new StringBuilder();
+        cmd.usage(helpBuilder);
+        System.out.println(helpBuilder.toString());
+        System.exit(0);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("sizes", sizes)
+                .add("label", label)
+                .add("output", output)
+                .add("workDirectory", workDirectory)
+                .add("https", https)
+                .add("dialConcurrency", dialConcurrency)
+                .add("maxConnections", maxConnections)
+                .add("callsPerSecond", callsPerSecond)
+                .add("handlerThreads", handlerThreads)
+                .add("webhookThreads", webhookThreads)
+                .add("timeScale", timeScale)
+                .add("drainTimeoutSeconds", drainTimeoutSeconds)
+                .toString();
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.benchmarks;
+
+import com.beust.jcommander.JCommander;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.CampaignStatistics;
+import com.motionizr.percenseo.executor.SurveyOrchestrator;
+import com.motionizr.percenseo.executor.configuration.SurveyBuilder;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import com.motionizr.percenseo.handler.SurveyCallHandler;
+import com.motionizr.percenseo.handler.SurveyResultHandler;
+import com.motionizr.percenseo.handler.SurveyMetricsHandler;
+import com.motionizr.percenseo.handler.SurveyStatisticsHandler;
+import com.motionizr.percenseo.simulator.SimulatorArguments;
+import com.motionizr.percenseo.simulator.SimulatorKeyStore;
+import com.motionizr.percenseo.simulator.SimulatorStatistics;
+import com.motionizr.percenseo.simulator.TwilioSimulator;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs whole campaigns against a local copy of every moving part and reports how fast they went.
+ * <p/>
+ * Each run starts the handler servlets in an embedded Jetty and the {@link TwilioSimulator emulated Twilio API}, then
+ * executes a campaign with the {@link SurveyOrchestrator} exactly like the initializer does, pointing it to both. It
+ * waits for every status callback to be answered and collects the rates, the webhook latency percentiles and the heap
+ * and GC figures into a JSON report, so builds can be compared by diffing their reports.
+ * <p/>
+ * Every run uses a new database, so the campaigns never skip numbers completed by a previous run. With {@code --https}
+ * the emulated API is served over HTTPS and its self-signed certificate becomes the trust store of the process.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class EndToEndBenchmark {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(EndToEndBenchmark.class);
+
+    /**
+     * The SID of the emulated account.
+     */
+    private static final String ACCOUNT_SID = "AC" + Strings.repeat("0", 32);
+
+    /**
+     * The number the emulated calls are made from.
+     */
+    private static final String CALLER_NUMBER = "+15005550006";
+
+    /**
+     * The time between checks for the status callbacks still missing.
+     */
+    private static final long DRAIN_POLL_MILLIS = 50;
+
+    /**
+     * Empty constructor to avoid accidental initialization.
+     */
+    private EndToEndBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        EndToEndArguments arguments = new EndToEndArguments();
+        JCommander cmd = new JCommander(arguments, args);
+
+        if (arguments.help) {
+            arguments.printHelpAndExit(cmd);
+        }
+        logger.debug("All arguments read successfully: {}", arguments);
+
+        Path workDirectory = arguments.workDirectory == null ?
+                Files.createTempDirectory("percenseo-benchmark") :
+                Files.createDirectories(Paths.get(arguments.workDirectory));
+
+        List<EndToEndReport> reports = new ArrayList<>();
+        for (String size : Splitter.on(',').trimResults().omitEmptyStrings().split(arguments.sizes)) {
+            EndToEndReport report = run(arguments, Integer.parseInt(size), workDirectory);
+            logger.info("Run of {} numbers: {}", size, report.toJson());
+            reports.add(report);
+        }
+
+        String json = "{\"label\":\"" + arguments.label.replace("\"", "\\\"") + '"' +
+                ",\"timestamp\":\"" + Instant.now() + '"' +
+                ",\"java\":\"" + System.getProperty("java.version") + '"' +
+                ",\"processors\":" + Runtime.getRuntime().availableProcessors() +
+                ",\"maxHeapBytes\":" + Runtime.getRuntime().maxMemory() +
+                ",\"runs\":[" + reports.stream().map(EndToEndReport::toJson).collect(Collectors.joining(",")) + "]}";
+
+        Files.write(Paths.get(arguments.output), json.getBytes(StandardCharsets.UTF_8));
+        logger.info("Report written to {}.", arguments.output);
+    }
+
+    /**
+     * Runs a campaign end to end.
+     *
+     * @param arguments     The {@link EndToEndArguments configuration}.
+     * @param size          The number of numbers in the campaign.
+     * @param workDirectory The directory holding the database of the run.
+     * @return              The {@link EndToEndReport measurements} of the run.
+     * @throws Exception    If the handler or the emulated API can't be started.
+     */
+    static EndToEndReport run(EndToEndArguments arguments, int size, Path workDirectory) throws Exception {
+        String databaseFile = workDirectory.resolve("run-" + size + "-" + System.currentTimeMillis()).toAbsolutePath().toString();
+
+        Server handler = new Server(new QueuedThreadPool(arguments.handlerThreads));
+        ServerConnector connector = new ServerConnector(handler);
+        connector.setHost("localhost");
+        connector.setPort(0);
+        handler.addConnector(connector);
+
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.setInitParameter(SurveyResultHandler.DATABASE_FILE_PARAMETER, databaseFile);
+        context.addServlet(SurveyCallHandler.class, "/callhandler");
+        context.addServlet(SurveyResultHandler.class, "/resulthandler").setInitOrder(1);
+        context.addServlet(SurveyStatisticsHandler.class, "/statistics");
+        context.addServlet(SurveyMetricsHandler.class, "/metrics");
+        handler.setHandler(context);
+
+        SimulatorArguments simulatorArguments = new SimulatorArguments();
+        simulatorArguments.port = 0;
+        simulatorArguments.timeScale = arguments.timeScale;
+        simulatorArguments.webhookThreads = arguments.webhookThreads;
+        simulatorArguments.https = arguments.https;
+        simulatorArguments.keyStore = workDirectory.resolve("simulator.p12").toString();
+        if (arguments.https) {
+            SimulatorKeyStore.generate(Paths.get(simulatorArguments.keyStore), simulatorArguments.keyStorePassword);
+            System.setProperty("javax.net.ssl.trustStore", simulatorArguments.keyStore);
+            System.setProperty("javax.net.ssl.trustStorePassword", simulatorArguments.keyStorePassword);
+            System.setProperty("javax.net.ssl.trustStoreType", SimulatorKeyStore.TYPE);
+        }
+        TwilioSimulator simulator = new TwilioSimulator(simulatorArguments);
+
+        try {
+            handler.start();
+            simulator.start();
+
+            String handlerURL = "http://localhost:" + connector.getLocalPort();
+            SurveyOrchestrator orchestrator = new SurveyBuilder()
+                    .withCampaign("benchmark-" + size)
+                    .withAccountSID(ACCOUNT_SID)
+                    .withAuthToken("benchmark")
+                    .withCallerNumber(CALLER_NUMBER)
+                    .withCallsPerSecond(arguments.callsPerSecond)
+                    .withApiEndpoint(simulator.getBaseURL())
+                    .withCallHandlerURL(handlerURL + "/callhandler")
+                    .withCallResultURL(handlerURL + "/resulthandler")
+                    .withDatabaseFile(databaseFile)
+                    .withNumbers(generateNumbers(size))
+                    .withDialConcurrency(arguments.dialConcurrency)
+                    .withConnectionPool(Math.max(arguments.maxConnections, arguments.dialConcurrency),
+                            arguments.dialConcurrency, SurveyConfiguration.DEFAULT_KEEP_ALIVE_MILLIS)
+                    .build();
+
+            CampaignStatistics persisted = CampaignStatistics.fromContext(context.getServletContext());
+            SimulatorStatistics emulated = simulator.getStatistics();
+
+            System.gc();
+            List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .collect(Collectors.toList());
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+
+            long start = System.nanoTime();
+            Map<CallStatus, Long> queued = orchestrator.execute();
+            long queueNanos = System.nanoTime() - start;
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(arguments.drainTimeoutSeconds);
+            while (emulated.getStatusCallbacks() < emulated.getCallsCreated() && System.nanoTime() < deadline) {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+
+            EndToEndReport report = new EndToEndReport();
+            report.drainNanos = System.nanoTime() - start;
+            report.drained = emulated.getStatusCallbacks() >= emulated.getCallsCreated();
+            report.size = size;
+            report.queued = queued.getOrDefault(CallStatus.QUEUED, 0L);
+            report.failed = queued.getOrDefault(CallStatus.FAILED, 0L);
+            report.queueNanos = queueNanos;
+            report.persisted = persisted.getTotal();
+            report.webhookLatency = emulated.getStatusCallbackLatency();
+            report.heapPeakBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            report.heapUsedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            report.gcCount = gcCount() - gcCountBefore;
+            report.gcMillis = gcMillis() - gcMillisBefore;
+            report.simulatorJson = emulated.toJson();
+
+            if (!report.drained) {
+                logger.warn("Gave up waiting for {} status callbacks after {} seconds.",
+                        emulated.getCallsCreated() - emulated.getStatusCallbacks(), arguments.drainTimeoutSeconds);
+            }
+            return report;
+        } finally {
+            simulator.close();
+            handler.stop();
+        }
+    }
+
+    /**
+     * Generates distinct numbers to call.
+     *
+     * @param size  The number of numbers.
+     * @return      The numbers.
+     */
+    private static List<String> generateNumbers(int size) {
+        List<String> numbers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            numbers.add(String.format("+1555%07d", i));
+        }
+        return numbers;
+    }
+
+    /**
+     * Gets the number of garbage collections since the process started.
+     *
+     * @return  The number of garbage collections.
+     */
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .filter(count -> count > 0)
+                .sum();
+    }
+
+    /**
+     * Gets the time spent in garbage collections since the process started.
+     *
+     * @return  The time spent in garbage collections, in milliseconds.
+     */
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .filter(millis -> millis > 0)
+                .sum();
+    }
+}
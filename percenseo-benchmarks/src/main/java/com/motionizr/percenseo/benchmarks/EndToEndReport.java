@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.benchmarks;
+
+import com.motionizr.percenseo.commons.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measurements of a single {@link EndToEndBenchmark} run.
+ * <p/>
+ * Rates are computed from the start of the run: the queueing rate up to the last call queued, the persistence rate up
+ * to the last status callback answered. Heap and GC figures cover the whole process, which hosts the dialer, the
+ * handler and the emulated API alike.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class EndToEndReport {
+
+    /**
+     * The number of numbers in the campaign.
+     */
+    int size;
+
+    /**
+     * The number of calls queued.
+     */
+    long queued;
+
+    /**
+     * The number of calls that failed to be queued.
+     */
+    long failed;
+
+    /**
+     * The time spent queueing the calls, in nanoseconds.
+     */
+    long queueNanos;
+
+    /**
+     * The number of status callbacks persisted by the handler.
+     */
+    long persisted;
+
+    /**
+     * The time until the last status callback was answered, in nanoseconds.
+     */
+    long drainNanos;
+
+    /**
+     * Whether every status callback was answered before the timeout.
+     */
+    boolean drained;
+
+    /**
+     * The time spent by the handler answering the status callbacks, in nanoseconds.
+     */
+    LatencyHistogram webhookLatency;
+
+    /**
+     * The sum of the peak usage of the heap memory pools.
+     */
+    long heapPeakBytes;
+
+    /**
+     * The heap in use at the end of the run.
+     */
+    long heapUsedBytes;
+
+    /**
+     * The number of garbage collections.
+     */
+    long gcCount;
+
+    /**
+     * The time spent in garbage collections, in milliseconds.
+     */
+    long gcMillis;
+
+    /**
+     * The statistics of the emulated API, as JSON.
+     */
+    String simulatorJson;
+
+    /**
+     * Renders the report as JSON.
+     *
+     * @return  The JSON representation of the report.
+     */
+    public String toJson() {
+        return "{\"size\":" + size +
+                ",\"queued\":" + queued +
+                ",\"failed\":" + failed +
+                ",\"queueSeconds\":" + seconds(queueNanos) +
+                ",\"queuedPerSecond\":" + perSecond(queued, queueNanos) +
+                ",\"persisted\":" + persisted +
+                ",\"drained\":" + drained +
+                ",\"drainSeconds\":" + seconds(drainNanos) +
+                ",\"callbacksPersistedPerSecond\":" + perSecond(persisted, drainNanos) +
+                ",\"webhookLatencyMillis\":" + webhookLatency.toJson(TimeUnit.MILLISECONDS.toNanos(1)) +
+                ",\"heap\":{\"peakBytes\":" + heapPeakBytes + ",\"usedBytes\":" + heapUsedBytes + '}' +
+                ",\"gc\":{\"count\":" + gcCount + ",\"millis\":" + gcMillis + '}' +
+                ",\"simulator\":" + simulatorJson +
+                '}';
+    }
+
+    /**
+     * Converts nanoseconds to seconds, rounded to milliseconds.
+     *
+     * @param nanos The nanoseconds.
+     * @return      The seconds.
+     */
+    private static double seconds(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos) / 1000.0;
+    }
+
+    /**
+     * Computes a rate per second, rounded to one decimal place.
+     *
+     * @param count The number of events.
+     * @param nanos The time the events took, in nanoseconds.
+     * @return      The events per second, {@code 0} if no time elapsed.
+     */
+    private static double perSecond(long count, long nanos) {
+        return nanos <= 0 ? 0 : Math.round(count * 1e10 / nanos) / 10.0;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.benchmarks;
+
+import com.motionizr.percenseo.commons.SuppressionList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookups of numbers on a {@link SuppressionList suppression list}, half of which are on the list.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuppressionListBenchmark {
+
+    /**
+     * The mask of the numbers looked up, a power of two minus one.
+     */
+    private static final int LOOKUPS_MASK = (1 << 16) - 1;
+
+    /**
+     * The number of numbers on the list.
+     */
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    /**
+     * The suppression list file.
+     */
+    private Path file;
+
+    /**
+     * The suppression list.
+     */
+    private SuppressionList list;
+
+    /**
+     * The numbers looked up, in random order.
+     */
+    private long[] lookups;
+
+    /**
+     * The numbers looked up in E.164, in the same order.
+     */
+    private String[] e164Lookups;
+
+    /**
+     * The index of the next number looked up.
+     */
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        long[] numbers = new long[size];
+        for (int i = 0; i < size; i++) {
+            numbers[i] = 16170000000L + 2L * i;
+        }
+        file = Files.createTempFile("percenseo", ".dnc");
+        SuppressionList.write(file, numbers, size);
+        list = SuppressionList.open(file);
+
+        Random random = new Random(42);
+        lookups = new long[LOOKUPS_MASK + 1];
+        e164Lookups = new String[LOOKUPS_MASK + 1];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = 16170000000L + random.nextInt(2 * size);
+            e164Lookups[i] = "+" + lookups[i];
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return list.contains(lookups[next++ & LOOKUPS_MASK]);
+    }
+
+    @Benchmark
+    public boolean containsString() {
+        return list.contains(e164Lookups[next++ & LOOKUPS_MASK]);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the {@link SurveyOrchestrator} prepares the numbers of a survey: parsing the numbers CSV and filtering
+ * out the numbers already completed in previous runs of the campaign.
+ * <p/>
+ * Lives in the executor package to reach the package-private steps of the orchestrator. Half of the numbers are
+ * completed, as in a campaign resumed midway.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SurveyNumbersBenchmark {
+
+    /**
+     * The number of numbers in the survey.
+     */
+    @Param({"10000", "100000"})
+    public int size;
+
+    /**
+     * The numbers CSV.
+     */
+    private String csv;
+
+    /**
+     * The numbers of the survey, without the international prefix.
+     */
+    private List<String> numbers;
+
+    /**
+     * The numbers completed previously, with the international prefix.
+     */
+    private Set<String> completed;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(size * 12);
+        numbers = new ArrayList<>(size);
+        completed = new HashSet<>();
+
+        for (int i = 0; i < size; i++) {
+            String number = String.format("555%07d", i);
+            builder.append(number).append(",Survey member ").append(i).append("\r\n");
+            numbers.add(number);
+            if (i % 2 == 0) {
+                completed.add("+1" + number);
+            }
+        }
+        csv = builder.toString();
+    }
+
+    @Benchmark
+    public long parseNumbersCSV() throws IOException {
+        return SurveyOrchestrator.parseNumbersCSV(new StringReader(csv)).count();
+    }
+
+    @Benchmark
+    public long pendingNumbers() {
+        return SurveyOrchestrator.pendingNumbers(numbers.stream(), "+1", completed).count();
+    }
+}
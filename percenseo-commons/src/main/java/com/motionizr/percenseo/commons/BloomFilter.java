@@ -0,0 +1,332 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A Bloom filter of phone numbers stored in a memory-mapped file, used to rule out most numbers before an exact and
+ * more expensive lookup.
+ * <p/>
+ * A number never added is reported as absent with a probability of at least {@code 1 - p}, where {@code p} is the false
+ * positive rate the filter was sized for, and a number added is always reported as present. Each number sets
+ * {@link #getHashes() k} bits picked by double hashing, so both adding and looking up a number take {@code k} memory
+ * reads and no allocation. The layout of version {@value #VERSION} is the following (big-endian):
+ * <pre>
+ *  offset  size  field
+ *       0     4  magic, {@value #MAGIC}
+ *       4     4  version
+ *       8     4  number of hashes
+ *      12     4  reserved
+ *      16     8  number of bits, a multiple of 64
+ *      24     8  number of entries the filter was sized for
+ *      32     8  number of entries added, not counting the ones already present
+ *      40     8  watermark, up to when the filter holds the entries of its source
+ *      48   m/8  the bits
+ * </pre>
+ * The filter is changed in place, the changes reach the file when {@link #force() forced} or when the operating system
+ * writes the pages back. It is not safe to add numbers from several threads at once.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class BloomFilter {
+
+    /**
+     * The magic number at the start of the file, {@code PBLM} in ASCII.
+     */
+    public static final int MAGIC = 0x50424C4D;
+
+    /**
+     * The current version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Offsets of each field of the header.
+     */
+    static final int HASHES_OFFSET = 8;
+    static final int BITS_OFFSET = 16;
+    static final int CAPACITY_OFFSET = 24;
+    static final int ENTRIES_OFFSET = 32;
+    static final int WATERMARK_OFFSET = 40;
+
+    /**
+     * The size in bytes of the header.
+     */
+    static final int HEADER_SIZE = 48;
+
+    /**
+     * The maximum number of bits, limited by the size of a single mapping.
+     */
+    public static final long MAX_BITS = (long) (Integer.MAX_VALUE - HEADER_SIZE) / Long.BYTES * Long.SIZE;
+
+    /**
+     * The mapped file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The number of hashes per entry.
+     */
+    private final int hashes;
+
+    /**
+     * The number of bits.
+     */
+    private final long bits;
+
+    /**
+     * Creates a new instance of {@link BloomFilter}.
+     *
+     * @param buffer    The mapped file.
+     */
+    private BloomFilter(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.hashes = buffer.getInt(HASHES_OFFSET);
+        this.bits = buffer.getLong(BITS_OFFSET);
+    }
+
+    /**
+     * Creates an empty filter, replacing the file if it exists.
+     *
+     * @param file                      The filter file.
+     * @param capacity                  The number of entries the filter is sized for.
+     * @param falsePositiveRate         The rate of false positives once the filter holds its capacity.
+     * @return                          The filter.
+     * @throws IOException              If an error occurs creating the file.
+     * @throws IllegalArgumentException If the capacity or the false positive rate are invalid, or the filter would be too large.
+     */
+    public static BloomFilter create(Path file, long capacity, double falsePositiveRate) throws IOException, IllegalArgumentException {
+        Preconditions.checkArgument(capacity > 0, String.format("Invalid capacity: %d", capacity));
+        Preconditions.checkArgument(falsePositiveRate > 0 && falsePositiveRate < 1,
+                String.format("Invalid false positive rate: %f", falsePositiveRate));
+
+        long bits = optimalBits(capacity, falsePositiveRate);
+        Preconditions.checkArgument(bits <= MAX_BITS,
+                String.format("A filter of %d entries with a false positive rate of %f needs more than %d bits.", capacity, falsePositiveRate, MAX_BITS));
+        int hashes = (int) Math.max(1, Math.min(Long.SIZE, Math.round((double) bits / capacity * Math.log(2))));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + bits / Byte.SIZE);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            buffer.putInt(0, MAGIC)
+                    .putInt(4, VERSION)
+                    .putInt(HASHES_OFFSET, hashes)
+                    .putLong(BITS_OFFSET, bits)
+                    .putLong(CAPACITY_OFFSET, capacity);
+            return new BloomFilter(buffer);
+        }
+    }
+
+    /**
+     * Maps an existing filter into memory.
+     *
+     * @param file                      The filter file.
+     * @return                          The filter.
+     * @throws IOException              If an error occurs mapping the file.
+     * @throws IllegalArgumentException If the file is not a filter of a supported version.
+     */
+    public static BloomFilter open(Path file) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fileSize = channel.size();
+            Preconditions.checkArgument(fileSize >= HEADER_SIZE && fileSize <= Integer.MAX_VALUE,
+                    String.format("Not a Bloom filter, invalid size: %s", file));
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            Preconditions.checkArgument(buffer.getInt(0) == MAGIC, String.format("Not a Bloom filter: %s", file));
+            Preconditions.checkArgument(buffer.getInt(4) == VERSION,
+                    String.format("Unsupported Bloom filter version %d: %s", buffer.getInt(4), file));
+
+            long bits = buffer.getLong(BITS_OFFSET);
+            int hashes = buffer.getInt(HASHES_OFFSET);
+            Preconditions.checkArgument(bits > 0 && bits % Long.SIZE == 0 && fileSize == HEADER_SIZE + bits / Byte.SIZE && hashes > 0,
+                    String.format("Bloom filter has %d bits but %d bytes: %s", bits, fileSize, file));
+            return new BloomFilter(buffer);
+        }
+    }
+
+    /**
+     * Adds a number to the filter.
+     *
+     * @param number    The numeric representation of the number, see {@link PhoneNumbers#toLong(CharSequence)}.
+     * @return          {@code true} if the number was not in the filter, {@code false} if it probably was.
+     */
+    public boolean put(long number) {
+        long hash1 = mix(number);
+        long hash2 = mix(hash1) | 1;
+
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bits;
+            int offset = HEADER_SIZE + (int) (bit >>> 6) * Long.BYTES;
+            long word = buffer.getLong(offset);
+            long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                buffer.putLong(offset, word | mask);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            buffer.putLong(ENTRIES_OFFSET, buffer.getLong(ENTRIES_OFFSET) + 1);
+        }
+        return changed;
+    }
+
+    /**
+     * Checks whether a number may be in the filter.
+     *
+     * @param number    The numeric representation of the number, see {@link PhoneNumbers#toLong(CharSequence)}.
+     * @return          {@code false} if the number was never added, {@code true} if it probably was.
+     */
+    public boolean mightContain(long number) {
+        long hash1 = mix(number);
+        long hash2 = mix(hash1) | 1;
+
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bits;
+            if ((buffer.getLong(HEADER_SIZE + (int) (bit >>> 6) * Long.BYTES) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of hashes, i.e. bits set, per entry.
+     *
+     * @return  The number of hashes.
+     */
+    public int getHashes() {
+        return hashes;
+    }
+
+    /**
+     * Gets the number of bits of the filter.
+     *
+     * @return  The number of bits.
+     */
+    public long getBits() {
+        return bits;
+    }
+
+    /**
+     * Gets the size of the filter file.
+     *
+     * @return  The size in bytes.
+     */
+    public long getSizeInBytes() {
+        return HEADER_SIZE + bits / Byte.SIZE;
+    }
+
+    /**
+     * Gets the number of entries the filter was sized for.
+     *
+     * @return  The capacity of the filter.
+     */
+    public long getCapacity() {
+        return buffer.getLong(CAPACITY_OFFSET);
+    }
+
+    /**
+     * Gets the number of entries added, not counting the ones that were reported as already present.
+     *
+     * @return  The number of entries.
+     */
+    public long getEntries() {
+        return buffer.getLong(ENTRIES_OFFSET);
+    }
+
+    /**
+     * Estimates the rate of false positives with the current number of entries.
+     *
+     * @return  The probability of a number never added being reported as present.
+     */
+    public double getFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * getEntries() / bits), hashes);
+    }
+
+    /**
+     * Gets up to when the filter holds the entries of its source, e.g. the latest update time read from a table.
+     *
+     * @return  The watermark, {@code 0} if never set.
+     */
+    public long getWatermark() {
+        return buffer.getLong(WATERMARK_OFFSET);
+    }
+
+    /**
+     * Sets up to when the filter holds the entries of its source. Set it once the entries are added and
+     * {@link #force() forced}, so a filter written back partially never claims entries it does not hold.
+     *
+     * @param watermark The watermark.
+     */
+    public void setWatermark(long watermark) {
+        buffer.putLong(WATERMARK_OFFSET, watermark);
+    }
+
+    /**
+     * Writes the changes to the file.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Computes the number of bits needed to hold a number of entries with a rate of false positives.
+     *
+     * @param capacity          The number of entries.
+     * @param falsePositiveRate The rate of false positives.
+     * @return                  The number of bits, rounded up to a multiple of 64.
+     */
+    static long optimalBits(long capacity, double falsePositiveRate) {
+        double bits = Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        return (long) Math.ceil(bits / Long.SIZE) * Long.SIZE;
+    }
+
+    /**
+     * Mixes the bits of a value, so numbers close to each other get unrelated hashes.
+     *
+     * @param value The value.
+     * @return      The mixed value, see the finalizer of MurmurHash3.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
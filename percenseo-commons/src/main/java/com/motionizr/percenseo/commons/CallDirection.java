@@ -66,15 +66,28 @@ public enum CallDirection {
     public static final Map<String, CallDirection> FROM_DESC = Arrays.stream(CallDirection.values())
             .collect(Collectors.toMap(CallDirection::getDesc, Function.identity()));
 
+    /**
+     * Flyweight table containing the {@link CallDirection} instances indexed by its internal code plus one.
+     * <p/>
+     * Avoids boxing the internal code on every lookup, which happens for every call result read or decoded.
+     */
+    private static final CallDirection[] BY_INTERNAL_CODE = new CallDirection[Arrays.stream(CallDirection.values())
+            .mapToInt(CallDirection::getInternalCode).max().getAsInt() + 2];
+
+    static {
+        Arrays.stream(CallDirection.values())
+                .forEach(direction -> BY_INTERNAL_CODE[direction.getInternalCode() + 1] = direction);
+    }
+
     /**
      * The call direction description used by the Twilio API.
      */
-    private String desc;
+    private final String desc;
 
     /**
      * The internal internalCode used to represent the call direction in an efficient manner.
      */
-    private int internalCode;
+    private final int internalCode;
 
     /**
      * Creates a new instance of {@link CallDirection}.
@@ -113,7 +126,22 @@ public enum CallDirection {
      * @return              The {@link CallDirection} instance.
      */
     public static CallDirection fromInternalCode(int internalCode) {
-        return FROM_INTERNAL_CODE.getOrDefault(internalCode, UNKNOWN);
+        int index = internalCode + 1;
+        if (index < 0 || index >= BY_INTERNAL_CODE.length || BY_INTERNAL_CODE[index] == null) {
+            return UNKNOWN;
+        }
+
+        return BY_INTERNAL_CODE[index];
+    }
+
+    /**
+     * Gets the {@link CallDirection} from its internal code, as read from the database.
+     *
+     * @param internalCode  The internal code of the {@link CallDirection}, {@code null} if unknown.
+     * @return              The {@link CallDirection} instance, {@link #UNKNOWN} if the internal code is {@code null}.
+     */
+    public static CallDirection fromInternalCode(Integer internalCode) {
+        return internalCode == null ? UNKNOWN : fromInternalCode(internalCode.intValue());
     }
 
     /**
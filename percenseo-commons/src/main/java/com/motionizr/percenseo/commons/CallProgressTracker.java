@@ -0,0 +1,268 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how long the calls take from being queued to their final status, and how long they spend in each status
+ * along the way.
+ * <p/>
+ * The time a call was queued travels in its StatusCallback URL, so the time to its final status is known from the
+ * final status callback alone. When the ringing and answered statuses are sent as well, the time of each one is kept
+ * in memory by call SID until the final status arrives, and the steps are recorded as latencies in the
+ * {@link Metrics}:
+ * <ul>
+ *     <li>{@value #CALL_LATENCY} by final status, from queued to the final status;</li>
+ *     <li>{@value #STEP_LATENCY} by step, from queued to ringing, ringing to answered and answered to the final
+ *     status.</li>
+ * </ul>
+ * Callbacks may arrive out of order, a step whose end arrived before its start is not recorded. Calls whose final
+ * status never arrives are forgotten after {@link #MAX_AGE_MILLIS}, and no more than {@link #MAX_CALLS} calls are
+ * tracked at once.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallProgressTracker {
+
+    /**
+     * The name of the latencies from queued to the final status.
+     */
+    public static final String CALL_LATENCY = "percenseo_call_seconds";
+
+    /**
+     * The name of the latencies of the steps of the calls.
+     */
+    public static final String STEP_LATENCY = "percenseo_call_step_seconds";
+
+    /**
+     * The step from queued to ringing.
+     */
+    static final String QUEUED_TO_RINGING = "queued-ringing";
+
+    /**
+     * The step from ringing to answered.
+     */
+    static final String RINGING_TO_ANSWERED = "ringing-answered";
+
+    /**
+     * The step from answered to the final status.
+     */
+    static final String ANSWERED_TO_COMPLETED = "answered-completed";
+
+    /**
+     * The time after which a call without a final status is forgotten.
+     */
+    static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * The maximum number of calls tracked at once.
+     */
+    static final int MAX_CALLS = 100_000;
+
+    /**
+     * The progress of a call waiting for its final status.
+     */
+    private static final class Progress {
+
+        /**
+         * When the call was queued, {@code 0} if unknown.
+         */
+        long queuedAt;
+
+        /**
+         * When the call started ringing, {@code 0} if unknown.
+         */
+        long ringingAt;
+
+        /**
+         * When the call was answered, {@code 0} if unknown.
+         */
+        long answeredAt;
+
+        /**
+         * When the progress was last updated.
+         */
+        long updatedAt;
+    }
+
+    /**
+     * The progress of the calls waiting for their final status, by call SID.
+     */
+    private final ConcurrentMap<String, Progress> calls = new ConcurrentHashMap<>();
+
+    /**
+     * The latencies from queued to the final status, in nanoseconds, indexed by the ordinal of the final status.
+     */
+    private final LatencyHistogram[] callLatencies = new LatencyHistogram[CallStatus.values().length];
+
+    /**
+     * The latencies from queued to ringing, in nanoseconds.
+     */
+    private final LatencyHistogram queuedToRinging;
+
+    /**
+     * The latencies from ringing to answered, in nanoseconds.
+     */
+    private final LatencyHistogram ringingToAnswered;
+
+    /**
+     * The latencies from answered to the final status, in nanoseconds.
+     */
+    private final LatencyHistogram answeredToCompleted;
+
+    /**
+     * The number of calls not tracked because {@link #MAX_CALLS} were.
+     */
+    private final LongAdder dropped;
+
+    /**
+     * When the calls without a final status are next looked for, in epoch milliseconds.
+     */
+    private volatile long nextSweepAt;
+
+    /**
+     * Creates a new instance of {@link CallProgressTracker} recording into the {@link Metrics#getDefault() default}
+     * metrics.
+     */
+    public CallProgressTracker() {
+        this(Metrics.getDefault());
+    }
+
+    /**
+     * Creates a new instance of {@link CallProgressTracker}.
+     *
+     * @param metrics   The metrics the latencies are recorded into.
+     */
+    CallProgressTracker(Metrics metrics) {
+        for (CallStatus status : CallStatus.values()) {
+            if (status.isTerminal()) {
+                callLatencies[status.ordinal()] = metrics.latency(CALL_LATENCY, "Time from queueing a call to its final status.",
+                        "status", status.getDesc());
+            }
+        }
+        this.queuedToRinging = step(metrics, QUEUED_TO_RINGING);
+        this.ringingToAnswered = step(metrics, RINGING_TO_ANSWERED);
+        this.answeredToCompleted = step(metrics, ANSWERED_TO_COMPLETED);
+        this.dropped = metrics.counter("percenseo_call_progress_dropped_total",
+                "Calls whose progress was not tracked because too many calls were.");
+    }
+
+    /**
+     * Records a status of a call.
+     *
+     * @param result    The {@link CallResult call result} of the status callback.
+     * @param queuedAt  When the call was queued, in epoch milliseconds, {@code 0} if unknown.
+     * @param now       When the status callback arrived, in epoch milliseconds.
+     */
+    public void record(CallResult result, long queuedAt, long now) {
+        String sid = result.getCallSID();
+        CallStatus status = result.getStatus();
+        if (sid == null || status == null) {
+            return;
+        }
+
+        if (status.isTerminal()) {
+            Progress progress = calls.remove(sid);
+            if (queuedAt > 0) {
+                callLatencies[status.ordinal()].record(TimeUnit.MILLISECONDS.toNanos(now - queuedAt));
+            }
+            if (progress != null && progress.answeredAt > 0) {
+                answeredToCompleted.record(TimeUnit.MILLISECONDS.toNanos(now - progress.answeredAt));
+            }
+            return;
+        }
+
+        if (status != CallStatus.RINGING && status != CallStatus.IN_PROGRESS) {
+            return;
+        }
+
+        sweep(now);
+        if (calls.size() >= MAX_CALLS && !calls.containsKey(sid)) {
+            dropped.increment();
+            return;
+        }
+
+        calls.compute(sid, (key, progress) -> {
+            if (progress == null) {
+                progress = new Progress();
+            }
+            if (queuedAt > 0) {
+                progress.queuedAt = queuedAt;
+            }
+            progress.updatedAt = now;
+
+            if (status == CallStatus.RINGING) {
+                progress.ringingAt = now;
+                if (progress.queuedAt > 0) {
+                    queuedToRinging.record(TimeUnit.MILLISECONDS.toNanos(now - progress.queuedAt));
+                }
+            } else {
+                progress.answeredAt = now;
+                if (progress.ringingAt > 0) {
+                    ringingToAnswered.record(TimeUnit.MILLISECONDS.toNanos(now - progress.ringingAt));
+                }
+            }
+            return progress;
+        });
+    }
+
+    /**
+     * Gets the number of calls waiting for their final status.
+     *
+     * @return  The number of calls tracked.
+     */
+    public int size() {
+        return calls.size();
+    }
+
+    /**
+     * Forgets the calls whose final status did not arrive in time, at most once per minute.
+     *
+     * @param now   The current time, in epoch milliseconds.
+     */
+    private void sweep(long now) {
+        if (now < nextSweepAt) {
+            return;
+        }
+
+        nextSweepAt = now + TimeUnit.MINUTES.toMillis(1);
+        calls.values().removeIf(progress -> now - progress.updatedAt > MAX_AGE_MILLIS);
+    }
+
+    /**
+     * Gets the latencies of a step of the calls.
+     *
+     * @param metrics   The metrics the latencies are recorded into.
+     * @param step      The step.
+     * @return          The latencies, in nanoseconds.
+     */
+    private static LatencyHistogram step(Metrics metrics, String step) {
+        return metrics.latency(STEP_LATENCY, "Time spent by the calls in each step.", "step", step);
+    }
+}
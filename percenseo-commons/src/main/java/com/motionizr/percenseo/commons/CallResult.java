@@ -35,6 +35,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 
 import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.entry;
 
@@ -42,6 +43,7 @@ import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.entry;
  * Holds the result of an outbound call that was part of the survey.
  * <p/>
  * Stores several important details for further analysis like the call outcome and its duration.
+ * Instances are immutable, use a {@link Builder} to create them.
  *
  * @author Miguel Bento (migueljbento@gmail.com)
  * @version 1.0.0
@@ -59,59 +61,90 @@ public class CallResult {
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss Z");
 
     /**
-     * Instance used to represent calls that failed.
+     * The campaign used when none is configured.
      */
-    private static final CallResult failedCallResult;
+    public static final String DEFAULT_CAMPAIGN = "default";
 
-    static {
-        failedCallResult = new CallResult();
-        failedCallResult.status = CallStatus.FAILED;
-    }
+    /**
+     * The name of the StatusCallback URL parameter carrying the campaign of the call.
+     */
+    public static final String CAMPAIGN_PARAMETER = "campaign";
+
+    /**
+     * The name of the StatusCallback URL parameter carrying when the call was queued, in epoch milliseconds.
+     */
+    public static final String QUEUED_AT_PARAMETER = "queuedAt";
 
     /**
      * The phone number dialed.
      */
-    private String destination;
+    private final String destination;
 
     /**
      * The SID of the call.
      */
-    private String callSID;
+    private final String callSID;
 
     /**
      * The duration of the call in seconds.
      */
-    private int callDuration;
+    private final int callDuration;
 
     /**
      * Flag indicating if an human answered the call or if it was an answering machine.
      */
-    private boolean humanAnswered;
+    private final boolean humanAnswered;
 
     /**
      * The {@link CallStatus status} of the call.
      */
-    private CallStatus status;
+    private final CallStatus status;
 
     /**
      * The call date.
      */
-    private LocalDateTime callDate;
+    private final LocalDateTime callDate;
 
     /**
      * The {@link CallDirection}, outbound or inbound.
      */
-    private CallDirection direction;
+    private final CallDirection direction;
 
     /**
      * The digits pressed by the survey member during the call.
      */
-    private String digits;
+    private final String digits;
+
+    /**
+     * The campaign the call belongs to.
+     */
+    private final String campaign;
 
     /**
      * Creates a new instance of {@link CallResult}.
+     *
+     * @param builder   The {@link Builder} holding the values of the call result.
+     */
+    private CallResult(Builder builder) {
+        this.destination = builder.destination;
+        this.callSID = builder.callSID;
+        this.callDuration = builder.callDuration;
+        this.humanAnswered = builder.humanAnswered;
+        this.status = builder.status;
+        this.callDate = builder.callDate;
+        this.direction = builder.direction;
+        this.digits = builder.digits;
+        this.campaign = builder.campaign != null ? builder.campaign : DEFAULT_CAMPAIGN;
+    }
+
+    /**
+     * Creates a new {@link Builder} for {@link CallResult call results}.
+     *
+     * @return  A new {@link Builder}.
      */
-    protected CallResult() {}
+    public static Builder builder() {
+        return new Builder();
+    }
 
     /**
      * Gets the phone number dialed.
@@ -185,6 +218,15 @@ public class CallResult {
         return digits;
     }
 
+    /**
+     * Gets the campaign the call belongs to.
+     *
+     * @return  The campaign the call belongs to.
+     */
+    public String getCampaign() {
+        return campaign;
+    }
+
     /**
      * Converts a {@link CallResult call result} to a database entity.
      *
@@ -200,6 +242,7 @@ public class CallResult {
                 .set(SurveyEntities.CALL_RESULT_HUMAN_ANSWERED, humanAnswered)
                 .set(SurveyEntities.CALL_RESULT_DIRECTION, direction != null ? direction.getInternalCode() : CallDirection.UNKNOWN.getInternalCode())
                 .set(SurveyEntities.CALL_RESULT_DIGITS, digits)
+                .set(SurveyEntities.CALL_RESULT_CAMPAIGN, campaign)
                 .build();
     }
 
@@ -210,28 +253,40 @@ public class CallResult {
      * @return      The {@link CallResult call result}.
      */
     public static CallResult fromCall(Call call) {
-        CallResult result = new CallResult();
-        result.destination = call.getTo();
-        result.callSID = call.getSid();
+        return fromCall(call, null);
+    }
+
+    /**
+     * Creates a new instance of {@link CallResult call result} from a Twilio call made as part of a campaign.
+     *
+     * @param call      The Twilio Call.
+     * @param campaign  The campaign the call belongs to.
+     * @return          The {@link CallResult call result}.
+     */
+    public static CallResult fromCall(Call call, String campaign) {
+        Builder builder = builder()
+                .withCampaign(campaign)
+                .withDestination(call.getTo())
+                .withCallSID(call.getSid());
 
         try {
-            result.callDuration = Integer.parseInt(call.getDuration());
+            builder.withCallDuration(Integer.parseInt(call.getDuration()));
         } catch (NumberFormatException e) {
             logger.warn("Unable to fetch the call duration.");
         }
 
         if (call.getAnsweredBy() != null) {
-            result.humanAnswered = call.getAnsweredBy().equals("human");
+            builder.withHumanAnswered(call.getAnsweredBy().equals("human"));
         }
 
-        result.status = CallStatus.fromDesc(call.getStatus());
-        result.direction = CallDirection.fromDesc(call.getDirection());
+        builder.withStatus(CallStatus.fromDesc(call.getStatus()))
+                .withDirection(CallDirection.fromDesc(call.getDirection()));
 
         if (call.getDateCreated() != null) {
-            result.callDate = LocalDateTime.ofInstant(call.getDateCreated().toInstant(), ZoneId.systemDefault());
+            builder.withCallDate(LocalDateTime.ofInstant(call.getDateCreated().toInstant(), ZoneId.systemDefault()));
         }
 
-        return result;
+        return builder.build();
     }
 
     /**
@@ -241,29 +296,29 @@ public class CallResult {
      * @return          The {@link CallResult call result}.
      */
     public static CallResult fromHttpServletRequest(HttpServletRequest request) {
-        CallResult result = new CallResult();
-        result.destination = request.getParameter("Caller");
-        result.callSID = request.getParameter("CallSid");
+        Builder builder = builder()
+                .withDestination(request.getParameter("To"))
+                .withCallSID(request.getParameter("CallSid"));
 
         try {
-            result.callDuration = Integer.parseInt(request.getParameter("CallDuration"));
+            builder.withCallDuration(Integer.parseInt(request.getParameter("CallDuration")));
         } catch (NumberFormatException e) {
             logger.warn("Unable to fetch the call duration.");
         }
 
         String answeredBy = request.getParameter("AnsweredBy");
-        result.humanAnswered = answeredBy != null && answeredBy.equals("human");
-
-        result.status = CallStatus.fromDesc(request.getParameter("CallStatus"));
-        result.direction = CallDirection.fromDesc(request.getParameter("Direction"));
-        result.digits = request.getParameter("Digits");
+        builder.withHumanAnswered(answeredBy != null && answeredBy.equals("human"))
+                .withStatus(CallStatus.fromDesc(request.getParameter("CallStatus")))
+                .withDirection(CallDirection.fromDesc(request.getParameter("Direction")))
+                .withDigits(request.getParameter("Digits"))
+                .withCampaign(request.getParameter(CAMPAIGN_PARAMETER));
 
         String callTs = request.getParameter("Timestamp");
         if (StringUtils.isNotBlank(callTs)) {
-            result.callDate = LocalDateTime.parse(callTs, formatter);
+            builder.withCallDate(LocalDateTime.parse(callTs, formatter));
         }
 
-        return result;
+        return builder.build();
     }
 
     /**
@@ -273,8 +328,10 @@ public class CallResult {
      * @return          A call failure result for the specified number.
      */
     public static CallResult failedCall(String number) {
-        failedCallResult.destination = number;
-        return failedCallResult;
+        return builder()
+                .withDestination(number)
+                .withStatus(CallStatus.FAILED)
+                .build();
     }
 
     @Override
@@ -288,6 +345,7 @@ public class CallResult {
                 .add("callDate", callDate)
                 .add("direction", direction)
                 .add("digits",  digits)
+                .add("campaign", campaign)
                 .toString();
     }
 
@@ -298,11 +356,186 @@ public class CallResult {
 
         CallResult that = (CallResult) o;
 
-        return callSID.equals(that.callSID);
+        return Objects.equals(callSID, that.callSID);
     }
 
     @Override
     public int hashCode() {
-        return callSID.hashCode();
+        return Objects.hashCode(callSID);
+    }
+
+    /**
+     * Builder of {@link CallResult call results}.
+     * <p/>
+     * Builders are meant to be used by a single thread, the {@link CallResult call results} they build are immutable and can be freely shared.
+     */
+    public static final class Builder {
+
+        /**
+         * The phone number dialed.
+         */
+        private String destination;
+
+        /**
+         * The SID of the call.
+         */
+        private String callSID;
+
+        /**
+         * The duration of the call in seconds.
+         */
+        private int callDuration;
+
+        /**
+         * Flag indicating if an human answered the call or if it was an answering machine.
+         */
+        private boolean humanAnswered;
+
+        /**
+         * The {@link CallStatus status} of the call.
+         */
+        private CallStatus status;
+
+        /**
+         * The call date.
+         */
+        private LocalDateTime callDate;
+
+        /**
+         * The {@link CallDirection}, outbound or inbound.
+         */
+        private CallDirection direction;
+
+        /**
+         * The digits pressed by the survey member during the call.
+         */
+        private String digits;
+
+        /**
+         * The campaign the call belongs to.
+         */
+        private String campaign;
+
+        /**
+         * Creates a new instance of {@link Builder}.
+         */
+        private Builder() {}
+
+        /**
+         * Configures the phone number dialed.
+         *
+         * @param destination   The phone number dialed.
+         * @return              The {@link Builder} instance.
+         */
+        public Builder withDestination(String destination) {
+            this.destination = destination;
+
+            return this;
+        }
+
+        /**
+         * Configures the SID of the call.
+         *
+         * @param callSID   The SID of the call.
+         * @return          The {@link Builder} instance.
+         */
+        public Builder withCallSID(String callSID) {
+            this.callSID = callSID;
+
+            return this;
+        }
+
+        /**
+         * Configures the duration of the call in seconds.
+         *
+         * @param callDuration  The duration of the call in seconds.
+         * @return              The {@link Builder} instance.
+         */
+        public Builder withCallDuration(int callDuration) {
+            this.callDuration = callDuration;
+
+            return this;
+        }
+
+        /**
+         * Configures if an human answered the call.
+         *
+         * @param humanAnswered {@code true} if the call was answered by an human, {@code false} otherwise.
+         * @return              The {@link Builder} instance.
+         */
+        public Builder withHumanAnswered(boolean humanAnswered) {
+            this.humanAnswered = humanAnswered;
+
+            return this;
+        }
+
+        /**
+         * Configures the {@link CallStatus status} of the call.
+         *
+         * @param status    The {@link CallStatus status} of the call.
+         * @return          The {@link Builder} instance.
+         */
+        public Builder withStatus(CallStatus status) {
+            this.status = status;
+
+            return this;
+        }
+
+        /**
+         * Configures the call date.
+         *
+         * @param callDate  The call date.
+         * @return          The {@link Builder} instance.
+         */
+        public Builder withCallDate(LocalDateTime callDate) {
+            this.callDate = callDate;
+
+            return this;
+        }
+
+        /**
+         * Configures the {@link CallDirection call direction}.
+         *
+         * @param direction The {@link CallDirection call direction}.
+         * @return          The {@link Builder} instance.
+         */
+        public Builder withDirection(CallDirection direction) {
+            this.direction = direction;
+
+            return this;
+        }
+
+        /**
+         * Configures the digits pressed by the survey member during the call.
+         *
+         * @param digits    The digits pressed by the survey member during the call.
+         * @return          The {@link Builder} instance.
+         */
+        public Builder withDigits(String digits) {
+            this.digits = digits;
+
+            return this;
+        }
+
+        /**
+         * Configures the campaign the call belongs to, defaults to {@link #DEFAULT_CAMPAIGN}.
+         *
+         * @param campaign  The campaign the call belongs to.
+         * @return          The {@link Builder} instance.
+         */
+        public Builder withCampaign(String campaign) {
+            this.campaign = campaign;
+
+            return this;
+        }
+
+        /**
+         * Builds the {@link CallResult call result}.
+         *
+         * @return  A new immutable {@link CallResult call result}.
+         */
+        public CallResult build() {
+            return new CallResult(this);
+        }
     }
 }
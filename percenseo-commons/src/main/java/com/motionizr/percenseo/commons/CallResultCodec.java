@@ -0,0 +1,259 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary codec for {@link CallResult call results}.
+ * <p/>
+ * Every record has a fixed size of {@link #RECORD_SIZE} bytes so records can be stored back to back and addressed by
+ * index, which makes it suitable for queues, caches and files shared between the handler and the database.
+ * The layout of version {@value #VERSION} is the following (big-endian):
+ * <pre>
+ *  offset  size  field
+ *       0     1  version
+ *       1     1  flags (bit 0: human answered, bit 1: call date present)
+ *       2     1  status internal code
+ *       3     1  direction internal code
+ *       4     4  call duration in seconds
+ *       8     8  destination number, see {@link PhoneNumbers#toLong(CharSequence)}, zero if absent
+ *      16     8  call date as epoch seconds in UTC
+ *      24    34  call SID in ASCII, padded with zeros
+ *      58     1  number of digits pressed
+ *      59    32  digits pressed in ASCII, padded with zeros
+ *      91     1  length of the campaign
+ *      92    64  campaign in ASCII, padded with zeros
+ *     156     4  reserved
+ * </pre>
+ * Records of version {@value #V1} are {@value #V1_RECORD_SIZE} bytes long and have no campaign, the 5 bytes from
+ * offset 91 are reserved. They are still decoded, with the {@link CallResult#DEFAULT_CAMPAIGN default campaign}, but
+ * only records of the current version are encoded.
+ * <p/>
+ * Destinations are stored as numbers, so only destinations in {@link PhoneNumbers#isE164(CharSequence) E.164} are
+ * accepted, these are the only ones that are read back exactly as they were written.
+ * <p/>
+ * Records are read back either by copying them into a new {@link CallResult} with {@link #decode(ByteBuffer)} or
+ * without copying anything through a {@link CallResultView}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class CallResultCodec {
+
+    /**
+     * The current version of the binary format.
+     */
+    public static final byte VERSION = 2;
+
+    /**
+     * The size in bytes of each encoded record.
+     */
+    public static final int RECORD_SIZE = 160;
+
+    /**
+     * The first version of the binary format, without the campaign.
+     */
+    public static final byte V1 = 1;
+
+    /**
+     * The size in bytes of each record of version {@value #V1}.
+     */
+    public static final int V1_RECORD_SIZE = 96;
+
+    /**
+     * The maximum size in bytes of the call SID.
+     */
+    public static final int SID_SIZE = 34;
+
+    /**
+     * The maximum number of digits pressed that can be stored.
+     */
+    public static final int DIGITS_SIZE = 32;
+
+    /**
+     * The maximum size in bytes of the campaign.
+     */
+    public static final int CAMPAIGN_SIZE = 64;
+
+    /**
+     * Offsets of each field inside a record.
+     */
+    static final int VERSION_OFFSET = 0;
+    static final int FLAGS_OFFSET = 1;
+    static final int STATUS_OFFSET = 2;
+    static final int DIRECTION_OFFSET = 3;
+    static final int DURATION_OFFSET = 4;
+    static final int NUMBER_OFFSET = 8;
+    static final int DATE_OFFSET = 16;
+    static final int SID_OFFSET = 24;
+    static final int DIGITS_LENGTH_OFFSET = SID_OFFSET + SID_SIZE;
+    static final int DIGITS_OFFSET = DIGITS_LENGTH_OFFSET + 1;
+    static final int CAMPAIGN_LENGTH_OFFSET = DIGITS_OFFSET + DIGITS_SIZE;
+    static final int CAMPAIGN_OFFSET = CAMPAIGN_LENGTH_OFFSET + 1;
+
+    /**
+     * Flags stored in the flags byte.
+     */
+    static final int FLAG_HUMAN_ANSWERED = 1;
+    static final int FLAG_HAS_DATE = 1 << 1;
+
+    /**
+     * Empty constructor to prevent instantiation.
+     */
+    private CallResultCodec() {}
+
+    /**
+     * Encodes a {@link CallResult call result} at the current position of the buffer and advances its position by {@link #RECORD_SIZE}.
+     *
+     * @param result                    The {@link CallResult call result} to encode.
+     * @param buffer                    The big-endian buffer where the record will be written.
+     * @throws IllegalArgumentException If the buffer has not enough space, if the destination is not in E.164 or if any
+     *                                  other field of the result does not fit the format.
+     */
+    public static void encode(CallResult result, ByteBuffer buffer) throws IllegalArgumentException {
+        Preconditions.checkArgument(buffer.order() == ByteOrder.BIG_ENDIAN, "The buffer must be big-endian.");
+        Preconditions.checkArgument(buffer.remaining() >= RECORD_SIZE, "Not enough space in the buffer to encode the call result.");
+        Preconditions.checkArgument(result.getDestination() == null || PhoneNumbers.isE164(result.getDestination()),
+                String.format("The destination must be in E.164: %s", result.getDestination()));
+
+        int offset = buffer.position();
+        int flags = (result.isHumanAnswered() ? FLAG_HUMAN_ANSWERED : 0) | (result.getCallDate() != null ? FLAG_HAS_DATE : 0);
+        CallStatus status = result.getStatus() != null ? result.getStatus() : CallStatus.UNKNOWN;
+        CallDirection direction = result.getDirection() != null ? result.getDirection() : CallDirection.UNKNOWN;
+
+        buffer.put(offset + VERSION_OFFSET, VERSION);
+        buffer.put(offset + FLAGS_OFFSET, (byte) flags);
+        buffer.put(offset + STATUS_OFFSET, (byte) status.getInternalCode());
+        buffer.put(offset + DIRECTION_OFFSET, (byte) direction.getInternalCode());
+        buffer.putInt(offset + DURATION_OFFSET, result.getCallDuration());
+        buffer.putLong(offset + NUMBER_OFFSET, PhoneNumbers.toLong(result.getDestination()));
+        buffer.putLong(offset + DATE_OFFSET, result.getCallDate() != null ? result.getCallDate().toEpochSecond(ZoneOffset.UTC) : 0L);
+        putAscii(buffer, offset + SID_OFFSET, SID_SIZE, result.getCallSID(), "call SID");
+
+        String digits = result.getDigits();
+        buffer.put(offset + DIGITS_LENGTH_OFFSET, (byte) (digits != null ? digits.length() : 0));
+        putAscii(buffer, offset + DIGITS_OFFSET, DIGITS_SIZE, digits, "digits");
+
+        String campaign = result.getCampaign();
+        buffer.put(offset + CAMPAIGN_LENGTH_OFFSET, (byte) campaign.length());
+        putAscii(buffer, offset + CAMPAIGN_OFFSET, CAMPAIGN_SIZE, campaign, "campaign");
+
+        for (int i = CAMPAIGN_OFFSET + CAMPAIGN_SIZE; i < RECORD_SIZE; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+
+        buffer.position(offset + RECORD_SIZE);
+    }
+
+    /**
+     * Decodes the {@link CallResult call result} at the current position of the buffer and advances its position by the
+     * size of the record, {@link #RECORD_SIZE} or {@link #V1_RECORD_SIZE} depending on its version.
+     *
+     * @param buffer                    The big-endian buffer containing the record.
+     * @return                          The decoded {@link CallResult call result}.
+     * @throws IllegalArgumentException If the buffer does not contain a full record or if the record version is not supported.
+     */
+    public static CallResult decode(ByteBuffer buffer) throws IllegalArgumentException {
+        CallResultView view = new CallResultView().wrap(buffer, buffer.position());
+        CallResult result = view.toCallResult();
+        buffer.position(buffer.position() + view.getRecordSize());
+
+        return result;
+    }
+
+    /**
+     * Gets the size of the records of a version of the binary format.
+     *
+     * @param version   The version of the binary format.
+     * @return          The size in bytes of each record, {@code 0} if the version is not supported.
+     */
+    static int recordSize(byte version) {
+        switch (version) {
+            case VERSION:
+                return RECORD_SIZE;
+            case V1:
+                return V1_RECORD_SIZE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Writes an ASCII string in a fixed width field, padding it with zeros.
+     *
+     * @param buffer    The buffer.
+     * @param offset    The offset of the field.
+     * @param size      The size of the field.
+     * @param value     The value to write, may be {@code null}.
+     * @param field     The name of the field, used in error messages.
+     */
+    private static void putAscii(ByteBuffer buffer, int offset, int size, String value, String field) {
+        int length = value != null ? value.length() : 0;
+        Preconditions.checkArgument(length <= size, String.format("The %s does not fit in %d bytes: %s", field, size, value));
+
+        for (int i = 0; i < size; i++) {
+            char c = i < length ? value.charAt(i) : 0;
+            Preconditions.checkArgument(c < 128, String.format("The %s must be ASCII: %s", field, value));
+            buffer.put(offset + i, (byte) c);
+        }
+    }
+
+    /**
+     * Reads an ASCII string from a fixed width field.
+     *
+     * @param buffer    The buffer.
+     * @param offset    The offset of the field.
+     * @param length    The number of characters to read.
+     * @return          The string read or {@code null} if the field is empty.
+     */
+    static String getAscii(ByteBuffer buffer, int offset, int length) {
+        if (length == 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Converts the epoch seconds stored in a record to a call date.
+     *
+     * @param epochSecond   The epoch seconds in UTC.
+     * @return              The call date.
+     */
+    static LocalDateTime toCallDate(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+
+import static com.motionizr.percenseo.commons.CallResultCodec.*;
+
+/**
+ * Read only view over a {@link CallResult call result} encoded by {@link CallResultCodec}.
+ * <p/>
+ * Fields are read straight from the underlying buffer when requested, nothing is copied when wrapping a record.
+ * The same instance can be reused to go through several records, which is why this class is not thread safe.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallResultView {
+
+    /**
+     * The buffer containing the record.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The offset of the record in the buffer.
+     */
+    private int offset;
+
+    /**
+     * The version of the record.
+     */
+    private byte version;
+
+    /**
+     * Points the view to the record at a given offset of a buffer.
+     *
+     * @param buffer                    The big-endian buffer containing the record.
+     * @param offset                    The offset of the record in the buffer.
+     * @return                          The {@link CallResultView} instance.
+     * @throws IllegalArgumentException If the buffer does not contain a full record or if the record version is not supported.
+     */
+    public CallResultView wrap(ByteBuffer buffer, int offset) throws IllegalArgumentException {
+        Preconditions.checkArgument(buffer.order() == ByteOrder.BIG_ENDIAN, "The buffer must be big-endian.");
+        Preconditions.checkArgument(offset >= 0 && offset < buffer.limit(), "The buffer does not contain a full call result record.");
+        byte version = buffer.get(offset + VERSION_OFFSET);
+        int recordSize = recordSize(version);
+        Preconditions.checkArgument(recordSize > 0, String.format("Unsupported call result record version: %d", version));
+        Preconditions.checkArgument(buffer.limit() - offset >= recordSize, "The buffer does not contain a full call result record.");
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.version = version;
+
+        return this;
+    }
+
+    /**
+     * Gets the size of the record, which depends on its version.
+     *
+     * @return  The size in bytes of the record.
+     */
+    public int getRecordSize() {
+        return recordSize(version);
+    }
+
+    /**
+     * Gets the numeric representation of the phone number dialed.
+     *
+     * @return  The numeric representation of the phone number dialed, see {@link PhoneNumbers#toLong(CharSequence)}.
+     */
+    public long getNumber() {
+        return buffer.getLong(offset + NUMBER_OFFSET);
+    }
+
+    /**
+     * Gets the phone number dialed.
+     *
+     * @return  The phone number dialed.
+     */
+    public String getDestination() {
+        return PhoneNumbers.toE164(getNumber());
+    }
+
+    /**
+     * Gets the SID of the call.
+     *
+     * @return  The SID of the call.
+     */
+    public String getCallSID() {
+        int length = 0;
+        while (length < SID_SIZE && buffer.get(offset + SID_OFFSET + length) != 0) {
+            length++;
+        }
+
+        return getAscii(buffer, offset + SID_OFFSET, length);
+    }
+
+    /**
+     * Gets the duration of the call in seconds.
+     *
+     * @return  The duration of the call in seconds.
+     */
+    public int getCallDuration() {
+        return buffer.getInt(offset + DURATION_OFFSET);
+    }
+
+    /**
+     * Verifies if an human answered the call.
+     *
+     * @return  {@code true} if the call was answered by an human, {@code false} otherwise.
+     */
+    public boolean isHumanAnswered() {
+        return (buffer.get(offset + FLAGS_OFFSET) & FLAG_HUMAN_ANSWERED) != 0;
+    }
+
+    /**
+     * Gets the {@link CallStatus status} of the call.
+     *
+     * @return  The {@link CallStatus status} of the call.
+     */
+    public CallStatus getStatus() {
+        return CallStatus.fromInternalCode(buffer.get(offset + STATUS_OFFSET));
+    }
+
+    /**
+     * Gets the {@link CallDirection call direction}.
+     *
+     * @return  The {@link CallDirection call direction}.
+     */
+    public CallDirection getDirection() {
+        return CallDirection.fromInternalCode(buffer.get(offset + DIRECTION_OFFSET));
+    }
+
+    /**
+     * Gets the call date.
+     *
+     * @return  The call date or {@code null} if the call date is unknown.
+     */
+    public LocalDateTime getCallDate() {
+        if ((buffer.get(offset + FLAGS_OFFSET) & FLAG_HAS_DATE) == 0) {
+            return null;
+        }
+
+        return toCallDate(buffer.getLong(offset + DATE_OFFSET));
+    }
+
+    /**
+     * Gets the digits pressed by the survey member during the call.
+     *
+     * @return  The digits pressed by the survey member during the call.
+     */
+    public String getDigits() {
+        return getAscii(buffer, offset + DIGITS_OFFSET, buffer.get(offset + DIGITS_LENGTH_OFFSET));
+    }
+
+    /**
+     * Gets the campaign the call belongs to.
+     *
+     * @return  The campaign the call belongs to, {@link CallResult#DEFAULT_CAMPAIGN} for records of version
+     *          {@value CallResultCodec#V1}.
+     */
+    public String getCampaign() {
+        if (version == V1) {
+            return CallResult.DEFAULT_CAMPAIGN;
+        }
+
+        return getAscii(buffer, offset + CAMPAIGN_OFFSET, buffer.get(offset + CAMPAIGN_LENGTH_OFFSET));
+    }
+
+    /**
+     * Copies the record into a new {@link CallResult call result}.
+     *
+     * @return  The {@link CallResult call result}.
+     */
+    public CallResult toCallResult() {
+        return CallResult.builder()
+                .withDestination(getDestination())
+                .withCallSID(getCallSID())
+                .withCallDuration(getCallDuration())
+                .withHumanAnswered(isHumanAnswered())
+                .withStatus(getStatus())
+                .withCallDate(getCallDate())
+                .withDirection(getDirection())
+                .withDigits(getDigits())
+                .withCampaign(getCampaign())
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("offset", offset)
+                .add("number", getNumber())
+                .add("callSID", getCallSID())
+                .add("status", getStatus())
+                .add("campaign", getCampaign())
+                .toString();
+    }
+}
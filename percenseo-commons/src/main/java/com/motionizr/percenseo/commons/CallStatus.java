@@ -96,20 +96,26 @@ public enum CallStatus {
             .collect(Collectors.toMap(CallStatus::getDesc, Function.identity()));
 
     /**
-     * Map containing the {@link CallStatus call status} instances by its internal code.
+     * Flyweight table containing the {@link CallStatus call status} instances indexed by its internal code plus one.
+     * <p/>
+     * Avoids boxing the internal code on every lookup, which happens for every call result read or decoded.
      */
-    private static final Map<Integer, CallStatus> FROM_INTERNAL_CODE = Arrays.stream(CallStatus.values())
-            .collect(Collectors.toMap(CallStatus::getInternalCode, Function.identity()));
+    private static final CallStatus[] FROM_INTERNAL_CODE = new CallStatus[Arrays.stream(CallStatus.values())
+            .mapToInt(CallStatus::getInternalCode).max().getAsInt() + 2];
+
+    static {
+        Arrays.stream(CallStatus.values()).forEach(status -> FROM_INTERNAL_CODE[status.getInternalCode() + 1] = status);
+    }
 
     /**
      * The status description used by the Twilio API.
      */
-    private String desc;
+    private final String desc;
 
     /**
      * The internal code used to represent the instance in an efficient manner.
      */
-    private int internalCode;
+    private final int internalCode;
 
     /**
      * Creates a new instance of {@link CallStatus}.
@@ -140,6 +146,24 @@ public enum CallStatus {
         return internalCode;
     }
 
+    /**
+     * Verifies if the status is final, i.e. if the call is over and its status will not change anymore.
+     *
+     * @return  {@code true} if the status is final, {@code false} otherwise.
+     */
+    public boolean isTerminal() {
+        switch (this) {
+            case CANCELED:
+            case COMPLETED:
+            case BUSY:
+            case FAILED:
+            case NO_ANSWER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Gets the {@link CallStatus call status} instance from its public desc.
      *
@@ -156,9 +180,24 @@ public enum CallStatus {
      * @param internalCode  The internal code of the {@link CallStatus call status}.
      * @return              The {@link CallStatus call status} instance.
      */
-    @SuppressWarnings("UnusedDeclaration")
+    public static CallStatus fromInternalCode(int internalCode) {
+        int index = internalCode + 1;
+        if (index < 0 || index >= FROM_INTERNAL_CODE.length || FROM_INTERNAL_CODE[index] == null) {
+            return UNKNOWN;
+        }
+
+        return FROM_INTERNAL_CODE[index];
+    }
+
+    /**
+     * Gets the {@link CallStatus call status} instance from its internal code, as read from the database.
+     *
+     * @param internalCode  The internal code of the {@link CallStatus call status}, {@code null} if unknown.
+     * @return              The {@link CallStatus call status} instance, {@link #UNKNOWN} if the internal code is
+     *                      {@code null}.
+     */
     public static CallStatus fromInternalCode(Integer internalCode) {
-        return FROM_INTERNAL_CODE.getOrDefault(internalCode, UNKNOWN);
+        return internalCode == null ? UNKNOWN : fromInternalCode(internalCode.intValue());
     }
 
     @Override
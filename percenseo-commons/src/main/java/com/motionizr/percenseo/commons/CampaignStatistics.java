@@ -0,0 +1,288 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import javax.servlet.ServletContext;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live statistics about the outcome of the survey calls, updated as the {@link CallResult call results} arrive.
+ * <p/>
+ * All the counters are striped so concurrent callbacks don't contend on the same memory location, and reading the
+ * statistics never touches the database. The amount of work needed to read them is bounded by the number of
+ * {@link CallStatus status}, duration buckets and distinct digits tracked, not by the number of calls.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CampaignStatistics {
+
+    /**
+     * The name of the servlet context attribute holding the shared instance.
+     */
+    public static final String CONTEXT_ATTRIBUTE = CampaignStatistics.class.getName();
+
+    /**
+     * The upper bounds, in seconds, of the call duration histogram buckets. The last bucket has no upper bound.
+     */
+    static final int[] DURATION_BUCKETS = {0, 5, 10, 15, 30, 60, 120, 300, 600};
+
+    /**
+     * The maximum number of distinct digit sequences tracked, the remaining ones are grouped together.
+     */
+    static final int MAX_DISTINCT_DIGITS = 256;
+
+    /**
+     * The key used to group digit sequences once {@link #MAX_DISTINCT_DIGITS} is reached.
+     */
+    static final String OTHER_DIGITS = "other";
+
+    /**
+     * The number of calls by {@link CallStatus status}, indexed by the status ordinal.
+     */
+    private final LongAdder[] statusCounts = newCounters(CallStatus.values().length);
+
+    /**
+     * The number of calls answered by an human.
+     */
+    private final LongAdder humanAnswered = new LongAdder();
+
+    /**
+     * The number of completed calls by duration bucket.
+     */
+    private final LongAdder[] durationCounts = newCounters(DURATION_BUCKETS.length + 1);
+
+    /**
+     * The sum of the duration of all the completed calls.
+     */
+    private final LongAdder totalDuration = new LongAdder();
+
+    /**
+     * The number of completed calls by digits pressed.
+     */
+    private final Map<String, LongAdder> digitsCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the instance shared by all the servlets of a context, creating it if necessary.
+     *
+     * @param context   The servlet context.
+     * @return          The shared {@link CampaignStatistics}.
+     */
+    public static CampaignStatistics fromContext(ServletContext context) {
+        synchronized (context) {
+            CampaignStatistics statistics = (CampaignStatistics) context.getAttribute(CONTEXT_ATTRIBUTE);
+            if (statistics == null) {
+                statistics = new CampaignStatistics();
+                context.setAttribute(CONTEXT_ATTRIBUTE, statistics);
+            }
+
+            return statistics;
+        }
+    }
+
+    /**
+     * Records a {@link CallResult call result}.
+     * <p/>
+     * Durations and digits are only recorded for {@link CallStatus#COMPLETED completed} calls.
+     *
+     * @param result    The {@link CallResult call result}.
+     */
+    public void record(CallResult result) {
+        CallStatus status = result.getStatus() != null ? result.getStatus() : CallStatus.UNKNOWN;
+        statusCounts[status.ordinal()].increment();
+
+        if (status != CallStatus.COMPLETED) {
+            return;
+        }
+
+        if (result.isHumanAnswered()) {
+            humanAnswered.increment();
+        }
+
+        durationCounts[durationBucket(result.getCallDuration())].increment();
+        totalDuration.add(result.getCallDuration());
+
+        if (result.getDigits() != null) {
+            digitsCounter(result.getDigits()).increment();
+        }
+    }
+
+    /**
+     * Gets the number of calls with a given {@link CallStatus status}.
+     *
+     * @param status    The {@link CallStatus status}.
+     * @return          The number of calls.
+     */
+    public long getCount(CallStatus status) {
+        return statusCounts[status.ordinal()].sum();
+    }
+
+    /**
+     * Gets the total number of calls recorded.
+     *
+     * @return  The total number of calls recorded.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (LongAdder count : statusCounts) {
+            total += count.sum();
+        }
+
+        return total;
+    }
+
+    /**
+     * Gets the rate of completed calls that were answered by an human.
+     *
+     * @return  The rate of completed calls answered by an human, between {@code 0} and {@code 1}.
+     */
+    public double getHumanAnsweredRate() {
+        long completed = getCount(CallStatus.COMPLETED);
+        return completed == 0 ? 0 : (double) humanAnswered.sum() / completed;
+    }
+
+    /**
+     * Gets the number of completed calls in each duration bucket.
+     *
+     * @return  The number of completed calls by duration bucket, see {@link #DURATION_BUCKETS}.
+     */
+    public long[] getDurationHistogram() {
+        long[] histogram = new long[durationCounts.length];
+        for (int i = 0; i < durationCounts.length; i++) {
+            histogram[i] = durationCounts[i].sum();
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Gets the number of completed calls by digits pressed.
+     *
+     * @return  The number of completed calls by digits pressed, sorted by digits.
+     */
+    public Map<String, Long> getDigitsDistribution() {
+        Map<String, Long> distribution = new TreeMap<>();
+        digitsCounts.forEach((digits, count) -> distribution.put(digits, count.sum()));
+
+        return distribution;
+    }
+
+    /**
+     * Serializes the current statistics to JSON.
+     *
+     * @return  The JSON representation of the statistics.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"total\":").append(getTotal());
+
+        json.append(",\"status\":{");
+        CallStatus[] statuses = CallStatus.values();
+        for (int i = 0; i < statuses.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(statuses[i].getDesc()).append("\":").append(statusCounts[i].sum());
+        }
+        json.append('}');
+
+        long completed = getCount(CallStatus.COMPLETED);
+        json.append(",\"humanAnsweredRate\":").append(getHumanAnsweredRate());
+        json.append(",\"averageDuration\":").append(completed == 0 ? 0 : (double) totalDuration.sum() / completed);
+
+        json.append(",\"durationHistogram\":[");
+        long[] histogram = getDurationHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"le\":").append(i < DURATION_BUCKETS.length ? String.valueOf(DURATION_BUCKETS[i]) : "null")
+                    .append(",\"count\":").append(histogram[i]).append('}');
+        }
+        json.append(']');
+
+        json.append(",\"digits\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : getDigitsDistribution().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            JsonStrings.append(json, entry.getKey()).append(':').append(entry.getValue());
+            first = false;
+        }
+        json.append("}}");
+
+        return json.toString();
+    }
+
+    /**
+     * Gets the counter for a digit sequence, grouping new sequences once {@link #MAX_DISTINCT_DIGITS} is reached.
+     *
+     * @param digits    The digits pressed.
+     * @return          The counter.
+     */
+    private LongAdder digitsCounter(String digits) {
+        LongAdder counter = digitsCounts.get(digits);
+        if (counter != null) {
+            return counter;
+        }
+
+        String key = digitsCounts.size() < MAX_DISTINCT_DIGITS ? digits : OTHER_DIGITS;
+        return digitsCounts.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    /**
+     * Gets the index of the histogram bucket for a call duration.
+     *
+     * @param duration  The call duration in seconds.
+     * @return          The index of the bucket.
+     */
+    static int durationBucket(int duration) {
+        for (int i = 0; i < DURATION_BUCKETS.length; i++) {
+            if (duration <= DURATION_BUCKETS[i]) {
+                return i;
+            }
+        }
+
+        return DURATION_BUCKETS.length;
+    }
+
+    /**
+     * Creates an array of counters.
+     *
+     * @param size  The number of counters.
+     * @return      The counters.
+     */
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+
+        return counters;
+    }
+}
@@ -23,17 +23,22 @@
  */
 package com.motionizr.percenseo.commons;
 
+import com.feedzai.commons.sql.abstraction.dml.Expression;
 import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
 import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
 import com.feedzai.commons.sql.abstraction.engine.DatabaseFactory;
 import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.feedzai.commons.sql.abstraction.entry.EntityEntry;
 
 import java.util.Properties;
 
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+
 /**
  * Helper class that contains several database related utilities.
  * <p/>
- * Currently it's mainly used to establish and close database connections using PDB.
+ * Currently it's mainly used to establish and close database connections using PDB, to store call results and to
+ * keep track of the state of the numbers of a campaign.
  *
  * @author Miguel Bento (migueljbento@gmail.com)
  * @version 1.0.0
@@ -50,7 +55,7 @@ public final class DatabaseUtils {
      *
      * @param dbFile                    The database file.
      * @throws DatabaseFactoryException If an error occurs getting the database connection.
-     * @throws DatabaseEngineException  If an error occurs creating the call result entity.
+     * @throws DatabaseEngineException  If an error occurs creating the entities.
      */
     public static DatabaseEngine initializeDbConnection(String dbFile) throws DatabaseFactoryException, DatabaseEngineException {
         Properties properties = new Properties() {{
@@ -64,11 +69,195 @@ public final class DatabaseUtils {
 
         if (!engine.containsEntity(SurveyEntities.CALL_RESULT_TABLE)) {
             engine.addEntity(SurveyEntities.CALL_RESULT_ENTITY);
+        } else {
+            upgradeCallResultEntity(engine);
+        }
+
+        if (!engine.containsEntity(SurveyEntities.NUMBER_STATE_TABLE)) {
+            engine.addEntity(SurveyEntities.NUMBER_STATE_ENTITY);
+        }
+
+        if (!engine.containsEntity(SurveyEntities.SHARD_LEASE_TABLE)) {
+            engine.addEntity(SurveyEntities.SHARD_LEASE_ENTITY);
+        }
+
+        if (!engine.containsEntity(SurveyEntities.RATE_LIMIT_TABLE)) {
+            engine.addEntity(SurveyEntities.RATE_LIMIT_ENTITY);
         }
 
         return engine;
     }
 
+    /**
+     * Upgrades call result tables created before campaigns were introduced.
+     * <p/>
+     * Existing results are assigned to the {@link CallResult#DEFAULT_CAMPAIGN default campaign}.
+     *
+     * @param engine                    The database connection.
+     * @throws DatabaseEngineException  If an error occurs upgrading the table.
+     */
+    private static void upgradeCallResultEntity(DatabaseEngine engine) throws DatabaseEngineException {
+        if (engine.getMetadata(SurveyEntities.CALL_RESULT_TABLE).containsKey(SurveyEntities.CALL_RESULT_CAMPAIGN)) {
+            return;
+        }
+
+        engine.executeUpdate(String.format("ALTER TABLE \"%s\" ADD COLUMN \"%s\" VARCHAR(64) DEFAULT '%s'",
+                SurveyEntities.CALL_RESULT_TABLE, SurveyEntities.CALL_RESULT_CAMPAIGN, CallResult.DEFAULT_CAMPAIGN));
+        engine.executeUpdate(String.format("CREATE INDEX IF NOT EXISTS \"%s\" ON \"%s\"(\"%s\", \"%s\", \"%s\")",
+                SurveyEntities.CALL_RESULT_CAMPAIGN_INDEX, SurveyEntities.CALL_RESULT_TABLE,
+                SurveyEntities.CALL_RESULT_CAMPAIGN, SurveyEntities.CALL_RESULT_STATUS, SurveyEntities.CALL_RESULT_TO));
+    }
+
+    /**
+     * Inserts a {@link CallResult call result} or replaces the existing one with the same SID.
+     * <p/>
+     * Must be called within a transaction, it may issue both an update and an insert.
+     *
+     * @param engine                    The database connection.
+     * @param result                    The {@link CallResult call result}.
+     * @throws DatabaseEngineException  If an error occurs storing the call result.
+     */
+    public static void upsertCallResult(DatabaseEngine engine, CallResult result) throws DatabaseEngineException {
+        if (updateCallResult(engine, result, null) == 0) {
+            engine.persist(SurveyEntities.CALL_RESULT_TABLE, result.toEntity());
+        }
+    }
+
+    /**
+     * Updates the stored {@link CallResult call result} with the same SID.
+     *
+     * @param engine                    The database connection.
+     * @param result                    The {@link CallResult call result}.
+     * @param condition                 An additional condition the stored call result must meet to be updated, may be {@code null}.
+     * @return                          The number of call results updated.
+     * @throws DatabaseEngineException  If an error occurs updating the call result.
+     */
+    public static int updateCallResult(DatabaseEngine engine, CallResult result, Expression condition) throws DatabaseEngineException {
+        EntityEntry entry = result.toEntity();
+        Expression sidMatches = eq(column(SurveyEntities.CALL_RESULT_SID), k(result.getCallSID()));
+
+        return engine.executeUpdate(update(table(SurveyEntities.CALL_RESULT_TABLE))
+                .set(
+                        eq(column(SurveyEntities.CALL_RESULT_TO), k(entry.get(SurveyEntities.CALL_RESULT_TO))),
+                        eq(column(SurveyEntities.CALL_RESULT_DURATION), k(entry.get(SurveyEntities.CALL_RESULT_DURATION))),
+                        eq(column(SurveyEntities.CALL_RESULT_STATUS), k(entry.get(SurveyEntities.CALL_RESULT_STATUS))),
+                        eq(column(SurveyEntities.CALL_RESULT_DATE), k(entry.get(SurveyEntities.CALL_RESULT_DATE))),
+                        eq(column(SurveyEntities.CALL_RESULT_HUMAN_ANSWERED), k(entry.get(SurveyEntities.CALL_RESULT_HUMAN_ANSWERED))),
+                        eq(column(SurveyEntities.CALL_RESULT_DIRECTION), k(entry.get(SurveyEntities.CALL_RESULT_DIRECTION))),
+                        eq(column(SurveyEntities.CALL_RESULT_DIGITS), k(entry.get(SurveyEntities.CALL_RESULT_DIGITS))),
+                        eq(column(SurveyEntities.CALL_RESULT_CAMPAIGN), k(entry.get(SurveyEntities.CALL_RESULT_CAMPAIGN)))
+                )
+                .where(condition != null ? and(sidMatches, condition) : sidMatches));
+    }
+
+    /**
+     * Records that a number of a campaign was dialed.
+     * <p/>
+     * When the status callback of the call was recorded first, only the number of attempts is updated so its final
+     * status is kept.
+     *
+     * @param engine                    The database connection.
+     * @param campaign                  The campaign.
+     * @param number                    The number dialed.
+     * @param callSID                   The SID of the call, {@code null} if the Twilio API rejected it.
+     * @param status                    The status of the call.
+     * @param attempts                  The number of times the number was dialed, including this one.
+     * @param updated                   The time the number was dialed, in epoch milliseconds.
+     * @throws DatabaseEngineException  If an error occurs storing the state of the number.
+     */
+    public static void recordAttempt(DatabaseEngine engine, String campaign, String number, String callSID, CallStatus status,
+                                     int attempts, long updated) throws DatabaseEngineException {
+        String sid = callSID != null ? callSID : "";
+        Expression numberMatches = numberStateMatches(campaign, number);
+
+        if (engine.executeUpdate(update(table(SurveyEntities.NUMBER_STATE_TABLE))
+                .set(
+                        eq(column(SurveyEntities.NUMBER_STATE_ATTEMPTS), k(attempts)),
+                        eq(column(SurveyEntities.NUMBER_STATE_STATUS), k(status.getInternalCode())),
+                        eq(column(SurveyEntities.NUMBER_STATE_LAST_SID), k(sid)),
+                        eq(column(SurveyEntities.NUMBER_STATE_UPDATED), k(updated))
+                )
+                .where(sid.isEmpty() ? numberMatches : and(numberMatches, neq(column(SurveyEntities.NUMBER_STATE_LAST_SID), k(sid))))) > 0) {
+            return;
+        }
+
+        if (!sid.isEmpty() && engine.executeUpdate(update(table(SurveyEntities.NUMBER_STATE_TABLE))
+                .set(eq(column(SurveyEntities.NUMBER_STATE_ATTEMPTS), k(attempts)))
+                .where(and(numberMatches, eq(column(SurveyEntities.NUMBER_STATE_LAST_SID), k(sid))))) > 0) {
+            return;
+        }
+
+        engine.persist(SurveyEntities.NUMBER_STATE_TABLE, numberState(campaign, number, attempts, status, sid, updated));
+    }
+
+    /**
+     * Records the final status of the last call to a number of a campaign.
+     * <p/>
+     * Creates the state of the number when the status callback arrives before the call was recorded as dialed.
+     *
+     * @param engine                    The database connection.
+     * @param result                    The {@link CallResult call result}, with a final status.
+     * @param updated                   The time the final status was received, in epoch milliseconds.
+     * @throws DatabaseEngineException  If an error occurs storing the state of the number.
+     */
+    public static void recordFinalStatus(DatabaseEngine engine, CallResult result, long updated) throws DatabaseEngineException {
+        String sid = result.getCallSID() != null ? result.getCallSID() : "";
+        Expression numberMatches = numberStateMatches(result.getCampaign(), result.getDestination());
+        Expression[] changes = {
+                eq(column(SurveyEntities.NUMBER_STATE_STATUS), k(result.getStatus().getInternalCode())),
+                eq(column(SurveyEntities.NUMBER_STATE_LAST_SID), k(sid)),
+                eq(column(SurveyEntities.NUMBER_STATE_UPDATED), k(updated))
+        };
+
+        if (engine.executeUpdate(update(table(SurveyEntities.NUMBER_STATE_TABLE)).set(changes).where(numberMatches)) > 0) {
+            return;
+        }
+
+        try {
+            engine.persist(SurveyEntities.NUMBER_STATE_TABLE,
+                    numberState(result.getCampaign(), result.getDestination(), 1, result.getStatus(), sid, updated));
+        } catch (DatabaseEngineException e) {
+            // The call was recorded as dialed in the meantime.
+            engine.executeUpdate(update(table(SurveyEntities.NUMBER_STATE_TABLE)).set(changes).where(numberMatches));
+        }
+    }
+
+    /**
+     * Builds the condition matching the state of a number of a campaign.
+     *
+     * @param campaign  The campaign.
+     * @param number    The number.
+     * @return          The condition.
+     */
+    private static Expression numberStateMatches(String campaign, String number) {
+        return and(
+                eq(column(SurveyEntities.NUMBER_STATE_CAMPAIGN), k(campaign)),
+                eq(column(SurveyEntities.NUMBER_STATE_NUMBER), k(number))
+        );
+    }
+
+    /**
+     * Builds the state of a number of a campaign.
+     *
+     * @param campaign  The campaign.
+     * @param number    The number.
+     * @param attempts  The number of times the number was dialed.
+     * @param status    The status of the last call.
+     * @param sid       The SID of the last call, empty if the Twilio API rejected it.
+     * @param updated   The time of the last change, in epoch milliseconds.
+     * @return          The entry holding the state of the number.
+     */
+    private static EntityEntry numberState(String campaign, String number, int attempts, CallStatus status, String sid, long updated) {
+        return entry()
+                .set(SurveyEntities.NUMBER_STATE_CAMPAIGN, campaign)
+                .set(SurveyEntities.NUMBER_STATE_NUMBER, number)
+                .set(SurveyEntities.NUMBER_STATE_ATTEMPTS, attempts)
+                .set(SurveyEntities.NUMBER_STATE_STATUS, status.getInternalCode())
+                .set(SurveyEntities.NUMBER_STATE_LAST_SID, sid)
+                .set(SurveyEntities.NUMBER_STATE_UPDATED, updated)
+                .build();
+    }
+
     /**
      * Closes the database connection.
      *
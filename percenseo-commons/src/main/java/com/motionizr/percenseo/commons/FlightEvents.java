@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+/**
+ * Tells whether the JDK Flight Recorder events of Percenseo can be created.
+ * <p/>
+ * The events extend {@code jdk.jfr.Event}, available from OpenJDK 8u272 and in every JDK since 11. Call sites only
+ * create an event when {@link #ENABLED}, so the classes of the events are never loaded on a JDK without the Flight
+ * Recorder. Once created, an event costs next to nothing unless a recording enables it.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class FlightEvents {
+
+    /**
+     * The category every event is listed under.
+     */
+    public static final String CATEGORY = "Percenseo";
+
+    /**
+     * Flag indicating if the JDK Flight Recorder API is available.
+     */
+    public static final boolean ENABLED = isAvailable();
+
+    /**
+     * Empty constructor to prevent instantiation.
+     */
+    private FlightEvents() {}
+
+    /**
+     * Checks whether the JDK Flight Recorder API is available.
+     *
+     * @return  {@code true} if the API is available, {@code false} otherwise.
+     */
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
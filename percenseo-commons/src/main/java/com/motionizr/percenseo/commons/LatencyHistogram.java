@@ -0,0 +1,222 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Histogram of latencies with a bounded relative error, cheap to record into from any thread.
+ * <p/>
+ * Values are counted in log-linear buckets: every power of two is split into {@value #SUB_BUCKETS} buckets of equal
+ * width, so any value is known within 1/{@value #SUB_BUCKETS} of itself whatever its magnitude. Values below
+ * {@value #SUB_BUCKETS} are counted exactly. Recording is a single atomic increment, which makes it suitable to
+ * measure every webhook of a load test without storing the samples.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits used to split a power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * The number of buckets every power of two is split into.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of buckets needed to cover every positive {@code long}.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * The number of values recorded per bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The largest value recorded.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * The sum of the values recorded.
+     */
+    private final LongAccumulator sum = new LongAccumulator(Long::sum, 0);
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value The value, e.g. a latency in nanoseconds.
+     */
+    public void record(long value) {
+        long positive = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(positive));
+        max.accumulate(positive);
+        sum.accumulate(positive);
+    }
+
+    /**
+     * Gets the number of values recorded.
+     *
+     * @return  The number of values recorded.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the largest value recorded.
+     *
+     * @return  The largest value recorded, {@code 0} if none was.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the sum of the values recorded.
+     *
+     * @return  The sum of the values recorded, {@code 0} if none was.
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Gets the mean of the values recorded.
+     *
+     * @return  The mean, {@code 0} if no value was recorded.
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * Gets the value below which a percentage of the values recorded fall.
+     * </p>
+     * The value returned is the upper bound of the bucket holding the percentile, so it overestimates the exact
+     * percentile by less than 1/{@value #SUB_BUCKETS}, and never exceeds the largest value recorded.
+     *
+     * @param percentile                The percentile, greater than 0 and up to 100, e.g. {@code 99.9}.
+     * @return                          The value at the percentile, {@code 0} if no value was recorded.
+     * @throws IllegalArgumentException If the percentile is out of range.
+     */
+    public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+        Preconditions.checkArgument(percentile > 0 && percentile <= 100,
+                String.format("The percentile must be greater than 0 and up to 100, got %s.", percentile)
+        );
+
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            count += snapshot[bucket];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Renders the count, mean, max and the usual percentiles as JSON, converting the values with a divisor.
+     *
+     * @param divisor   The divisor applied to every value, e.g. {@code 1e6} to render nanoseconds as milliseconds.
+     * @return          The JSON representation of the histogram.
+     */
+    public String toJson(double divisor) {
+        return "{\"count\":" + getCount() +
+                ",\"mean\":" + round(getMean() / divisor) +
+                ",\"p50\":" + round(getValueAtPercentile(50) / divisor) +
+                ",\"p90\":" + round(getValueAtPercentile(90) / divisor) +
+                ",\"p99\":" + round(getValueAtPercentile(99) / divisor) +
+                ",\"p999\":" + round(getValueAtPercentile(99.9) / divisor) +
+                ",\"max\":" + round(getMax() / divisor) +
+                '}';
+    }
+
+    /**
+     * Gets the bucket counting a value.
+     *
+     * @param value The value, not negative.
+     * @return      The bucket.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the largest value counted by a bucket.
+     *
+     * @param bucket    The bucket.
+     * @return          The largest value of the bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowerBound = (SUB_BUCKETS + bucket % SUB_BUCKETS) * width;
+        return lowerBound + width - 1;
+    }
+
+    /**
+     * Rounds a value to three decimal places for rendering.
+     *
+     * @param value The value.
+     * @return      The rounded value.
+     */
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics of a process, rendered in the Prometheus text format and exposed through JMX.
+ * <p/>
+ * Three kinds of metrics are supported: counters, backed by a {@link LongAdder} or read from a {@link LongSupplier}
+ * when kept by another component, latencies, backed by a {@link LatencyHistogram} recording nanoseconds, and gauges,
+ * read from a {@link LongSupplier} or a {@link DoubleSupplier} when rendered. Every
+ * metric may carry one label, e.g. the {@link CallStatus status} of a call. The instruments are meant to be looked up
+ * once and kept in a field, so recording on a hot path is a single striped or atomic increment, never a lookup or a
+ * lock. Looking up, rendering and removing metrics take the lock of the registry.
+ * <p/>
+ * Latencies are rendered as Prometheus summaries in seconds, with quantiles covering every value recorded since the
+ * process started.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class Metrics {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+    /**
+     * The name the registry is exposed with through JMX.
+     */
+    public static final String MBEAN_NAME = "com.motionizr.percenseo:type=Metrics";
+
+    /**
+     * The content type of the Prometheus text format.
+     */
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * The quantiles rendered for every latency.
+     */
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * The number of nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * The registry shared by the whole process.
+     */
+    private static final Metrics DEFAULT = new Metrics();
+
+    /**
+     * The kind of a metric.
+     */
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), LATENCY("summary");
+
+        /**
+         * The name of the type in the Prometheus text format.
+         */
+        final String prometheusName;
+
+        /**
+         * Creates a new {@link Type}.
+         *
+         * @param prometheusName    The name of the type in the Prometheus text format.
+         */
+        Type(String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    /**
+     * The metrics sharing a name, one per label value.
+     */
+    private static final class Family {
+
+        /**
+         * The name of the metrics.
+         */
+        final String name;
+
+        /**
+         * The description of the metrics.
+         */
+        final String help;
+
+        /**
+         * The kind of the metrics.
+         */
+        final Type type;
+
+        /**
+         * The instruments by label, rendered in the order they were created. The key is empty for the unlabeled one.
+         */
+        final Map<String, Object> instruments = new LinkedHashMap<>();
+
+        /**
+         * Creates a new instance of {@link Family}.
+         *
+         * @param name  The name of the metrics.
+         * @param help  The description of the metrics.
+         * @param type  The kind of the metrics.
+         */
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /**
+     * The metrics by name, rendered in the order they were created. Guarded by the registry.
+     */
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * Creates a new, empty registry. The process shares the {@link #getDefault() default} one.
+     */
+    Metrics() {
+    }
+
+    /**
+     * Gets the registry shared by the whole process.
+     *
+     * @return  The shared {@link Metrics}.
+     */
+    public static Metrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets a counter, creating it if necessary.
+     *
+     * @param name                      The name of the counter, e.g. {@code percenseo_numbers_read_total}.
+     * @param help                      The description of the counter.
+     * @return                          The counter.
+     * @throws IllegalArgumentException If a metric of another kind has the same name.
+     */
+    public LongAdder counter(String name, String help) throws IllegalArgumentException {
+        return counter(name, help, null, null);
+    }
+
+    /**
+     * Gets a labeled counter, creating it if necessary.
+     *
+     * @param name                      The name of the counter.
+     * @param help                      The description of the counter.
+     * @param label                     The name of the label, {@code null} if unlabeled.
+     * @param value                     The value of the label.
+     * @return                          The counter.
+     * @throws IllegalArgumentException If a metric of another kind has the same name.
+     */
+    public synchronized LongAdder counter(String name, String help, String label, String value) throws IllegalArgumentException {
+        return (LongAdder) family(name, help, Type.COUNTER).instruments
+                .computeIfAbsent(labels(label, value), key -> new LongAdder());
+    }
+
+    /**
+     * Sets a labeled counter kept by another component, replacing the previous one with the same label.
+     *
+     * @param name                      The name of the counter, e.g. {@code percenseo_circuit_opened_total}.
+     * @param help                      The description of the counter.
+     * @param label                     The name of the label, {@code null} if unlabeled.
+     * @param value                     The value of the label.
+     * @param supplier                  Reads the counter, from any thread. It must never decrease.
+     * @throws IllegalArgumentException If a metric of another kind has the same name.
+     */
+    public synchronized void counter(String name, String help, String label, String value, LongSupplier supplier) throws IllegalArgumentException {
+        family(name, help, Type.COUNTER).instruments.put(labels(label, value), supplier);
+    }
+
+    /**
+     * Gets a latency, creating it if necessary.
+     *
+     * @param name                      The name of the latency, e.g. {@code percenseo_dial_seconds}.
+     * @param help                      The description of the latency.
+     * @return                          The histogram the latencies are recorded into, in nanoseconds.
+     * @throws IllegalArgumentException If a metric of another kind has the same name.
+     */
+    public LatencyHistogram latency(String name, String help) throws IllegalArgumentException {
+        return latency(name, help, null, null);
+    }
+
+    /**
+     * Gets a labeled latency, creating it if necessary.
+     *
+     * @param name                      The name of the latency.
+     * @param help                      The description of the latency.
+     * @param label                     The name of the label, {@code null} if unlabeled.
+     * @param value                     The value of the label.
+     * @return                          The histogram the latencies are recorded into, in nanoseconds.
+     * @throws IllegalArgumentException If a metric of another kind has the same name.
+     */
+    public synchronized LatencyHistogram latency(String name, String help, String label, String value) throws IllegalArgumentException {
+        return (LatencyHistogram) family(name, help, Type.LATENCY).instruments
+                .computeIfAbsent(labels(label, value), key -> new LatencyHistogram());
+    }
+
+    /**
+     * Sets a labeled gauge, replacing the previous one with the same label.
+     *
+     * @param name                      The name of the gauge, e.g. {@code percenseo_pending_numbers}.
+     * @param help                      The description of the gauge.
+     * @param label                     The name of the label, {@code null} if unlabeled.
+     * @param value                     The value of the label.
+     * @param supplier                  Reads the gauge, from any thread.
+     * @throws IllegalArgumentException If a metric of another kind has the same name.
+     */
+    public synchronized void gauge(String name, String help, String label, String value, LongSupplier supplier) throws IllegalArgumentException {
+        family(name, help, Type.GAUGE).instruments.put(labels(label, value), supplier);
+    }
+
+    /**
+     * Sets a labeled gauge with a fractional value, e.g. a rate, replacing the previous one with the same label.
+     *
+     * @param name                      The name of the gauge, e.g. {@code percenseo_circuit_failure_rate}.
+     * @param help                      The description of the gauge.
+     * @param label                     The name of the label, {@code null} if unlabeled.
+     * @param value                     The value of the label.
+     * @param supplier                  Reads the gauge, from any thread.
+     * @throws IllegalArgumentException If a metric of another kind has the same name.
+     */
+    public synchronized void gauge(String name, String help, String label, String value, DoubleSupplier supplier) throws IllegalArgumentException {
+        family(name, help, Type.GAUGE).instruments.put(labels(label, value), supplier);
+    }
+
+    /**
+     * Removes a labeled metric, e.g. the gauges of a campaign once it's over. The metric is dropped once it has no
+     * label left.
+     *
+     * @param name  The name of the metric.
+     * @param label The name of the label, {@code null} if unlabeled.
+     * @param value The value of the label.
+     */
+    public synchronized void remove(String name, String label, String value) {
+        Family family = families.get(name);
+        if (family != null) {
+            family.instruments.remove(labels(label, value));
+            if (family.instruments.isEmpty()) {
+                families.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Renders every metric in the Prometheus text format.
+     *
+     * @return  The metrics, in the Prometheus text format.
+     */
+    public synchronized String toPrometheus() {
+        StringBuilder text = new StringBuilder(256 * families.size());
+        for (Family family : families.values()) {
+            text.append("# HELP ").append(family.name).append(' ').append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            text.append("# TYPE ").append(family.name).append(' ').append(family.type.prometheusName).append('\n');
+
+            for (Map.Entry<String, Object> instrument : family.instruments.entrySet()) {
+                String labels = instrument.getKey();
+                switch (family.type) {
+                    case COUNTER:
+                    case GAUGE:
+                        sample(text, family.name, labels, read(instrument.getValue()).doubleValue());
+                        break;
+                    default:
+                        LatencyHistogram histogram = (LatencyHistogram) instrument.getValue();
+                        for (double quantile : QUANTILES) {
+                            String quantileLabels = (labels.isEmpty() ? "" : labels + ",") + "quantile=\"" + quantile + '"';
+                            sample(text, family.name, quantileLabels, histogram.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND);
+                        }
+                        sample(text, family.name + "_sum", labels, histogram.getSum() / NANOS_PER_SECOND);
+                        sample(text, family.name + "_count", labels, histogram.getCount());
+                }
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Reads every metric as flat values, named after the metric followed by the value of its label and, for the
+     * latencies, the statistic, e.g. {@code percenseo_dial_outcomes_total.completed} or
+     * {@code percenseo_dial_seconds.p99}. Latencies are in seconds.
+     *
+     * @return  The values by name, in the order the metrics were created.
+     */
+    public synchronized Map<String, Number> snapshot() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        for (Family family : families.values()) {
+            for (Map.Entry<String, Object> instrument : family.instruments.entrySet()) {
+                String key = family.name + labelSuffix(instrument.getKey());
+                switch (family.type) {
+                    case COUNTER:
+                    case GAUGE:
+                        values.put(key, read(instrument.getValue()));
+                        break;
+                    default:
+                        LatencyHistogram histogram = (LatencyHistogram) instrument.getValue();
+                        values.put(key + ".count", histogram.getCount());
+                        values.put(key + ".mean", histogram.getMean() / NANOS_PER_SECOND);
+                        values.put(key + ".p50", histogram.getValueAtPercentile(50) / NANOS_PER_SECOND);
+                        values.put(key + ".p99", histogram.getValueAtPercentile(99) / NANOS_PER_SECOND);
+                        values.put(key + ".max", histogram.getMax() / NANOS_PER_SECOND);
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Exposes the registry through JMX, under {@link #MBEAN_NAME}, unless already exposed. Failures are logged.
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(this), new ObjectName(MBEAN_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            logger.debug("The metrics are already exposed through JMX.");
+        } catch (JMException e) {
+            logger.warn("Unable to expose the metrics through JMX: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the family of metrics with a name, creating it if necessary.
+     *
+     * @param name                      The name of the metrics.
+     * @param help                      The description of the metrics.
+     * @param type                      The kind of the metrics.
+     * @return                          The family.
+     * @throws IllegalArgumentException If the metrics with that name are of another kind.
+     */
+    private Family family(String name, String help, Type type) throws IllegalArgumentException {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        Preconditions.checkArgument(
+                family.type == type,
+                String.format("Metric %s is a %s, not a %s", name, family.type.prometheusName, type.prometheusName)
+        );
+
+        return family;
+    }
+
+    /**
+     * Reads the value of a counter or a gauge.
+     *
+     * @param instrument    The {@link LongAdder}, {@link LongSupplier} or {@link DoubleSupplier} backing the metric.
+     * @return              The value.
+     */
+    private static Number read(Object instrument) {
+        if (instrument instanceof LongAdder) {
+            return ((LongAdder) instrument).sum();
+        }
+        if (instrument instanceof LongSupplier) {
+            return ((LongSupplier) instrument).getAsLong();
+        }
+        return ((DoubleSupplier) instrument).getAsDouble();
+    }
+
+    /**
+     * Renders a label in the Prometheus text format.
+     *
+     * @param label The name of the label, {@code null} if unlabeled.
+     * @param value The value of the label.
+     * @return      The rendered label, empty if unlabeled.
+     */
+    private static String labels(String label, String value) {
+        if (label == null) {
+            return "";
+        }
+
+        String escaped = String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return label + "=\"" + escaped + '"';
+    }
+
+    /**
+     * Gets the suffix naming a label value in the {@link #snapshot()}.
+     *
+     * @param labels    The rendered label, empty if unlabeled.
+     * @return          The suffix, empty if unlabeled.
+     */
+    private static String labelSuffix(String labels) {
+        if (labels.isEmpty()) {
+            return "";
+        }
+
+        return '.' + labels.substring(labels.indexOf('"') + 1, labels.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+
+    /**
+     * Appends a sample in the Prometheus text format.
+     *
+     * @param text      The text being built.
+     * @param name      The name of the sample.
+     * @param labels    The rendered labels, empty if unlabeled.
+     * @param value     The value.
+     */
+    private static void sample(StringBuilder text, String name, String labels, double value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ');
+        if (value == (long) value) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+}
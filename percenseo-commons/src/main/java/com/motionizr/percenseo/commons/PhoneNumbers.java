@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+/**
+ * Helper class that converts phone numbers between their E.164 string representation and a compact numeric one.
+ * <p/>
+ * E.164 numbers have at most 15 digits and never start with a zero, so they fit in a {@code long} without losing
+ * information. Using a {@code long} avoids keeping millions of small strings around when storing or comparing numbers.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class PhoneNumbers {
+
+    /**
+     * The maximum number of digits allowed by E.164.
+     */
+    public static final int MAX_DIGITS = 15;
+
+    /**
+     * Value used to represent the absence of a number.
+     */
+    public static final long NO_NUMBER = 0L;
+
+    /**
+     * Empty constructor to prevent instantiation.
+     */
+    private PhoneNumbers() {}
+
+    /**
+     * Converts a phone number to its numeric representation.
+     * <p/>
+     * Ignores a leading {@code +} as well as any spaces, dashes, dots or parenthesis used for formatting.
+     *
+     * @param number                    The phone number, e.g. {@code +16175551212}.
+     * @return                          The numeric representation of the phone number or {@link #NO_NUMBER} if the number is {@code null} or empty.
+     * @throws IllegalArgumentException If the number contains other characters or has more than {@link #MAX_DIGITS} digits.
+     */
+    public static long toLong(CharSequence number) throws IllegalArgumentException {
+        if (number == null) {
+            return NO_NUMBER;
+        }
+
+        long result = 0L;
+        int digits = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    throw new IllegalArgumentException(String.format("Phone number has more than %d digits: %s", MAX_DIGITS, number));
+                }
+                result = result * 10 + (c - '0');
+            } else if (!isSeparator(c, i)) {
+                throw new IllegalArgumentException(String.format("Invalid phone number: %s", number));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts the numeric representation of a phone number back to its E.164 representation.
+     *
+     * @param number    The numeric representation of the phone number.
+     * @return          The E.164 representation of the number or {@code null} if the number is {@link #NO_NUMBER}.
+     */
+    public static String toE164(long number) {
+        return number == NO_NUMBER ? null : "+" + number;
+    }
+
+    /**
+     * Verifies if a phone number is written in E.164, i.e. a {@code +} followed by up to {@link #MAX_DIGITS} digits,
+     * the first of which is not a zero, without any formatting.
+     * <p/>
+     * These are the only numbers that {@link #toE164(long)} gives back exactly as they were given to {@link #toLong(CharSequence)}.
+     *
+     * @param number    The phone number.
+     * @return          {@code true} if the number is written in E.164, {@code false} otherwise.
+     */
+    public static boolean isE164(CharSequence number) {
+        if (number == null || number.length() < 2 || number.length() > MAX_DIGITS + 1 || number.charAt(0) != '+' || number.charAt(1) == '0') {
+            return false;
+        }
+
+        for (int i = 1; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Verifies if a character is a formatting character that can be safely ignored.
+     *
+     * @param c         The character.
+     * @param position  The position of the character in the phone number.
+     * @return          {@code true} if the character can be ignored, {@code false} otherwise.
+     */
+    private static boolean isSeparator(char c, int position) {
+        return (c == '+' && position == 0) || c == ' ' || c == '-' || c == '.' || c == '(' || c == ')';
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A compact trie over the digits of a set of phone numbers, used to find the numbers sharing the longest prefix with
+ * a given one.
+ * <p/>
+ * The numbers are sorted by their digits, so the numbers below any node of the trie form a contiguous range of the
+ * sorted array and each node only has to store the bounds of that range. Nodes are kept in flat {@code int} arrays
+ * sized by counting them over the sorted numbers first, making a lookup a walk over at most
+ * {@link PhoneNumbers#MAX_DIGITS} array slots that allocates nothing.
+ * <p/>
+ * The numbers and the nodes never change once built, only the counter each node keeps to rotate through its numbers,
+ * see {@link #next(CharSequence, int)}. Instances are safe to share between threads.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class PrefixTrie {
+
+    /**
+     * The number of children of each node, one per decimal digit.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * The index of the root node. Since the root is never a child, it also marks a missing child.
+     */
+    private static final int ROOT = 0;
+
+    /**
+     * The number of low bits of a sort key holding the number of digits.
+     */
+    private static final int LENGTH_BITS = 4;
+
+    /**
+     * The powers of ten up to {@link PhoneNumbers#MAX_DIGITS}.
+     */
+    private static final long[] POWERS_OF_TEN = new long[PhoneNumbers.MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * The numbers, sorted by their digits.
+     */
+    private final String[] values;
+
+    /**
+     * The children of each node, {@code children[node * RADIX + digit]} is the index of the child for that digit.
+     */
+    private final int[] children;
+
+    /**
+     * The first position in {@link #values} of the numbers below each node.
+     */
+    private final int[] rangeStart;
+
+    /**
+     * The position after the last one in {@link #values} of the numbers below each node.
+     */
+    private final int[] rangeEnd;
+
+    /**
+     * The number of digits of the prefix each node stands for.
+     */
+    private final byte[] depth;
+
+    /**
+     * The counter of each node used to rotate through the numbers below it.
+     */
+    private final AtomicIntegerArray tickets;
+
+    /**
+     * Creates a new instance of {@link PrefixTrie}.
+     *
+     * @param numbers                   The phone numbers, in E.164 or any format accepted by {@link PhoneNumbers#toLong(CharSequence)}.
+     * @throws IllegalArgumentException If there are no numbers or one of them is invalid.
+     */
+    public PrefixTrie(Collection<String> numbers) throws IllegalArgumentException {
+        Preconditions.checkArgument(numbers != null && !numbers.isEmpty(), "A prefix trie needs at least one number");
+
+        long[] keys = new long[numbers.size()];
+        int i = 0;
+        for (String number : numbers) {
+            keys[i++] = sortKey(PhoneNumbers.toLong(number));
+        }
+        Arrays.sort(keys);
+
+        // Numbers written differently can have the same digits, they take the positions of their key in turn.
+        this.values = new String[keys.length];
+        for (String number : numbers) {
+            long key = sortKey(PhoneNumbers.toLong(number));
+            int position = Arrays.binarySearch(keys, key);
+            while (position > 0 && keys[position - 1] == key) {
+                position--;
+            }
+            while (values[position] != null) {
+                position++;
+            }
+            values[position] = number;
+        }
+
+        // Every prefix not shared with the previous number is a new node.
+        int nodes = 1 + length(keys[0]);
+        for (i = 1; i < keys.length; i++) {
+            nodes += length(keys[i]) - commonPrefixLength(keys[i - 1], keys[i]);
+        }
+
+        this.children = new int[nodes * RADIX];
+        this.rangeStart = new int[nodes];
+        this.rangeEnd = new int[nodes];
+        this.depth = new byte[nodes];
+        this.tickets = new AtomicIntegerArray(nodes);
+
+        build(keys, children, rangeStart, rangeEnd, depth);
+    }
+
+    /**
+     * Gets the key sorting the digits of numbers in the same order as strings, i.e. the digits padded with zeros to
+     * {@link PhoneNumbers#MAX_DIGITS}, followed by their number so a number comes right before the ones it prefixes.
+     *
+     * @param number    The numeric representation of a phone number.
+     * @return          The sort key.
+     */
+    private static long sortKey(long number) {
+        int length = 1;
+        while (length < PhoneNumbers.MAX_DIGITS && number >= POWERS_OF_TEN[length]) {
+            length++;
+        }
+
+        return (number * POWERS_OF_TEN[PhoneNumbers.MAX_DIGITS - length]) << LENGTH_BITS | length;
+    }
+
+    /**
+     * Gets the number of digits of a sort key.
+     *
+     * @param key   The sort key.
+     * @return      The number of digits.
+     */
+    private static int length(long key) {
+        return (int) (key & ((1 << LENGTH_BITS) - 1));
+    }
+
+    /**
+     * Gets a digit of a sort key.
+     *
+     * @param key   The sort key.
+     * @param level The position of the digit, starting at zero.
+     * @return      The digit.
+     */
+    private static int digit(long key, int level) {
+        return (int) ((key >>> LENGTH_BITS) / POWERS_OF_TEN[PhoneNumbers.MAX_DIGITS - 1 - level] % RADIX);
+    }
+
+    /**
+     * Gets the number of leading digits two sort keys share.
+     *
+     * @param first     The first sort key.
+     * @param second    The second sort key.
+     * @return          The number of digits of the common prefix.
+     */
+    private static int commonPrefixLength(long first, long second) {
+        int length = Math.min(length(first), length(second));
+        int level = 0;
+        while (level < length && digit(first, level) == digit(second, level)) {
+            level++;
+        }
+
+        return level;
+    }
+
+    /**
+     * Builds the nodes of the trie, breadth first.
+     *
+     * @param keys      The sort keys of the numbers, sorted.
+     * @param children  The children of each node.
+     * @param start     The first position of the numbers below each node.
+     * @param end       The position after the last one of the numbers below each node.
+     * @param depth     The number of digits of the prefix each node stands for.
+     */
+    private static void build(long[] keys, int[] children, int[] start, int[] end, byte[] depth) {
+        start[ROOT] = 0;
+        end[ROOT] = keys.length;
+
+        int nodes = 1;
+        for (int node = 0; node < nodes; node++) {
+            int level = depth[node];
+            int position = start[node];
+
+            // Numbers with no digit at this level are sorted first and stop here.
+            while (position < end[node] && length(keys[position]) <= level) {
+                position++;
+            }
+
+            while (position < end[node]) {
+                int digit = digit(keys[position], level);
+                int child = nodes++;
+                start[child] = position;
+                depth[child] = (byte) (level + 1);
+
+                while (position < end[node] && digit(keys[position], level) == digit) {
+                    position++;
+                }
+
+                end[child] = position;
+                children[node * RADIX + digit] = child;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of digits the longest matching prefix has.
+     *
+     * @param number    The phone number, non digit characters are ignored.
+     * @return          The number of digits of the longest prefix shared with one of the numbers of the trie.
+     */
+    public int matchLength(CharSequence number) {
+        return depth[find(number)];
+    }
+
+    /**
+     * Selects one of the numbers sharing the longest prefix with a given number.
+     * <p/>
+     * When several numbers share that prefix, the ticket picks among them, so passing an increasing counter rotates
+     * through them. When the longest shared prefix is shorter than the minimum length, the ticket picks among all the
+     * numbers instead. A counter shared by numbers matching different prefixes does not rotate evenly through the
+     * numbers of each prefix, {@link #next(CharSequence, int)} keeps a counter per prefix instead.
+     *
+     * @param number            The phone number, non digit characters are ignored.
+     * @param ticket            The ticket used to pick among the candidates, e.g. an increasing counter.
+     * @param minPrefixLength   The minimum number of digits the numbers must share to be considered a match.
+     * @return                  The selected number, as it was given when building the trie.
+     */
+    public String select(CharSequence number, int ticket, int minPrefixLength) {
+        return pick(candidates(number, minPrefixLength), ticket);
+    }
+
+    /**
+     * Selects the next of the numbers sharing the longest prefix with a given number, rotating through them.
+     * <p/>
+     * Each prefix keeps its own counter, so its numbers are used in turn whatever numbers are looked up in between.
+     * When the longest shared prefix is shorter than the minimum length, the next of all the numbers is selected.
+     *
+     * @param number            The phone number, non digit characters are ignored.
+     * @param minPrefixLength   The minimum number of digits the numbers must share to be considered a match.
+     * @return                  The selected number, as it was given when building the trie.
+     */
+    public String next(CharSequence number, int minPrefixLength) {
+        int node = candidates(number, minPrefixLength);
+
+        return pick(node, tickets.getAndIncrement(node));
+    }
+
+    /**
+     * Finds the node whose numbers are the candidates for a given number.
+     *
+     * @param number            The phone number, non digit characters are ignored.
+     * @param minPrefixLength   The minimum number of digits the numbers must share to be considered a match.
+     * @return                  The deepest node matching the number, the root if it is not deep enough.
+     */
+    private int candidates(CharSequence number, int minPrefixLength) {
+        int node = find(number);
+
+        return depth[node] < minPrefixLength ? ROOT : node;
+    }
+
+    /**
+     * Picks one of the numbers below a node.
+     *
+     * @param node      The node.
+     * @param ticket    The ticket used to pick among the numbers.
+     * @return          The picked number.
+     */
+    private String pick(int node, int ticket) {
+        int start = rangeStart[node];
+
+        return values[start + Math.floorMod(ticket, rangeEnd[node] - start)];
+    }
+
+    /**
+     * Walks down the trie following the digits of a number.
+     *
+     * @param number    The phone number, non digit characters are ignored.
+     * @return          The deepest node matching the number.
+     */
+    private int find(CharSequence number) {
+        int node = ROOT;
+
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                continue;
+            }
+
+            int child = children[node * RADIX + (c - '0')];
+            if (child == ROOT) {
+                break;
+            }
+            node = child;
+        }
+
+        return node;
+    }
+
+    /**
+     * Gets the number of phone numbers in the trie.
+     *
+     * @return  The number of phone numbers.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Gets the number of nodes of the trie.
+     *
+     * @return  The number of nodes.
+     */
+    public int nodeCount() {
+        return rangeStart.length;
+    }
+}
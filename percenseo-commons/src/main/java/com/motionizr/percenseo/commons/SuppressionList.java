@@ -0,0 +1,250 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A list of phone numbers that must not be called, e.g. a do-not-call registry with tens of millions of entries.
+ * <p/>
+ * The numbers are stored in a file as sorted {@code long}s, see {@link PhoneNumbers#toLong(CharSequence)}, which is
+ * memory-mapped instead of read, so the list takes almost no heap and its pages are shared with the other processes
+ * reading the same file. The layout of version {@value #VERSION} is the following (big-endian):
+ * <pre>
+ *  offset  size  field
+ *       0     4  magic, {@value #MAGIC}
+ *       4     4  version
+ *       8     8  number of entries
+ *      16   8*n  the numbers, sorted and without duplicates
+ * </pre>
+ * Lookups are binary searches whose only branch is the loop, the halves are picked with a conditional move instead of
+ * a branch the CPU would mispredict half of the time, so a lookup costs about {@code log2(n)} memory reads and no
+ * allocation.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class SuppressionList {
+
+    /**
+     * The magic number at the start of the file, {@code PDNC} in ASCII.
+     */
+    public static final int MAGIC = 0x50444E43;
+
+    /**
+     * The current version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size in bytes of the header.
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * The maximum number of entries, limited by the size of a single mapping.
+     */
+    public static final int MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_SIZE) / Long.BYTES;
+
+    /**
+     * The size of the buffer used to write the file.
+     */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The numbers, sorted.
+     */
+    private final LongBuffer numbers;
+
+    /**
+     * The number of entries.
+     */
+    private final int size;
+
+    /**
+     * Creates a new instance of {@link SuppressionList}.
+     *
+     * @param numbers   The numbers, sorted.
+     */
+    private SuppressionList(LongBuffer numbers) {
+        this.numbers = numbers;
+        this.size = numbers.limit();
+    }
+
+    /**
+     * Maps a suppression list file into memory.
+     * <p/>
+     * The mapping is released once the list is no longer referenced.
+     *
+     * @param file                      The suppression list file.
+     * @return                          The suppression list.
+     * @throws IOException              If an error occurs mapping the file.
+     * @throws IllegalArgumentException If the file is not a suppression list of a supported version.
+     */
+    public static SuppressionList open(Path file) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            Preconditions.checkArgument(fileSize >= HEADER_SIZE, String.format("Not a suppression list, too small: %s", file));
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, Integer.MAX_VALUE));
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            Preconditions.checkArgument(buffer.getInt(0) == MAGIC, String.format("Not a suppression list: %s", file));
+            Preconditions.checkArgument(buffer.getInt(4) == VERSION,
+                    String.format("Unsupported suppression list version %d: %s", buffer.getInt(4), file));
+
+            long entries = buffer.getLong(8);
+            Preconditions.checkArgument(entries >= 0 && entries <= MAX_ENTRIES && fileSize == HEADER_SIZE + entries * Long.BYTES,
+                    String.format("Suppression list has %d entries but %d bytes: %s", entries, fileSize, file));
+
+            buffer.position(HEADER_SIZE);
+            return new SuppressionList(buffer.slice().order(ByteOrder.BIG_ENDIAN).asLongBuffer());
+        }
+    }
+
+    /**
+     * Writes a suppression list file, replacing the existing one atomically so the processes mapping it never see a
+     * partial list.
+     * <p/>
+     * The numbers are sorted in place and the duplicates are dropped.
+     *
+     * @param file                      The suppression list file.
+     * @param numbers                   The numbers, see {@link PhoneNumbers#toLong(CharSequence)}.
+     * @param count                     The number of numbers used from the start of the array.
+     * @return                          The number of entries written, without the duplicates.
+     * @throws IOException              If an error occurs writing the file.
+     * @throws IllegalArgumentException If there are more than {@link #MAX_ENTRIES} numbers.
+     */
+    public static int write(Path file, long[] numbers, int count) throws IOException, IllegalArgumentException {
+        Preconditions.checkArgument(count >= 0 && count <= numbers.length,
+                String.format("Invalid count %d for %d numbers.", count, numbers.length));
+        Preconditions.checkArgument(count <= MAX_ENTRIES,
+                String.format("A suppression list can't have more than %d entries, got %d.", MAX_ENTRIES, count));
+
+        Arrays.parallelSort(numbers, 0, count);
+        int entries = 0;
+        for (int i = 0; i < count; i++) {
+            if (entries == 0 || numbers[i] != numbers[entries - 1]) {
+                numbers[entries++] = numbers[i];
+            }
+        }
+
+        Path absolute = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(entries);
+                for (int i = 0; i < entries; i++) {
+                    if (!buffer.hasRemaining()) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putLong(numbers[i]);
+                }
+                drain(channel, buffer);
+                channel.force(true);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Checks whether a number is on the list.
+     *
+     * @param number    The numeric representation of the number, see {@link PhoneNumbers#toLong(CharSequence)}.
+     * @return          {@code true} if the number must not be called, {@code false} otherwise.
+     */
+    public boolean contains(long number) {
+        if (size == 0) {
+            return false;
+        }
+
+        int base = 0;
+        for (int length = size; length > 1; ) {
+            int half = length >>> 1;
+            base = numbers.get(base + half) <= number ? base + half : base;
+            length -= half;
+        }
+        return numbers.get(base) == number;
+    }
+
+    /**
+     * Checks whether a number is on the list.
+     * <p/>
+     * Numbers that are empty or not valid phone numbers can't be looked up, so they are reported as on the list rather
+     * than risk calling a number that asked not to be called.
+     *
+     * @param number    The phone number, e.g. {@code +16175551212}.
+     * @return          {@code true} if the number must not be called or is not a valid phone number, {@code false} if
+     *                  it is not on the list.
+     */
+    public boolean contains(CharSequence number) {
+        long key;
+        try {
+            key = PhoneNumbers.toLong(number);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        return key == PhoneNumbers.NO_NUMBER || contains(key);
+    }
+
+    /**
+     * Gets the number of entries of the list.
+     *
+     * @return  The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the content of a buffer to a channel and clears the buffer.
+     *
+     * @param channel       The channel.
+     * @param buffer        The buffer.
+     * @throws IOException  If an error occurs writing to the channel.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
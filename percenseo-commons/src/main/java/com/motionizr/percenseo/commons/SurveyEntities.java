@@ -32,7 +32,8 @@ import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.dbEntit
 /**
  * Database entities used to store survey data.
  * <p/>
- * Currently we are only storing the results of the dialed calls.
+ * Stores the results of the dialed calls, the state of each number of a campaign, the leases on the shards of
+ * campaigns dialed by several processes and the rate limits of the accounts they share.
  *
  * @author Miguel Bento (migueljbento@gmail.com)
  * @version 1.0.0
@@ -51,6 +52,12 @@ public class SurveyEntities {
     public static final String CALL_RESULT_HUMAN_ANSWERED = "HUMAN_ANSWERED";
     public static final String CALL_RESULT_DIRECTION = "DIRECTION";
     public static final String CALL_RESULT_DIGITS = "DIGITS_PRESSED";
+    public static final String CALL_RESULT_CAMPAIGN = "CAMPAIGN";
+
+    /**
+     * Index used to look up the results of a single campaign, e.g. to find the numbers already completed.
+     */
+    public static final String CALL_RESULT_CAMPAIGN_INDEX = "CALL_RESULT_CAMPAIGN_IDX";
 
     /**
      * The database entity that represents a {@link CallResult}.
@@ -65,7 +72,93 @@ public class SurveyEntities {
             .addColumn(CALL_RESULT_HUMAN_ANSWERED,  DbColumnType.BOOLEAN)
             .addColumn(CALL_RESULT_DIRECTION,       DbColumnType.STRING,    16, DbColumnConstraint.NOT_NULL)
             .addColumn(CALL_RESULT_DIGITS,          DbColumnType.STRING,    32)
+            .addColumn(CALL_RESULT_CAMPAIGN,        DbColumnType.STRING,    64)
             .pkFields(CALL_RESULT_SID)
+            .addIndex(CALL_RESULT_CAMPAIGN, CALL_RESULT_STATUS, CALL_RESULT_TO)
+            .build();
+
+    /**
+     * Table and column names for the state of a number of a campaign, used to retry it.
+     */
+    public static final String NUMBER_STATE_TABLE = "NUMBER_STATE";
+    public static final String NUMBER_STATE_CAMPAIGN = "CAMPAIGN";
+    public static final String NUMBER_STATE_NUMBER = "NUMBER";
+    public static final String NUMBER_STATE_ATTEMPTS = "ATTEMPTS";
+    public static final String NUMBER_STATE_STATUS = "STATUS";
+    public static final String NUMBER_STATE_LAST_SID = "LAST_SID";
+    public static final String NUMBER_STATE_UPDATED = "UPDATED";
+
+    /**
+     * The database entity that represents the state of a number of a campaign.
+     * <p/>
+     * Holds the number of times the number was dialed and the status and SID of the last call, empty if it was rejected
+     * by the Twilio API. The update time, in epoch milliseconds, is indexed so the changes since a given time can be
+     * read without going through the whole campaign.
+     */
+    public static final DbEntity NUMBER_STATE_ENTITY = dbEntity()
+            .name(NUMBER_STATE_TABLE)
+            .addColumn(NUMBER_STATE_CAMPAIGN,       DbColumnType.STRING,    64, DbColumnConstraint.NOT_NULL)
+            .addColumn(NUMBER_STATE_NUMBER,         DbColumnType.STRING,    32, DbColumnConstraint.NOT_NULL)
+            .addColumn(NUMBER_STATE_ATTEMPTS,       DbColumnType.INT,           DbColumnConstraint.NOT_NULL)
+            .addColumn(NUMBER_STATE_STATUS,         DbColumnType.INT,           DbColumnConstraint.NOT_NULL)
+            .addColumn(NUMBER_STATE_LAST_SID,       DbColumnType.STRING,    64, DbColumnConstraint.NOT_NULL)
+            .addColumn(NUMBER_STATE_UPDATED,        DbColumnType.LONG,          DbColumnConstraint.NOT_NULL)
+            .pkFields(NUMBER_STATE_CAMPAIGN, NUMBER_STATE_NUMBER)
+            .addIndex(NUMBER_STATE_CAMPAIGN, NUMBER_STATE_UPDATED)
+            .build();
+
+    /**
+     * Table and column names for the lease a process holds on a shard of a campaign.
+     */
+    public static final String SHARD_LEASE_TABLE = "SHARD_LEASE";
+    public static final String SHARD_LEASE_CAMPAIGN = "CAMPAIGN";
+    public static final String SHARD_LEASE_SHARD = "SHARD";
+    public static final String SHARD_LEASE_SHARD_COUNT = "SHARD_COUNT";
+    public static final String SHARD_LEASE_OWNER = "OWNER";
+    public static final String SHARD_LEASE_EXPIRES = "EXPIRES";
+    public static final String SHARD_LEASE_CHECKPOINT = "CHECKPOINT";
+    public static final String SHARD_LEASE_FINISHED = "FINISHED";
+
+    /**
+     * The database entity that represents the lease on a shard.
+     * <p/>
+     * The expiry is in epoch milliseconds. The checkpoint is the number of numbers of the shard known to be handled,
+     * in the order they were submitted, so a process taking over the shard can resume from there.
+     */
+    public static final DbEntity SHARD_LEASE_ENTITY = dbEntity()
+            .name(SHARD_LEASE_TABLE)
+            .addColumn(SHARD_LEASE_CAMPAIGN,        DbColumnType.STRING,    64, DbColumnConstraint.NOT_NULL)
+            .addColumn(SHARD_LEASE_SHARD,           DbColumnType.INT,           DbColumnConstraint.NOT_NULL)
+            .addColumn(SHARD_LEASE_SHARD_COUNT,     DbColumnType.INT,           DbColumnConstraint.NOT_NULL)
+            .addColumn(SHARD_LEASE_OWNER,           DbColumnType.STRING,    128, DbColumnConstraint.NOT_NULL)
+            .addColumn(SHARD_LEASE_EXPIRES,         DbColumnType.LONG,          DbColumnConstraint.NOT_NULL)
+            .addColumn(SHARD_LEASE_CHECKPOINT,      DbColumnType.LONG,          DbColumnConstraint.NOT_NULL)
+            .addColumn(SHARD_LEASE_FINISHED,        DbColumnType.BOOLEAN,       DbColumnConstraint.NOT_NULL)
+            .pkFields(SHARD_LEASE_CAMPAIGN, SHARD_LEASE_SHARD)
+            .build();
+
+    /**
+     * Table and column names for the token bucket limiting the rate of calls on an account shared by several processes.
+     */
+    public static final String RATE_LIMIT_TABLE = "RATE_LIMIT";
+    public static final String RATE_LIMIT_ACCOUNT = "ACCOUNT";
+    public static final String RATE_LIMIT_TOKENS = "TOKENS";
+    public static final String RATE_LIMIT_UPDATED = "UPDATED";
+    public static final String RATE_LIMIT_VERSION = "VERSION";
+
+    /**
+     * The database entity that represents the token bucket of an account.
+     * <p/>
+     * Holds the tokens left when it was last updated, in epoch milliseconds. The version is incremented on every update,
+     * so a process only takes tokens from the bucket it read.
+     */
+    public static final DbEntity RATE_LIMIT_ENTITY = dbEntity()
+            .name(RATE_LIMIT_TABLE)
+            .addColumn(RATE_LIMIT_ACCOUNT,          DbColumnType.STRING,    64, DbColumnConstraint.NOT_NULL)
+            .addColumn(RATE_LIMIT_TOKENS,           DbColumnType.DOUBLE,        DbColumnConstraint.NOT_NULL)
+            .addColumn(RATE_LIMIT_UPDATED,          DbColumnType.LONG,          DbColumnConstraint.NOT_NULL)
+            .addColumn(RATE_LIMIT_VERSION,          DbColumnType.LONG,          DbColumnConstraint.NOT_NULL)
+            .pkFields(RATE_LIMIT_ACCOUNT)
             .build();
 
 }
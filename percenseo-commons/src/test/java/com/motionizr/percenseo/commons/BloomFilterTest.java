@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class BloomFilterTest {
+
+    private static final int CAPACITY = 100_000;
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempDirectory("percenseo").resolve("completed.bloom");
+    }
+
+    @Test
+    public void testNumbersAddedAreAlwaysFound() throws Exception {
+        BloomFilter filter = BloomFilter.create(file, CAPACITY, 0.01);
+        assertFalse("Should not find a number in an empty filter", filter.mightContain(351211111111L));
+
+        for (int i = 0; i < CAPACITY; i++) {
+            filter.put(351210000000L + 2 * i);
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue("Should find every number added", filter.mightContain(351210000000L + 2 * i));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateIsHeld() throws Exception {
+        BloomFilter filter = BloomFilter.create(file, CAPACITY, 0.01);
+        for (int i = 0; i < CAPACITY; i++) {
+            filter.put(351210000000L + 2 * i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < CAPACITY; i++) {
+            if (filter.mightContain(351210000001L + 2 * i)) {
+                falsePositives++;
+            }
+        }
+        assertEquals("Should hold the false positive rate", 0.01, (double) falsePositives / CAPACITY, 0.003);
+        assertEquals("Should estimate the false positive rate", 0.01, filter.getFalsePositiveRate(), 0.003);
+        assertEquals("Should use about 9.6 bits per number", BloomFilter.optimalBits(CAPACITY, 0.01), filter.getBits());
+        assertEquals("Should use the optimal number of hashes", 7, filter.getHashes());
+    }
+
+    @Test
+    public void testFilterIsPersisted() throws Exception {
+        BloomFilter filter = BloomFilter.create(file, CAPACITY, 0.001);
+        assertTrue("Should report a new number", filter.put(351211111111L));
+        assertFalse("Should report a number already added", filter.put(351211111111L));
+        filter.put(351222222222L);
+        filter.setWatermark(42);
+        filter.force();
+
+        BloomFilter reopened = BloomFilter.open(file);
+        assertEquals("Should count the numbers added once", 2, reopened.getEntries());
+        assertEquals("Should keep the capacity", CAPACITY, reopened.getCapacity());
+        assertEquals("Should keep the watermark", 42, reopened.getWatermark());
+        assertEquals("Should report the size of the file", Files.size(file), reopened.getSizeInBytes());
+        assertTrue("Should find the numbers added", reopened.mightContain(351211111111L) && reopened.mightContain(351222222222L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherFilesAreRejected() throws Exception {
+        Files.write(file, new byte[64]);
+        BloomFilter.open(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFalsePositiveRateIsRejected() throws Exception {
+        BloomFilter.create(file, CAPACITY, 1);
+    }
+}
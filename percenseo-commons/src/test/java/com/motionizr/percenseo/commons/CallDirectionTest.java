@@ -43,6 +43,13 @@ public class CallDirectionTest {
         assertEquals("Should default to unknown", CallDirection.UNKNOWN, CallDirection.fromInternalCode(-100));
     }
 
+    @Test
+    public void testFromNullInternalCode() throws Exception {
+        assertEquals("Should default to unknown for a missing direction", CallDirection.UNKNOWN, CallDirection.fromInternalCode((Integer) null));
+        assertEquals("Should read the direction from a boxed internal code", CallDirection.values()[0],
+                CallDirection.fromInternalCode(Integer.valueOf(CallDirection.values()[0].getInternalCode())));
+    }
+
     @Test
     public void testFromDesc() throws Exception {
         Arrays.stream(CallDirection.values())
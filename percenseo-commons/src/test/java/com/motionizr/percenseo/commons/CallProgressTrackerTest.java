@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallProgressTrackerTest {
+
+    private final Metrics metrics = new Metrics();
+
+    private final CallProgressTracker tracker = new CallProgressTracker(metrics);
+
+    @Test
+    public void testStepsAreRecorded() throws Exception {
+        tracker.record(result("CA1", CallStatus.RINGING), 1_000, 3_000);
+        tracker.record(result("CA1", CallStatus.IN_PROGRESS), 1_000, 8_000);
+        assertEquals("Should track the call until its final status", 1, tracker.size());
+
+        tracker.record(result("CA1", CallStatus.COMPLETED), 1_000, 68_000);
+        assertEquals("Should forget the call on its final status", 0, tracker.size());
+
+        assertLatency("Should record queued to ringing", step(CallProgressTracker.QUEUED_TO_RINGING), 2_000);
+        assertLatency("Should record ringing to answered", step(CallProgressTracker.RINGING_TO_ANSWERED), 5_000);
+        assertLatency("Should record answered to completed", step(CallProgressTracker.ANSWERED_TO_COMPLETED), 60_000);
+        assertLatency("Should record queued to completed", call(CallStatus.COMPLETED), 67_000);
+    }
+
+    @Test
+    public void testFinalStatusAloneIsRecorded() throws Exception {
+        tracker.record(result("CA1", CallStatus.BUSY), 1_000, 5_000);
+
+        assertLatency("Should record queued to busy", call(CallStatus.BUSY), 4_000);
+        assertEquals("Should not record answered to completed", 0, step(CallProgressTracker.ANSWERED_TO_COMPLETED).getCount());
+        assertEquals("Should not track a finished call", 0, tracker.size());
+    }
+
+    @Test
+    public void testUnknownQueueTimeIsNotRecorded() throws Exception {
+        tracker.record(result("CA1", CallStatus.RINGING), 0, 3_000);
+        tracker.record(result("CA1", CallStatus.NO_ANSWER), 0, 33_000);
+
+        assertEquals("Should not record queued to ringing", 0, step(CallProgressTracker.QUEUED_TO_RINGING).getCount());
+        assertEquals("Should not record queued to no-answer", 0, call(CallStatus.NO_ANSWER).getCount());
+    }
+
+    @Test
+    public void testOutOfOrderStepsAreNotRecorded() throws Exception {
+        tracker.record(result("CA1", CallStatus.IN_PROGRESS), 1_000, 8_000);
+        tracker.record(result("CA1", CallStatus.RINGING), 1_000, 9_000);
+
+        assertEquals("Should not record ringing to answered before ringing", 0, step(CallProgressTracker.RINGING_TO_ANSWERED).getCount());
+    }
+
+    @Test
+    public void testStaleCallsAreForgotten() throws Exception {
+        tracker.record(result("CA1", CallStatus.RINGING), 1_000, 3_000);
+        tracker.record(result("CA2", CallStatus.RINGING), 1_000, 3_000 + CallProgressTracker.MAX_AGE_MILLIS + 1);
+
+        assertEquals("Should forget the call without a final status", 1, tracker.size());
+    }
+
+    private void assertLatency(String message, LatencyHistogram latency, long millis) {
+        assertEquals(message, 1, latency.getCount());
+        assertEquals(message, TimeUnit.MILLISECONDS.toNanos(millis), latency.getSum());
+    }
+
+    private LatencyHistogram step(String step) {
+        return metrics.latency(CallProgressTracker.STEP_LATENCY, "", "step", step);
+    }
+
+    private LatencyHistogram call(CallStatus status) {
+        return metrics.latency(CallProgressTracker.CALL_LATENCY, "", "status", status.getDesc());
+    }
+
+    private static CallResult result(String sid, CallStatus status) {
+        return CallResult.builder().withCallSID(sid).withStatus(status).build();
+    }
+}
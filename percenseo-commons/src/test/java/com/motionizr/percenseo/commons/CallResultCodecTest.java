@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallResultCodecTest {
+
+    private final CallResult result = CallResult.builder()
+            .withDestination("+16175551212")
+            .withCallSID("CA1234567890abcdef1234567890abcdef")
+            .withCallDuration(28)
+            .withHumanAnswered(true)
+            .withStatus(CallStatus.COMPLETED)
+            .withCallDate(LocalDateTime.of(2015, 11, 18, 19, 0, 0))
+            .withDirection(CallDirection.OUTBOUND)
+            .withDigits("013")
+            .withCampaign("spring-2016.wave_2")
+            .build();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(CallResultCodec.RECORD_SIZE * 2);
+        CallResultCodec.encode(result, buffer);
+        CallResultCodec.encode(CallResult.failedCall("+351321321321"), buffer);
+
+        assertEquals("Each record should have a fixed size", CallResultCodec.RECORD_SIZE * 2, buffer.position());
+
+        buffer.flip();
+        CallResult decoded = CallResultCodec.decode(buffer);
+
+        assertEquals("To should be correctly decoded", result.getDestination(), decoded.getDestination());
+        assertEquals("SID should be correctly decoded", result.getCallSID(), decoded.getCallSID());
+        assertEquals("Duration should be correctly decoded", result.getCallDuration(), decoded.getCallDuration());
+        assertEquals("Human answered flag should be correctly decoded", result.isHumanAnswered(), decoded.isHumanAnswered());
+        assertEquals("Status should be correctly decoded", result.getStatus(), decoded.getStatus());
+        assertEquals("Call date should be correctly decoded", result.getCallDate(), decoded.getCallDate());
+        assertEquals("Direction should be correctly decoded", result.getDirection(), decoded.getDirection());
+        assertEquals("Digits should be correctly decoded", result.getDigits(), decoded.getDigits());
+        assertEquals("Campaign should be correctly decoded", result.getCampaign(), decoded.getCampaign());
+
+        CallResult failed = CallResultCodec.decode(buffer);
+        assertEquals("To should be correctly decoded", "+351321321321", failed.getDestination());
+        assertEquals("Status should be correctly decoded", CallStatus.FAILED, failed.getStatus());
+        assertNull("Empty SID should be decoded as null", failed.getCallSID());
+        assertNull("Empty call date should be decoded as null", failed.getCallDate());
+        assertNull("Empty digits should be decoded as null", failed.getDigits());
+        assertEquals("Empty direction should default to UNKNOWN", CallDirection.UNKNOWN, failed.getDirection());
+        assertEquals("Default campaign should be correctly decoded", CallResult.DEFAULT_CAMPAIGN, failed.getCampaign());
+    }
+
+    @Test
+    public void testView() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CallResultCodec.RECORD_SIZE * 3);
+        buffer.position(CallResultCodec.RECORD_SIZE);
+        CallResultCodec.encode(result, buffer);
+
+        CallResultView view = new CallResultView().wrap(buffer, CallResultCodec.RECORD_SIZE);
+
+        assertEquals("Number should be read without decoding the record", 16175551212L, view.getNumber());
+        assertEquals("Status should be read without decoding the record", CallStatus.COMPLETED, view.getStatus());
+        assertEquals("SID should be read without decoding the record", result.getCallSID(), view.getCallSID());
+        assertEquals("Digits should be read without decoding the record", result.getDigits(), view.getDigits());
+        assertEquals("Campaign should be read without decoding the record", result.getCampaign(), view.getCampaign());
+        assertEquals("Reading through the view should not move the buffer", CallResultCodec.RECORD_SIZE * 2, buffer.position());
+    }
+
+    @Test
+    public void testVersion1RoundTrip() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(CallResultCodec.V1_RECORD_SIZE * 2);
+        for (CallResult written : new CallResult[] {result, CallResult.failedCall("+351321321321")}) {
+            writeVersion1(written, buffer);
+        }
+
+        buffer.flip();
+        CallResult decoded = CallResultCodec.decode(buffer);
+
+        assertEquals("Version 1 records should be read with their own size", CallResultCodec.V1_RECORD_SIZE, buffer.position());
+        assertEquals("To should be correctly decoded", result.getDestination(), decoded.getDestination());
+        assertEquals("SID should be correctly decoded", result.getCallSID(), decoded.getCallSID());
+        assertEquals("Status should be correctly decoded", result.getStatus(), decoded.getStatus());
+        assertEquals("Call date should be correctly decoded", result.getCallDate(), decoded.getCallDate());
+        assertEquals("Digits should be correctly decoded", result.getDigits(), decoded.getDigits());
+        assertEquals("Version 1 records should belong to the default campaign", CallResult.DEFAULT_CAMPAIGN, decoded.getCampaign());
+
+        CallResult failed = CallResultCodec.decode(buffer);
+        assertEquals("To should be correctly decoded", "+351321321321", failed.getDestination());
+        assertEquals("Status should be correctly decoded", CallStatus.FAILED, failed.getStatus());
+        assertEquals("Should read the records back to back", CallResultCodec.V1_RECORD_SIZE * 2, buffer.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedVersion1Record() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(CallResultCodec.V1_RECORD_SIZE);
+        writeVersion1(result, buffer);
+        buffer.flip().limit(CallResultCodec.V1_RECORD_SIZE - 1);
+
+        new CallResultView().wrap(buffer, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSidTooLong() throws Exception {
+        CallResult invalid = CallResult.builder()
+                .withDestination("+16175551212")
+                .withCallSID("CA1234567890abcdef1234567890abcdef0")
+                .withStatus(CallStatus.QUEUED)
+                .build();
+
+        CallResultCodec.encode(invalid, ByteBuffer.allocate(CallResultCodec.RECORD_SIZE));
+    }
+
+    @Test
+    public void testNonE164DestinationsAreRejected() throws Exception {
+        for (String destination : new String[] {"00351321321321", "0213213213", "+1 617-555-1212", "+0351321321", "anonymous"}) {
+            CallResult invalid = CallResult.builder()
+                    .withDestination(destination)
+                    .withStatus(CallStatus.QUEUED)
+                    .build();
+
+            ByteBuffer buffer = ByteBuffer.allocate(CallResultCodec.RECORD_SIZE);
+            try {
+                CallResultCodec.encode(invalid, buffer);
+                fail("Should reject destinations that would not be read back as written: " + destination);
+            } catch (IllegalArgumentException e) {
+                assertEquals("Should not write anything when rejecting a destination", 0, buffer.position());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedVersion() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(CallResultCodec.RECORD_SIZE);
+        CallResultCodec.encode(result, buffer);
+        buffer.put(0, (byte) 99);
+
+        new CallResultView().wrap(buffer, 0);
+    }
+
+    /**
+     * Writes a call result as a record of version 1, which had no campaign.
+     *
+     * @param written   The call result.
+     * @param buffer    The buffer.
+     */
+    private static void writeVersion1(CallResult written, ByteBuffer buffer) {
+        ByteBuffer record = ByteBuffer.allocate(CallResultCodec.RECORD_SIZE);
+        CallResultCodec.encode(written, record);
+        record.put(CallResultCodec.VERSION_OFFSET, CallResultCodec.V1);
+        for (int i = CallResultCodec.CAMPAIGN_LENGTH_OFFSET; i < CallResultCodec.V1_RECORD_SIZE; i++) {
+            record.put(i, (byte) 0);
+        }
+
+        record.position(0).limit(CallResultCodec.V1_RECORD_SIZE);
+        buffer.put(record);
+    }
+}
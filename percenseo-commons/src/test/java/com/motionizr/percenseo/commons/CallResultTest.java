@@ -27,13 +27,13 @@ import com.feedzai.commons.sql.abstraction.entry.EntityEntry;
 import com.google.common.collect.ImmutableMap;
 import com.twilio.sdk.TwilioRestClient;
 import com.twilio.sdk.resource.instance.Call;
-import mockit.Deencapsulation;
 import org.junit.Test;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 
 /**
@@ -50,25 +50,30 @@ public class CallResultTest {
     private final LocalDateTime callDate = LocalDateTime.of(2015, 11, 18, 19, 0, 0);
     private final CallDirection direction = CallDirection.OUTBOUND;
     private final String digits = "013";
+    private final String campaign = "november-2015";
 
 
     @Test
     public void testToEntity() throws Exception {
-        CallResult result = new CallResult();
+        CallResult result = CallResult.builder().build();
         EntityEntry resultEntity = result.toEntity();
 
         assertEquals("Empty status should not throw an NPE and should default to UNKNOWN", CallStatus.UNKNOWN.getInternalCode(), resultEntity.get(SurveyEntities.CALL_RESULT_STATUS));
         assertEquals("Empty direction should not throw an NPE and should default to UNKNOWN", CallDirection.UNKNOWN.getInternalCode(), resultEntity.get(SurveyEntities.CALL_RESULT_DIRECTION));
         assertNull("Empty call date should not throw an NPE", resultEntity.get(SurveyEntities.CALL_RESULT_DATE));
-
-        Deencapsulation.setField(result, "destination", destination);
-        Deencapsulation.setField(result, "callSID", sid);
-        Deencapsulation.setField(result, "callDuration", duration);
-        Deencapsulation.setField(result, "humanAnswered", humanAnswered);
-        Deencapsulation.setField(result, "status", status);
-        Deencapsulation.setField(result, "callDate", callDate);
-        Deencapsulation.setField(result, "direction", direction);
-        Deencapsulation.setField(result, "digits", digits);
+        assertEquals("Empty campaign should default to the default campaign", CallResult.DEFAULT_CAMPAIGN, resultEntity.get(SurveyEntities.CALL_RESULT_CAMPAIGN));
+
+        result = CallResult.builder()
+                .withDestination(destination)
+                .withCallSID(sid)
+                .withCallDuration(duration)
+                .withHumanAnswered(humanAnswered)
+                .withStatus(status)
+                .withCallDate(callDate)
+                .withDirection(direction)
+                .withDigits(digits)
+                .withCampaign(campaign)
+                .build();
 
         resultEntity = result.toEntity();
 
@@ -80,6 +85,7 @@ public class CallResultTest {
         assertEquals("Call date should be correctly set", callDate.toInstant(ZoneOffset.UTC).getEpochSecond(), resultEntity.get(SurveyEntities.CALL_RESULT_DATE));
         assertEquals("Direction should be correctly set", direction.getInternalCode(), resultEntity.get(SurveyEntities.CALL_RESULT_DIRECTION));
         assertEquals("Digits should be correctly set", digits, resultEntity.get(SurveyEntities.CALL_RESULT_DIGITS));
+        assertEquals("Campaign should be correctly set", campaign, resultEntity.get(SurveyEntities.CALL_RESULT_CAMPAIGN));
     }
 
     @Test
@@ -112,5 +118,9 @@ public class CallResultTest {
 
         assertEquals("To should be correctly set", destination, failedCall.getDestination());
         assertEquals("Status should be correctly set", CallStatus.FAILED, failedCall.getStatus());
+
+        CallResult otherFailedCall = CallResult.failedCall("+351321321321");
+        assertNotSame("Failed calls should not share the same instance", failedCall, otherFailedCall);
+        assertEquals("Previous failed calls should not be modified", destination, failedCall.getDestination());
     }
 }
\ No newline at end of file
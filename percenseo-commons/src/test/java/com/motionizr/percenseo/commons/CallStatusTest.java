@@ -28,6 +28,8 @@ import org.junit.Test;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Miguel Bento (migueljbento@gmail.com)
@@ -50,4 +52,20 @@ public class CallStatusTest {
 
         assertEquals("Should default to unknown for new status", CallStatus.UNKNOWN, CallStatus.fromInternalCode(-100));
     }
+
+    @Test
+    public void testFromNullInternalCode() throws Exception {
+        assertEquals("Should default to unknown for a missing status", CallStatus.UNKNOWN, CallStatus.fromInternalCode((Integer) null));
+        assertEquals("Should read the status from a boxed internal code", CallStatus.values()[0],
+                CallStatus.fromInternalCode(Integer.valueOf(CallStatus.values()[0].getInternalCode())));
+    }
+
+    @Test
+    public void testIsTerminal() throws Exception {
+        assertTrue("Completed calls are over", CallStatus.COMPLETED.isTerminal());
+        assertTrue("Busy calls are over", CallStatus.BUSY.isTerminal());
+        assertFalse("Queued calls are not over", CallStatus.QUEUED.isTerminal());
+        assertFalse("Calls in progress are not over", CallStatus.IN_PROGRESS.isTerminal());
+        assertFalse("Unknown status should not be considered final", CallStatus.UNKNOWN.isTerminal());
+    }
 }
\ No newline at end of file
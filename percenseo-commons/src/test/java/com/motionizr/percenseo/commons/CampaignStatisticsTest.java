@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CampaignStatisticsTest {
+
+    private CallResult completed(int duration, boolean humanAnswered, String digits) {
+        return CallResult.builder()
+                .withStatus(CallStatus.COMPLETED)
+                .withCallDuration(duration)
+                .withHumanAnswered(humanAnswered)
+                .withDigits(digits)
+                .build();
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        CampaignStatistics statistics = new CampaignStatistics();
+        statistics.record(completed(3, true, "1"));
+        statistics.record(completed(45, true, "1"));
+        statistics.record(completed(700, false, "2"));
+        statistics.record(CallResult.failedCall("+351321321321"));
+        statistics.record(CallResult.builder().build());
+
+        assertEquals("Should count all the calls", 5, statistics.getTotal());
+        assertEquals("Should count the completed calls", 3, statistics.getCount(CallStatus.COMPLETED));
+        assertEquals("Should count the failed calls", 1, statistics.getCount(CallStatus.FAILED));
+        assertEquals("Calls without status should be counted as unknown", 1, statistics.getCount(CallStatus.UNKNOWN));
+        assertEquals("Should compute the human answered rate over the completed calls", 2.0 / 3, statistics.getHumanAnsweredRate(), 0.0001);
+        assertArrayEquals("Should place each duration in its bucket", new long[]{0, 1, 0, 0, 0, 1, 0, 0, 0, 1}, statistics.getDurationHistogram());
+        assertEquals("Should count the digits pressed", Long.valueOf(2), statistics.getDigitsDistribution().get("1"));
+        assertEquals("Should count the digits pressed", Long.valueOf(1), statistics.getDigitsDistribution().get("2"));
+    }
+
+    @Test
+    public void testDigitsCardinalityIsBounded() throws Exception {
+        CampaignStatistics statistics = new CampaignStatistics();
+        for (int i = 0; i < CampaignStatistics.MAX_DISTINCT_DIGITS * 2; i++) {
+            statistics.record(completed(10, true, String.valueOf(i)));
+        }
+
+        assertTrue("Should not track more than the maximum distinct digits",
+                statistics.getDigitsDistribution().size() <= CampaignStatistics.MAX_DISTINCT_DIGITS + 1);
+        assertEquals("Should group the remaining digits", Long.valueOf(CampaignStatistics.MAX_DISTINCT_DIGITS),
+                statistics.getDigitsDistribution().get(CampaignStatistics.OTHER_DIGITS));
+    }
+
+    @Test
+    public void testToJson() throws Exception {
+        CampaignStatistics statistics = new CampaignStatistics();
+        statistics.record(completed(3, true, "1\""));
+
+        String json = statistics.toJson();
+        assertTrue("Should contain the total", json.startsWith("{\"total\":1,"));
+        assertTrue("Should contain the status counts", json.contains("\"completed\":1"));
+        assertTrue("Should escape the digits", json.contains("\"1\\\"\":1"));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class JsonStringsTest {
+
+    @Test
+    public void testSpecialCharactersAreEscaped() throws Exception {
+        assertEquals("Should escape quotes and backslashes",
+                "\"a \\\"quoted\\\" C:\\\\path\"", JsonStrings.append(new StringBuilder(), "a \"quoted\" C:\\path").toString());
+        assertEquals("Should escape control characters",
+                "\"line\\nbreak\\r\\ttab\\u0000\\u001f\"", JsonStrings.append(new StringBuilder(), "line\nbreak\r\ttab\u0000\u001f").toString());
+        assertEquals("Should keep other characters", "\"+351 Açores €\"", JsonStrings.append(new StringBuilder(), "+351 Açores €").toString());
+    }
+
+    @Test
+    public void testFieldsAreAppended() throws Exception {
+        assertEquals("Should append the name and the value", "\"name\":\"spring\"", JsonStrings.field(new StringBuilder(), "name", "spring").toString());
+        assertEquals("Should append null values", "\"error\":null", JsonStrings.field(new StringBuilder(), "error", null).toString());
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreContiguous() throws Exception {
+        for (long value = 0; value < 100_000; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue("Value " + value + " should not exceed the upper bound of its bucket", value <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue("Value " + value + " should exceed the upper bound of the previous bucket", bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+        assertEquals("Should cover the largest value", Long.MAX_VALUE, LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals("Should count every value", 1000, histogram.getCount());
+        assertEquals("Should compute the mean exactly", 500.5, histogram.getMean(), 0.0001);
+        assertEquals("Should keep the largest value", 1000, histogram.getMax());
+        assertWithinRelativeError("Should estimate the median", 500, histogram.getValueAtPercentile(50));
+        assertWithinRelativeError("Should estimate the 99th percentile", 990, histogram.getValueAtPercentile(99));
+        assertEquals("Should not exceed the largest value", 1000, histogram.getValueAtPercentile(99.9));
+        assertEquals("Should count small values exactly", 1, histogram.getValueAtPercentile(0.1));
+    }
+
+    @Test
+    public void testEmptyAndNegative() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals("Should have no percentile", 0, histogram.getValueAtPercentile(99));
+        assertEquals("Should have no mean", 0, histogram.getMean(), 0);
+
+        histogram.record(-5);
+        assertEquals("Should record negative values as zero", 0, histogram.getValueAtPercentile(100));
+        assertEquals("Should count negative values", 1, histogram.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() throws Exception {
+        new LatencyHistogram().getValueAtPercentile(0);
+    }
+
+    private static void assertWithinRelativeError(String message, long expected, long actual) {
+        assertTrue(message + ": expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / LatencyHistogram.SUB_BUCKETS);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class MetricsTest {
+
+    private final Metrics metrics = new Metrics();
+
+    @Test
+    public void testCountersAreRendered() throws Exception {
+        metrics.counter("calls_total", "Calls.", "status", "completed").add(3);
+        metrics.counter("calls_total", "Calls.", "status", "busy").increment();
+
+        assertSame("Should return the same counter for the same label",
+                metrics.counter("calls_total", "Calls.", "status", "busy"), metrics.counter("calls_total", "Calls.", "status", "busy"));
+        assertEquals("Should render the counters of a name together",
+                "# HELP calls_total Calls.\n" +
+                "# TYPE calls_total counter\n" +
+                "calls_total{status=\"completed\"} 3\n" +
+                "calls_total{status=\"busy\"} 1\n",
+                metrics.toPrometheus());
+    }
+
+    @Test
+    public void testLatenciesAreRenderedInSeconds() throws Exception {
+        LatencyHistogram latency = metrics.latency("dial_seconds", "Dials.");
+        latency.record(1_000_000_000);
+        latency.record(3_000_000_000L);
+
+        String text = metrics.toPrometheus();
+        assertTrue("Should render the type", text.contains("# TYPE dial_seconds summary\n"));
+        assertTrue("Should render the quantiles", text.contains("dial_seconds{quantile=\"0.999\"} 3\n"));
+        assertTrue("Should render the sum", text.contains("dial_seconds_sum 4\n"));
+        assertTrue("Should render the count", text.contains("dial_seconds_count 2\n"));
+
+        Map<String, Number> snapshot = metrics.snapshot();
+        assertEquals("Should expose the count", 2L, snapshot.get("dial_seconds.count"));
+        assertEquals("Should expose the mean in seconds", 2.0, snapshot.get("dial_seconds.mean").doubleValue(), 1e-9);
+    }
+
+    @Test
+    public void testGaugesAreReadWhenRenderedAndRemoved() throws Exception {
+        AtomicLong depth = new AtomicLong(5);
+        metrics.gauge("depth", "Depth.", "campaign", "a \"quoted\" one", depth::get);
+        depth.set(7);
+
+        assertTrue("Should read the gauge and escape the label",
+                metrics.toPrometheus().contains("depth{campaign=\"a \\\"quoted\\\" one\"} 7\n"));
+        assertEquals("Should name the gauge after its label", 7L, metrics.snapshot().get("depth.a \"quoted\" one"));
+
+        metrics.remove("depth", "campaign", "a \"quoted\" one");
+        assertFalse("Should drop a metric without labels left", metrics.toPrometheus().contains("depth"));
+    }
+
+    @Test
+    public void testSuppliedCountersAndFractionalGaugesAreRead() throws Exception {
+        AtomicLong opened = new AtomicLong();
+        AtomicInteger size = new AtomicInteger(3);
+        metrics.counter("opened_total", "Opened.", "campaign", "a", opened::get);
+        metrics.gauge("failure_rate", "Failure rate.", "campaign", "a", () -> 0.25);
+        metrics.gauge("size", "Size.", "campaign", "a", () -> size.get() * 2);
+        opened.incrementAndGet();
+
+        String text = metrics.toPrometheus();
+        assertTrue("Should read the counter when rendered", text.contains("# TYPE opened_total counter\nopened_total{campaign=\"a\"} 1\n"));
+        assertTrue("Should render the fraction", text.contains("failure_rate{campaign=\"a\"} 0.25\n"));
+        assertEquals("Should expose the counter", 1L, metrics.snapshot().get("opened_total.a"));
+        assertEquals("Should expose the fraction", 0.25, metrics.snapshot().get("failure_rate.a"));
+        assertEquals("Should keep integral gauges as longs", 6L, metrics.snapshot().get("size.a"));
+
+        metrics.remove("opened_total", "campaign", "a");
+        assertFalse("Should remove a supplied counter", metrics.toPrometheus().contains("opened_total"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKindsCannotBeMixed() throws Exception {
+        metrics.counter("mixed", "Mixed.");
+        metrics.latency("mixed", "Mixed.");
+    }
+}
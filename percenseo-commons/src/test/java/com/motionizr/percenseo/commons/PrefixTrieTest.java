@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class PrefixTrieTest {
+
+    private final PrefixTrie trie = new PrefixTrie(Arrays.asList(
+            "+351211111111",
+            "+351212222222",
+            "+351221111111",
+            "+16175551212",
+            "+1 (212) 555-1212"
+    ));
+
+    @Test
+    public void testMatchLength() throws Exception {
+        assertEquals("Should match a Lisbon area number", 5, trie.matchLength("+351219999999"));
+        assertEquals("Should match the country code only", 3, trie.matchLength("+351911111111"));
+        assertEquals("Should match a whole number", 12, trie.matchLength("+351211111111"));
+        assertEquals("Should not match an unknown country", 0, trie.matchLength("+44207123456"));
+    }
+
+    @Test
+    public void testSelectsTheLongestPrefix() throws Exception {
+        assertEquals("Should pick the Porto number", "+351221111111", trie.select("+351229999999", 0, 0));
+        assertEquals("Should pick the Boston number", "+16175551212", trie.select("+16171234567", 7, 0));
+        assertEquals("Should ignore the formatting", "+1 (212) 555-1212", trie.select("1-212-000-0000", 3, 0));
+    }
+
+    @Test
+    public void testRotatesAmongEqualMatches() throws Exception {
+        Set<String> selected = new HashSet<>();
+        for (int ticket = 0; ticket < 4; ticket++) {
+            selected.add(trie.select("+351219999999", ticket, 0));
+        }
+
+        assertEquals("Should rotate through both Lisbon numbers",
+                new HashSet<>(Arrays.asList("+351211111111", "+351212222222")), selected);
+    }
+
+    @Test
+    public void testRotatesEachPrefixOnItsOwn() throws Exception {
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            selected.add(trie.next("+351219999999", 0));
+            assertEquals("Should pick the Porto number", "+351221111111", trie.next("+351229999999", 0));
+        }
+
+        assertEquals("Should rotate through both Lisbon numbers whatever is looked up in between",
+                new HashSet<>(Arrays.asList("+351211111111", "+351212222222")), selected);
+    }
+
+    @Test
+    public void testMinimumPrefixLength() throws Exception {
+        Set<String> selected = new HashSet<>();
+        for (int ticket = 0; ticket < trie.size(); ticket++) {
+            selected.add(trie.select("+44207123456", ticket, 1));
+        }
+
+        assertEquals("Should fall back to all the numbers", trie.size(), selected.size());
+        assertEquals("Should accept a match on the area code", "+351221111111", trie.select("+351229999999", 0, 5));
+    }
+
+    @Test
+    public void testNegativeTicket() throws Exception {
+        assertEquals("Should handle tickets that overflowed", "+351221111111", trie.select("+35122", Integer.MIN_VALUE, 0));
+    }
+
+    @Test
+    public void testCompactness() throws Exception {
+        PrefixTrie single = new PrefixTrie(Collections.singletonList("+351211111111"));
+
+        assertEquals("Should hold one node per digit plus the root", 13, single.nodeCount());
+        assertEquals("Should always select the only number", "+351211111111", single.select("+44", 5, 0));
+    }
+
+    @Test
+    public void testNodesAreSharedByCommonPrefixes() throws Exception {
+        assertEquals("Should hold one node per distinct prefix plus the root", 49, trie.nodeCount());
+    }
+
+    @Test
+    public void testNumbersWithTheSameDigits() throws Exception {
+        PrefixTrie duplicates = new PrefixTrie(Arrays.asList("+351211111111", "+351 21 111 1111", "+3512"));
+
+        Set<String> selected = new HashSet<>();
+        for (int ticket = 0; ticket < 2; ticket++) {
+            selected.add(duplicates.select("+351211111111", ticket, 0));
+        }
+
+        assertEquals("Should keep both ways of writing the number",
+                new HashSet<>(Arrays.asList("+351211111111", "+351 21 111 1111")), selected);
+        assertEquals("Should keep a number prefixing the others", "+3512", duplicates.select("+3512", 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmpty() throws Exception {
+        new PrefixTrie(Collections.<String>emptyList());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.commons;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class SuppressionListTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempDirectory("percenseo").resolve("dnc.bin");
+    }
+
+    @Test
+    public void testNumbersAreFound() throws Exception {
+        long[] numbers = {351912345678L, 16175551212L, 351912345678L, 442071838750L, 0, 0};
+        assertEquals("Should drop the duplicates", 3, SuppressionList.write(file, numbers, 4));
+        assertEquals("Should store the header and one long per number", 16 + 3 * 8, Files.size(file));
+
+        SuppressionList list = SuppressionList.open(file);
+        assertEquals("Should read the number of entries", 3, list.size());
+        assertTrue("Should find the first number", list.contains(16175551212L));
+        assertTrue("Should find a middle number", list.contains("+351 912 345 678"));
+        assertTrue("Should find the last number", list.contains(442071838750L));
+        assertFalse("Should not find a number before the first", list.contains(16175551211L));
+        assertFalse("Should not find a number between two others", list.contains(351912345679L));
+        assertFalse("Should not find a number after the last", list.contains(Long.MAX_VALUE));
+        assertFalse("Should not find the numbers past the count", list.contains(0L));
+    }
+
+    @Test
+    public void testInvalidNumbersAreSuppressed() throws Exception {
+        SuppressionList.write(file, new long[]{351912345678L}, 1);
+
+        SuppressionList list = SuppressionList.open(file);
+        assertFalse("Should not find a valid number missing from the list", list.contains("+351912345679"));
+        assertTrue("Should not call a number that can't be checked", list.contains("not a number"));
+        assertTrue("Should not call a number that can't be checked", list.contains("+351 91x 345 678"));
+        assertTrue("Should not call an empty number", list.contains(""));
+        assertTrue("Should not call a missing number", list.contains((CharSequence) null));
+    }
+
+    @Test
+    public void testEveryNumberIsFound() throws Exception {
+        long[] numbers = new long[1000];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = 351910000000L + 2 * i;
+        }
+        SuppressionList.write(file, numbers.clone(), numbers.length);
+
+        SuppressionList list = SuppressionList.open(file);
+        for (long number : numbers) {
+            assertTrue("Should find every number on the list", list.contains(number));
+            assertFalse("Should not find the numbers missing from the list", list.contains(number + 1));
+        }
+    }
+
+    @Test
+    public void testEmptyList() throws Exception {
+        SuppressionList.write(file, new long[0], 0);
+
+        SuppressionList list = SuppressionList.open(file);
+        assertEquals("Should be empty", 0, list.size());
+        assertFalse("Should not find any number", list.contains(16175551212L));
+    }
+
+    @Test
+    public void testListIsReplaced() throws Exception {
+        SuppressionList.write(file, new long[]{16175551212L}, 1);
+        SuppressionList.write(file, new long[]{442071838750L}, 1);
+
+        SuppressionList list = SuppressionList.open(file);
+        assertFalse("Should not find the numbers of the replaced list", list.contains(16175551212L));
+        assertTrue("Should find the numbers of the new list", list.contains(442071838750L));
+        assertEquals("Should not leave temporary files behind", 1, Files.list(file.getParent()).count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherFilesAreRejected() throws Exception {
+        Files.write(file, ByteBuffer.allocate(24).putLong(16175551212L).array());
+        SuppressionList.open(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedFilesAreRejected() throws Exception {
+        SuppressionList.write(file, new long[]{16175551212L, 442071838750L}, 2);
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 8));
+        SuppressionList.open(file);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.commons.PrefixTrie;
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
+import com.twilio.sdk.TwilioRestClient;
+import com.twilio.sdk.resource.factory.CallFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One of the Twilio accounts the {@link Dialer} spreads the calls across.
+ * <p/>
+ * Holds the client of the account, its {@link PermitBucket rate limit}, the number of calls currently being queued on
+ * it and the caller number to use next. The caller numbers are kept in a {@link PrefixTrie}, so the one sharing the
+ * longest prefix with the destination can be picked without going through all of them.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+class AccountLine implements AutoCloseable {
+
+    /**
+     * The {@link AccountConfiguration account configuration}.
+     */
+    private final AccountConfiguration account;
+
+    /**
+     * The client used to talk to the Twilio API on behalf of the account.
+     */
+    private final TwilioRestClient client;
+
+    /**
+     * The factory used to queue the calls.
+     */
+    private final CallFactory callFactory;
+
+    /**
+     * The rate limit of the account.
+     */
+    private final PermitBucket bucket;
+
+    /**
+     * The number of calls being queued on the account.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The caller numbers of the account.
+     */
+    private final PrefixTrie callerNumbers;
+
+    /**
+     * Creates a new instance of {@link AccountLine}.
+     *
+     * @param account   The {@link AccountConfiguration account configuration}.
+     * @param client    The client used to talk to the Twilio API on behalf of the account.
+     * @param bucket    The rate limit of the account.
+     */
+    AccountLine(AccountConfiguration account, TwilioRestClient client, PermitBucket bucket) {
+        this.account = account;
+        this.client = client;
+        this.callFactory = client.getAccount().getCallFactory();
+        this.bucket = bucket;
+        this.callerNumbers = new PrefixTrie(account.getCallerNumbers());
+    }
+
+    /**
+     * Gets the {@link AccountConfiguration account configuration}.
+     *
+     * @return  The {@link AccountConfiguration account configuration}.
+     */
+    AccountConfiguration getAccount() {
+        return account;
+    }
+
+    /**
+     * Gets the client used to talk to the Twilio API on behalf of the account.
+     *
+     * @return  The client of the account.
+     */
+    TwilioRestClient getClient() {
+        return client;
+    }
+
+    /**
+     * Gets the factory used to queue the calls.
+     *
+     * @return  The factory used to queue the calls.
+     */
+    CallFactory getCallFactory() {
+        return callFactory;
+    }
+
+    /**
+     * Gets the rate limit of the account.
+     *
+     * @return  The rate limit of the account.
+     */
+    PermitBucket getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Gets the number of calls being queued on the account.
+     *
+     * @return  The number of calls being queued on the account.
+     */
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Marks the start of a call being queued on the account.
+     */
+    void begin() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a call being queued on the account.
+     */
+    void end() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Picks the caller number of the next call, rotating through the numbers of the account.
+     *
+     * @return  The caller number.
+     */
+    String nextCallerNumber() {
+        return callerNumbers.next("", 0);
+    }
+
+    /**
+     * Picks the caller number of the next call among the ones sharing the longest prefix with the destination.
+     * <p/>
+     * Numbers with an equally long prefix are used in turn. If no number shares at least the minimum number of
+     * digits with the destination, all the numbers of the account are used in turn.
+     *
+     * @param destination       The number being called.
+     * @param minPrefixLength   The minimum number of digits shared with the destination.
+     * @return                  The caller number.
+     */
+    String nextCallerNumber(String destination, int minPrefixLength) {
+        return callerNumbers.next(destination, minPrefixLength);
+    }
+
+    /**
+     * Closes the persistent connections to the Twilio API and releases the rate limit.
+     */
+    @Override
+    public void close() {
+        client.getHttpClient().getConnectionManager().shutdown();
+        bucket.close();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+
+import java.util.List;
+
+/**
+ * The {@link AccountConfiguration accounts} shared by the campaigns run by a long-running process.
+ * <p/>
+ * Holds the clients of the accounts, with their pools of persistent connections, and their rate limits, so every
+ * campaign queues its calls over connections already open and together they don't exceed the rate of the accounts.
+ * The rate is split among the campaigns running by their {@link FairShare fair share}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class AccountPool implements AutoCloseable {
+
+    /**
+     * The {@link SurveyConfiguration survey configuration} the accounts and connections are set up from.
+     */
+    private final SurveyConfiguration configuration;
+
+    /**
+     * The accounts.
+     */
+    private final List<AccountLine> lines;
+
+    /**
+     * Splits the rate of the accounts among the campaigns.
+     */
+    private final FairShare fairShare = new FairShare();
+
+    /**
+     * Creates a new instance of {@link AccountPool}.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration} the accounts and connections are set up from.
+     */
+    public AccountPool(SurveyConfiguration configuration) {
+        this.configuration = configuration;
+        this.lines = Dialer.setupLines(configuration);
+    }
+
+    /**
+     * Opens the configured number of connections to the Twilio API for each account.
+     *
+     * @return  The number of connections successfully opened.
+     * @see     Dialer#warmUp()
+     */
+    public int warmUp() {
+        return Dialer.warmUp(configuration, lines);
+    }
+
+    /**
+     * Gets the accounts.
+     *
+     * @return  The accounts.
+     */
+    List<AccountLine> getLines() {
+        return lines;
+    }
+
+    /**
+     * Gets the {@link FairShare fair share} splitting the rate of the accounts among the campaigns.
+     *
+     * @return  The {@link FairShare fair share}.
+     */
+    public FairShare getFairShare() {
+        return fairShare;
+    }
+
+    /**
+     * Closes the persistent connections to the Twilio API and releases the rate limits of the accounts.
+     */
+    @Override
+    public void close() {
+        lines.forEach(AccountLine::close);
+    }
+}
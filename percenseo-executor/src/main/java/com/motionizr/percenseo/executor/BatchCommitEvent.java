@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.commons.FlightEvents;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event spanning the write of a batch of queued calls and attempts by the {@link CallResultWriter}.
+ * <p/>
+ * The batch is identified by its first call, so it can be matched with the {@link DialEvent dial} of that call. Only
+ * created when {@link FlightEvents#ENABLED}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@Name("com.motionizr.percenseo.BatchCommit")
+@Label("Batch Commit")
+@Category({FlightEvents.CATEGORY, "Executor"})
+@Description("Write of a batch of queued calls and attempts to the database.")
+final class BatchCommitEvent extends Event {
+
+    /**
+     * The number of the first call of the batch.
+     */
+    @Label("First Number")
+    String number;
+
+    /**
+     * The SID of the first call of the batch, {@code null} if it was rejected by the Twilio API.
+     */
+    @Label("First Call SID")
+    String callSid;
+
+    /**
+     * The number of queued calls written.
+     */
+    @Label("Calls")
+    int calls;
+
+    /**
+     * The number of attempts recorded.
+     */
+    @Label("Attempts")
+    int attempts;
+
+    /**
+     * Flag indicating if the batch failed and the rows were written one by one.
+     */
+    @Label("Written One By One")
+    boolean fallback;
+
+    /**
+     * Creates a new {@link BatchCommitEvent} and starts timing it.
+     *
+     * @param number    The number of the first call of the batch.
+     * @param callSid   The SID of the first call of the batch.
+     * @param calls     The number of queued calls written.
+     * @param attempts  The number of attempts recorded.
+     */
+    BatchCommitEvent(String number, String callSid, int calls, int attempts) {
+        this.number = number;
+        this.callSid = callSid;
+        this.calls = calls;
+        this.attempts = attempts;
+        begin();
+    }
+}
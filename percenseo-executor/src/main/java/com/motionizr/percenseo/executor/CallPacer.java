@@ -0,0 +1,367 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.executor.NumberStateFeed.NumberState;
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces the calls to hold a target number of live calls, using the final statuses received by the result handler as
+ * feedback.
+ * <p/>
+ * Every call queued by this process is live until its final status shows up in the state of its number, as read by the
+ * {@link NumberStateFeed}. No call is queued while the target is reached. Below it, calls are spaced by a rate adjusted
+ * once per control period: it grows by a fixed step while the live calls stay below the target and is halved when the
+ * target is reached or when the recent answer rate drops well below the usual one, which usually means the carriers
+ * started filtering the calls.
+ * <p/>
+ * The rate never exceeds the sum of the rates of the accounts, which still pace each account on their own.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+final class CallPacer implements NumberStateFeed.Subscriber {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CallPacer.class);
+
+    /**
+     * The time between adjustments of the rate, in milliseconds.
+     */
+    static final long CONTROL_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * How long a call is considered live without a final status, in milliseconds.
+     */
+    private static final long MAX_CALL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The rate the calls start at, in calls per second.
+     */
+    static final double INITIAL_RATE = 1;
+
+    /**
+     * The lowest rate, in calls per second.
+     */
+    static final double MIN_RATE = 0.1;
+
+    /**
+     * The calls per second added on each control period below the target.
+     */
+    static final double INCREASE_STEP = 0.5;
+
+    /**
+     * The factor applied to the rate when backing off.
+     */
+    static final double DECREASE_FACTOR = 0.5;
+
+    /**
+     * The weight of each final status in the recent answer rate.
+     */
+    private static final double RECENT_WEIGHT = 0.2;
+
+    /**
+     * The weight of each final status in the usual answer rate.
+     */
+    private static final double USUAL_WEIGHT = 0.02;
+
+    /**
+     * The fraction of the usual answer rate below which the recent one is a drop.
+     */
+    private static final double ANSWER_DROP_RATIO = 0.7;
+
+    /**
+     * The number of final statuses needed before the answer rate is trusted.
+     */
+    static final int MIN_OUTCOMES = 20;
+
+    /**
+     * The feed of the states of the numbers.
+     */
+    private final NumberStateFeed feed;
+
+    /**
+     * The number of live calls to hold.
+     */
+    private final int target;
+
+    /**
+     * The highest rate, in calls per second.
+     */
+    private final double maxRate;
+
+    /**
+     * The wall clock, in milliseconds, compared with the update times of the states.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * When each live call was queued, in epoch milliseconds, by call SID.
+     */
+    private final Map<String, Long> live = new HashMap<>();
+
+    /**
+     * The number of calls being queued.
+     */
+    private int queueing;
+
+    /**
+     * The current rate, in calls per second.
+     */
+    private double rate;
+
+    /**
+     * When the next call can be queued, in epoch milliseconds.
+     */
+    private double nextCallAt;
+
+    /**
+     * The answer rate of the last final statuses.
+     */
+    private double recentAnswerRate;
+
+    /**
+     * The answer rate of the campaign so far.
+     */
+    private double usualAnswerRate;
+
+    /**
+     * The number of final statuses received.
+     */
+    private long outcomes;
+
+    /**
+     * Flag indicating if the answer rate dropped since the rate was last adjusted.
+     */
+    private boolean answerRateDropped;
+
+    /**
+     * When to adjust the rate next, in epoch milliseconds.
+     */
+    private long nextControlAt;
+
+    /**
+     * Creates a new instance of {@link CallPacer}.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param feed          The feed of the states of the numbers.
+     */
+    CallPacer(SurveyConfiguration configuration, NumberStateFeed feed) {
+        this(configuration, feed, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link CallPacer} with a given clock.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param feed          The feed of the states of the numbers.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    CallPacer(SurveyConfiguration configuration, NumberStateFeed feed, LongSupplier clock) {
+        this.feed = feed;
+        this.target = configuration.getPacingTargetCalls();
+        this.maxRate = Math.max(MIN_RATE, configuration.getAccounts().stream()
+                .mapToDouble(AccountConfiguration::getCallsPerSecond)
+                .sum());
+        this.clock = clock;
+        this.rate = Math.min(INITIAL_RATE, maxRate);
+    }
+
+    /**
+     * Starts pacing the calls and following their final statuses.
+     */
+    synchronized void open() {
+        long now = clock.getAsLong();
+        nextCallAt = now;
+        nextControlAt = now + CONTROL_PERIOD_MILLIS;
+        feed.subscribe(this);
+    }
+
+    /**
+     * Waits until another call can be queued and accounts for it.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    void acquire() throws InterruptedException {
+        while (true) {
+            long wait = tryAcquire();
+            if (wait == 0) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Accounts for another call if one can be queued now, reading the final statuses received first if the period of
+     * the {@link NumberStateFeed feed} elapsed.
+     *
+     * @return  0 if the call can be queued, otherwise the time to wait before trying again in milliseconds.
+     */
+    long tryAcquire() {
+        // Outside the lock, the feed holds its own while handing the states out.
+        feed.poll();
+        return account();
+    }
+
+    /**
+     * Accounts for another call if one can be queued now.
+     *
+     * @return  0 if the call can be queued, otherwise the time to wait before trying again in milliseconds.
+     */
+    private synchronized long account() {
+        long now = clock.getAsLong();
+        if (now >= nextControlAt) {
+            control(now);
+        }
+
+        if (queueing + live.size() >= target) {
+            return Math.max(1, nextControlAt - now);
+        }
+
+        if (nextCallAt > now) {
+            return Math.max(1, Math.min((long) Math.ceil(nextCallAt - now), nextControlAt - now));
+        }
+
+        nextCallAt = Math.max(nextCallAt, now) + TimeUnit.SECONDS.toMillis(1) / rate;
+        queueing++;
+        return 0;
+    }
+
+    /**
+     * Records the outcome of a call accounted for by {@link #acquire()}. Calls the Twilio API rejected are over.
+     *
+     * @param result    The {@link CallResult result} of the call, {@code null} if it was not queued.
+     */
+    synchronized void onDialed(CallResult result) {
+        queueing--;
+        if (result != null && result.getCallSID() != null) {
+            live.put(result.getCallSID(), clock.getAsLong());
+        }
+    }
+
+    /**
+     * Gets the number of calls queued or being queued without a final status yet.
+     *
+     * @return  The number of live calls.
+     */
+    synchronized int getLiveCalls() {
+        return queueing + live.size();
+    }
+
+    /**
+     * Gets the current rate.
+     *
+     * @return  The rate, in calls per second.
+     */
+    synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Frees the live calls that got their final status and accounts for it in the answer rates.
+     *
+     * @param changed   The states changed since the previous read.
+     */
+    @Override
+    public synchronized void onChanged(List<NumberState> changed) {
+        for (NumberState state : changed) {
+            if (state.status.isTerminal() && live.remove(state.sid) != null) {
+                answerRateDropped |= onFinalStatus(state.status);
+            }
+        }
+    }
+
+    /**
+     * Adjusts the rate to the live calls and the final statuses received since the last period.
+     *
+     * @param now   The current time, in epoch milliseconds.
+     */
+    private void control(long now) {
+        nextControlAt = now + CONTROL_PERIOD_MILLIS;
+
+        int expired = 0;
+        for (Iterator<Long> iterator = live.values().iterator(); iterator.hasNext(); ) {
+            if (now - iterator.next() > MAX_CALL_MILLIS) {
+                iterator.remove();
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            logger.debug("Stopped counting {} calls without a final status as live.", expired);
+        }
+
+        double previous = rate;
+        if (queueing + live.size() >= target || answerRateDropped) {
+            rate = Math.max(MIN_RATE, rate * DECREASE_FACTOR);
+        } else {
+            rate = Math.min(maxRate, rate + INCREASE_STEP);
+        }
+        answerRateDropped = false;
+
+        if (rate != previous) {
+            logger.debug("Pacing the calls at {} per second with {} of {} live calls.",
+                    String.format("%.2f", rate), queueing + live.size(), target);
+        }
+    }
+
+    /**
+     * Accounts for the final status of a live call in the answer rates.
+     *
+     * @param status    The final status.
+     * @return          {@code true} if the recent answer rate dropped below the usual one, {@code false} otherwise.
+     */
+    private boolean onFinalStatus(CallStatus status) {
+        double answered = status == CallStatus.COMPLETED ? 1 : 0;
+        if (outcomes++ == 0) {
+            recentAnswerRate = answered;
+            usualAnswerRate = answered;
+        } else {
+            recentAnswerRate += RECENT_WEIGHT * (answered - recentAnswerRate);
+            usualAnswerRate += USUAL_WEIGHT * (answered - usualAnswerRate);
+        }
+
+        if (outcomes >= MIN_OUTCOMES && recentAnswerRate < usualAnswerRate * ANSWER_DROP_RATIO) {
+            logger.info("The answer rate dropped to {}% from {}%, slowing down the calls.",
+                    Math.round(recentAnswerRate * 100), Math.round(usualAnswerRate * 100));
+            recentAnswerRate = usualAnswerRate;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.dml.Expression;
+import com.feedzai.commons.sql.abstraction.dml.result.ResultColumn;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.google.common.util.concurrent.RateLimiter;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import com.twilio.sdk.TwilioRestClient;
+import com.twilio.sdk.TwilioRestException;
+import com.twilio.sdk.resource.instance.Call;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+
+/**
+ * Resolves the final status of calls that never received a status callback.
+ * <p/>
+ * Looks for calls of the campaign that were queued long enough ago but still have a non final status, fetches their
+ * state from the Calls list resource of the Twilio API in large pages and stores the final ones in bulk.
+ * Pages are fetched under a rate limit so the reconciliation does not compete with the dialing for the API quota.
+ * Without this, calls whose callback was lost would be dialed again on the next run.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallReconciler {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CallReconciler.class);
+
+    /**
+     * The number of results stored per transaction.
+     */
+    private static final int UPSERT_BATCH_SIZE = 500;
+
+    /**
+     * The version of the Twilio API used.
+     */
+    private static final String API_VERSION = "2010-04-01";
+
+    /**
+     * The {@link CallStatus status} of calls that are not over yet.
+     */
+    private static final List<CallStatus> PENDING_STATUS = Arrays.asList(
+            CallStatus.QUEUED, CallStatus.INITIATED, CallStatus.RINGING, CallStatus.IN_PROGRESS
+    );
+
+    /**
+     * The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     */
+    private final SurveyConfiguration configuration;
+
+    /**
+     * The database connection.
+     */
+    private final DatabaseEngine engine;
+
+    /**
+     * The clients used to fetch the calls, one per account.
+     */
+    private final List<TwilioRestClient> clients;
+
+    /**
+     * The rate limiter applied to the page requests.
+     */
+    private final RateLimiter pageLimiter;
+
+    /**
+     * Creates a new instance of {@link CallReconciler}.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param engine        The database connection.
+     */
+    public CallReconciler(SurveyConfiguration configuration, DatabaseEngine engine) {
+        this.configuration = configuration;
+        this.engine = engine;
+        this.clients = configuration.getAccounts().stream()
+                .map(account -> Dialer.newRestClient(configuration, account))
+                .collect(Collectors.toList());
+        this.pageLimiter = RateLimiter.create(configuration.getReconciliationPagesPerSecond());
+    }
+
+    /**
+     * Reconciles the calls of the campaign that are missing a final status.
+     *
+     * @return                          The number of calls whose final status was stored.
+     * @throws DatabaseEngineException  If an error occurs reading or storing the calls.
+     * @throws TwilioRestException      If an error occurs fetching the calls from the Twilio API.
+     */
+    public int reconcile() throws DatabaseEngineException, TwilioRestException {
+        long cutoff = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) - configuration.getReconciliationGracePeriod().getSeconds();
+        List<Map<String, ResultColumn>> rows = engine.query(
+                select(column(SurveyEntities.CALL_RESULT_SID), column(SurveyEntities.CALL_RESULT_DATE))
+                .from(table(SurveyEntities.CALL_RESULT_TABLE))
+                .where(and(
+                        eq(column(SurveyEntities.CALL_RESULT_CAMPAIGN), k(configuration.getCampaign())),
+                        pendingStatus(),
+                        lt(column(SurveyEntities.CALL_RESULT_DATE), k(cutoff))
+                ))
+        );
+
+        if (rows.isEmpty()) {
+            logger.info("No calls to reconcile.");
+            return 0;
+        }
+
+        Set<String> pendingSids = new HashSet<>(rows.size());
+        long oldest = Long.MAX_VALUE;
+        for (Map<String, ResultColumn> row : rows) {
+            pendingSids.add(row.get(SurveyEntities.CALL_RESULT_SID).toString());
+            oldest = Math.min(oldest, row.get(SurveyEntities.CALL_RESULT_DATE).toLong());
+        }
+        logger.info("Reconciling {} calls without a final status.", pendingSids.size());
+
+        int reconciled = fetchAndStore(pendingSids, LocalDateTime.ofEpochSecond(oldest, 0, ZoneOffset.UTC).minusDays(1));
+        logger.info("Reconciled {} calls, {} are still without a final status.", reconciled, pendingSids.size());
+
+        return reconciled;
+    }
+
+    /**
+     * Goes through the pages of calls created after a given date on every account, storing the final status of the pending ones.
+     * <p/>
+     * Stops as soon as all the pending calls are found.
+     *
+     * @param pendingSids               The SIDs of the calls being reconciled, the ones found are removed.
+     * @param createdAfter              The date after which the pending calls were created.
+     * @return                          The number of calls whose final status was stored.
+     * @throws DatabaseEngineException  If an error occurs storing the calls.
+     * @throws TwilioRestException      If an error occurs fetching the calls from the Twilio API.
+     */
+    private int fetchAndStore(Set<String> pendingSids, LocalDateTime createdAfter) throws DatabaseEngineException, TwilioRestException {
+        List<CallResult> finalResults = new ArrayList<>(UPSERT_BATCH_SIZE);
+        int reconciled = 0;
+
+        for (TwilioRestClient client : clients) {
+            Map<String, String> params = new HashMap<>(2);
+            params.put("StartTime>", createdAfter.format(DateTimeFormatter.ISO_LOCAL_DATE));
+            params.put("PageSize", String.valueOf(configuration.getReconciliationPageSize()));
+
+            String path = "/" + API_VERSION + "/Accounts/" + client.getAccountSid() + "/Calls.json";
+
+            while (path != null && !pendingSids.isEmpty()) {
+                pageLimiter.acquire();
+                Map<String, Object> page = client.safeRequest(path, "GET", params).toMap();
+
+                for (Map<String, Object> properties : calls(page)) {
+                    CallResult result = CallResult.fromCall(new Call(client, properties), configuration.getCampaign());
+                    if (result.getStatus().isTerminal() && pendingSids.remove(result.getCallSID())) {
+                        finalResults.add(result);
+                    }
+                }
+
+                if (finalResults.size() >= UPSERT_BATCH_SIZE) {
+                    reconciled += store(finalResults);
+                }
+
+                path = (String) page.get("next_page_uri");
+                params = null;
+            }
+        }
+
+        return reconciled + store(finalResults);
+    }
+
+    /**
+     * Stores the final status of the reconciled calls in a single transaction and clears the list.
+     * <p/>
+     * Calls that got their final status from a status callback in the meantime are left untouched. The final status is
+     * also recorded in the state of the number, so it can be retried.
+     *
+     * @param results                   The {@link CallResult results} of the reconciled calls.
+     * @return                          The number of calls stored.
+     * @throws DatabaseEngineException  If an error occurs storing the calls.
+     */
+    private int store(List<CallResult> results) throws DatabaseEngineException {
+        int stored = 0;
+        try {
+            engine.beginTransaction();
+            long now = System.currentTimeMillis();
+            for (CallResult result : results) {
+                if (DatabaseUtils.updateCallResult(engine, result, pendingStatus()) > 0) {
+                    DatabaseUtils.recordFinalStatus(engine, result, now);
+                    stored++;
+                }
+            }
+            engine.commit();
+        } finally {
+            if (engine.isTransactionActive()) {
+                engine.rollback();
+            }
+        }
+
+        results.clear();
+        return stored;
+    }
+
+    /**
+     * Builds the condition matching the calls that are not over yet.
+     *
+     * @return  The condition matching the calls that are not over yet.
+     */
+    private static Expression pendingStatus() {
+        return or(PENDING_STATUS.stream()
+                .map(status -> eq(column(SurveyEntities.CALL_RESULT_STATUS), k(status.getInternalCode())))
+                .toArray(Expression[]::new));
+    }
+
+    /**
+     * Gets the calls contained in a page of the Calls list resource.
+     *
+     * @param page  The page.
+     * @return      The properties of each call.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> calls(Map<String, Object> page) {
+        Object calls = page.get("calls");
+        return calls instanceof List ? (List<Map<String, Object>>) calls : new ArrayList<>();
+    }
+}
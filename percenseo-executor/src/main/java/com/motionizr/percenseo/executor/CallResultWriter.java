@@ -0,0 +1,323 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.FlightEvents;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the {@link CallResult call results} of the calls queued by the {@link SurveyOrchestrator} in batches.
+ * <p/>
+ * Keeping a row for every queued call is what allows calls that never received a status callback to be found and
+ * reconciled later. Rows are only ever inserted here, the final status always comes from the result handler or from
+ * the {@link CallReconciler}. A batch is written once it's full or once the oldest pending row waited long enough,
+ * which a background thread checks as well, so the last rows are written even when no other row follows them.
+ * <p/>
+ * When numbers are retried, the attempts are recorded in the state of the numbers in the same batches.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallResultWriter implements AutoCloseable {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CallResultWriter.class);
+
+    /**
+     * The maximum number of rows written per batch.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * The maximum time a row waits before its batch is written.
+     */
+    private static final long MAX_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The database connection.
+     */
+    private final DatabaseEngine engine;
+
+    /**
+     * The maximum time a row waits before its batch is written.
+     */
+    private final long maxDelayNanos;
+
+    /**
+     * Writes the batch once the oldest pending row waited long enough.
+     */
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * The results waiting to be written.
+     */
+    private final List<CallResult> pending = new ArrayList<>(BATCH_SIZE);
+
+    /**
+     * The attempts waiting to be recorded.
+     */
+    private final List<Attempt> pendingAttempts = new ArrayList<>(BATCH_SIZE);
+
+    /**
+     * The time when the oldest pending result was added.
+     */
+    private long oldestPendingNanos;
+
+    /**
+     * An attempt to dial a number, waiting to be recorded.
+     */
+    private static final class Attempt {
+
+        /**
+         * The campaign.
+         */
+        final String campaign;
+
+        /**
+         * The {@link CallResult result} of the call.
+         */
+        final CallResult result;
+
+        /**
+         * The number of times the number was dialed, including this one.
+         */
+        final int attempts;
+
+        /**
+         * The time the number was dialed, in epoch milliseconds.
+         */
+        final long dialedAt;
+
+        /**
+         * Creates a new instance of {@link Attempt}.
+         *
+         * @param campaign  The campaign.
+         * @param result    The {@link CallResult result} of the call.
+         * @param attempts  The number of times the number was dialed, including this one.
+         * @param dialedAt  The time the number was dialed, in epoch milliseconds.
+         */
+        Attempt(String campaign, CallResult result, int attempts, long dialedAt) {
+            this.campaign = campaign;
+            this.result = result;
+            this.attempts = attempts;
+            this.dialedAt = dialedAt;
+        }
+    }
+
+    /**
+     * Creates a new instance of {@link CallResultWriter}.
+     *
+     * @param engine    The database connection.
+     */
+    public CallResultWriter(DatabaseEngine engine) {
+        this(engine, MAX_DELAY_NANOS);
+    }
+
+    /**
+     * Creates a new instance of {@link CallResultWriter} with a given maximum delay.
+     *
+     * @param engine        The database connection.
+     * @param maxDelayNanos The maximum time a row waits before its batch is written.
+     */
+    CallResultWriter(DatabaseEngine engine, long maxDelayNanos) {
+        this.engine = engine;
+        this.maxDelayNanos = maxDelayNanos;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "call-result-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushWhenDue, maxDelayNanos, maxDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds the result of a queued call to the current batch. Results without a SID are ignored.
+     *
+     * @param result    The {@link CallResult call result}.
+     */
+    public synchronized void write(CallResult result) {
+        if (result.getCallSID() == null) {
+            return;
+        }
+
+        if (isEmpty()) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        pending.add(result);
+        flushIfDue();
+    }
+
+    /**
+     * Adds an attempt to dial a number to the current batch, including the ones the Twilio API rejected.
+     *
+     * @param campaign  The campaign.
+     * @param result    The {@link CallResult result} of the call.
+     * @param attempts  The number of times the number was dialed, including this one.
+     */
+    public synchronized void writeAttempt(String campaign, CallResult result, int attempts) {
+        if (isEmpty()) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        pendingAttempts.add(new Attempt(campaign, result, attempts, System.currentTimeMillis()));
+        flushIfDue();
+    }
+
+    /**
+     * Writes the current batch once it's full or once the oldest pending row waited long enough.
+     */
+    private void flushIfDue() {
+        if (pending.size() + pendingAttempts.size() >= BATCH_SIZE || System.nanoTime() - oldestPendingNanos >= maxDelayNanos) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the current batch if the oldest pending row waited long enough, run by the {@link #flusher}. Failures are
+     * logged, so the batches that follow are still written.
+     */
+    private synchronized void flushWhenDue() {
+        try {
+            if (!isEmpty()) {
+                flushIfDue();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Unable to write the pending queued calls, trying again with the next batch.", e);
+        }
+    }
+
+    /**
+     * Checks whether nothing is waiting to be written.
+     *
+     * @return  {@code true} if nothing is waiting to be written, {@code false} otherwise.
+     */
+    private boolean isEmpty() {
+        return pending.isEmpty() && pendingAttempts.isEmpty();
+    }
+
+    /**
+     * Writes all the pending results.
+     */
+    public synchronized void flush() {
+        if (isEmpty()) {
+            return;
+        }
+
+        BatchCommitEvent event = null;
+        if (FlightEvents.ENABLED) {
+            CallResult first = !pending.isEmpty() ? pending.get(0) : pendingAttempts.get(0).result;
+            event = new BatchCommitEvent(first.getDestination(), first.getCallSID(), pending.size(), pendingAttempts.size());
+        }
+
+        try {
+            engine.beginTransaction();
+            for (CallResult result : pending) {
+                engine.addBatch(SurveyEntities.CALL_RESULT_TABLE, result.toEntity());
+            }
+            engine.flush();
+            for (Attempt attempt : pendingAttempts) {
+                recordAttempt(attempt);
+            }
+            engine.commit();
+        } catch (DatabaseEngineException e) {
+            logger.warn("Unable to write a batch of {} queued calls, writing them one by one.", pending.size() + pendingAttempts.size());
+            if (engine.isTransactionActive()) {
+                engine.rollback();
+            }
+            pending.forEach(this::writeSingle);
+            pendingAttempts.forEach(this::writeSingle);
+            if (event != null) {
+                event.fallback = true;
+            }
+        } finally {
+            if (engine.isTransactionActive()) {
+                engine.rollback();
+            }
+            pending.clear();
+            pendingAttempts.clear();
+            if (event != null) {
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Stops checking the pending rows in the background and writes them.
+     */
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Writes a single result, ignoring it if the SID is already stored, e.g. because its status callback arrived first.
+     *
+     * @param result    The {@link CallResult call result}.
+     */
+    private void writeSingle(CallResult result) {
+        try {
+            engine.persist(SurveyEntities.CALL_RESULT_TABLE, result.toEntity());
+        } catch (DatabaseEngineException e) {
+            logger.debug("Queued call {} was not stored, probably because it already has a result.", result.getCallSID(), e);
+        }
+    }
+
+    /**
+     * Records a single attempt, logging the failure.
+     *
+     * @param attempt   The attempt.
+     */
+    private void writeSingle(Attempt attempt) {
+        try {
+            recordAttempt(attempt);
+        } catch (DatabaseEngineException e) {
+            logger.warn("Unable to record the attempt to call {}.", attempt.result.getDestination(), e);
+        }
+    }
+
+    /**
+     * Records an attempt in the state of the number.
+     *
+     * @param attempt                   The attempt.
+     * @throws DatabaseEngineException  If an error occurs storing the state of the number.
+     */
+    private void recordAttempt(Attempt attempt) throws DatabaseEngineException {
+        DatabaseUtils.recordAttempt(engine, attempt.campaign, attempt.result.getDestination(), attempt.result.getCallSID(),
+                attempt.result.getStatus(), attempt.attempts, attempt.dialedAt);
+    }
+}
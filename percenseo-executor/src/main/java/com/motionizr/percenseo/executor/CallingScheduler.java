@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.executor.configuration.CallingZones;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out the numbers of a survey only while it is within the calling window where the people they reach are.
+ * <p/>
+ * Numbers are queued per time zone, in the order they were added. Among the time zones within the window, numbers are
+ * taken from the one whose window closes first, so the whole rate of the accounts goes to the regions currently open
+ * and the ones about to close are served before they do. The time zone picked only changes when a window opens or
+ * closes or its queue runs out, so handing out a number is usually a single queue operation.
+ * <p/>
+ * Not thread-safe, meant to be used by the thread handing the numbers to the workers.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+final class CallingScheduler {
+
+    /**
+     * A number waiting to be called.
+     */
+    static final class Entry {
+
+        /**
+         * The number.
+         */
+        final String number;
+
+        /**
+         * The position of the number in the {@link ShardProgress shard progress}, negative if it is not tracked.
+         */
+        final long position;
+
+        /**
+         * Creates a new instance of {@link Entry}.
+         *
+         * @param number    The number.
+         * @param position  The position of the number in the shard progress.
+         */
+        Entry(String number, long position) {
+            this.number = number;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Maps the numbers to their time zones.
+     */
+    private final CallingZones zones;
+
+    /**
+     * The local time the calling window opens at.
+     */
+    private final LocalTime windowStart;
+
+    /**
+     * The local time the calling window closes at.
+     */
+    private final LocalTime windowEnd;
+
+    /**
+     * The wall clock, in milliseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The numbers waiting to be called, per time zone.
+     */
+    private final Map<ZoneId, ArrayDeque<Entry>> queues = new HashMap<>();
+
+    /**
+     * The number of numbers waiting to be called, also read by the metrics.
+     */
+    private volatile int size;
+
+    /**
+     * The queue numbers are currently taken from, {@code null} if no time zone is within the window.
+     */
+    private ArrayDeque<Entry> current;
+
+    /**
+     * When the time zone picked has to be reconsidered, in epoch milliseconds.
+     */
+    private long reconsiderAt = Long.MIN_VALUE;
+
+    /**
+     * Creates a new instance of {@link CallingScheduler}.
+     *
+     * @param zones         Maps the numbers to their time zones.
+     * @param windowStart   The local time the calling window opens at.
+     * @param windowEnd     The local time the calling window closes at, may be before the start if it spans midnight.
+     */
+    CallingScheduler(CallingZones zones, LocalTime windowStart, LocalTime windowEnd) {
+        this(zones, windowStart, windowEnd, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link CallingScheduler} with a given clock.
+     *
+     * @param zones         Maps the numbers to their time zones.
+     * @param windowStart   The local time the calling window opens at.
+     * @param windowEnd     The local time the calling window closes at, may be before the start if it spans midnight.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    CallingScheduler(CallingZones zones, LocalTime windowStart, LocalTime windowEnd, LongSupplier clock) {
+        this.zones = zones;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.clock = clock;
+    }
+
+    /**
+     * Queues a number in the time zone of the people it reaches.
+     *
+     * @param number    The number.
+     * @param position  The position of the number in the shard progress, negative if it is not tracked.
+     */
+    void add(String number, long position) {
+        queues.computeIfAbsent(zones.zoneOf(number), zone -> new ArrayDeque<>()).addLast(new Entry(number, position));
+        size++;
+        reconsiderAt = Long.MIN_VALUE;
+    }
+
+    /**
+     * Gets the number of numbers waiting to be called.
+     *
+     * @return  The number of numbers waiting to be called.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether every number was handed out.
+     *
+     * @return  {@code true} if no number is waiting to be called, {@code false} otherwise.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of time zones with numbers waiting to be called.
+     *
+     * @return  The number of time zones.
+     */
+    int zoneCount() {
+        return (int) queues.values().stream().filter(queue -> !queue.isEmpty()).count();
+    }
+
+    /**
+     * Takes the next number to call.
+     *
+     * @return  The next number, {@code null} if no time zone with numbers left is within the calling window.
+     */
+    Entry poll() {
+        long now = clock.getAsLong();
+        if (now >= reconsiderAt || current == null || current.isEmpty()) {
+            pick(now);
+        }
+
+        if (current == null) {
+            return null;
+        }
+
+        size--;
+        return current.pollFirst();
+    }
+
+    /**
+     * Gets the time until a time zone with numbers left enters the calling window.
+     *
+     * @return  The time in milliseconds, 0 if one is within the window now.
+     */
+    long millisUntilOpen() {
+        long now = clock.getAsLong();
+        if (now >= reconsiderAt || current == null || current.isEmpty()) {
+            pick(now);
+        }
+
+        return current != null ? 0 : Math.max(0, reconsiderAt - now);
+    }
+
+    /**
+     * Picks the time zone within the window whose window closes first, and when that choice has to be reconsidered.
+     *
+     * @param now   The current time, in epoch milliseconds.
+     */
+    private void pick(long now) {
+        Instant instant = Instant.ofEpochMilli(now);
+
+        current = null;
+        long pickedClosesAt = Long.MAX_VALUE;
+        long nextChange = Long.MAX_VALUE;
+        for (Map.Entry<ZoneId, ArrayDeque<Entry>> queue : queues.entrySet()) {
+            if (queue.getValue().isEmpty()) {
+                continue;
+            }
+
+            ZonedDateTime local = instant.atZone(queue.getKey());
+            long closesAt = next(local, windowEnd);
+            long opensAt = next(local, windowStart);
+            if (closesAt < opensAt) {
+                if (closesAt < pickedClosesAt) {
+                    current = queue.getValue();
+                    pickedClosesAt = closesAt;
+                }
+                nextChange = Math.min(nextChange, closesAt);
+            } else {
+                nextChange = Math.min(nextChange, opensAt);
+            }
+        }
+
+        reconsiderAt = nextChange;
+    }
+
+    /**
+     * Gets the next time a given local time is reached.
+     *
+     * @param local The current time in the time zone.
+     * @param time  The local time.
+     * @return      The next time the local time is reached after the current time, in epoch milliseconds.
+     */
+    private static long next(ZonedDateTime local, LocalTime time) {
+        ZonedDateTime next = local.with(time);
+        if (!next.isAfter(local)) {
+            next = next.plusDays(1);
+        }
+        return next.toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Controls a running campaign: pauses, resumes or cancels it and changes its rate and concurrency on the fly.
+ * <p/>
+ * Every worker goes through {@link #begin()} before dialing a number and {@link #end()} once done, so a change is
+ * honored by the next number handed to a worker, without waiting for the numbers already handed out. Workers check
+ * {@link #isRunning()} again right before dialing, so a number waiting for the pacer or an account is not dialed once
+ * the campaign is paused or cancelled, it goes back through {@link #begin()} instead. While paused, the workers hold
+ * their numbers and the source is not read any further, so the campaign resumes where it stopped. Once cancelled, the
+ * numbers handed out are dropped without being dialed and stay pending for a later run. Changes wake the workers
+ * waiting in {@link #begin()} right away.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class CampaignControl implements CampaignControlMXBean {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CampaignControl.class);
+
+    /**
+     * Returned by {@link #tryBegin()} when the campaign was cancelled.
+     */
+    static final long CANCELLED = -1;
+
+    /**
+     * The identifier of the campaign.
+     */
+    private final String campaign;
+
+    /**
+     * The highest dial concurrency allowed.
+     */
+    private final int maxDialConcurrency;
+
+    /**
+     * The source of time, in nanoseconds.
+     */
+    private final LongSupplier ticker;
+
+    /**
+     * Flag indicating if the campaign is paused.
+     */
+    private boolean paused;
+
+    /**
+     * Flag indicating if the campaign was cancelled.
+     */
+    private boolean cancelled;
+
+    /**
+     * The maximum number of calls queued per second, 0 if unlimited.
+     */
+    private double callsPerSecond;
+
+    /**
+     * The maximum number of calls being queued at the same time.
+     */
+    private int dialConcurrency;
+
+    /**
+     * The number of calls being queued.
+     */
+    private int activeDials;
+
+    /**
+     * When the next call can be queued, in nanoseconds.
+     */
+    private long nextDialNanos;
+
+    /**
+     * Creates a new instance of {@link CampaignControl}.
+     *
+     * @param campaign              The identifier of the campaign.
+     * @param dialConcurrency       The maximum number of calls being queued at the same time.
+     * @param maxDialConcurrency    The highest dial concurrency allowed.
+     */
+    public CampaignControl(String campaign, int dialConcurrency, int maxDialConcurrency) {
+        this(campaign, dialConcurrency, maxDialConcurrency, System::nanoTime);
+    }
+
+    /**
+     * Creates a new instance of {@link CampaignControl} with a given source of time.
+     *
+     * @param campaign              The identifier of the campaign.
+     * @param dialConcurrency       The maximum number of calls being queued at the same time.
+     * @param maxDialConcurrency    The highest dial concurrency allowed.
+     * @param ticker                The source of time, in nanoseconds.
+     */
+    CampaignControl(String campaign, int dialConcurrency, int maxDialConcurrency, LongSupplier ticker) {
+        this.campaign = campaign;
+        this.dialConcurrency = dialConcurrency;
+        this.maxDialConcurrency = maxDialConcurrency;
+        this.ticker = ticker;
+        this.nextDialNanos = ticker.getAsLong();
+    }
+
+    /**
+     * Waits until another call can be queued and accounts for it, unless the campaign is cancelled.
+     *
+     * @return                      {@code true} if the call can be queued, {@code false} if the campaign was cancelled.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    synchronized boolean begin() throws InterruptedException {
+        while (true) {
+            long wait = tryBegin();
+            if (wait == 0) {
+                return true;
+            } else if (wait == CANCELLED) {
+                return false;
+            } else if (wait == Long.MAX_VALUE) {
+                wait();
+            } else {
+                TimeUnit.NANOSECONDS.timedWait(this, wait);
+            }
+        }
+    }
+
+    /**
+     * Accounts for another call if one can be queued now.
+     *
+     * @return  0 if the call can be queued, {@link #CANCELLED} if the campaign was cancelled, otherwise the time to
+     *          wait in nanoseconds, {@link Long#MAX_VALUE} until the state changes.
+     */
+    synchronized long tryBegin() {
+        if (cancelled) {
+            return CANCELLED;
+        }
+        if (paused || activeDials >= dialConcurrency) {
+            return Long.MAX_VALUE;
+        }
+
+        if (callsPerSecond > 0) {
+            long now = ticker.getAsLong();
+            if (nextDialNanos - now > 0) {
+                return nextDialNanos - now;
+            }
+            nextDialNanos = Math.max(nextDialNanos, now) + (long) (TimeUnit.SECONDS.toNanos(1) / callsPerSecond);
+        }
+
+        activeDials++;
+        return 0;
+    }
+
+    /**
+     * Records that a call accounted for by {@link #begin()} is done.
+     */
+    synchronized void end() {
+        activeDials--;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void pause() {
+        if (!paused && !cancelled) {
+            paused = true;
+            logger.info("Campaign {} paused.", campaign);
+        }
+    }
+
+    @Override
+    public synchronized void resume() {
+        if (paused) {
+            paused = false;
+            notifyAll();
+            logger.info("Campaign {} resumed.", campaign);
+        }
+    }
+
+    @Override
+    public synchronized void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            paused = false;
+            notifyAll();
+            logger.info("Campaign {} cancelled.", campaign);
+        }
+    }
+
+    /**
+     * Checks whether calls can be queued, i.e. the campaign is neither paused nor cancelled.
+     *
+     * @return  {@code true} if calls can be queued, {@code false} otherwise.
+     */
+    synchronized boolean isRunning() {
+        return !paused && !cancelled;
+    }
+
+    @Override
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized double getCallsPerSecond() {
+        return callsPerSecond;
+    }
+
+    @Override
+    public synchronized void setCallsPerSecond(double callsPerSecond) throws IllegalArgumentException {
+        Preconditions.checkArgument(callsPerSecond >= 0, String.format("Invalid calls per second: %f", callsPerSecond));
+
+        this.callsPerSecond = callsPerSecond;
+        nextDialNanos = ticker.getAsLong();
+        notifyAll();
+        logger.info("Campaign {} limited to {} calls per second.", campaign, callsPerSecond > 0 ? callsPerSecond : "unlimited");
+    }
+
+    @Override
+    public synchronized int getDialConcurrency() {
+        return dialConcurrency;
+    }
+
+    @Override
+    public synchronized void setDialConcurrency(int dialConcurrency) throws IllegalArgumentException {
+        Preconditions.checkArgument(
+                dialConcurrency > 0 && dialConcurrency <= maxDialConcurrency,
+                String.format("Invalid dial concurrency, must be between 1 and %d: %d", maxDialConcurrency, dialConcurrency)
+        );
+
+        this.dialConcurrency = dialConcurrency;
+        notifyAll();
+        logger.info("Campaign {} dialing up to {} numbers at the same time.", campaign, dialConcurrency);
+    }
+
+    @Override
+    public synchronized int getActiveDials() {
+        return activeDials;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+/**
+ * The operations on a running campaign exposed through JMX.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public interface CampaignControlMXBean {
+
+    /**
+     * Stops dialing new numbers until the campaign is resumed. Calls being queued are not interrupted.
+     */
+    void pause();
+
+    /**
+     * Resumes dialing after a pause.
+     */
+    void resume();
+
+    /**
+     * Stops dialing for good. The numbers not dialed are left for a later run.
+     */
+    void cancel();
+
+    /**
+     * Indicates if the campaign is paused.
+     *
+     * @return  {@code true} if the campaign is paused, {@code false} otherwise.
+     */
+    boolean isPaused();
+
+    /**
+     * Indicates if the campaign was cancelled.
+     *
+     * @return  {@code true} if the campaign was cancelled, {@code false} otherwise.
+     */
+    boolean isCancelled();
+
+    /**
+     * Gets the maximum number of calls queued per second by the campaign, on top of the limits of the accounts.
+     *
+     * @return  The calls per second, 0 if only the limits of the accounts apply.
+     */
+    double getCallsPerSecond();
+
+    /**
+     * Changes the maximum number of calls queued per second by the campaign, on top of the limits of the accounts.
+     *
+     * @param callsPerSecond            The calls per second, 0 to only apply the limits of the accounts.
+     * @throws IllegalArgumentException If the rate is negative.
+     */
+    void setCallsPerSecond(double callsPerSecond) throws IllegalArgumentException;
+
+    /**
+     * Gets the maximum number of calls being queued at the same time.
+     *
+     * @return  The dial concurrency.
+     */
+    int getDialConcurrency();
+
+    /**
+     * Changes the maximum number of calls being queued at the same time, up to the maximum number of connections.
+     *
+     * @param dialConcurrency           The dial concurrency.
+     * @throws IllegalArgumentException If the concurrency is not positive or above the maximum number of connections.
+     */
+    void setDialConcurrency(int dialConcurrency) throws IllegalArgumentException;
+
+    /**
+     * Gets the number of calls being queued.
+     *
+     * @return  The number of calls being queued.
+     */
+    int getActiveDials();
+}
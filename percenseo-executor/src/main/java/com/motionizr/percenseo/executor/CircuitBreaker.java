@@ -0,0 +1,368 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Guards the calls to the Twilio API, pausing them while the API is degraded.
+ * <p/>
+ * The outcome of the last calls is kept in a fixed size window. Once the window is full, the circuit opens if either
+ * the rate of failed calls or the rate of slow calls reaches its threshold. While open, {@link #acquire()} blocks the
+ * callers instead of letting them fail. After a while the circuit becomes half open and lets a few probe calls through:
+ * if all of them succeed the circuit closes, otherwise it opens again.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CircuitBreaker {
+
+    /**
+     * The state of a {@link CircuitBreaker}.
+     */
+    public enum State {
+        /**
+         * Calls go through and their outcome is recorded.
+         */
+        CLOSED,
+
+        /**
+         * Calls are held until the API is probed again.
+         */
+        OPEN,
+
+        /**
+         * Only the probe calls go through.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * The number of calls whose outcome is considered.
+     */
+    private final int windowSize;
+
+    /**
+     * The rate of failed calls that opens the circuit.
+     */
+    private final double failureRateThreshold;
+
+    /**
+     * The duration above which a call is considered slow.
+     */
+    private final long slowCallNanos;
+
+    /**
+     * The rate of slow calls that opens the circuit.
+     */
+    private final double slowCallRateThreshold;
+
+    /**
+     * The time the circuit stays open before being probed.
+     */
+    private final long openNanos;
+
+    /**
+     * The number of probe calls let through while half open.
+     */
+    private final int probes;
+
+    /**
+     * The source of time, in nanoseconds.
+     */
+    private final LongSupplier ticker;
+
+    /**
+     * The outcome of the last calls, a failed call is flagged with 1 and a slow call with 2.
+     */
+    private final byte[] window;
+
+    /**
+     * The position of the next outcome in the window.
+     */
+    private int windowPosition;
+
+    /**
+     * The number of outcomes in the window.
+     */
+    private int windowCount;
+
+    /**
+     * The number of failed calls in the window.
+     */
+    private int failures;
+
+    /**
+     * The number of slow calls in the window.
+     */
+    private int slowCalls;
+
+    /**
+     * The current state.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * The time at which the open circuit becomes half open.
+     */
+    private long openUntilNanos;
+
+    /**
+     * The number of probe calls let through since the circuit became half open.
+     */
+    private int probesIssued;
+
+    /**
+     * The number of probe calls that succeeded since the circuit became half open.
+     */
+    private int probesSucceeded;
+
+    /**
+     * The number of times the circuit opened.
+     */
+    private long timesOpened;
+
+    /**
+     * Creates a new instance of {@link CircuitBreaker}.
+     *
+     * @param windowSize            The number of calls whose outcome is considered.
+     * @param failureRateThreshold  The rate of failed calls that opens the circuit.
+     * @param slowCall              The duration above which a call is considered slow.
+     * @param slowCallRateThreshold The rate of slow calls that opens the circuit.
+     * @param openDuration          The time the circuit stays open before being probed.
+     * @param probes                The number of probe calls let through while half open.
+     */
+    public CircuitBreaker(int windowSize, double failureRateThreshold, Duration slowCall, double slowCallRateThreshold,
+                          Duration openDuration, int probes) {
+        this(windowSize, failureRateThreshold, slowCall, slowCallRateThreshold, openDuration, probes, System::nanoTime);
+    }
+
+    /**
+     * Creates a new instance of {@link CircuitBreaker} with a given source of time.
+     *
+     * @param windowSize            The number of calls whose outcome is considered.
+     * @param failureRateThreshold  The rate of failed calls that opens the circuit.
+     * @param slowCall              The duration above which a call is considered slow.
+     * @param slowCallRateThreshold The rate of slow calls that opens the circuit.
+     * @param openDuration          The time the circuit stays open before being probed.
+     * @param probes                The number of probe calls let through while half open.
+     * @param ticker                The source of time, in nanoseconds.
+     */
+    CircuitBreaker(int windowSize, double failureRateThreshold, Duration slowCall, double slowCallRateThreshold,
+                   Duration openDuration, int probes, LongSupplier ticker) {
+        Preconditions.checkArgument(windowSize > 0 && probes > 0 && probes <= windowSize,
+                String.format("Invalid circuit breaker window (%d) or probes (%d)", windowSize, probes));
+        Preconditions.checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1 && slowCallRateThreshold > 0 && slowCallRateThreshold <= 1,
+                String.format("Invalid circuit breaker thresholds: %f, %f", failureRateThreshold, slowCallRateThreshold));
+
+        this.windowSize = windowSize;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCall.toNanos();
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.probes = probes;
+        this.ticker = ticker;
+        this.window = new byte[windowSize];
+    }
+
+    /**
+     * Waits until a call is allowed through.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (!tryAcquire()) {
+            long waitNanos = state == State.OPEN ? openUntilNanos - ticker.getAsLong() : openNanos;
+            TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, 1));
+        }
+    }
+
+    /**
+     * Checks whether a call is allowed through, without waiting.
+     *
+     * @return  {@code true} if the call can be made, {@code false} otherwise.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && ticker.getAsLong() - openUntilNanos >= 0) {
+            transitionTo(State.HALF_OPEN);
+        }
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (probesIssued < probes) {
+                    probesIssued++;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Records a call that reached the API and got an answer.
+     *
+     * @param durationNanos The duration of the call.
+     */
+    public synchronized void onSuccess(long durationNanos) {
+        record(false, durationNanos);
+    }
+
+    /**
+     * Records a call that failed because the API is unavailable or overloaded.
+     *
+     * @param durationNanos The duration of the call.
+     */
+    public synchronized void onFailure(long durationNanos) {
+        record(true, durationNanos);
+    }
+
+    /**
+     * Records a call whose outcome says nothing about the health of the API, e.g. one that failed on our side. The
+     * outcome is not recorded, but a probe let through while half open is given back so another call can take it.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesIssued > probesSucceeded) {
+            probesIssued--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Gets the current state.
+     *
+     * @return  The current state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the rate of failed calls in the window.
+     *
+     * @return  The rate of failed calls, 0 if there were no calls.
+     */
+    public synchronized double getFailureRate() {
+        return windowCount == 0 ? 0 : (double) failures / windowCount;
+    }
+
+    /**
+     * Gets the rate of slow calls in the window.
+     *
+     * @return  The rate of slow calls, 0 if there were no calls.
+     */
+    public synchronized double getSlowCallRate() {
+        return windowCount == 0 ? 0 : (double) slowCalls / windowCount;
+    }
+
+    /**
+     * Gets the number of times the circuit opened.
+     *
+     * @return  The number of times the circuit opened.
+     */
+    public synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+
+    /**
+     * Records the outcome of a call and moves the circuit accordingly.
+     *
+     * @param failed        Whether the call failed.
+     * @param durationNanos The duration of the call.
+     */
+    private void record(boolean failed, long durationNanos) {
+        boolean slow = durationNanos > slowCallNanos;
+
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                transitionTo(State.OPEN);
+            } else if (++probesSucceeded >= probes) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        if (state == State.OPEN) {
+            return;
+        }
+
+        if (windowCount == windowSize) {
+            byte evicted = window[windowPosition];
+            failures -= evicted & 1;
+            slowCalls -= (evicted >> 1) & 1;
+        } else {
+            windowCount++;
+        }
+
+        window[windowPosition] = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        windowPosition = (windowPosition + 1) % windowSize;
+        failures += failed ? 1 : 0;
+        slowCalls += slow ? 1 : 0;
+
+        if (windowCount == windowSize &&
+                (getFailureRate() >= failureRateThreshold || getSlowCallRate() >= slowCallRateThreshold)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Moves the circuit to a new state, waking up the callers waiting for it.
+     *
+     * @param newState  The new state.
+     */
+    private void transitionTo(State newState) {
+        if (newState == State.OPEN) {
+            timesOpened++;
+            openUntilNanos = ticker.getAsLong() + openNanos;
+            logger.warn("Pausing calls for {} ms, the Twilio API is degraded (failure rate {}, slow call rate {}).",
+                    TimeUnit.NANOSECONDS.toMillis(openNanos), getFailureRate(), getSlowCallRate());
+        } else if (newState == State.HALF_OPEN) {
+            probesIssued = 0;
+            probesSucceeded = 0;
+            logger.info("Probing the Twilio API with {} calls.", probes);
+        } else {
+            windowPosition = 0;
+            windowCount = 0;
+            failures = 0;
+            slowCalls = 0;
+            logger.info("The Twilio API recovered, resuming calls.");
+        }
+
+        state = newState;
+        notifyAll();
+    }
+}
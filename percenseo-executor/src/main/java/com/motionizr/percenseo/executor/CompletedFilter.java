@@ -0,0 +1,427 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.dml.Expression;
+import com.feedzai.commons.sql.abstraction.dml.result.ResultColumn;
+import com.feedzai.commons.sql.abstraction.dml.result.ResultIterator;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.motionizr.percenseo.commons.BloomFilter;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.Metrics;
+import com.motionizr.percenseo.commons.PhoneNumbers;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+
+/**
+ * Tells the numbers of a campaign that were already completed without holding them all in memory.
+ * <p/>
+ * A {@link BloomFilter} of the numbers completed is kept in a file next to the database, one per campaign, and rules out
+ * most of the numbers never completed without touching the database. Only the numbers it reports as probably completed
+ * are looked up through the index of the call results. The filter is built from the call results of the campaign the
+ * first time, and from then on only the numbers completed since it was last opened are added, as read by the
+ * {@link NumberStateFeed}. While a survey runs, the numbers completed are added as the feed reads their final status,
+ * which the result handler writes. Once it holds more numbers than it was sized for, it is built again twice as large.
+ * The filter can be opened again for each survey of the campaign, so a long-running process keeps it mapped, see
+ * {@link com.motionizr.percenseo.executor.configuration.SurveyBuilder#withCompletedFilter(CompletedFilter)}.
+ * <p/>
+ * Uses its own database connection, the numbers are looked up while the workers write the call results. Lookups only
+ * lock that connection, the filter itself is read without locking. The file is locked while the filter is updated,
+ * so processes dialing shards of the same campaign do not lose each other's numbers.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class CompletedFilter implements NumberStateFeed.Subscriber, AutoCloseable {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CompletedFilter.class);
+
+    /**
+     * The suffix of the filter files.
+     */
+    static final String FILE_SUFFIX = ".completed.bloom";
+
+    /**
+     * The number of rows fetched from the database on each round-trip while updating the filter.
+     */
+    private static final int FETCH_SIZE = 10_000;
+
+    /**
+     * The label of the filter metrics.
+     */
+    private static final String CAMPAIGN_LABEL = "campaign";
+
+    /**
+     * The name of the gauge of the size of the filter.
+     */
+    private static final String FILTER_BYTES = "percenseo_completed_filter_bytes";
+
+    /**
+     * The name of the gauge of the numbers in the filter.
+     */
+    private static final String FILTER_ENTRIES = "percenseo_completed_filter_entries";
+
+    /**
+     * The numbers ruled out by the filter.
+     */
+    private static final LongAdder SKIPPED_LOOKUPS = Metrics.getDefault().counter("percenseo_completed_filter_lookups_total",
+            "Numbers checked against the numbers completed, by outcome.", "result", "skipped");
+
+    /**
+     * The numbers reported by the filter and found completed.
+     */
+    private static final LongAdder COMPLETED_LOOKUPS = Metrics.getDefault().counter("percenseo_completed_filter_lookups_total",
+            "Numbers checked against the numbers completed, by outcome.", "result", "completed");
+
+    /**
+     * The numbers reported by the filter and not found completed.
+     */
+    private static final LongAdder FALSE_POSITIVE_LOOKUPS = Metrics.getDefault().counter("percenseo_completed_filter_lookups_total",
+            "Numbers checked against the numbers completed, by outcome.", "result", "false_positive");
+
+    /**
+     * The {@link SurveyConfiguration survey configuration}.
+     */
+    private final SurveyConfiguration configuration;
+
+    /**
+     * The wall clock, in milliseconds, compared with the update times of the states.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The filter file.
+     */
+    private final Path file;
+
+    /**
+     * The file locked while the filter is updated.
+     */
+    private final Path lockFile;
+
+    /**
+     * Guards the database connection, which is not thread safe.
+     */
+    private final Object connectionLock = new Object();
+
+    /**
+     * The database connection.
+     */
+    private DatabaseEngine engine;
+
+    /**
+     * The filter, {@code null} until opened.
+     */
+    private volatile BloomFilter filter;
+
+    /**
+     * The feed the numbers completed are added from, {@code null} until opened.
+     */
+    private NumberStateFeed feed;
+
+    /**
+     * Creates a new instance of {@link CompletedFilter}.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     */
+    public CompletedFilter(SurveyConfiguration configuration) {
+        this(configuration, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link CompletedFilter} with a given clock.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    CompletedFilter(SurveyConfiguration configuration, LongSupplier clock) {
+        this.configuration = configuration;
+        this.clock = clock;
+        this.file = Paths.get(configuration.getDatabaseFile() + "." + configuration.getCampaign() + FILE_SUFFIX);
+        this.lockFile = Paths.get(file + ".lock");
+    }
+
+    /**
+     * Maps the filter of the campaign, unless already open, and adds the numbers completed since it was last updated,
+     * building it if it does not exist yet or holds more numbers than it was sized for. The numbers completed from
+     * then on are added as the feed reads them.
+     *
+     * @param feed                      The feed of the states of the numbers of the survey about to run.
+     * @throws IOException              If an error occurs mapping or writing the filter.
+     * @throws DatabaseFactoryException If an error occurs getting the database connection.
+     * @throws DatabaseEngineException  If an error occurs reading the numbers completed.
+     */
+    synchronized void open(NumberStateFeed feed) throws IOException, DatabaseFactoryException, DatabaseEngineException {
+        if (engine == null) {
+            engine = DatabaseUtils.initializeDbConnection(configuration.getDatabaseFile());
+        }
+
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            if (filter == null && Files.exists(file)) {
+                try {
+                    filter = BloomFilter.open(file);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("The filter of the numbers completed by campaign {} is invalid, building it again: {}",
+                            configuration.getCampaign(), e.getMessage());
+                }
+            }
+
+            if (filter != null) {
+                update(feed);
+            } else {
+                build(configuration.getCompletedFilterCapacity());
+            }
+
+            if (filter.getEntries() > filter.getCapacity()) {
+                build(Math.max(configuration.getCompletedFilterCapacity(), 2 * filter.getEntries()));
+            }
+        }
+
+        if (this.feed != feed) {
+            feed.subscribe(this);
+            this.feed = feed;
+        }
+
+        final BloomFilter opened = filter;
+        Metrics.getDefault().gauge(FILTER_BYTES, "Size of the filter of the numbers completed.",
+                CAMPAIGN_LABEL, configuration.getCampaign(), opened::getSizeInBytes);
+        Metrics.getDefault().gauge(FILTER_ENTRIES, "Numbers in the filter of the numbers completed.",
+                CAMPAIGN_LABEL, configuration.getCampaign(), opened::getEntries);
+        logger.info("The filter of the numbers completed by campaign {} holds {} numbers in {} bytes, with an estimated false positive rate of {}.",
+                configuration.getCampaign(), filter.getEntries(), filter.getSizeInBytes(), String.format("%.4f", filter.getFalsePositiveRate()));
+    }
+
+    /**
+     * Checks whether a number of the campaign was already completed.
+     * <p/>
+     * Numbers whose lookup fails are reported as completed, so they are left for a later survey rather than risk
+     * calling them twice.
+     *
+     * @param number    The number, with the international prefix if one is configured.
+     * @return          {@code true} if the number was completed, {@code false} otherwise.
+     */
+    boolean contains(String number) {
+        long key;
+        try {
+            key = PhoneNumbers.toLong(number);
+        } catch (IllegalArgumentException e) {
+            key = PhoneNumbers.NO_NUMBER;
+        }
+
+        if (key != PhoneNumbers.NO_NUMBER && !filter.mightContain(key)) {
+            SKIPPED_LOOKUPS.increment();
+            return false;
+        }
+
+        try {
+            boolean completed;
+            synchronized (connectionLock) {
+                completed = !engine.query(select(column(SurveyEntities.CALL_RESULT_TO))
+                        .from(table(SurveyEntities.CALL_RESULT_TABLE))
+                        .where(and(completedCalls(), eq(column(SurveyEntities.CALL_RESULT_TO), k(number))))).isEmpty();
+            }
+            (completed ? COMPLETED_LOOKUPS : FALSE_POSITIVE_LOOKUPS).increment();
+            return completed;
+        } catch (DatabaseEngineException e) {
+            logger.warn("Unable to check whether {} was completed, skipping it.", number, e);
+            return true;
+        }
+    }
+
+    /**
+     * Adds the numbers that reached a final status of completed to the filter. Failures are logged, the numbers are
+     * added the next time the filter is opened.
+     *
+     * @param states    The {@link NumberStateFeed.NumberState states} changed since the previous read.
+     */
+    @Override
+    public synchronized void onChanged(List<NumberStateFeed.NumberState> states) {
+        List<String> completed = states.stream()
+                .filter(state -> state.status == CallStatus.COMPLETED)
+                .map(state -> state.number)
+                .collect(Collectors.toList());
+        if (completed.isEmpty() || filter == null) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            for (String number : completed) {
+                put(filter, number);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to add {} numbers completed by campaign {} to its filter.", completed.size(),
+                    configuration.getCampaign(), e);
+        }
+    }
+
+    /**
+     * Gets the filter.
+     *
+     * @return  The {@link BloomFilter filter}, {@code null} until opened.
+     */
+    BloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Writes the filter back and closes the database connection.
+     */
+    @Override
+    public synchronized void close() {
+        Metrics.getDefault().remove(FILTER_BYTES, CAMPAIGN_LABEL, configuration.getCampaign());
+        Metrics.getDefault().remove(FILTER_ENTRIES, CAMPAIGN_LABEL, configuration.getCampaign());
+        if (filter != null) {
+            filter.force();
+        }
+        synchronized (connectionLock) {
+            if (engine != null) {
+                DatabaseUtils.closeDbConnection(engine);
+                engine = null;
+            }
+        }
+    }
+
+    /**
+     * Builds the filter from the call results of the campaign, replacing the file once it is complete.
+     *
+     * @param capacity                  The number of numbers the filter is sized for.
+     * @throws IOException              If an error occurs writing the filter.
+     * @throws DatabaseEngineException  If an error occurs reading the call results.
+     */
+    private void build(long capacity) throws IOException, DatabaseEngineException {
+        long start = clock.getAsLong();
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            BloomFilter building = BloomFilter.create(temporary, capacity, configuration.getCompletedFilterFalsePositiveRate());
+            long rows;
+            synchronized (connectionLock) {
+                rows = add(building, select(column(SurveyEntities.CALL_RESULT_TO))
+                        .from(table(SurveyEntities.CALL_RESULT_TABLE))
+                        .where(completedCalls()), SurveyEntities.CALL_RESULT_TO);
+            }
+
+            building.force();
+            building.setWatermark(start);
+            building.force();
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            filter = building;
+            logger.info("Built the filter of the numbers completed by campaign {} from {} call results in {} ms.",
+                    configuration.getCampaign(), rows, clock.getAsLong() - start);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Adds the numbers completed since the filter was last updated.
+     *
+     * @param feed                      The feed of the states of the numbers.
+     * @throws DatabaseEngineException  If an error occurs reading the states of the numbers.
+     */
+    private void update(NumberStateFeed feed) throws DatabaseEngineException {
+        long start = clock.getAsLong();
+        long rows = feed.readNumbers(CallStatus.COMPLETED, filter.getWatermark(), number -> put(filter, number));
+
+        filter.force();
+        filter.setWatermark(start);
+        filter.force();
+        logger.debug("Added {} numbers completed by campaign {} to its filter.", rows, configuration.getCampaign());
+    }
+
+    /**
+     * Adds the numbers returned by a query to a filter, a page at a time.
+     *
+     * @param target                    The filter.
+     * @param query                     The query.
+     * @param numberColumn              The column holding the numbers.
+     * @return                          The number of rows read.
+     * @throws DatabaseEngineException  If an error occurs reading the numbers.
+     */
+    private long add(BloomFilter target, Expression query, String numberColumn) throws DatabaseEngineException {
+        long rows = 0;
+        ResultIterator iterator = engine.iterator(query, FETCH_SIZE);
+        try {
+            Map<String, ResultColumn> row;
+            while ((row = iterator.next()) != null) {
+                rows++;
+                put(target, row.get(numberColumn).toString());
+            }
+        } finally {
+            iterator.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Adds a number to a filter.
+     *
+     * @param target    The filter.
+     * @param number    The number.
+     */
+    private static void put(BloomFilter target, String number) {
+        try {
+            target.put(PhoneNumbers.toLong(number));
+        } catch (IllegalArgumentException e) {
+            // Only matches numbers that are not valid either, which are always looked up.
+        }
+    }
+
+    /**
+     * Builds the condition matching the calls of the campaign that were completed.
+     *
+     * @return  The condition.
+     */
+    private Expression completedCalls() {
+        return and(
+                eq(column(SurveyEntities.CALL_RESULT_CAMPAIGN), k(configuration.getCampaign())),
+                eq(column(SurveyEntities.CALL_RESULT_STATUS), k(CallStatus.COMPLETED.getInternalCode()))
+        );
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.commons.FlightEvents;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event spanning the round-trip of a request to the Twilio API queueing a call.
+ * <p/>
+ * Only created when {@link FlightEvents#ENABLED}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@Name("com.motionizr.percenseo.Dial")
+@Label("Dial")
+@Category({FlightEvents.CATEGORY, "Executor"})
+@Description("Round-trip of a request to the Twilio API queueing a call.")
+final class DialEvent extends Event {
+
+    /**
+     * The number dialed.
+     */
+    @Label("Number")
+    String number;
+
+    /**
+     * The SID of the account the call was queued on.
+     */
+    @Label("Account SID")
+    String accountSid;
+
+    /**
+     * The SID of the call, {@code null} if the request failed.
+     */
+    @Label("Call SID")
+    String callSid;
+
+    /**
+     * Creates a new {@link DialEvent} and starts timing it.
+     *
+     * @param number        The number dialed.
+     * @param accountSid    The SID of the account the call is queued on.
+     */
+    DialEvent(String number, String accountSid) {
+        this.number = number;
+        this.accountSid = accountSid;
+        begin();
+    }
+}
@@ -23,28 +23,57 @@
  */
 package com.motionizr.percenseo.executor;
 
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.FlightEvents;
+import com.motionizr.percenseo.commons.LatencyHistogram;
+import com.motionizr.percenseo.commons.Metrics;
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
 import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
 import com.twilio.sdk.TwilioRestClient;
 import com.twilio.sdk.TwilioRestException;
-import com.twilio.sdk.resource.factory.CallFactory;
-import com.twilio.sdk.resource.instance.Account;
 import com.twilio.sdk.resource.instance.Call;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 
 /**
  * Queues a call to a given number using the Twilio API.
  * <p/>
  * Configures a 30 seconds timeout for the call and configures an endpoint to receive the final status of the call.
+ * The campaign is added to the endpoint URL so the results can be attributed to it.
  * If an answering machine picks up the call Twilio is configured to automatically hang up the call.
+ * Each call gets its own set of parameters so a single {@link Dialer} can be shared by several threads.
+ * The calls are queued over a pool of persistent connections, which can be opened ahead of time with {@link #warmUp()}.
+ * <p/>
+ * Calls are spread across the configured {@link AccountConfiguration accounts}. Each account is limited to its calls
+ * per second by a {@link TokenBucket token bucket}, or by a {@link SharedTokenBucket shared one} when several processes
+ * use the same account, and among the accounts with a token available the one with the
+ * fewest calls being queued is picked. The caller numbers of each account are used in turn or, with local presence
+ * enabled, the ones sharing the longest prefix with the destination are preferred.
+ * <p/>
+ * The accounts can be borrowed from an {@link AccountPool} shared by several campaigns, in which case the campaign
+ * waits for its {@link FairShare.Share turn} before picking an account and the accounts are left open when closing.
  *
  * @author Miguel Bento (migueljbento@gmail.com)
  * @version 1.0.0
  */
-public class Dialer {
+public class Dialer implements AutoCloseable {
 
     /**
      * The logger.
@@ -52,54 +81,363 @@ public class Dialer {
     private static final Logger logger = LoggerFactory.getLogger(Dialer.class);
 
     /**
-     * The factory used to queue the calls.
+     * The statuses sent to the status callback when the progress of the calls is asked for.
+     */
+    private static final String[] PROGRESS_EVENTS = {"ringing", "answered", "completed"};
+
+    /**
+     * The time taken by the Twilio API to queue a call, failed requests included, in nanoseconds.
+     */
+    private static final LatencyHistogram DIAL_LATENCY = Metrics.getDefault().latency("percenseo_dial_seconds",
+            "Time taken by the Twilio API to queue a call, failed requests included.");
+
+    /**
+     * The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
      */
-    private final CallFactory callFactory;
+    private final SurveyConfiguration configuration;
 
     /**
-     * The map containing the parameters used in the call.
+     * The accounts the calls are spread across.
+     */
+    private final List<AccountLine> lines;
+
+    /**
+     * The turn of the campaign on the accounts, {@code null} if they are not shared with other campaigns.
+     */
+    private final FairShare.Share share;
+
+    /**
+     * The map containing the parameters shared by all the calls. Never modified after the {@link Dialer} is created.
      */
     private final Map<String, String> callParams;
 
+    /**
+     * The StatusCallback URL shared by all the calls, before the time each call is queued is added.
+     */
+    private final String statusCallback;
+
+    /**
+     * The wall clock, in milliseconds.
+     */
+    private final LongSupplier clock;
+
     /**
      * Creates a new instance of {@link Dialer}.
      *
      * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
      */
     public Dialer(SurveyConfiguration configuration) {
-        callFactory = setupCallFactory(configuration);
+        this(configuration, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link Dialer} with a given clock.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    Dialer(SurveyConfiguration configuration, LongSupplier clock) {
+        this(configuration, setupLines(configuration), null, clock);
+    }
 
-        callParams = new HashMap<>(6);
-        callParams.put("From", configuration.getCallerNumber());
+    /**
+     * Creates a new instance of {@link Dialer} queueing the calls on the accounts of a pool shared with other campaigns.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param pool          The {@link AccountPool}.
+     */
+    Dialer(SurveyConfiguration configuration, AccountPool pool) {
+        this(configuration, pool.getLines(), pool.getFairShare().register(configuration.getCampaign(), configuration.getFairShareWeight()),
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link Dialer} with the given accounts.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param lines         The accounts the calls are spread across.
+     * @param share         The turn of the campaign on the accounts, {@code null} if they are not shared.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    private Dialer(SurveyConfiguration configuration, List<AccountLine> lines, FairShare.Share share, LongSupplier clock) {
+        this.configuration = configuration;
+        this.lines = lines;
+        this.share = share;
+        this.clock = clock;
+        this.statusCallback = withQueryParameter(configuration.getCallResultURL(), CallResult.CAMPAIGN_PARAMETER, configuration.getCampaign());
+
+        callParams = new HashMap<>(4);
         callParams.put("Url", configuration.getCallHandlerURL());
-        callParams.put("StatusCallback", configuration.getCallResultURL());
         callParams.put("IfMachine", "Hangup");
         callParams.put("Timeout", "30");
     }
 
     /**
-     * Instatiates a Twilio call factory.
+     * Lists the parameters of a call, asking for its progress to be sent to the status callback. Every status is a
+     * parameter of its own, which a map can't hold.
+     *
+     * @param params    The parameters of the call.
+     * @return          The parameters of the call, followed by the statuses sent to the status callback.
+     */
+    private static List<NameValuePair> withProgressEvents(Map<String, String> params) {
+        List<NameValuePair> pairs = new ArrayList<>(params.size() + PROGRESS_EVENTS.length);
+        params.forEach((name, value) -> pairs.add(new BasicNameValuePair(name, value)));
+        for (String event : PROGRESS_EVENTS) {
+            pairs.add(new BasicNameValuePair("StatusCallbackEvent", event));
+        }
+
+        return pairs;
+    }
+
+    /**
+     * Adds a query parameter to an URL.
+     *
+     * @param url   The URL.
+     * @param name  The name of the parameter.
+     * @param value The value of the parameter.
+     * @return      The URL with the query parameter.
+     */
+    static String withQueryParameter(String url, String name, String value) {
+        try {
+            return url + (url.contains("?") ? "&" : "?") + name + "=" + URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported.", e);
+        }
+    }
+
+    /**
+     * Instantiates a Twilio REST client for an account, pointing it to the configured API endpoint if any.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param account       The {@link AccountConfiguration account}.
+     * @return              A Twilio REST client.
+     */
+    static TwilioRestClient newRestClient(SurveyConfiguration configuration, AccountConfiguration account) {
+        if (configuration.getApiEndpoint() == null) {
+            return new TwilioRestClient(account.getAccountSID(), account.getAuthToken());
+        }
+
+        return new TwilioRestClient(account.getAccountSID(), account.getAuthToken(), configuration.getApiEndpoint());
+    }
+
+    /**
+     * Sets up the client and the rate limit of each configured account.
      *
      * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
-     * @return              A Twilio call factory.
+     * @return              The accounts.
      */
-    private CallFactory setupCallFactory(SurveyConfiguration configuration) {
-        TwilioRestClient client = new TwilioRestClient(configuration.getAccountSID(), configuration.getAuthToken());
-        Account mainAccount = client.getAccount();
-        return mainAccount.getCallFactory();
+    static List<AccountLine> setupLines(SurveyConfiguration configuration) {
+        return configuration.getAccounts().stream()
+                .map(account -> new AccountLine(account, setupClient(configuration, account), setupBucket(configuration, account)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Instantiates a Twilio REST client for an account that queues the calls over a pool of persistent connections.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param account       The {@link AccountConfiguration account}.
+     * @return              A Twilio REST client.
+     */
+    private static TwilioRestClient setupClient(SurveyConfiguration configuration, AccountConfiguration account) {
+        TwilioRestClient client = newRestClient(configuration, account);
+        client.setHttpClient(TwilioHttpClientFactory.create(configuration, account));
+        // A single attempt per request, the SDK would otherwise create the call again on any server error.
+        client.setNumRetries(1);
+        return client;
+    }
+
+    /**
+     * Instantiates the rate limit of an account, shared with the other processes if so configured.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param account       The {@link AccountConfiguration account}.
+     * @return              The rate limit of the account.
+     */
+    private static PermitBucket setupBucket(SurveyConfiguration configuration, AccountConfiguration account) {
+        if (configuration.isSharedRateLimit()) {
+            return new SharedTokenBucket(configuration, account);
+        }
+
+        return new TokenBucket(account.getCallsPerSecond());
     }
 
     /**
      * Dials a survey member.
+     * </p>
+     * Waits for one of the accounts to be allowed to queue another call.
+     *
+     * @param memberNumber          The number of the survey member that we want to dial.
+     * @return                      The actual state of the call, which will differ from its final state.
+     * @throws TwilioRestException  If an error occurs dialing the member.
+     * @throws InterruptedException If interrupted while waiting for an account.
+     */
+    public Call dial(String memberNumber) throws TwilioRestException, InterruptedException {
+        return dial(acquireLine(), memberNumber);
+    }
+
+    /**
+     * Dials a survey member on an account previously acquired with {@link #acquireLine()}.
      *
+     * @param line                  The account.
      * @param memberNumber          The number of the survey member that we want to dial.
      * @return                      The actual state of the call, which will differ from its final state.
      * @throws TwilioRestException  If an error occurs dialing the member.
      */
-    public Call dial(String memberNumber) throws TwilioRestException {
-        callParams.put("To", memberNumber);
+    Call dial(AccountLine line, String memberNumber) throws TwilioRestException {
+        try {
+            Map<String, String> params = new HashMap<>(callParams);
+            params.put("From", configuration.isLocalPresence() ?
+                    line.nextCallerNumber(memberNumber, configuration.getLocalPresenceMinDigits()) :
+                    line.nextCallerNumber());
+            params.put("To", memberNumber);
+            params.put("StatusCallback", withQueryParameter(statusCallback, CallResult.QUEUED_AT_PARAMETER, String.valueOf(clock.getAsLong())));
+
+            logger.debug("Queuing phone call to {} on account {}", memberNumber, line.getAccount().getAccountSID());
+            long start = System.nanoTime();
+            DialEvent event = FlightEvents.ENABLED ? new DialEvent(memberNumber, line.getAccount().getAccountSID()) : null;
+            try {
+                Call call = configuration.isCallProgressEvents() ?
+                        line.getCallFactory().create(withProgressEvents(params)) :
+                        line.getCallFactory().create(params);
+                if (event != null) {
+                    event.callSid = call.getSid();
+                }
+                return call;
+            } finally {
+                DIAL_LATENCY.record(System.nanoTime() - start);
+                if (event != null) {
+                    event.commit();
+                }
+            }
+        } finally {
+            line.end();
+        }
+    }
+
+    /**
+     * Picks the account of the next call, the least loaded among the ones allowed to queue a call, once it's the turn of
+     * the campaign if the accounts are shared.
+     *
+     * @return                      The account, with a token already taken and the call accounted for.
+     * @throws InterruptedException If interrupted while waiting for an account.
+     */
+    AccountLine acquireLine() throws InterruptedException {
+        if (share == null) {
+            return pickLine();
+        }
+
+        share.acquire();
+        try {
+            return pickLine();
+        } finally {
+            share.release();
+        }
+    }
+
+    /**
+     * Gives back an account acquired with {@link #acquireLine()} without dialing on it. The token taken is spent.
+     *
+     * @param line  The account.
+     */
+    void releaseLine(AccountLine line) {
+        line.end();
+    }
+
+    /**
+     * Waits for one of the accounts to be allowed to queue a call and picks the least loaded.
+     *
+     * @return                      The account, with a token already taken and the call accounted for.
+     * @throws InterruptedException If interrupted while waiting for an account.
+     */
+    private AccountLine pickLine() throws InterruptedException {
+        while (true) {
+            AccountLine selected = null;
+            long wait = Long.MAX_VALUE;
+
+            for (AccountLine line : lines) {
+                long untilAvailable = line.getBucket().nanosUntilAvailable();
+                if (untilAvailable > 0) {
+                    wait = Math.min(wait, untilAvailable);
+                } else if (selected == null || line.getInFlight() < selected.getInFlight()) {
+                    selected = line;
+                }
+            }
+
+            if (selected == null) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } else if (selected.getBucket().tryAcquire()) {
+                selected.begin();
+                return selected;
+            }
+        }
+    }
+
+    /**
+     * Opens the configured number of connections to the Twilio API for each account before the first call is queued.
+     * </p>
+     * Each connection is opened by concurrently fetching the account resource, so the pools end up holding that many
+     * authenticated connections ready to be reused. Failures are logged, the connections are then opened on demand.
+     *
+     * @return  The number of connections successfully opened, 0 if the accounts are shared as the pool opens them.
+     */
+    public int warmUp() {
+        return share == null ? warmUp(configuration, lines) : 0;
+    }
+
+    /**
+     * Opens the configured number of connections to the Twilio API for each account.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param lines         The accounts.
+     * @return              The number of connections successfully opened.
+     */
+    static int warmUp(SurveyConfiguration configuration, List<AccountLine> lines) {
+        int connections = configuration.getWarmupConnections();
+        if (connections == 0) {
+            return 0;
+        }
+
+        ExecutorService warmers = Executors.newFixedThreadPool(connections);
+        try {
+            List<Future<?>> requests = new ArrayList<>(connections * lines.size());
+            for (AccountLine line : lines) {
+                String accountPath = "/" + TwilioRestClient.DEFAULT_VERSION + "/Accounts/" + line.getAccount().getAccountSID() + ".json";
+                for (int i = 0; i < connections; i++) {
+                    requests.add(warmers.submit(() -> line.getClient().safeRequest(accountPath, "GET", Collections.<String, String>emptyMap())));
+                }
+            }
 
-        logger.debug("Queuing phone call to {}", memberNumber);
-        return callFactory.create(callParams);
+            int opened = 0;
+            for (Future<?> request : requests) {
+                try {
+                    request.get();
+                    opened++;
+                } catch (ExecutionException e) {
+                    logger.warn("Unable to open a connection to the Twilio API: {}", e.getCause().getMessage());
+                }
+            }
+
+            logger.debug("Opened {} of {} connections to the Twilio API.", opened, requests.size());
+            return opened;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            warmers.shutdownNow();
+        }
+    }
+
+    /**
+     * Closes the persistent connections to the Twilio API and releases the rate limits of the accounts, or gives up the
+     * turn of the campaign if the accounts are shared.
+     */
+    @Override
+    public void close() {
+        if (share != null) {
+            share.close();
+        } else {
+            lines.forEach(AccountLine::close);
+        }
     }
 }
@@ -0,0 +1,243 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the calls per second of a pool of accounts among the campaigns using it, in proportion to their weights.
+ * <p/>
+ * Each campaign holds a {@link Share} and takes a turn before picking an account for its next call, so the account
+ * rate limits are consumed by one call at a time. Turns are handed out by start-time fair queueing: every share has a
+ * virtual start time which grows by the inverse of its weight on each turn, and the waiting share with the lowest one
+ * goes next. A campaign that was not waiting, e.g. outside its calling window, starts again from the current virtual
+ * time, so it can't make up for the time it was idle with a burst, and the turns it doesn't take go to the others.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class FairShare {
+
+    /**
+     * The share of a campaign.
+     */
+    public final class Share implements AutoCloseable {
+
+        /**
+         * The name of the share.
+         */
+        private final String name;
+
+        /**
+         * The weight of the share.
+         */
+        private final double weight;
+
+        /**
+         * The virtual start time of the next turn.
+         */
+        private double virtualStart;
+
+        /**
+         * The number of threads waiting for a turn.
+         */
+        private int waiting;
+
+        /**
+         * The number of turns taken.
+         */
+        private long turns;
+
+        /**
+         * Creates a new instance of {@link Share}.
+         *
+         * @param name      The name of the share.
+         * @param weight    The weight of the share.
+         */
+        private Share(String name, double weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        /**
+         * Waits for the turn of the share, which must be {@link #release() released} once the call is accounted for.
+         *
+         * @throws InterruptedException If interrupted while waiting.
+         */
+        public void acquire() throws InterruptedException {
+            FairShare.this.acquire(this);
+        }
+
+        /**
+         * Ends the turn of the share.
+         */
+        public void release() {
+            FairShare.this.release();
+        }
+
+        /**
+         * Gets the name of the share.
+         *
+         * @return  The name of the share.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the weight of the share.
+         *
+         * @return  The weight of the share.
+         */
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * Gets the number of turns taken.
+         *
+         * @return  The number of turns taken.
+         */
+        public long getTurns() {
+            synchronized (FairShare.this) {
+                return turns;
+            }
+        }
+
+        /**
+         * Removes the share, its turns go to the others.
+         */
+        @Override
+        public void close() {
+            unregister(this);
+        }
+    }
+
+    /**
+     * The shares registered.
+     */
+    private final List<Share> shares = new ArrayList<>();
+
+    /**
+     * The virtual start time of the last turn.
+     */
+    private double virtualTime;
+
+    /**
+     * Flag indicating if a turn is being taken.
+     */
+    private boolean busy;
+
+    /**
+     * Registers the share of a campaign.
+     *
+     * @param name                      The name of the share.
+     * @param weight                    The weight of the share.
+     * @return                          The {@link Share}.
+     * @throws IllegalArgumentException If the weight is not positive.
+     */
+    public synchronized Share register(String name, double weight) throws IllegalArgumentException {
+        Preconditions.checkArgument(weight > 0, String.format("Invalid weight: %f", weight));
+
+        Share share = new Share(name, weight);
+        share.virtualStart = virtualTime;
+        shares.add(share);
+        return share;
+    }
+
+    /**
+     * Gets the number of shares registered.
+     *
+     * @return  The number of shares.
+     */
+    public synchronized int size() {
+        return shares.size();
+    }
+
+    /**
+     * Waits until it's the turn of a share.
+     *
+     * @param share                 The {@link Share}.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private synchronized void acquire(Share share) throws InterruptedException {
+        if (share.waiting++ == 0) {
+            share.virtualStart = Math.max(share.virtualStart, virtualTime);
+        }
+
+        boolean granted = false;
+        try {
+            while (busy || next() != share) {
+                wait();
+            }
+            granted = true;
+        } finally {
+            share.waiting--;
+            if (!granted) {
+                notifyAll();
+            }
+        }
+
+        busy = true;
+        virtualTime = share.virtualStart;
+        share.virtualStart += 1 / share.weight;
+        share.turns++;
+    }
+
+    /**
+     * Ends the current turn.
+     */
+    private synchronized void release() {
+        busy = false;
+        notifyAll();
+    }
+
+    /**
+     * Removes a share.
+     *
+     * @param share The {@link Share}.
+     */
+    private synchronized void unregister(Share share) {
+        shares.remove(share);
+        notifyAll();
+    }
+
+    /**
+     * Picks the waiting share with the lowest virtual start time, the first registered on ties.
+     *
+     * @return  The {@link Share}, {@code null} if none is waiting.
+     */
+    private Share next() {
+        Share next = null;
+        for (Share share : shares) {
+            if (share.waiting > 0 && (next == null || share.virtualStart < next.virtualStart)) {
+                next = share;
+            }
+        }
+        return next;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.dml.result.ResultColumn;
+import com.feedzai.commons.sql.abstraction.dml.result.ResultIterator;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+
+/**
+ * Reads the states of the numbers of a campaign as the result handler updates them, for every component of the
+ * survey that reacts to the final statuses of the calls.
+ * <p/>
+ * The states changed since the last read are fetched through the index on their update time at most once per period,
+ * and handed to every {@link Subscriber subscriber}, so the survey issues a single query per period however many
+ * components follow the states. Each read goes back a while before the latest update time read, to catch the states
+ * committed out of order, so subscribers see some states more than once.
+ * <p/>
+ * Uses its own database connection, the states are read while the workers write the call results. The feed is
+ * locked while it reads and hands out the states, so the subscribers must not call it while holding their own locks.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+final class NumberStateFeed implements AutoCloseable {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(NumberStateFeed.class);
+
+    /**
+     * The time between reads of the changed states, in milliseconds.
+     */
+    static final long PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * How far back each read of the changed states goes, in milliseconds, to catch the ones committed out of order.
+     */
+    static final long OVERLAP_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * The number of rows fetched from the database on each round-trip while streaming the states.
+     */
+    private static final int FETCH_SIZE = 10_000;
+
+    /**
+     * Receives the states read by the feed.
+     */
+    interface Subscriber {
+
+        /**
+         * Handles the states changed since the previous read.
+         *
+         * @param states    The {@link NumberState states}, in no particular order.
+         */
+        void onChanged(List<NumberState> states);
+    }
+
+    /**
+     * The state of a number, as last written by the executor or the result handler.
+     */
+    static final class NumberState {
+
+        /**
+         * The number.
+         */
+        final String number;
+
+        /**
+         * The number of times the number was dialed.
+         */
+        final int attempts;
+
+        /**
+         * The status of the last call.
+         */
+        final CallStatus status;
+
+        /**
+         * The SID of the last call.
+         */
+        final String sid;
+
+        /**
+         * When the state was updated, in epoch milliseconds.
+         */
+        final long updated;
+
+        /**
+         * Creates a new instance of {@link NumberState} from a row of the states table.
+         *
+         * @param row   The row.
+         */
+        NumberState(Map<String, ResultColumn> row) {
+            this.number = row.get(SurveyEntities.NUMBER_STATE_NUMBER).toString();
+            this.attempts = row.get(SurveyEntities.NUMBER_STATE_ATTEMPTS).toInt();
+            this.status = CallStatus.fromInternalCode(row.get(SurveyEntities.NUMBER_STATE_STATUS).toInt());
+            this.sid = row.get(SurveyEntities.NUMBER_STATE_LAST_SID).toString();
+            this.updated = row.get(SurveyEntities.NUMBER_STATE_UPDATED).toLong();
+        }
+    }
+
+    /**
+     * The {@link SurveyConfiguration survey configuration}.
+     */
+    private final SurveyConfiguration configuration;
+
+    /**
+     * The wall clock, in milliseconds, compared with the update times of the states.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The components following the states.
+     */
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * The database connection.
+     */
+    private DatabaseEngine engine;
+
+    /**
+     * The latest update time read, in epoch milliseconds.
+     */
+    private long watermark;
+
+    /**
+     * When to read the changed states next, in epoch milliseconds.
+     */
+    private long nextPollAt;
+
+    /**
+     * Creates a new instance of {@link NumberStateFeed}.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     */
+    NumberStateFeed(SurveyConfiguration configuration) {
+        this(configuration, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link NumberStateFeed} with a given clock.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    NumberStateFeed(SurveyConfiguration configuration, LongSupplier clock) {
+        this.configuration = configuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Opens the database connection the states are read from. Only the states changed from now on are handed to the
+     * subscribers.
+     *
+     * @throws DatabaseFactoryException If an error occurs getting the database connection.
+     * @throws DatabaseEngineException  If an error occurs connecting to the database.
+     */
+    synchronized void open() throws DatabaseFactoryException, DatabaseEngineException {
+        engine = DatabaseUtils.initializeDbConnection(configuration.getDatabaseFile());
+        long now = clock.getAsLong();
+        watermark = now;
+        nextPollAt = now + PERIOD_MILLIS;
+    }
+
+    /**
+     * Hands the states changed from now on to a subscriber.
+     *
+     * @param subscriber    The {@link Subscriber subscriber}.
+     */
+    void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Reads the state of every number of the campaign.
+     *
+     * @return                          The {@link NumberState states}.
+     * @throws DatabaseEngineException  If an error occurs reading the states.
+     */
+    synchronized List<NumberState> readAll() throws DatabaseEngineException {
+        List<Map<String, ResultColumn>> rows = engine.query(select(all())
+                .from(table(SurveyEntities.NUMBER_STATE_TABLE))
+                .where(eq(column(SurveyEntities.NUMBER_STATE_CAMPAIGN), k(configuration.getCampaign()))));
+
+        List<NumberState> states = new ArrayList<>(rows.size());
+        for (Map<String, ResultColumn> row : rows) {
+            states.add(new NumberState(row));
+        }
+        return states;
+    }
+
+    /**
+     * Streams the numbers of the campaign that reached a status since a given time, a page at a time, going back as
+     * far as every read does.
+     *
+     * @param status                    The status.
+     * @param since                     The update time to start from, in epoch milliseconds.
+     * @param consumer                  Receives the numbers.
+     * @return                          The number of numbers read.
+     * @throws DatabaseEngineException  If an error occurs reading the states.
+     */
+    synchronized long readNumbers(CallStatus status, long since, Consumer<String> consumer) throws DatabaseEngineException {
+        long rows = 0;
+        ResultIterator iterator = engine.iterator(select(column(SurveyEntities.NUMBER_STATE_NUMBER))
+                .from(table(SurveyEntities.NUMBER_STATE_TABLE))
+                .where(and(
+                        eq(column(SurveyEntities.NUMBER_STATE_CAMPAIGN), k(configuration.getCampaign())),
+                        gteq(column(SurveyEntities.NUMBER_STATE_UPDATED), k(since - OVERLAP_MILLIS)),
+                        eq(column(SurveyEntities.NUMBER_STATE_STATUS), k(status.getInternalCode()))
+                )), FETCH_SIZE);
+        try {
+            Map<String, ResultColumn> row;
+            while ((row = iterator.next()) != null) {
+                rows++;
+                consumer.accept(row.get(SurveyEntities.NUMBER_STATE_NUMBER).toString());
+            }
+        } finally {
+            iterator.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the states changed since the last read, at most once per period, and hands them to the subscribers.
+     * Errors are logged, the states are read again on the next period.
+     */
+    synchronized void poll() {
+        long now = clock.getAsLong();
+        if (now < nextPollAt) {
+            return;
+        }
+        nextPollAt = now + PERIOD_MILLIS;
+
+        List<NumberState> states;
+        try {
+            List<Map<String, ResultColumn>> rows = engine.query(select(all())
+                    .from(table(SurveyEntities.NUMBER_STATE_TABLE))
+                    .where(and(
+                            eq(column(SurveyEntities.NUMBER_STATE_CAMPAIGN), k(configuration.getCampaign())),
+                            gteq(column(SurveyEntities.NUMBER_STATE_UPDATED), k(watermark - OVERLAP_MILLIS))
+                    )));
+
+            states = new ArrayList<>(rows.size());
+            for (Map<String, ResultColumn> row : rows) {
+                NumberState state = new NumberState(row);
+                watermark = Math.max(watermark, state.updated);
+                states.add(state);
+            }
+        } catch (DatabaseEngineException | RuntimeException e) {
+            logger.warn("Unable to read the state of the numbers, retrying.", e);
+            return;
+        }
+
+        List<NumberState> changed = Collections.unmodifiableList(states);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onChanged(changed);
+        }
+    }
+
+    /**
+     * Closes the database connection.
+     */
+    @Override
+    public synchronized void close() {
+        if (engine != null) {
+            DatabaseUtils.closeDbConnection(engine);
+            engine = null;
+        }
+    }
+}
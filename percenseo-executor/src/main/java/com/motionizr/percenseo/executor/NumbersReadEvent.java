@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.commons.FlightEvents;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event spanning the read of a numbers CSV by the {@link SurveyOrchestrator}.
+ * <p/>
+ * Only created when {@link FlightEvents#ENABLED}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@Name("com.motionizr.percenseo.NumbersRead")
+@Label("Numbers Read")
+@Category({FlightEvents.CATEGORY, "Executor"})
+@Description("Read of a numbers CSV.")
+final class NumbersReadEvent extends Event {
+
+    /**
+     * The path to the numbers CSV.
+     */
+    @Label("File")
+    String file;
+
+    /**
+     * The campaign the numbers are read for.
+     */
+    @Label("Campaign")
+    String campaign;
+
+    /**
+     * The first number read, {@code null} if the CSV is empty.
+     */
+    @Label("First Number")
+    String number;
+
+    /**
+     * The number of numbers read.
+     */
+    @Label("Numbers")
+    long numbers;
+
+    /**
+     * Creates a new {@link NumbersReadEvent} and starts timing it.
+     *
+     * @param file      The path to the numbers CSV.
+     * @param campaign  The campaign the numbers are read for.
+     */
+    NumbersReadEvent(String file, String campaign) {
+        this.file = file;
+        this.campaign = campaign;
+        begin();
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.executor.NumberStateFeed.NumberState;
+import com.motionizr.percenseo.executor.configuration.RetryPolicy;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Dials the numbers of a campaign again once the {@link RetryPolicy retry policy} allows it.
+ * <p/>
+ * The state of every number of the campaign is read once when the survey starts, and the numbers that ended with a
+ * retryable status are queued in a {@link DelayQueue} until their cooldown elapses. From then on the changed states
+ * come from the {@link NumberStateFeed}, so a final status received during the survey schedules its retry without
+ * going through the results again. Numbers without a state are new and are dialed right away.
+ * <p/>
+ * The survey is over once no retry is waiting and every call dialed has a final status, or stopped waiting for one.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+final class RetryScheduler implements NumberStateFeed.Subscriber {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
+
+    /**
+     * The state of a number known to this process.
+     */
+    private static final class State {
+
+        /**
+         * The number of times the number was dialed.
+         */
+        int attempts;
+
+        /**
+         * The SID of the last call, {@code null} if the number was not dialed yet or the Twilio API rejected it.
+         */
+        String sid;
+
+        /**
+         * Flag indicating if the final status of the last call is not known yet.
+         */
+        boolean awaiting;
+
+        /**
+         * When the number was handed out or dialed last, in epoch milliseconds.
+         */
+        long since;
+    }
+
+    /**
+     * A number waiting for its cooldown to elapse.
+     */
+    private final class Due implements Delayed {
+
+        /**
+         * The number.
+         */
+        final String number;
+
+        /**
+         * When the number can be dialed again, in epoch milliseconds.
+         */
+        final long dueAt;
+
+        /**
+         * Creates a new instance of {@link Due}.
+         *
+         * @param number    The number.
+         * @param dueAt     When the number can be dialed again, in epoch milliseconds.
+         */
+        Due(String number, long dueAt) {
+            this.number = number;
+            this.dueAt = dueAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - clock.getAsLong(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((Due) other).dueAt);
+        }
+    }
+
+    /**
+     * The feed of the states of the numbers.
+     */
+    private final NumberStateFeed feed;
+
+    /**
+     * The {@link RetryPolicy retry policy}.
+     */
+    private final RetryPolicy policy;
+
+    /**
+     * Selects the numbers dialed by this process.
+     */
+    private final Predicate<String> owned;
+
+    /**
+     * The wall clock, in milliseconds, compared with the update times of the states.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The numbers waiting for their cooldown to elapse.
+     */
+    private final DelayQueue<Due> due = new DelayQueue<>();
+
+    /**
+     * The state of every number of the campaign dialed by this process.
+     */
+    private final Map<String, State> states = new HashMap<>();
+
+    /**
+     * The numbers handed out and not known to be over yet.
+     */
+    private final Map<String, State> pending = new HashMap<>();
+
+    /**
+     * Creates a new instance of {@link RetryScheduler}.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param feed          The feed of the states of the numbers.
+     * @param owned         Selects the numbers dialed by this process.
+     */
+    RetryScheduler(SurveyConfiguration configuration, NumberStateFeed feed, Predicate<String> owned) {
+        this(configuration, feed, owned, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link RetryScheduler} with a given clock.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param feed          The feed of the states of the numbers.
+     * @param owned         Selects the numbers dialed by this process.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    RetryScheduler(SurveyConfiguration configuration, NumberStateFeed feed, Predicate<String> owned, LongSupplier clock) {
+        this.feed = feed;
+        this.policy = configuration.getRetryPolicy();
+        this.owned = owned;
+        this.clock = clock;
+    }
+
+    /**
+     * Reads the state of the numbers of the campaign, queues the ones due for a retry and follows the changes.
+     * <p/>
+     * Calls of previous runs still waiting for their final status are waited for like the ones dialed by this run.
+     *
+     * @throws DatabaseEngineException  If an error occurs reading the states.
+     */
+    synchronized void load() throws DatabaseEngineException {
+        for (NumberState row : feed.readAll()) {
+            if (!owned.test(row.number)) {
+                continue;
+            }
+
+            State state = new State();
+            state.attempts = row.attempts;
+            state.sid = row.sid;
+            state.since = row.updated;
+            states.put(row.number, state);
+
+            if (!row.status.isTerminal()) {
+                state.awaiting = true;
+                pending.put(row.number, state);
+            } else if (policy.shouldRetry(row.status, state.attempts)) {
+                due.add(new Due(row.number, row.updated + policy.cooldownMillis(row.status, state.attempts)));
+            }
+        }
+
+        logger.info("Read the state of {} numbers, {} are due for a retry and {} calls are waiting for their final status.",
+                states.size(), due.size(), pending.size());
+        feed.subscribe(this);
+    }
+
+    /**
+     * Hands out a number read from the survey if it was never dialed, the ones that were are only retried when due.
+     *
+     * @param number    The number.
+     * @return          {@code true} if the number must be dialed now, {@code false} if it was dialed before.
+     */
+    synchronized boolean admit(String number) {
+        if (states.containsKey(number)) {
+            return false;
+        }
+
+        State state = new State();
+        state.since = clock.getAsLong();
+        states.put(number, state);
+        pending.put(number, state);
+        return true;
+    }
+
+    /**
+     * Hands out a number whose cooldown elapsed.
+     *
+     * @return  The number to dial again, {@code null} if none is due.
+     */
+    synchronized String pollDue() {
+        Due next = due.poll();
+        if (next == null) {
+            return null;
+        }
+
+        State state = states.get(next.number);
+        state.since = clock.getAsLong();
+        pending.put(next.number, state);
+        return next.number;
+    }
+
+    /**
+     * Gets the number of numbers waiting for their cooldown to elapse, or due and not handed out yet.
+     *
+     * @return  The number of retries queued.
+     */
+    int queuedRetries() {
+        return due.size();
+    }
+
+    /**
+     * Gets the time until the next number is due.
+     *
+     * @return  The time in milliseconds, {@link Long#MAX_VALUE} if no number is waiting.
+     */
+    long millisUntilDue() {
+        Due next = due.peek();
+        return next != null ? Math.max(0, next.getDelay(TimeUnit.MILLISECONDS)) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Records that a number handed out was dialed.
+     * <p/>
+     * A call rejected by the Twilio API has its final status right away and is queued for a retry if allowed.
+     *
+     * @param number    The number.
+     * @param result    The {@link CallResult result} of the call.
+     * @return          The number of times the number was dialed, including this one.
+     */
+    synchronized int onDialed(String number, CallResult result) {
+        State state = states.get(number);
+        long now = clock.getAsLong();
+        state.attempts++;
+        state.sid = result.getCallSID();
+        state.since = now;
+
+        if (state.sid != null) {
+            state.awaiting = true;
+        } else {
+            state.awaiting = false;
+            pending.remove(number);
+            schedule(number, state, result.getStatus(), now);
+        }
+        return state.attempts;
+    }
+
+    /**
+     * Records that a number handed out was not dialed, e.g. because the campaign was paused or cancelled, so the
+     * survey is not kept waiting for it. The number is dialed again by a later run, from the state it had.
+     *
+     * @param number    The number.
+     */
+    synchronized void abandon(String number) {
+        State state = pending.get(number);
+        if (state != null && !state.awaiting) {
+            pending.remove(number);
+            logger.debug("Dropped {} without dialing it.", number);
+        }
+    }
+
+    /**
+     * Reads the states changed since the last read, if the period of the {@link NumberStateFeed feed} elapsed, which
+     * queues the retries of the calls that got their final status.
+     */
+    void refresh() {
+        feed.poll();
+    }
+
+    /**
+     * Queues the retries of the calls that got their final status.
+     *
+     * @param changed   The states changed since the previous read.
+     */
+    @Override
+    public synchronized void onChanged(List<NumberState> changed) {
+        for (NumberState row : changed) {
+            State state = pending.get(row.number);
+            if (state == null || !state.awaiting || !row.status.isTerminal() || !row.sid.equals(state.sid)) {
+                continue;
+            }
+
+            state.awaiting = false;
+            pending.remove(row.number);
+            schedule(row.number, state, row.status, row.updated);
+        }
+    }
+
+    /**
+     * Checks whether every number handed out is over and no retry is waiting.
+     * <p/>
+     * Calls waiting longer than the result timeout for their final status are no longer waited for, a later run
+     * retries them once it is known.
+     *
+     * @return  {@code true} if the survey is over, {@code false} otherwise.
+     */
+    synchronized boolean isDone() {
+        long now = clock.getAsLong();
+        long timeout = policy.getResultTimeout().toMillis();
+
+        int expired = 0;
+        for (Iterator<State> iterator = pending.values().iterator(); iterator.hasNext(); ) {
+            State state = iterator.next();
+            if (state.awaiting && now - state.since > timeout) {
+                iterator.remove();
+                expired++;
+            }
+        }
+
+        if (expired > 0) {
+            logger.warn("Stopped waiting for the final status of {} calls, they are retried by a later run if needed.", expired);
+        }
+        return pending.isEmpty() && due.isEmpty();
+    }
+
+    /**
+     * Queues a number for a retry if the policy allows it.
+     *
+     * @param number    The number.
+     * @param state     The state of the number.
+     * @param status    The final status of the last call.
+     * @param endedAt   When the final status was received, in epoch milliseconds.
+     */
+    private void schedule(String number, State state, CallStatus status, long endedAt) {
+        if (policy.shouldRetry(status, state.attempts)) {
+            due.add(new Due(number, endedAt + policy.cooldownMillis(status, state.attempts)));
+            logger.debug("Retrying {} after {} attempts ending as {}.", number, state.attempts, status);
+        }
+    }
+}
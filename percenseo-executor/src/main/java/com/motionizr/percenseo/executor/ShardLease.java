@@ -0,0 +1,378 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.dml.Expression;
+import com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder;
+import com.feedzai.commons.sql.abstraction.dml.result.ResultColumn;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.google.common.hash.Hashing;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+
+/**
+ * Lease held by a process on the shard of a campaign it dials, stored in the database shared by every process.
+ * <p/>
+ * Numbers are assigned to shards by a stable hash, so every process agrees on the partition without coordinating.
+ * A process claims its shard by creating the lease, or by taking it over once the previous owner stopped renewing it.
+ * While dialing, the lease is renewed at a third of its duration together with the {@link ShardProgress checkpoint},
+ * so a process taking over the shard skips the numbers already handled. A process stops dialing as soon as it can't
+ * be sure it still owns the shard, so two processes never dial the same shard for longer than a renewal period.
+ * <p/>
+ * Uses its own database connection, renewals happen while the orchestrator writes call results.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+final class ShardLease implements AutoCloseable {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ShardLease.class);
+
+    /**
+     * The {@link SurveyConfiguration survey configuration}.
+     */
+    private final SurveyConfiguration configuration;
+
+    /**
+     * The wall clock, in milliseconds, shared with the other processes through the lease expiry.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The duration of the lease in milliseconds.
+     */
+    private final long leaseMillis;
+
+    /**
+     * The database connection.
+     */
+    private DatabaseEngine engine;
+
+    /**
+     * Renews the lease while the shard is dialed.
+     */
+    private ScheduledExecutorService renewer;
+
+    /**
+     * The progress of the shard since it was claimed.
+     */
+    private ShardProgress progress;
+
+    /**
+     * The checkpoint the shard was claimed at.
+     */
+    private long claimedCheckpoint;
+
+    /**
+     * When the lease expires unless renewed, in epoch milliseconds.
+     */
+    private volatile long expiresAt;
+
+    /**
+     * Flag indicating if another process took the shard over.
+     */
+    private volatile boolean lost;
+
+    /**
+     * Flag indicating if every number of the shard was handled.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a new instance of {@link ShardLease}.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     */
+    ShardLease(SurveyConfiguration configuration) {
+        this(configuration, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link ShardLease} with a given clock.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    ShardLease(SurveyConfiguration configuration, LongSupplier clock) {
+        this.configuration = configuration;
+        this.clock = clock;
+        this.leaseMillis = configuration.getShardLease().toMillis();
+    }
+
+    /**
+     * Gets the shard a number belongs to.
+     * </p>
+     * Uses murmur3, which spreads numbers evenly even when they share long prefixes and only differ in the last digits.
+     *
+     * @param number        The number as submitted to the survey.
+     * @param shardCount    The number of shards.
+     * @return              The shard, between 0 and the number of shards exclusive.
+     */
+    static int shardOf(String number, int shardCount) {
+        return Math.floorMod(Hashing.murmur3_32().hashString(number, StandardCharsets.UTF_8).asInt(), shardCount);
+    }
+
+    /**
+     * Claims the shard, creating the lease or taking over an expired one, and starts renewing it.
+     *
+     * @return                          {@code true} if the shard was claimed and has numbers left to dial, {@code false} if
+     *                                  another process holds it or it was already finished.
+     * @throws DatabaseFactoryException If an error occurs getting the database connection.
+     * @throws DatabaseEngineException  If an error occurs reading or writing the lease.
+     */
+    synchronized boolean acquire() throws DatabaseFactoryException, DatabaseEngineException {
+        engine = DatabaseUtils.initializeDbConnection(configuration.getDatabaseFile());
+
+        long now = clock.getAsLong();
+        boolean created;
+        try {
+            engine.persist(SurveyEntities.SHARD_LEASE_TABLE, entry()
+                    .set(SurveyEntities.SHARD_LEASE_CAMPAIGN, configuration.getCampaign())
+                    .set(SurveyEntities.SHARD_LEASE_SHARD, configuration.getShardId())
+                    .set(SurveyEntities.SHARD_LEASE_SHARD_COUNT, configuration.getShardCount())
+                    .set(SurveyEntities.SHARD_LEASE_OWNER, configuration.getNodeId())
+                    .set(SurveyEntities.SHARD_LEASE_EXPIRES, now + leaseMillis)
+                    .set(SurveyEntities.SHARD_LEASE_CHECKPOINT, 0L)
+                    .set(SurveyEntities.SHARD_LEASE_FINISHED, false)
+                    .build());
+            created = true;
+        } catch (DatabaseEngineException e) {
+            logger.debug("Shard {} of campaign {} was claimed before.", configuration.getShardId(), configuration.getCampaign(), e);
+            created = false;
+        }
+
+        if (!created && engine.executeUpdate(update(table(SurveyEntities.SHARD_LEASE_TABLE))
+                .set(
+                        eq(column(SurveyEntities.SHARD_LEASE_OWNER), k(configuration.getNodeId())),
+                        eq(column(SurveyEntities.SHARD_LEASE_EXPIRES), k(now + leaseMillis))
+                )
+                .where(and(
+                        leaseMatches(),
+                        eq(column(SurveyEntities.SHARD_LEASE_SHARD_COUNT), k(configuration.getShardCount())),
+                        or(
+                                lt(column(SurveyEntities.SHARD_LEASE_EXPIRES), k(now)),
+                                eq(column(SurveyEntities.SHARD_LEASE_OWNER), k(configuration.getNodeId()))
+                        )
+                ))) == 0) {
+            Map<String, ResultColumn> lease = readLease();
+            logger.warn("Shard {} of {} of campaign {} is held by {} until {} with {} shards, not dialing it.",
+                    configuration.getShardId(), configuration.getShardCount(), configuration.getCampaign(),
+                    lease.get(SurveyEntities.SHARD_LEASE_OWNER).toString(),
+                    lease.get(SurveyEntities.SHARD_LEASE_EXPIRES).toLong(),
+                    lease.get(SurveyEntities.SHARD_LEASE_SHARD_COUNT).toInt());
+            return false;
+        }
+        expiresAt = now + leaseMillis;
+
+        Map<String, ResultColumn> lease = readLease();
+        if (lease.get(SurveyEntities.SHARD_LEASE_FINISHED).toBoolean()) {
+            logger.info("Shard {} of campaign {} was already dialed.", configuration.getShardId(), configuration.getCampaign());
+            finished = true;
+            return false;
+        }
+
+        claimedCheckpoint = lease.get(SurveyEntities.SHARD_LEASE_CHECKPOINT).toLong();
+        progress = new ShardProgress(claimedCheckpoint);
+        logger.info("Claimed shard {} of {} of campaign {}, resuming after {} numbers.",
+                configuration.getShardId(), configuration.getShardCount(), configuration.getCampaign(), claimedCheckpoint);
+
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, leaseMillis / 3);
+        renewer.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+
+        return true;
+    }
+
+    /**
+     * Selects the numbers of the shard that were not handled before it was claimed.
+     *
+     * @param surveyNumbers The numbers submitted to the survey, in the same order for every process.
+     * @return              The numbers left to dial in the shard.
+     */
+    Stream<String> select(Stream<String> surveyNumbers) {
+        final int shardId = configuration.getShardId();
+        final int shardCount = configuration.getShardCount();
+
+        return surveyNumbers.filter(number -> shardOf(number, shardCount) == shardId)
+                .skip(claimedCheckpoint)
+                .peek(number -> progress.scan());
+    }
+
+    /**
+     * Gets the progress of the shard since it was claimed.
+     *
+     * @return  The {@link ShardProgress progress}.
+     */
+    ShardProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Checks whether this process can no longer be sure it owns the shard, either because another process took it
+     * over or because the lease could not be renewed before expiring.
+     *
+     * @return  {@code true} if the numbers of the shard must no longer be dialed, {@code false} otherwise.
+     */
+    boolean isLost() {
+        return lost || clock.getAsLong() >= expiresAt;
+    }
+
+    /**
+     * Marks the shard as finished, so no process dials it again.
+     *
+     * @throws DatabaseEngineException  If an error occurs updating the lease.
+     */
+    synchronized void finish() throws DatabaseEngineException {
+        updateLease(progress.getFinalCheckpoint(), clock.getAsLong(), true);
+        finished = true;
+        logger.info("Finished shard {} of campaign {}.", configuration.getShardId(), configuration.getCampaign());
+    }
+
+    /**
+     * Stops renewing the lease. An unfinished shard is released with its checkpoint, so another process can resume it
+     * right away instead of waiting for the lease to expire.
+     */
+    @Override
+    public synchronized void close() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+
+        if (engine == null) {
+            return;
+        }
+
+        if (progress != null && !finished && !isLost()) {
+            try {
+                updateLease(progress.getCheckpoint(), clock.getAsLong(), false);
+                logger.info("Released shard {} of campaign {} at {} numbers.", configuration.getShardId(),
+                        configuration.getCampaign(), progress.getCheckpoint());
+            } catch (DatabaseEngineException e) {
+                logger.warn("Unable to release shard {}, it will be available once the lease expires.", configuration.getShardId(), e);
+            }
+        }
+
+        DatabaseUtils.closeDbConnection(engine);
+        engine = null;
+    }
+
+    /**
+     * Extends the lease and stores the checkpoint. A failed renewal is retried on the next period, the lease is
+     * considered lost once it expires.
+     */
+    private synchronized void renew() {
+        if (finished || lost) {
+            return;
+        }
+
+        try {
+            long now = clock.getAsLong();
+            if (updateLease(progress.getCheckpoint(), now + leaseMillis, false)) {
+                expiresAt = now + leaseMillis;
+            } else {
+                lost = true;
+                logger.error("Shard {} of campaign {} was taken over by another process, no longer dialing it.",
+                        configuration.getShardId(), configuration.getCampaign());
+            }
+        } catch (DatabaseEngineException | RuntimeException e) {
+            logger.warn("Unable to renew the lease on shard {}, retrying.", configuration.getShardId(), e);
+        }
+    }
+
+    /**
+     * Updates the lease if this process still owns it.
+     *
+     * @param checkpoint                The number of numbers of the shard handled.
+     * @param expires                   When the lease expires, in epoch milliseconds.
+     * @param shardFinished             Whether every number of the shard was handled.
+     * @return                          {@code true} if the lease was updated, {@code false} if another process owns it.
+     * @throws DatabaseEngineException  If an error occurs updating the lease.
+     */
+    private boolean updateLease(long checkpoint, long expires, boolean shardFinished) throws DatabaseEngineException {
+        return engine.executeUpdate(update(table(SurveyEntities.SHARD_LEASE_TABLE))
+                .set(
+                        eq(column(SurveyEntities.SHARD_LEASE_CHECKPOINT), k(checkpoint)),
+                        eq(column(SurveyEntities.SHARD_LEASE_EXPIRES), k(expires)),
+                        eq(column(SurveyEntities.SHARD_LEASE_FINISHED), k(shardFinished))
+                )
+                .where(and(
+                        leaseMatches(),
+                        eq(column(SurveyEntities.SHARD_LEASE_OWNER), k(configuration.getNodeId()))
+                ))) > 0;
+    }
+
+    /**
+     * Reads the lease of the shard.
+     *
+     * @return                          The columns of the lease.
+     * @throws DatabaseEngineException  If an error occurs reading the lease.
+     */
+    private Map<String, ResultColumn> readLease() throws DatabaseEngineException {
+        // Qualified as select(Stream) shadows the static import.
+        List<Map<String, ResultColumn>> rows = engine.query(SqlBuilder.select(all())
+                .from(table(SurveyEntities.SHARD_LEASE_TABLE))
+                .where(leaseMatches()));
+
+        if (rows.isEmpty()) {
+            throw new DatabaseEngineException(String.format("The lease on shard %d of campaign %s is missing.",
+                    configuration.getShardId(), configuration.getCampaign()));
+        }
+        return rows.get(0);
+    }
+
+    /**
+     * Builds the condition matching the lease of the shard.
+     *
+     * @return  The condition.
+     */
+    private Expression leaseMatches() {
+        return and(
+                eq(column(SurveyEntities.SHARD_LEASE_CAMPAIGN), k(configuration.getCampaign())),
+                eq(column(SurveyEntities.SHARD_LEASE_SHARD), k(configuration.getShardId()))
+        );
+    }
+}
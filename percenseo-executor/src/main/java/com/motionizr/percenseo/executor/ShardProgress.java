@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how far the numbers of a shard have been handled, so a process taking over the shard resumes close to
+ * where the previous one stopped.
+ * <p/>
+ * Numbers get a position in the order they are submitted. The checkpoint is the position of the oldest number still
+ * being dialed, or the one after the last number dialed when none is, so every number before it is known to be
+ * handled. Numbers skipped for being already completed are covered once a later number starts, and skipping them again
+ * after a takeover is harmless. At most the numbers being dialed concurrently may be dialed again by a new owner.
+ * <p/>
+ * Positions are assigned by {@link #scan()} as the numbers leave the source, and {@link #begin()} picks the position
+ * of the number scanned last, so both must be called from the thread consuming the numbers, in order.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+final class ShardProgress {
+
+    /**
+     * The checkpoint the shard was claimed at, the positions are relative to it.
+     */
+    private final long base;
+
+    /**
+     * The number of numbers scanned.
+     */
+    private final AtomicLong scanned = new AtomicLong();
+
+    /**
+     * The positions of the numbers being dialed.
+     */
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    /**
+     * The position after the last number that started being dialed.
+     */
+    private volatile long nextToBegin;
+
+    /**
+     * Creates a new instance of {@link ShardProgress}.
+     *
+     * @param base  The checkpoint the shard was claimed at.
+     */
+    ShardProgress(long base) {
+        this.base = base;
+    }
+
+    /**
+     * Records that a number left the source.
+     */
+    void scan() {
+        scanned.incrementAndGet();
+    }
+
+    /**
+     * Records that the number scanned last started being dialed.
+     *
+     * @return  The position of the number.
+     */
+    long begin() {
+        long position = scanned.get() - 1;
+        inFlight.add(position);
+        nextToBegin = position + 1;
+        return position;
+    }
+
+    /**
+     * Records that a number is handled.
+     *
+     * @param position  The position of the number.
+     */
+    void end(long position) {
+        inFlight.remove(position);
+    }
+
+    /**
+     * Gets the number of numbers of the shard known to be handled.
+     *
+     * @return  The checkpoint.
+     */
+    long getCheckpoint() {
+        // Reading the last position begun first keeps a number starting meanwhile out of the checkpoint.
+        long watermark = nextToBegin;
+        Long oldest = inFlight.ceiling(Long.MIN_VALUE);
+        if (oldest != null) {
+            watermark = Math.min(watermark, oldest);
+        }
+        return base + watermark;
+    }
+
+    /**
+     * Gets the number of numbers of the shard scanned, once every number is handled.
+     *
+     * @return  The checkpoint covering every number scanned.
+     */
+    long getFinalCheckpoint() {
+        return base + scanned.get();
+    }
+}
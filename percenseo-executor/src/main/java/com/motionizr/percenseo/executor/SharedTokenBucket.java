@@ -0,0 +1,294 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.dml.result.ResultColumn;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+
+/**
+ * A token bucket limiting the rate at which calls are queued on an account shared by several processes, stored in the
+ * database shared by every process.
+ * <p/>
+ * Refills like a {@link TokenBucket}, from the time the bucket was last updated by any process. Each round trip takes
+ * up to a batch of tokens at once, with a conditional update on the version of the bucket so two processes never take
+ * the same tokens, and hands them out locally. Tokens not used by the time the bucket would have refilled them are
+ * dropped, so a process can't hoard them and burst past the rate of the account later on.
+ * <p/>
+ * Uses its own database connection, opened on the first round trip. When the database can't be reached no calls are
+ * queued on the account until it can, so the rate of the account is never exceeded.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+final class SharedTokenBucket implements PermitBucket {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SharedTokenBucket.class);
+
+    /**
+     * The number of times a round trip is retried when another process updates the bucket in the meantime.
+     */
+    private static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * The time to wait before reaching the database again after an error, in milliseconds.
+     */
+    private static final long ERROR_BACKOFF_MILLIS = 1000;
+
+    /**
+     * The database file.
+     */
+    private final String databaseFile;
+
+    /**
+     * The account the bucket belongs to.
+     */
+    private final String accountSID;
+
+    /**
+     * The number of tokens added per millisecond.
+     */
+    private final double tokensPerMilli;
+
+    /**
+     * The maximum number of tokens stored.
+     */
+    private final double capacity;
+
+    /**
+     * The maximum number of tokens taken per round trip.
+     */
+    private final int batchSize;
+
+    /**
+     * The time the tokens taken in a round trip can be used for, in milliseconds.
+     */
+    private final long batchMillis;
+
+    /**
+     * The wall clock, in milliseconds, shared with the other processes through the time the bucket was last updated.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The database connection.
+     */
+    private DatabaseEngine engine;
+
+    /**
+     * The number of tokens taken from the bucket and not used yet.
+     */
+    private int tokens;
+
+    /**
+     * When the tokens taken from the bucket can no longer be used, in epoch milliseconds.
+     */
+    private long tokensExpireAt;
+
+    /**
+     * When to reach the database again, in epoch milliseconds.
+     */
+    private long nextRoundTripAt;
+
+    /**
+     * Creates a new instance of {@link SharedTokenBucket}.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param account       The {@link AccountConfiguration account}.
+     */
+    SharedTokenBucket(SurveyConfiguration configuration, AccountConfiguration account) {
+        this(configuration, account, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance of {@link SharedTokenBucket} with a given clock.
+     *
+     * @param configuration The {@link SurveyConfiguration survey configuration}.
+     * @param account       The {@link AccountConfiguration account}.
+     * @param clock         The wall clock, in milliseconds.
+     */
+    SharedTokenBucket(SurveyConfiguration configuration, AccountConfiguration account, LongSupplier clock) {
+        this.databaseFile = configuration.getDatabaseFile();
+        this.accountSID = account.getAccountSID();
+        this.tokensPerMilli = account.getCallsPerSecond() / TimeUnit.SECONDS.toMillis(1);
+        this.capacity = Math.max(1, account.getCallsPerSecond());
+        this.batchSize = configuration.getSharedRateLimitBatch();
+        this.batchMillis = Math.max(1, (long) Math.ceil(batchSize / tokensPerMilli));
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a token, reaching the database for another batch when the ones taken before are used up.
+     *
+     * @return  {@code true} if a token was taken, {@code false} otherwise.
+     */
+    @Override
+    public synchronized boolean tryAcquire() {
+        long now = clock.getAsLong();
+        if (tokens > 0 && now < tokensExpireAt) {
+            tokens--;
+            return true;
+        }
+
+        tokens = 0;
+        if (now < nextRoundTripAt) {
+            return false;
+        }
+
+        int taken = take(now);
+        if (taken == 0) {
+            return false;
+        }
+
+        tokens = taken - 1;
+        tokensExpireAt = now + batchMillis;
+        return true;
+    }
+
+    /**
+     * Gets the time until a token is available, without reaching the database.
+     *
+     * @return  The time until a token is available in nanoseconds, 0 if one is available now or the database must be
+     *          reached to find out.
+     */
+    @Override
+    public synchronized long nanosUntilAvailable() {
+        long now = clock.getAsLong();
+        if (tokens > 0 && now < tokensExpireAt) {
+            return 0;
+        }
+
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, nextRoundTripAt - now));
+    }
+
+    /**
+     * Closes the database connection.
+     */
+    @Override
+    public synchronized void close() {
+        if (engine != null) {
+            DatabaseUtils.closeDbConnection(engine);
+            engine = null;
+        }
+    }
+
+    /**
+     * Takes up to a batch of tokens from the bucket.
+     * <p/>
+     * When no token is available, the next round trip is delayed until the bucket is expected to hold one.
+     *
+     * @param now   The current time, in epoch milliseconds.
+     * @return      The number of tokens taken.
+     */
+    private int take(long now) {
+        try {
+            if (engine == null) {
+                engine = DatabaseUtils.initializeDbConnection(databaseFile);
+            }
+
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                List<Map<String, ResultColumn>> rows = engine.query(select(all())
+                        .from(table(SurveyEntities.RATE_LIMIT_TABLE))
+                        .where(eq(column(SurveyEntities.RATE_LIMIT_ACCOUNT), k(accountSID))));
+
+                if (rows.isEmpty()) {
+                    if (create(now)) {
+                        return 1;
+                    }
+                    continue;
+                }
+
+                Map<String, ResultColumn> bucket = rows.get(0);
+                long elapsed = Math.max(0, now - bucket.get(SurveyEntities.RATE_LIMIT_UPDATED).toLong());
+                double available = Math.min(capacity, bucket.get(SurveyEntities.RATE_LIMIT_TOKENS).toDouble() + elapsed * tokensPerMilli);
+                int taken = (int) Math.min(batchSize, Math.floor(available));
+                if (taken == 0) {
+                    nextRoundTripAt = now + (long) Math.ceil((1 - available) / tokensPerMilli);
+                    return 0;
+                }
+
+                long version = bucket.get(SurveyEntities.RATE_LIMIT_VERSION).toLong();
+                if (engine.executeUpdate(update(table(SurveyEntities.RATE_LIMIT_TABLE))
+                        .set(
+                                eq(column(SurveyEntities.RATE_LIMIT_TOKENS), k(available - taken)),
+                                eq(column(SurveyEntities.RATE_LIMIT_UPDATED), k(now)),
+                                eq(column(SurveyEntities.RATE_LIMIT_VERSION), k(version + 1))
+                        )
+                        .where(and(
+                                eq(column(SurveyEntities.RATE_LIMIT_ACCOUNT), k(accountSID)),
+                                eq(column(SurveyEntities.RATE_LIMIT_VERSION), k(version))
+                        ))) > 0) {
+                    return taken;
+                }
+            }
+
+            logger.debug("The rate limit of account {} is contended, retrying.", accountSID);
+            nextRoundTripAt = now + (long) Math.ceil(1 / tokensPerMilli);
+            return 0;
+        } catch (DatabaseFactoryException | DatabaseEngineException | RuntimeException e) {
+            logger.warn("Unable to reach the rate limit of account {}, not queuing calls on it for now.", accountSID, e);
+            close();
+            nextRoundTripAt = now + ERROR_BACKOFF_MILLIS;
+            return 0;
+        }
+    }
+
+    /**
+     * Creates the bucket of the account holding a single token, taking it right away.
+     *
+     * @param now   The current time, in epoch milliseconds.
+     * @return      {@code true} if the bucket was created, {@code false} if another process created it first.
+     */
+    private boolean create(long now) {
+        try {
+            engine.persist(SurveyEntities.RATE_LIMIT_TABLE, entry()
+                    .set(SurveyEntities.RATE_LIMIT_ACCOUNT, accountSID)
+                    .set(SurveyEntities.RATE_LIMIT_TOKENS, 0d)
+                    .set(SurveyEntities.RATE_LIMIT_UPDATED, now)
+                    .set(SurveyEntities.RATE_LIMIT_VERSION, 0L)
+                    .build());
+            return true;
+        } catch (DatabaseEngineException e) {
+            logger.debug("The rate limit of account {} was created by another process.", accountSID, e);
+            return false;
+        }
+    }
+}
@@ -31,18 +31,44 @@ import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
 import com.motionizr.percenseo.commons.CallResult;
 import com.motionizr.percenseo.commons.CallStatus;
 import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.FlightEvents;
+import com.motionizr.percenseo.commons.LatencyHistogram;
+import com.motionizr.percenseo.commons.Metrics;
+import com.motionizr.percenseo.commons.PhoneNumbers;
+import com.motionizr.percenseo.commons.SuppressionList;
 import com.motionizr.percenseo.commons.SurveyEntities;
 import com.twilio.sdk.TwilioRestException;
+import com.twilio.sdk.resource.instance.Call;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -53,6 +79,13 @@ import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
  * </p>
  * Supports multiple runs. Makes sure that survey members that were successfully contacted in previous runs are not contacted again.
  * Does this by consulting previous call results in the database.
+ * </p>
+ * The calls are queued by a pool of workers limited to the configured dial concurrency, sharing the persistent
+ * connections of the {@link Dialer}. A campaign can be split across processes, each dialing the shard of the
+ * numbers it holds a {@link ShardLease lease} on. Numbers can be restricted to the calling window of their time zone,
+ * and the calls can be paced by their outcomes to hold a number of live calls. While running, the campaign can be
+ * paused, resumed, cancelled or have its rate and concurrency changed through its {@link CampaignControl control},
+ * which is registered as an MXBean.
  *
  * @author Miguel Bento (migueljbento@gmail.com)
  * @version 1.0.0
@@ -64,6 +97,108 @@ public class SurveyOrchestrator {
      */
     private static final Logger logger = LoggerFactory.getLogger(SurveyOrchestrator.class);
 
+    /**
+     * The longest time to wait for a calling window to open or a retry to be due before checking again.
+     */
+    private static final long MAX_IDLE_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * The most numbers of the survey read ahead into the {@link CallingScheduler calling scheduler} while some of them
+     * are within the calling window.
+     */
+    static final int MAX_SCHEDULED_NUMBERS = 10_000;
+
+    /**
+     * The position of the numbers that are not tracked by the {@link ShardProgress shard progress}.
+     */
+    private static final long NO_POSITION = -1;
+
+    /**
+     * The JMX domain the {@link CampaignControl campaign controls} are registered under.
+     */
+    public static final String CONTROL_DOMAIN = "com.motionizr.percenseo";
+
+    /**
+     * The label of the metrics of a campaign.
+     */
+    private static final String CAMPAIGN_LABEL = "campaign";
+
+    /**
+     * The name of the gauge of the numbers handed to the workers.
+     */
+    private static final String PENDING_NUMBERS = "percenseo_pending_numbers";
+
+    /**
+     * The name of the gauge of the calls being queued.
+     */
+    private static final String ACTIVE_DIALS = "percenseo_active_dials";
+
+    /**
+     * The name of the gauge of the numbers waiting for their calling window.
+     */
+    private static final String SCHEDULED_NUMBERS = "percenseo_scheduled_numbers";
+
+    /**
+     * The name of the gauge of the numbers waiting for a retry.
+     */
+    private static final String QUEUED_RETRIES = "percenseo_queued_retries";
+
+    /**
+     * The name of the gauge of the {@link CircuitBreaker.State state} of the circuit breaker, by ordinal.
+     */
+    private static final String CIRCUIT_STATE = "percenseo_circuit_state";
+
+    /**
+     * The name of the gauge of the rate of failed calls seen by the circuit breaker.
+     */
+    private static final String CIRCUIT_FAILURE_RATE = "percenseo_circuit_failure_rate";
+
+    /**
+     * The name of the gauge of the rate of slow calls seen by the circuit breaker.
+     */
+    private static final String CIRCUIT_SLOW_CALL_RATE = "percenseo_circuit_slow_call_rate";
+
+    /**
+     * The name of the counter of the times the circuit breaker opened.
+     */
+    private static final String CIRCUIT_OPENED = "percenseo_circuit_opened_total";
+
+    /**
+     * The number of calls queued per {@link CallStatus status}, indexed by the status ordinal.
+     */
+    private static final LongAdder[] DIAL_OUTCOMES = new LongAdder[CallStatus.values().length];
+
+    /**
+     * The number of survey numbers read.
+     */
+    private static final LongAdder NUMBERS_READ = Metrics.getDefault().counter("percenseo_numbers_read_total",
+            "Survey numbers read from the configuration or the numbers CSV.");
+
+    /**
+     * The number of survey numbers skipped because they are on the suppression list.
+     */
+    private static final LongAdder SUPPRESSED_NUMBERS = Metrics.getDefault().counter("percenseo_suppressed_numbers_total",
+            "Numbers of the surveys skipped because they are on the suppression list.");
+
+    /**
+     * The number of survey numbers skipped because they could not be checked against the suppression list.
+     */
+    private static final LongAdder UNCHECKED_NUMBERS = Metrics.getDefault().counter("percenseo_unchecked_numbers_total",
+            "Numbers of the surveys skipped because they are not valid phone numbers to check against the suppression list.");
+
+    /**
+     * The time taken to read a numbers CSV, in nanoseconds.
+     */
+    private static final LatencyHistogram CSV_READ_LATENCY = Metrics.getDefault().latency("percenseo_csv_read_seconds",
+            "Time taken to read a numbers CSV.");
+
+    static {
+        for (CallStatus status : CallStatus.values()) {
+            DIAL_OUTCOMES[status.ordinal()] = Metrics.getDefault().counter("percenseo_dial_outcomes_total",
+                    "Calls queued by status.", "status", status.getDesc());
+        }
+    }
+
     /**
      * The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
      */
@@ -74,19 +209,130 @@ public class SurveyOrchestrator {
      */
     private Dialer dialer;
 
+    /**
+     * Pauses the calls while the Twilio API is degraded.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Pauses, resumes or cancels the campaign and changes its rate and concurrency.
+     */
+    private final CampaignControl control;
+
     /**
      * The database connection.
      */
     private DatabaseEngine engine;
 
+    /**
+     * Stores the results of the queued calls.
+     */
+    private CallResultWriter resultWriter;
+
+    /**
+     * The lease on the shard of the numbers dialed, {@code null} if every number is dialed.
+     */
+    private ShardLease shardLease;
+
+    /**
+     * Reads the states of the numbers for the components that follow them, {@code null} if none does.
+     */
+    private NumberStateFeed numberStates;
+
+    /**
+     * Dials the numbers whose calls did not complete again, {@code null} without a retry policy.
+     */
+    private RetryScheduler retries;
+
+    /**
+     * Paces the calls by their outcomes, {@code null} if only the account rates apply.
+     */
+    private CallPacer pacer;
+
+    /**
+     * Tells the numbers completed previously, {@code null} when they are all read into memory.
+     */
+    private CompletedFilter completedFilter;
+
+    /**
+     * The filter of the numbers completed kept open across surveys, {@code null} if each run opens its own.
+     */
+    private final CompletedFilter sharedCompletedFilter;
+
+    /**
+     * The number of survey numbers of this run skipped because they are on the suppression list.
+     */
+    private final LongAdder suppressed = new LongAdder();
+
     /**
      * Creates a new instance of {@link SurveyOrchestrator}.
      *
      * @param configuration     The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
      */
     public SurveyOrchestrator(SurveyConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * Creates a new instance of {@link SurveyOrchestrator} queueing the calls on the accounts of a pool shared with
+     * other campaigns.
+     *
+     * @param configuration     The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param pool              The {@link AccountPool}, {@code null} to set up the configured accounts.
+     */
+    public SurveyOrchestrator(SurveyConfiguration configuration, AccountPool pool) {
+        this(configuration, pool, null);
+    }
+
+    /**
+     * Creates a new instance of {@link SurveyOrchestrator} queueing the calls on the accounts of a pool shared with
+     * other campaigns and telling the numbers completed previously with a filter kept open across surveys.
+     *
+     * @param configuration     The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param pool              The {@link AccountPool}, {@code null} to set up the configured accounts.
+     * @param completedFilter   The {@link CompletedFilter}, {@code null} to open one for each run. Left open.
+     */
+    public SurveyOrchestrator(SurveyConfiguration configuration, AccountPool pool, CompletedFilter completedFilter) {
         this.configuration = configuration;
-        this.dialer = new Dialer(configuration);
+        this.sharedCompletedFilter = completedFilter;
+        this.dialer = pool != null ? new Dialer(configuration, pool) : new Dialer(configuration);
+        this.circuitBreaker = new CircuitBreaker(
+                configuration.getCircuitWindowSize(),
+                configuration.getCircuitFailureRate(),
+                configuration.getCircuitSlowCall(),
+                configuration.getCircuitSlowCallRate(),
+                configuration.getCircuitOpenDuration(),
+                configuration.getCircuitProbes()
+        );
+        this.control = new CampaignControl(configuration.getCampaign(), configuration.getDialConcurrency(),
+                configuration.getMaxConnections());
+    }
+
+    /**
+     * Gets the circuit breaker guarding the calls to the Twilio API. Its state is also reported through the
+     * {@link Metrics metrics} while the calls are queued.
+     *
+     * @return  The circuit breaker.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Gets the control of the campaign, to pause, resume or cancel it and change its rate and concurrency.
+     *
+     * @return  The {@link CampaignControl campaign control}.
+     */
+    public CampaignControl getControl() {
+        return control;
+    }
+
+    /**
+     * Releases the accounts of a survey that is not going to be executed, or gives up its turn on them if they are
+     * shared with other campaigns. Does nothing once the survey was executed, which releases them when over.
+     */
+    public void close() {
+        dialer.close();
     }
 
     /**
@@ -94,44 +340,156 @@ public class SurveyOrchestrator {
      * </p>
      * Queues all the calls and gathers feedback over what calls were successfully queued and which failed.
      *
-     * @return  A stream containing the {@link CallResult result} of the calls.
+     * @return  The number of calls queued per {@link CallStatus status}, empty if the survey could not be executed.
      */
-    public Stream<CallResult> execute() {
-        logger.info("Starting the survey.");
+    public Map<CallStatus, Long> execute() {
+        logger.info("Starting the survey for campaign {}.", configuration.getCampaign());
+        Metrics.getDefault().registerMBean();
+        ObjectName controlName = registerControl();
 
         try {
             engine = DatabaseUtils.initializeDbConnection(configuration.getDatabaseFile());
             logger.debug("Database connection initialized");
 
-            final List<String> callsAlreadyCompleted = getCallsAlreadyCompleted();
-            logger.debug("Got {} calls made previously.", callsAlreadyCompleted.size());
+            if (configuration.isReconciliationEnabled()) {
+                reconcileCalls();
+            }
+
+            if (configuration.getRetryPolicy() != null || configuration.isAdaptivePacing() ||
+                    configuration.isCompletedFilterEnabled()) {
+                numberStates = new NumberStateFeed(configuration);
+                numberStates.open();
+            }
+
+            final Predicate<String> callsAlreadyCompleted = openCompletedFilter() ? completedFilter::contains :
+                    getCallsAlreadyCompleted()::contains;
+
+            if (configuration.getSuppressionList() != null) {
+                logger.debug("Skipping the {} numbers of the suppression list.", configuration.getSuppressionList().size());
+            }
 
             Stream<String> surveyNumbers = getInputSurveyNumbers();
             logger.debug("Got submitted survey numbers.");
 
-            logger.debug("Queueing the phone calls");
-            Stream<CallResult> results = queuePhoneCalls(surveyNumbers, callsAlreadyCompleted);
+            if (configuration.isSharded()) {
+                shardLease = new ShardLease(configuration);
+                if (!shardLease.acquire()) {
+                    DatabaseUtils.closeDbConnection(engine);
+                    return new EnumMap<>(CallStatus.class);
+                }
+                surveyNumbers = shardLease.select(surveyNumbers);
+            }
+
+            if (configuration.getRetryPolicy() != null) {
+                retries = new RetryScheduler(configuration, numberStates, number -> isOwned(number) && !isSuppressed(number));
+                retries.load();
+            }
 
-            Map<CallStatus, Long> groupedResults = results.collect(Collectors.groupingByConcurrent(CallResult::getStatus, Collectors.counting()));
+            if (configuration.isAdaptivePacing()) {
+                pacer = new CallPacer(configuration, numberStates);
+                pacer.open();
+            }
+
+            logger.debug("Warming up the connections to the Twilio API.");
+            dialer.warmUp();
+
+            logger.debug("Queueing the phone calls");
+            resultWriter = new CallResultWriter(engine);
+            Map<CallStatus, Long> groupedResults = queuePhoneCalls(surveyNumbers, callsAlreadyCompleted);
+            resultWriter.flush();
+            if (shardLease != null && !shardLease.isLost() && !control.isCancelled()) {
+                shardLease.finish();
+            }
             logger.info("Successfully queued {} phone calls. There were {} failures.",
                     groupedResults.getOrDefault(CallStatus.QUEUED, 0L),
                     groupedResults.getOrDefault(CallStatus.FAILED, 0L)
             );
+            if (configuration.getSuppressionList() != null) {
+                logger.info("Skipped {} numbers on the suppression list.", suppressed.sum());
+            }
+            if (circuitBreaker.getTimesOpened() > 0) {
+                logger.info("Calls were paused {} times while the Twilio API was degraded.", circuitBreaker.getTimesOpened());
+            }
 
             DatabaseUtils.closeDbConnection(engine);
             logger.debug("Database connection closed");
 
-            logger.info("Survey ended.");
-            return results;
+            logger.info(control.isCancelled() ? "Survey cancelled." : "Survey ended.");
+            return groupedResults;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while queueing the phone calls.", e);
         } catch (IOException e) {
             logger.error("An exception occurred trying to read the numbers CSV.", e);
         } catch (DatabaseEngineException e) {
             logger.error("An exception occurred trying to execute a database query.", e);
         } catch (DatabaseFactoryException e) {
             logger.error("An exception occurred trying to initialize the database.", e);
+        } finally {
+            if (resultWriter != null) {
+                resultWriter.close();
+            }
+            if (completedFilter != null && completedFilter != sharedCompletedFilter) {
+                completedFilter.close();
+            }
+            if (numberStates != null) {
+                numberStates.close();
+            }
+            if (shardLease != null) {
+                shardLease.close();
+            }
+            dialer.close();
+            unregisterControl(controlName);
         }
 
-        return Stream.empty();
+        return new EnumMap<>(CallStatus.class);
+    }
+
+    /**
+     * Registers the {@link CampaignControl control} of the campaign as an MXBean named after the campaign.
+     * Failures are logged, the campaign then runs without being controllable through JMX.
+     *
+     * @return  The name the control was registered with, {@code null} if it was not registered.
+     */
+    private ObjectName registerControl() {
+        try {
+            ObjectName name = new ObjectName(CONTROL_DOMAIN, "campaign", ObjectName.quote(configuration.getCampaign()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(control, name);
+            return name;
+        } catch (JMException e) {
+            logger.warn("Unable to register the control of campaign {} with JMX: {}", configuration.getCampaign(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Unregisters the {@link CampaignControl control} of the campaign.
+     *
+     * @param name  The name the control was registered with, {@code null} if it was not registered.
+     */
+    private void unregisterControl(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            logger.warn("Unable to unregister the control of campaign {} from JMX: {}", configuration.getCampaign(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reconciles the calls of previous runs that never received a status callback, so they are not dialed again if they were completed.
+     * </p>
+     * Failures are logged and do not prevent the survey from running.
+     */
+    private void reconcileCalls() {
+        try {
+            new CallReconciler(configuration, engine).reconcile();
+        } catch (TwilioRestException | DatabaseEngineException | RuntimeException e) {
+            logger.warn("Unable to reconcile the calls without a final status, carrying on with the survey.", e);
+        }
     }
 
     /**
@@ -139,64 +497,565 @@ public class SurveyOrchestrator {
      */
     private Stream<String> getInputSurveyNumbers() throws IOException{
         if (!configuration.isFileBased()) {
-            return configuration.getNumbers().stream();
+            return configuration.getNumbers().stream().peek(number -> NUMBERS_READ.increment());
         } else {
-            try (CSVParser parser = CSVParser.parse(new File(configuration.getNumbersCSV()), Charset.defaultCharset(), CSVFormat.EXCEL)) {
-                return parser.getRecords().stream()
-                        .map(record -> record.get(0));
+            long start = System.nanoTime();
+            NumbersReadEvent event = FlightEvents.ENABLED ?
+                    new NumbersReadEvent(configuration.getNumbersCSV(), configuration.getCampaign()) : null;
+            try (Reader reader = Files.newBufferedReader(Paths.get(configuration.getNumbersCSV()), Charset.defaultCharset())) {
+                return parseNumbersCSV(reader, event).peek(number -> NUMBERS_READ.increment());
+            } finally {
+                CSV_READ_LATENCY.record(System.nanoTime() - start);
+                if (event != null) {
+                    event.commit();
+                }
             }
         }
     }
 
     /**
-     * Fetches the list of calls that were previously made with {@link com.motionizr.percenseo.commons.CallStatus#COMPLETED} from the database.
+     * Parses the numbers of a survey from a CSV with the number in the first column.
+     *
+     * @param reader        The reader of the CSV.
+     * @return              The numbers.
+     * @throws IOException  If an error occurs reading the CSV.
+     */
+    static Stream<String> parseNumbersCSV(Reader reader) throws IOException {
+        return parseNumbersCSV(reader, null);
+    }
+
+    /**
+     * Parses the numbers of a survey from a CSV with the number in the first column, recording what was read in a
+     * Flight Recorder event.
+     *
+     * @param reader        The reader of the CSV.
+     * @param event         The {@link NumbersReadEvent event} of the read, {@code null} if not recording.
+     * @return              The numbers.
+     * @throws IOException  If an error occurs reading the CSV.
+     */
+    private static Stream<String> parseNumbersCSV(Reader reader, NumbersReadEvent event) throws IOException {
+        try (CSVParser parser = new CSVParser(reader, CSVFormat.EXCEL)) {
+            List<CSVRecord> records = parser.getRecords();
+            if (event != null) {
+                event.numbers = records.size();
+                event.number = records.isEmpty() ? null : records.get(0).get(0);
+            }
+            return records.stream()
+                    .map(record -> record.get(0));
+        }
+    }
+
+    /**
+     * Filters the numbers that still need to be called, adding the international prefix if one is configured.
+     *
+     * @param surveyNumbers         The numbers submitted to the survey.
+     * @param internationalPrefix   The international prefix, {@code null} if none is configured.
+     * @param callsAlreadyCompleted The numbers that were already contacted with success.
+     * @return                      The numbers to call.
+     */
+    static Stream<String> pendingNumbers(Stream<String> surveyNumbers, String internationalPrefix, Set<String> callsAlreadyCompleted) {
+        return pendingNumbers(surveyNumbers, internationalPrefix, callsAlreadyCompleted::contains, number -> false);
+    }
+
+    /**
+     * Filters the numbers that still need to be called and are not suppressed, adding the international prefix if one
+     * is configured.
      *
-     * @return                          The list of calls that were previously made with {@link com.motionizr.percenseo.commons.CallStatus#COMPLETED} from the database.
+     * @param surveyNumbers         The numbers submitted to the survey.
+     * @param internationalPrefix   The international prefix, {@code null} if none is configured.
+     * @param callsAlreadyCompleted Selects the numbers that were already contacted with success, with the international prefix.
+     * @param suppressed            Selects the numbers that must not be called, with the international prefix.
+     * @return                      The numbers to call.
+     */
+    static Stream<String> pendingNumbers(Stream<String> surveyNumbers, String internationalPrefix, Predicate<String> callsAlreadyCompleted,
+                                         Predicate<String> suppressed) {
+        Stream<String> internationalSurveyNumbers = internationalPrefix != null ?
+                surveyNumbers.map(number -> internationalPrefix + number) :
+                surveyNumbers;
+
+        return internationalSurveyNumbers
+                .filter(callsAlreadyCompleted.negate())
+                .filter(suppressed.negate());
+    }
+
+    /**
+     * Fetches the numbers of the calls of this campaign that were previously made with {@link com.motionizr.percenseo.commons.CallStatus#COMPLETED} from the database.
+     * </p>
+     * Only the campaign index is used, so the cost depends on the size of the campaign and not on the whole history.
+     *
+     * @return                          The numbers of the calls that were previously made with {@link com.motionizr.percenseo.commons.CallStatus#COMPLETED} from the database.
      * @throws DatabaseEngineException  If an error occurs fetching the calls from the database.
      */
-    private List<String> getCallsAlreadyCompleted() throws DatabaseEngineException{
+    private Set<String> getCallsAlreadyCompleted() throws DatabaseEngineException{
         List<Map<String, ResultColumn>> results = engine.query(
                 select(column(SurveyEntities.CALL_RESULT_TO))
                 .from(table(SurveyEntities.CALL_RESULT_TABLE))
-                .where(eq(column(SurveyEntities.CALL_RESULT_STATUS), k(CallStatus.COMPLETED.getInternalCode())))
+                .where(and(
+                        eq(column(SurveyEntities.CALL_RESULT_CAMPAIGN), k(configuration.getCampaign())),
+                        eq(column(SurveyEntities.CALL_RESULT_STATUS), k(CallStatus.COMPLETED.getInternalCode()))
+                ))
         );
 
-        return results.stream()
+        Set<String> completed = results.stream()
                 .map(entry -> entry.get(SurveyEntities.CALL_RESULT_TO).toString())
-                .collect(Collectors.toList());
+                .collect(Collectors.toSet());
+        logger.debug("Got {} calls made previously.", completed.size());
+        return completed;
+    }
+
+    /**
+     * Opens the {@link CompletedFilter filter} of the numbers completed previously, if enabled.
+     * </p>
+     * Failures to use the filter file are logged, the numbers completed are then all read into memory.
+     *
+     * @return                          {@code true} if the filter is open, {@code false} otherwise.
+     * @throws DatabaseFactoryException If an error occurs getting the database connection.
+     * @throws DatabaseEngineException  If an error occurs reading the numbers completed.
+     */
+    private boolean openCompletedFilter() throws DatabaseFactoryException, DatabaseEngineException {
+        if (!configuration.isCompletedFilterEnabled()) {
+            return false;
+        }
+
+        completedFilter = sharedCompletedFilter != null ? sharedCompletedFilter : new CompletedFilter(configuration);
+        try {
+            completedFilter.open(numberStates);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Unable to use the filter of the numbers completed, reading them all instead.", e);
+            completedFilter.close();
+            completedFilter = null;
+            return false;
+        }
+    }
+
+
+    /**
+     * Checks whether a number is on the suppression list.
+     *
+     * @param number    The number, with the international prefix if one is configured.
+     * @return          {@code true} if the number must not be called, {@code false} otherwise.
+     */
+    private boolean isSuppressed(String number) {
+        return isSuppressed(configuration.getSuppressionList(), number);
+    }
+
+    /**
+     * Checks whether a number is on a suppression list.
+     * <p/>
+     * Numbers that are not valid phone numbers can't be looked up, so they are treated as suppressed rather than risk
+     * calling a number that asked not to be called. They are counted and logged.
+     *
+     * @param suppressionList   The {@link SuppressionList suppression list}, {@code null} if none is configured.
+     * @param number            The number, with the international prefix if one is configured.
+     * @return                  {@code true} if the number must not be called, {@code false} otherwise.
+     */
+    static boolean isSuppressed(SuppressionList suppressionList, String number) {
+        if (suppressionList == null) {
+            return false;
+        }
+
+        long key;
+        try {
+            key = PhoneNumbers.toLong(number);
+        } catch (IllegalArgumentException e) {
+            key = PhoneNumbers.NO_NUMBER;
+        }
+
+        if (key == PhoneNumbers.NO_NUMBER) {
+            UNCHECKED_NUMBERS.increment();
+            logger.warn("Skipping {} as it is not a valid phone number to check against the suppression list.", number);
+            return true;
+        }
+        return suppressionList.contains(key);
     }
 
+    /**
+     * Checks whether a number of the survey is on the suppression list, counting it if it is.
+     *
+     * @param number    The number, with the international prefix if one is configured.
+     * @return          {@code true} if the number must not be called, {@code false} otherwise.
+     */
+    private boolean suppress(String number) {
+        if (!isSuppressed(number)) {
+            return false;
+        }
+
+        suppressed.increment();
+        SUPPRESSED_NUMBERS.increment();
+        return true;
+    }
+
+    /**
+     * Checks whether a number is dialed by this process, when the numbers are split across processes.
+     *
+     * @param number    The number, with the international prefix if one is configured.
+     * @return          {@code true} if the number belongs to the shard dialed by this process or every number is dialed.
+     */
+    private boolean isOwned(String number) {
+        if (shardLease == null) {
+            return true;
+        }
+
+        String submitted = configuration.isPrefixConfigured() && number.startsWith(configuration.getInternationalPrefix()) ?
+                number.substring(configuration.getInternationalPrefix().length()) : number;
+        return ShardLease.shardOf(submitted, configuration.getShardCount()) == configuration.getShardId();
+    }
 
     /**
      * Uses the {@link Dialer dialer} to queue the survey calls.
+     * </p>
+     * The numbers are handed to a fixed pool of workers, one per connection so the dial concurrency can be raised up to
+     * the number of connections while running. At most twice as many numbers as workers are pending at any time, so a
+     * large survey does not pile up in memory while the calls are queued. When dialing a shard, no more numbers are
+     * handed out once the lease on the shard is lost. No more numbers are handed out once the campaign is cancelled.
+     * </p>
+     * With a calling window, the numbers are read ahead into a {@link CallingScheduler} by time zone and handed out
+     * while their time zone is within the window, see {@link #schedule(CallingScheduler, Iterator, ShardProgress)}.
+     * With a retry policy, only the numbers never dialed are taken from the
+     * survey, the others are handed out by the {@link RetryScheduler} once due, and the survey carries on until no
+     * retry is left.
      *
      * @param surveyNumbers         The numbers that should be contacted.
-     * @param callsAlreadyCompleted The numbers that were already contacted with success.
-     * @return                      A stream containing each and every {@link com.motionizr.percenseo.commons.CallResult call result}.
+     * @param callsAlreadyCompleted Selects the numbers that were already contacted with success.
+     * @return                      The number of {@link com.motionizr.percenseo.commons.CallResult call results} per {@link CallStatus status}.
+     * @throws InterruptedException If interrupted while waiting for the workers.
      */
-    private Stream<CallResult> queuePhoneCalls(final Stream<String> surveyNumbers, final List<String> callsAlreadyCompleted) {
-        Stream<String> internationalSurveyNumbers = configuration.isPrefixConfigured() ?
-                surveyNumbers.map(number -> configuration.getInternationalPrefix() + number) :
-                surveyNumbers;
+    private Map<CallStatus, Long> queuePhoneCalls(final Stream<String> surveyNumbers, final Predicate<String> callsAlreadyCompleted) throws InterruptedException {
+        final int concurrency = configuration.getMaxConnections();
+        final ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        final Semaphore pending = new Semaphore(concurrency * 2);
+        final ConcurrentMap<CallStatus, LongAdder> outcomes = new ConcurrentHashMap<>();
+        final ShardProgress progress = shardLease != null ? shardLease.getProgress() : null;
+        final String campaign = configuration.getCampaign();
+        Metrics.getDefault().gauge(PENDING_NUMBERS, "Numbers handed to the workers and not dialed yet.",
+                CAMPAIGN_LABEL, campaign, () -> concurrency * 2 - pending.availablePermits());
+        Metrics.getDefault().gauge(ACTIVE_DIALS, "Calls being queued on the Twilio API.",
+                CAMPAIGN_LABEL, campaign, control::getActiveDials);
+        if (retries != null) {
+            Metrics.getDefault().gauge(QUEUED_RETRIES, "Numbers waiting for a retry.",
+                    CAMPAIGN_LABEL, campaign, retries::queuedRetries);
+        }
+        Metrics.getDefault().gauge(CIRCUIT_STATE, "State of the circuit breaker guarding the Twilio API: 0 closed, 1 open, 2 half open.",
+                CAMPAIGN_LABEL, campaign, () -> circuitBreaker.getState().ordinal());
+        Metrics.getDefault().gauge(CIRCUIT_FAILURE_RATE, "Rate of failed calls to the Twilio API in the window of the circuit breaker.",
+                CAMPAIGN_LABEL, campaign, circuitBreaker::getFailureRate);
+        Metrics.getDefault().gauge(CIRCUIT_SLOW_CALL_RATE, "Rate of slow calls to the Twilio API in the window of the circuit breaker.",
+                CAMPAIGN_LABEL, campaign, circuitBreaker::getSlowCallRate);
+        Metrics.getDefault().counter(CIRCUIT_OPENED, "Times the calls were paused because the Twilio API was degraded.",
+                CAMPAIGN_LABEL, campaign, circuitBreaker::getTimesOpened);
+
+        Iterator<String> numbers = pendingNumbers(surveyNumbers,
+                configuration.isPrefixConfigured() ? configuration.getInternationalPrefix() : null,
+                callsAlreadyCompleted, this::suppress).iterator();
+
+        try {
+            CallingScheduler scheduler = null;
+            if (configuration.isCallingWindowEnabled()) {
+                scheduler = new CallingScheduler(configuration.getCallingZones(),
+                        configuration.getCallingWindowStart(), configuration.getCallingWindowEnd());
+                Metrics.getDefault().gauge(SCHEDULED_NUMBERS, "Numbers waiting for the calling window of their time zone.",
+                        CAMPAIGN_LABEL, campaign, scheduler::size);
+                schedule(scheduler, numbers, progress);
+                logger.info("Calling {} numbers read so far across {} time zones between {} and {} local time.",
+                        scheduler.size(), scheduler.zoneCount(), configuration.getCallingWindowStart(),
+                        configuration.getCallingWindowEnd());
+            }
 
-        return internationalSurveyNumbers.filter(number -> !callsAlreadyCompleted.contains(number))
-                        .map(this::handleDialResult);
+            while (!isShardLost() && !control.isCancelled()) {
+                if (numberStates != null) {
+                    numberStates.poll();
+                }
+                if (retries != null) {
+                    retries.refresh();
+                    for (String number = retries.pollDue(); number != null; number = retries.pollDue()) {
+                        if (scheduler != null) {
+                            scheduler.add(number, NO_POSITION);
+                        } else {
+                            dispatch(workers, pending, outcomes, null, number, NO_POSITION);
+                        }
+                    }
+                }
+
+                if (scheduler != null) {
+                    schedule(scheduler, numbers, progress);
+                    CallingScheduler.Entry entry = scheduler.poll();
+                    if (entry != null) {
+                        dispatch(workers, pending, outcomes, entry.position != NO_POSITION ? progress : null, entry.number, entry.position);
+                        continue;
+                    }
+                } else if (numbers.hasNext()) {
+                    String number = numbers.next();
+                    if (retries == null || retries.admit(number)) {
+                        dispatch(workers, pending, outcomes, progress, number, progress != null ? progress.begin() : NO_POSITION);
+                    }
+                    continue;
+                }
+
+                if ((scheduler == null || scheduler.isEmpty() && !numbers.hasNext()) && (retries == null || retries.isDone())) {
+                    break;
+                }
+
+                long wait = Math.min(scheduler != null ? scheduler.millisUntilOpen() : Long.MAX_VALUE,
+                        retries != null ? retries.millisUntilDue() : Long.MAX_VALUE);
+                logger.debug("No number to call right now, waiting {} ms.", wait);
+                TimeUnit.MILLISECONDS.sleep(Math.min(wait, MAX_IDLE_MILLIS));
+            }
+        } finally {
+            workers.shutdown();
+        }
+
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            for (String metric : new String[]{PENDING_NUMBERS, ACTIVE_DIALS, SCHEDULED_NUMBERS, QUEUED_RETRIES,
+                    CIRCUIT_STATE, CIRCUIT_FAILURE_RATE, CIRCUIT_SLOW_CALL_RATE, CIRCUIT_OPENED}) {
+                Metrics.getDefault().remove(metric, CAMPAIGN_LABEL, campaign);
+            }
+        }
+
+        return outcomes.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum(),
+                        (first, second) -> first + second, () -> new EnumMap<>(CallStatus.class)));
     }
 
     /**
-     * Handles the result of a dial operation.
+     * Reads numbers of the survey into the {@link CallingScheduler calling scheduler}, up to
+     * {@link #MAX_SCHEDULED_NUMBERS}. Past that, numbers are only read while none of the ones read is within the
+     * calling window, to find one that is, so a survey ordered by time zone can still run through all its numbers.
      * </p>
-     * Converts from the API call result to a {@link CallResult call result} object.
+     * Each number read starts in the {@link ShardProgress shard progress}, so the checkpoint stays at the oldest number
+     * waiting for its window and a process taking over the shard may dial again any number read after it. Bounding the
+     * numbers read ahead bounds the memory they take as well as the numbers dialed again after a takeover, at the cost
+     * of not seeing the numbers further in the survey of a time zone that opens meanwhile.
+     *
+     * @param scheduler The {@link CallingScheduler calling scheduler}.
+     * @param numbers   The numbers of the survey left to read.
+     * @param progress  The {@link ShardProgress shard progress}, {@code null} if not dialing a shard.
+     */
+    private void schedule(CallingScheduler scheduler, Iterator<String> numbers, ShardProgress progress) {
+        while ((scheduler.size() < MAX_SCHEDULED_NUMBERS || scheduler.millisUntilOpen() > 0) && numbers.hasNext()) {
+            String number = numbers.next();
+            if (retries == null || retries.admit(number)) {
+                scheduler.add(number, progress != null ? progress.begin() : NO_POSITION);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the lease on the shard being dialed was lost, in which case no more numbers are handed out.
+     *
+     * @return  {@code true} if the lease was lost, {@code false} if it is held or every number is dialed.
+     */
+    private boolean isShardLost() {
+        if (shardLease != null && shardLease.isLost()) {
+            logger.warn("Stopped queueing the phone calls, the lease on shard {} was lost.", configuration.getShardId());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hands a number to the workers, waiting while too many numbers are pending.
      *
-     * @param number    The number to dial.
-     * @return          The {@link CallResult call result}.
+     * @param workers   The workers queueing the calls.
+     * @param pending   The permits of the numbers pending.
+     * @param outcomes  The number of calls queued per {@link CallStatus status}.
+     * @param progress  The progress of the shard, {@code null} if every number is dialed or the number is a retry.
+     *                  Numbers dropped when the campaign is cancelled are not marked as handled.
+     * @param number    The number.
+     * @param position  The position of the number in the shard progress.
      */
-    private CallResult handleDialResult(final String number) {
+    private void dispatch(ExecutorService workers, Semaphore pending, ConcurrentMap<CallStatus, LongAdder> outcomes,
+                          ShardProgress progress, String number, long position) {
+        pending.acquireUninterruptibly();
+        workers.execute(() -> {
+            boolean dialed = false;
+            boolean handled = false;
+            try {
+                CallResult result = null;
+                while (result == null) {
+                    // Paused or cancelled while waiting to dial, holds the number until resumed or drops it.
+                    if (!control.begin()) {
+                        return;
+                    }
+
+                    try {
+                        result = pace(number);
+                    } finally {
+                        control.end();
+                    }
+                }
+
+                if (retries != null) {
+                    int attempts = retries.onDialed(number, result);
+                    dialed = true;
+                    resultWriter.writeAttempt(configuration.getCampaign(), result, attempts);
+                }
+                outcomes.computeIfAbsent(result.getStatus(), key -> new LongAdder()).increment();
+                DIAL_OUTCOMES[result.getStatus().ordinal()].increment();
+                handled = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (progress != null && handled) {
+                    progress.end(position);
+                }
+                if (retries != null && !dialed) {
+                    retries.abandon(number);
+                }
+                pending.release();
+            }
+        });
+    }
+
+    /**
+     * Dials a number once the {@link CallPacer pacer}, if any, allows another live call.
+     *
+     * @param number                The number to dial.
+     * @return                      The {@link CallResult call result}, {@code null} if the campaign was paused or
+     *                              cancelled before the number was dialed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private CallResult pace(final String number) throws InterruptedException {
+        if (pacer == null) {
+            return handleDialResult(number);
+        }
+
+        pacer.acquire();
+        CallResult result = null;
         try {
-            return CallResult.fromCall(dialer.dial(number));
-        } catch (TwilioRestException e) {
-            logger.error("An exception occurred calling {}.", number, e);
-            return CallResult.failedCall(number);
+            result = handleDialResult(number);
+            return result;
+        } finally {
+            pacer.onDialed(result);
+        }
+    }
+
+    /**
+     * Handles the result of a dial operation.
+     * </p>
+     * Converts from the API call result to a {@link CallResult call result} object. Every call goes through the
+     * {@link CircuitBreaker circuit breaker}, so while the Twilio API is degraded the number waits instead of failing.
+     * Only the requests known to be refused before the call was created are retried, i.e. rate limited requests, an
+     * unavailable API and connection failures, so a member is never called twice. Any other error marks the number as
+     * failed, as do the retries once the attempts are exhausted.
+     * </p>
+     * The waits for the pacer, the circuit breaker and an account can be long, so the {@link CampaignControl control}
+     * is checked again right before dialing. The number is not dialed if the campaign was paused or cancelled meanwhile,
+     * and the account and the probe are given back.
+     *
+     * @param number                The number to dial.
+     * @return                      The {@link CallResult call result}, {@code null} if the campaign was paused or
+     *                              cancelled before the number was dialed.
+     * @throws InterruptedException If interrupted while waiting for the Twilio API to recover.
+     */
+    private CallResult handleDialResult(final String number) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            circuitBreaker.acquire();
+            AccountLine line;
+            try {
+                line = dialer.acquireLine();
+            } catch (InterruptedException e) {
+                // Gives the probe back, the circuit would otherwise stay half open without one left.
+                circuitBreaker.onIgnored();
+                throw e;
+            }
+
+            if (!control.isRunning()) {
+                dialer.releaseLine(line);
+                circuitBreaker.onIgnored();
+                return null;
+            }
+
+            long start = System.nanoTime();
+
+            Call call;
+            try {
+                call = dialer.dial(line, number);
+            } catch (TwilioRestException e) {
+                boolean retryable = isTransient(e);
+                if (retryable || isServerError(e)) {
+                    circuitBreaker.onFailure(System.nanoTime() - start);
+                } else {
+                    circuitBreaker.onSuccess(System.nanoTime() - start);
+                }
+
+                if (!retryable) {
+                    logger.warn("Unable to call {}: {} (error {}).", number, e.getErrorMessage(), e.getErrorCode());
+                    return CallResult.failedCall(number);
+                }
+                if (attempt >= configuration.getDialAttempts()) {
+                    logger.warn("Giving up calling {} after {} attempts: {} (error {}).", number, attempt, e.getErrorMessage(), e.getErrorCode());
+                    return CallResult.failedCall(number);
+                }
+                logger.debug("Transient error calling {}: {} (error {}).", number, e.getErrorMessage(), e.getErrorCode());
+                continue;
+            } catch (RuntimeException e) {
+                if (!isConnectFailure(e)) {
+                    // The request may have reached the API and created the call, calling again could call the member twice.
+                    circuitBreaker.onIgnored();
+                    logger.warn("Unable to call {}, not retrying as the call may have been created: {}.", number, e.toString());
+                    return CallResult.failedCall(number);
+                }
+
+                circuitBreaker.onFailure(System.nanoTime() - start);
+                if (attempt >= configuration.getDialAttempts()) {
+                    logger.warn("Giving up calling {} after {} attempts: {}.", number, attempt, e.getMessage());
+                    return CallResult.failedCall(number);
+                }
+                logger.debug("Unable to connect to the Twilio API calling {}: {}.", number, e.getMessage());
+                continue;
+            }
+
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+
+            CallResult result = CallResult.fromCall(call, configuration.getCampaign());
+            resultWriter.write(result);
+            return result;
+        }
+    }
+
+    /**
+     * Checks whether an error of the Twilio API is transient, meaning the call was not created and may succeed later.
+     * </p>
+     * Only requests that were rate limited or refused while the API is unavailable are transient, either as HTTP
+     * statuses or as Twilio error codes. Creating a call is not idempotent, so other server errors are not retried:
+     * the call may have been created before the error.
+     *
+     * @param e The error.
+     * @return  {@code true} if the error is transient, {@code false} otherwise.
+     */
+    static boolean isTransient(TwilioRestException e) {
+        int code = e.getErrorCode();
+        return code == 429 || code == 503 || code == 20429 || code == 20503;
+    }
+
+    /**
+     * Checks whether an error of the Twilio API is a server error, which tells the API is degraded.
+     *
+     * @param e The error.
+     * @return  {@code true} if the error is a server error, {@code false} otherwise.
+     */
+    static boolean isServerError(TwilioRestException e) {
+        int code = e.getErrorCode();
+        return (code >= 500 && code < 600) || code == 20500 || code == 20503;
+    }
+
+    /**
+     * Checks whether a call failed before its request was sent, because no connection to the Twilio API could be
+     * opened. The SDK wraps the I/O errors in runtime exceptions.
+     *
+     * @param e The error.
+     * @return  {@code true} if no connection could be opened, {@code false} if the request may have been sent.
+     */
+    static boolean isConnectFailure(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException ||
+                    cause instanceof UnknownHostException) {
+                return true;
+            }
         }
+        return false;
     }
 }
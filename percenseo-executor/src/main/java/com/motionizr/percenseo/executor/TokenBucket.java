@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket limiting the rate at which calls are queued on an account.
+ * <p/>
+ * Tokens are added continuously at the configured rate up to one second worth of tokens, so short pauses can be made
+ * up for with a burst no larger than what the account allows in a second. Unlike a blocking rate limiter, callers can
+ * check how long until the next token and pick another account in the meantime.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+class TokenBucket implements PermitBucket {
+
+    /**
+     * The number of tokens added per nanosecond.
+     */
+    private final double tokensPerNano;
+
+    /**
+     * The maximum number of tokens stored.
+     */
+    private final double capacity;
+
+    /**
+     * The source of time, in nanoseconds.
+     */
+    private final LongSupplier ticker;
+
+    /**
+     * The number of tokens available.
+     */
+    private double tokens;
+
+    /**
+     * The last time tokens were added.
+     */
+    private long lastRefillNanos;
+
+    /**
+     * Creates a new instance of {@link TokenBucket} holding a single token.
+     *
+     * @param tokensPerSecond   The number of tokens added per second.
+     */
+    TokenBucket(double tokensPerSecond) {
+        this(tokensPerSecond, System::nanoTime);
+    }
+
+    /**
+     * Creates a new instance of {@link TokenBucket} holding a single token, with a given source of time.
+     *
+     * @param tokensPerSecond   The number of tokens added per second.
+     * @param ticker            The source of time, in nanoseconds.
+     */
+    TokenBucket(double tokensPerSecond, LongSupplier ticker) {
+        Preconditions.checkArgument(tokensPerSecond > 0, String.format("Invalid rate: %f", tokensPerSecond));
+
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, tokensPerSecond);
+        this.ticker = ticker;
+        this.tokens = 1;
+        this.lastRefillNanos = ticker.getAsLong();
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return  {@code true} if a token was taken, {@code false} otherwise.
+     */
+    @Override
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Gets the time until a token is available.
+     *
+     * @return  The time until a token is available in nanoseconds, 0 if one is available now.
+     */
+    @Override
+    public synchronized long nanosUntilAvailable() {
+        refill();
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * Adds the tokens accumulated since the last refill.
+     */
+    private void refill() {
+        long now = ticker.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
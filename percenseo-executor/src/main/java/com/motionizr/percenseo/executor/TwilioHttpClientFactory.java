@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpVersion;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Builds the HTTP client used to talk to the Twilio API.
+ * <p/>
+ * The client keeps a pool of persistent connections sized for the configured dial concurrency, so calls are queued
+ * over connections whose TLS handshake already happened instead of being limited by the 10 connections of the SDK.
+ * The credentials are sent with every request, sparing the authentication challenge the SDK client goes through.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+final class TwilioHttpClientFactory {
+
+    /**
+     * Empty constructor to prevent instantiation.
+     */
+    private TwilioHttpClientFactory() {}
+
+    /**
+     * Creates a new HTTP client with a pool of persistent connections for an account.
+     * <p/>
+     * A {@link DefaultHttpClient} is returned since it is the only kind of client the Twilio SDK sets credentials on.
+     *
+     * @param configuration The {@link com.motionizr.percenseo.executor.configuration.SurveyConfiguration survey configuration}.
+     * @param account       The {@link AccountConfiguration account} whose credentials are sent.
+     * @return              The HTTP client.
+     */
+    static DefaultHttpClient create(SurveyConfiguration configuration, AccountConfiguration account) {
+        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
+        connectionManager.setMaxTotal(configuration.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnections());
+
+        DefaultHttpClient client = new DefaultHttpClient(connectionManager);
+
+        HttpParams params = client.getParams();
+        HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+        HttpProtocolParams.setContentCharset(params, StandardCharsets.UTF_8.name());
+        HttpConnectionParams.setConnectionTimeout(params, configuration.getConnectTimeoutMillis());
+        HttpConnectionParams.setSoTimeout(params, configuration.getSocketTimeoutMillis());
+        HttpConnectionParams.setTcpNoDelay(params, true);
+        HttpConnectionParams.setSoKeepalive(params, true);
+
+        client.setKeepAliveStrategy(keepAliveStrategy(configuration.getKeepAliveMillis()));
+
+        String authorization = basicAuthorization(account.getAccountSID(), account.getAuthToken());
+        client.addRequestInterceptor((request, context) -> {
+            if (!request.containsHeader(HttpHeaders.AUTHORIZATION)) {
+                request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+            }
+        });
+
+        return client;
+    }
+
+    /**
+     * Creates a strategy that honors the keep-alive advertised by the server and otherwise keeps connections for a fixed time.
+     *
+     * @param keepAliveMillis   The time idle connections are kept when the server does not advertise one.
+     * @return                  The keep-alive strategy.
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMillis) {
+        DefaultConnectionKeepAliveStrategy advertisedStrategy = new DefaultConnectionKeepAliveStrategy();
+
+        return (response, context) -> {
+            long advertised = advertisedStrategy.getKeepAliveDuration(response, context);
+            return advertised > 0 ? advertised : keepAliveMillis;
+        };
+    }
+
+    /**
+     * Builds the value of the basic authorization header.
+     *
+     * @param accountSID    The account SID.
+     * @param authToken     The authentication token.
+     * @return              The value of the authorization header.
+     */
+    static String basicAuthorization(String accountSID, String authToken) {
+        byte[] credentials = (accountSID + ":" + authToken).getBytes(StandardCharsets.UTF_8);
+        return "Basic " + Base64.getEncoder().encodeToString(credentials);
+    }
+}
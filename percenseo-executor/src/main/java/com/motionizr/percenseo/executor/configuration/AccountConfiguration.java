@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor.configuration;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The configuration of one of the Twilio accounts used to queue the survey calls.
+ * <p/>
+ * Each account has its own calls per second limit and its own caller numbers, so adding accounts adds throughput.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class AccountConfiguration {
+
+    /**
+     * The calls per second Twilio allows an account by default.
+     */
+    public static final double DEFAULT_CALLS_PER_SECOND = 1;
+
+    /**
+     * The SID of the account.
+     */
+    private final String accountSID;
+
+    /**
+     * The authentication token of the account.
+     */
+    private final String authToken;
+
+    /**
+     * The maximum number of calls queued per second.
+     */
+    private final double callsPerSecond;
+
+    /**
+     * The numbers of the account that can be used as caller ID.
+     */
+    private final List<String> callerNumbers;
+
+    /**
+     * Creates a new instance of {@link AccountConfiguration}.
+     *
+     * @param accountSID        The SID of the account.
+     * @param authToken         The authentication token of the account.
+     * @param callsPerSecond    The maximum number of calls queued per second.
+     * @param callerNumbers     The numbers of the account that can be used as caller ID.
+     * @throws IllegalArgumentException If any of the values is invalid.
+     */
+    public AccountConfiguration(String accountSID, String authToken, double callsPerSecond, List<String> callerNumbers) throws IllegalArgumentException {
+        Preconditions.checkArgument(
+                StringUtils.isNotBlank(accountSID),
+                String.format("Invalid Twilio account SID: %s", accountSID)
+        );
+
+        Preconditions.checkArgument(
+                StringUtils.isNotBlank(authToken),
+                String.format("Invalid auth token for account %s", accountSID)
+        );
+
+        Preconditions.checkArgument(
+                callsPerSecond > 0,
+                String.format("Invalid calls per second for account %s: %f", accountSID, callsPerSecond)
+        );
+
+        Preconditions.checkArgument(
+                callerNumbers != null && !callerNumbers.isEmpty() && callerNumbers.stream().allMatch(StringUtils::isNotBlank),
+                String.format("Invalid Twilio caller numbers for account %s: %s", accountSID, callerNumbers)
+        );
+
+        this.accountSID = accountSID;
+        this.authToken = authToken;
+        this.callsPerSecond = callsPerSecond;
+        this.callerNumbers = Collections.unmodifiableList(new ArrayList<>(callerNumbers));
+    }
+
+    /**
+     * Reads a list of accounts from a CSV.
+     * <p/>
+     * Each record holds the account SID, the authentication token, the calls per second and then one caller number per column.
+     *
+     * @param reader                    The reader of the CSV.
+     * @return                          The accounts.
+     * @throws IOException              If an error occurs reading the CSV.
+     * @throws IllegalArgumentException If any of the accounts is invalid.
+     */
+    public static List<AccountConfiguration> fromCSV(Reader reader) throws IOException, IllegalArgumentException {
+        List<AccountConfiguration> accounts = new ArrayList<>();
+
+        for (CSVRecord record : CSVFormat.EXCEL.parse(reader)) {
+            Preconditions.checkArgument(
+                    record.size() >= 4,
+                    String.format("Invalid account record %d, expected the SID, the token, the calls per second and the caller numbers", record.getRecordNumber())
+            );
+
+            List<String> callerNumbers = new ArrayList<>(record.size() - 3);
+            for (int i = 3; i < record.size(); i++) {
+                if (StringUtils.isNotBlank(record.get(i))) {
+                    callerNumbers.add(record.get(i).trim());
+                }
+            }
+
+            accounts.add(new AccountConfiguration(record.get(0).trim(), record.get(1).trim(), Double.parseDouble(record.get(2).trim()), callerNumbers));
+        }
+
+        return accounts;
+    }
+
+    /**
+     * Gets the SID of the account.
+     *
+     * @return  The SID of the account.
+     */
+    public String getAccountSID() {
+        return accountSID;
+    }
+
+    /**
+     * Gets the authentication token of the account.
+     *
+     * @return  The authentication token of the account.
+     */
+    public String getAuthToken() {
+        return authToken;
+    }
+
+    /**
+     * Gets the maximum number of calls queued per second.
+     *
+     * @return  The maximum number of calls queued per second.
+     */
+    public double getCallsPerSecond() {
+        return callsPerSecond;
+    }
+
+    /**
+     * Gets the numbers of the account that can be used as caller ID.
+     *
+     * @return  The numbers of the account that can be used as caller ID.
+     */
+    public List<String> getCallerNumbers() {
+        return callerNumbers;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("accountSID", accountSID)
+                .add("callsPerSecond", callsPerSecond)
+                .add("callerNumbers", callerNumbers)
+                .toString();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor.configuration;
+
+import com.google.common.base.Preconditions;
+import com.motionizr.percenseo.commons.PhoneNumbers;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps phone numbers to the time zone of the people they reach, so they are only called within their calling window.
+ * <p/>
+ * Each calling prefix, the country code optionally followed by an area code, is mapped to a time zone and the longest
+ * prefix matching a number wins. Numbers matching no prefix are assumed to be in the time zone of this process.
+ * The {@link #defaults() default prefixes} cover most countries, the ones spanning several time zones fall back to
+ * their most populous one unless their area codes are listed.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class CallingZones {
+
+    /**
+     * The resource holding the default prefixes.
+     */
+    private static final String DEFAULTS_RESOURCE = "/calling-zones.csv";
+
+    /**
+     * The time zone of each prefix, keyed by its digits.
+     */
+    private final Map<String, ZoneId> zones;
+
+    /**
+     * The number of digits of the longest prefix.
+     */
+    private final int maxPrefixLength;
+
+    /**
+     * The time zone of the numbers matching no prefix.
+     */
+    private final ZoneId fallback;
+
+    /**
+     * Creates a new instance of {@link CallingZones}.
+     *
+     * @param zones     The time zone of each prefix, keyed by its digits.
+     * @param fallback  The time zone of the numbers matching no prefix.
+     */
+    private CallingZones(Map<String, ZoneId> zones, ZoneId fallback) {
+        this.zones = Collections.unmodifiableMap(zones);
+        this.maxPrefixLength = zones.keySet().stream().mapToInt(String::length).max().orElse(0);
+        this.fallback = fallback;
+    }
+
+    /**
+     * Gets the default prefixes, bundled with the executor.
+     *
+     * @return  The default {@link CallingZones}.
+     */
+    public static CallingZones defaults() {
+        try (Reader reader = new InputStreamReader(CallingZones.class.getResourceAsStream(DEFAULTS_RESOURCE), StandardCharsets.UTF_8)) {
+            return new CallingZones(parse(reader), ZoneId.systemDefault());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the default calling zones.", e);
+        }
+    }
+
+    /**
+     * Reads prefixes from a CSV, on top of the {@link #defaults() default ones}.
+     * <p/>
+     * Each record holds the prefix, e.g. {@code +1808}, and the time zone, e.g. {@code Pacific/Honolulu}. Lines starting
+     * with {@code #} are ignored.
+     *
+     * @param reader                    The reader of the CSV.
+     * @return                          The {@link CallingZones}.
+     * @throws IOException              If an error occurs reading the CSV.
+     * @throws IllegalArgumentException If any of the records is invalid.
+     */
+    public static CallingZones fromCSV(Reader reader) throws IOException, IllegalArgumentException {
+        CallingZones defaults = defaults();
+
+        Map<String, ZoneId> zones = new HashMap<>(defaults.zones);
+        zones.putAll(parse(reader));
+        return new CallingZones(zones, defaults.fallback);
+    }
+
+    /**
+     * Parses the records of a CSV of prefixes.
+     *
+     * @param reader                    The reader of the CSV.
+     * @return                          The time zone of each prefix, keyed by its digits.
+     * @throws IOException              If an error occurs reading the CSV.
+     * @throws IllegalArgumentException If any of the records is invalid.
+     */
+    private static Map<String, ZoneId> parse(Reader reader) throws IOException, IllegalArgumentException {
+        Map<String, ZoneId> zones = new HashMap<>();
+
+        for (CSVRecord record : CSVFormat.EXCEL.withCommentMarker('#').parse(reader)) {
+            Preconditions.checkArgument(
+                    record.size() >= 2,
+                    String.format("Invalid calling zone record %d, expected the prefix and the time zone", record.getRecordNumber())
+            );
+
+            String prefix = record.get(0).trim();
+            Preconditions.checkArgument(
+                    prefix.matches("\\+?[1-9][0-9]{0,7}"),
+                    String.format("Invalid prefix in calling zone record %d: %s", record.getRecordNumber(), prefix)
+            );
+
+            try {
+                zones.put(prefix.startsWith("+") ? prefix.substring(1) : prefix, ZoneId.of(record.get(1).trim()));
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException(String.format("Invalid time zone in calling zone record %d: %s", record.getRecordNumber(), record.get(1)), e);
+            }
+        }
+
+        return zones;
+    }
+
+    /**
+     * Gets the time zone of the people a number reaches.
+     *
+     * @param number    The phone number, in international format.
+     * @return          The time zone of the longest prefix matching the number, the one of this process if none does.
+     */
+    public ZoneId zoneOf(String number) {
+        String digits;
+        try {
+            digits = String.valueOf(PhoneNumbers.toLong(number));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+
+        for (int length = Math.min(maxPrefixLength, digits.length()); length > 0; length--) {
+            ZoneId zone = zones.get(digits.substring(0, length));
+            if (zone != null) {
+                return zone;
+            }
+        }
+
+        return fallback;
+    }
+}
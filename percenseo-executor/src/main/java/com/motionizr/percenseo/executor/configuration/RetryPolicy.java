@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor.configuration;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.motionizr.percenseo.commons.CallStatus;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * How numbers whose calls did not complete are dialed again.
+ * <p/>
+ * Only calls that ended with a status given a cooldown are retried, once the cooldown elapsed since their final
+ * status was received. The cooldown is multiplied by the backoff for every attempt after the first one, and a number
+ * is never dialed more than the maximum number of attempts, across every run of the campaign.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class RetryPolicy {
+
+    /**
+     * The maximum number of times a number is dialed.
+     */
+    private final int maxAttempts;
+
+    /**
+     * The factor the cooldown is multiplied by for every attempt after the first one.
+     */
+    private final double backoff;
+
+    /**
+     * The cooldown after the first attempt, per final status.
+     */
+    private final Map<CallStatus, Duration> cooldowns = new EnumMap<>(CallStatus.class);
+
+    /**
+     * The time to wait for the final status of a call before giving up on retrying it in this run.
+     */
+    private Duration resultTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Creates a new instance of {@link RetryPolicy} that retries no status until cooldowns are configured.
+     *
+     * @param maxAttempts               The maximum number of times a number is dialed.
+     * @param backoff                   The factor the cooldown is multiplied by for every attempt after the first one.
+     * @throws IllegalArgumentException If any of the parameters is invalid.
+     */
+    public RetryPolicy(int maxAttempts, double backoff) throws IllegalArgumentException {
+        Preconditions.checkArgument(
+                maxAttempts > 0,
+                String.format("Invalid maximum number of attempts: %d", maxAttempts)
+        );
+
+        Preconditions.checkArgument(
+                backoff >= 1,
+                String.format("Invalid backoff: %f", backoff)
+        );
+
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Retries the calls that ended with a given status.
+     *
+     * @param status                    The final status, other than {@link CallStatus#COMPLETED}.
+     * @param cooldown                  The time to wait before the second attempt.
+     * @return                          The {@link RetryPolicy} instance.
+     * @throws IllegalArgumentException If the status is not a final one or the cooldown is negative.
+     */
+    public RetryPolicy withCooldown(CallStatus status, Duration cooldown) throws IllegalArgumentException {
+        Preconditions.checkArgument(
+                status.isTerminal() && status != CallStatus.COMPLETED,
+                String.format("Calls ending as %s can't be retried", status)
+        );
+
+        Preconditions.checkArgument(
+                cooldown != null && !cooldown.isNegative(),
+                String.format("Invalid cooldown for %s: %s", status, cooldown)
+        );
+
+        cooldowns.put(status, cooldown);
+
+        return this;
+    }
+
+    /**
+     * Configures the time to wait for the final status of a call before giving up on retrying it in this run.
+     * <p/>
+     * A later run retries it once the final status is known, either from the status callback or from reconciliation.
+     *
+     * @param resultTimeout             The time to wait for the final status of a call.
+     * @return                          The {@link RetryPolicy} instance.
+     * @throws IllegalArgumentException If the timeout is not positive.
+     */
+    public RetryPolicy withResultTimeout(Duration resultTimeout) throws IllegalArgumentException {
+        Preconditions.checkArgument(
+                resultTimeout != null && !resultTimeout.isNegative() && !resultTimeout.isZero(),
+                String.format("Invalid result timeout: %s", resultTimeout)
+        );
+
+        this.resultTimeout = resultTimeout;
+
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of times a number is dialed.
+     *
+     * @return  The maximum number of attempts.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets the time to wait for the final status of a call before giving up on retrying it in this run.
+     *
+     * @return  The result timeout.
+     */
+    public Duration getResultTimeout() {
+        return resultTimeout;
+    }
+
+    /**
+     * Checks whether a number is dialed again after a given number of attempts ended with a given status.
+     *
+     * @param status    The final status of the last call.
+     * @param attempts  The number of times the number was dialed.
+     * @return          {@code true} if the number is dialed again, {@code false} otherwise.
+     */
+    public boolean shouldRetry(CallStatus status, int attempts) {
+        return attempts < maxAttempts && cooldowns.containsKey(status);
+    }
+
+    /**
+     * Gets the time to wait before dialing a number again.
+     *
+     * @param status    The final status of the last call, one with a cooldown.
+     * @param attempts  The number of times the number was dialed.
+     * @return          The cooldown in milliseconds.
+     */
+    public long cooldownMillis(CallStatus status, int attempts) {
+        return (long) (cooldowns.get(status).toMillis() * Math.pow(backoff, Math.max(0, attempts - 1)));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("maxAttempts", maxAttempts)
+                .add("backoff", backoff)
+                .add("cooldowns", cooldowns)
+                .add("resultTimeout", resultTimeout)
+                .toString();
+    }
+}
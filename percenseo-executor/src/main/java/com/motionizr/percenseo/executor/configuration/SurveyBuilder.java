@@ -23,9 +23,15 @@
  */
 package com.motionizr.percenseo.executor.configuration;
 
+import com.google.common.base.Preconditions;
+import com.motionizr.percenseo.commons.SuppressionList;
+import com.motionizr.percenseo.executor.AccountPool;
+import com.motionizr.percenseo.executor.CompletedFilter;
 import com.motionizr.percenseo.executor.SurveyOrchestrator;
 import com.motionizr.percenseo.executor.SurveyOrchestrator;
 
+import java.time.Duration;
+import java.time.LocalTime;
 import java.util.List;
 
 /**
@@ -41,6 +47,16 @@ public class SurveyBuilder {
      */
     private final SurveyConfiguration configuration;
 
+    /**
+     * The accounts shared with other campaigns, {@code null} if the survey sets up its own.
+     */
+    private AccountPool accountPool;
+
+    /**
+     * The filter of the numbers completed kept open across surveys, {@code null} if the survey opens its own.
+     */
+    private CompletedFilter completedFilter;
+
     /**
      * Creates a new instance of {@link SurveyBuilder}.
      */
@@ -49,6 +65,18 @@ public class SurveyBuilder {
     }
 
 
+    /**
+     * Configures the identifier of the campaign. Calls already completed are only skipped within the same campaign.
+     *
+     * @param campaign  The identifier of the campaign.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withCampaign(String campaign) {
+        configuration.campaign = campaign;
+
+        return this;
+    }
+
     /**
      * Configures the Twilio phone number that should be used to make the calls.
      *
@@ -160,6 +188,389 @@ public class SurveyBuilder {
         return this;
     }
 
+    /**
+     * Configures the base URL of the Twilio API, e.g. to use a local stub.
+     *
+     * @param apiEndpoint   The base URL of the Twilio API.
+     * @return              The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withApiEndpoint(String apiEndpoint) {
+        configuration.apiEndpoint = apiEndpoint;
+
+        return this;
+    }
+
+    /**
+     * Configures the maximum number of calls queued per second by the single account.
+     *
+     * @param callsPerSecond    The maximum number of calls queued per second.
+     * @return                  The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withCallsPerSecond(double callsPerSecond) {
+        configuration.callsPerSecond = callsPerSecond;
+
+        return this;
+    }
+
+    /**
+     * Adds an account to the pool of accounts used to queue the calls.
+     * </p>
+     * Once an account is added, the single account given by the account SID, auth token and caller number is ignored.
+     *
+     * @param account   The {@link AccountConfiguration account}.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withAccount(AccountConfiguration account) {
+        configuration.accounts.add(account);
+
+        return this;
+    }
+
+    /**
+     * Adds several accounts to the pool of accounts used to queue the calls.
+     *
+     * @param accounts  The {@link AccountConfiguration accounts}.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withAccounts(List<AccountConfiguration> accounts) {
+        configuration.accounts.addAll(accounts);
+
+        return this;
+    }
+
+    /**
+     * Dials each destination from a caller number sharing its longest prefix, e.g. its country and area code.
+     *
+     * @param minDigits The minimum number of digits a caller number must share with the destination to be preferred.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withLocalPresence(int minDigits) {
+        configuration.localPresence = true;
+        configuration.localPresenceMinDigits = minDigits;
+
+        return this;
+    }
+
+    /**
+     * Configures the number of calls queued concurrently.
+     *
+     * @param dialConcurrency   The number of calls queued concurrently.
+     * @return                  The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withDialConcurrency(int dialConcurrency) {
+        configuration.dialConcurrency = dialConcurrency;
+
+        return this;
+    }
+
+    /**
+     * Configures the pool of persistent connections to the Twilio API.
+     *
+     * @param maxConnections    The maximum number of persistent connections.
+     * @param warmupConnections The number of connections opened before the first call is queued.
+     * @param keepAliveMillis   The time idle connections are kept open when the Twilio API does not advertise one.
+     * @return                  The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withConnectionPool(int maxConnections, int warmupConnections, long keepAliveMillis) {
+        configuration.maxConnections = maxConnections;
+        configuration.warmupConnections = warmupConnections;
+        configuration.keepAliveMillis = keepAliveMillis;
+
+        return this;
+    }
+
+    /**
+     * Configures the timeouts of the connections to the Twilio API.
+     *
+     * @param connectTimeoutMillis  The timeout to establish a connection.
+     * @param socketTimeoutMillis   The timeout waiting for data.
+     * @return                      The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withConnectionTimeouts(int connectTimeoutMillis, int socketTimeoutMillis) {
+        configuration.connectTimeoutMillis = connectTimeoutMillis;
+        configuration.socketTimeoutMillis = socketTimeoutMillis;
+
+        return this;
+    }
+
+    /**
+     * Configures the circuit breaker that pauses the calls while the Twilio API is degraded.
+     *
+     * @param windowSize        The number of calls whose outcome is considered.
+     * @param failureRate       The rate of failed calls that opens the circuit.
+     * @param slowCall          The duration above which a call is considered slow.
+     * @param slowCallRate      The rate of slow calls that opens the circuit.
+     * @param openDuration      The time the circuit stays open before probing the Twilio API.
+     * @param probes            The number of probe calls let through while half open.
+     * @return                  The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withCircuitBreaker(int windowSize, double failureRate, Duration slowCall, double slowCallRate,
+                                            Duration openDuration, int probes) {
+        configuration.circuitWindowSize = windowSize;
+        configuration.circuitFailureRate = failureRate;
+        configuration.circuitSlowCall = slowCall;
+        configuration.circuitSlowCallRate = slowCallRate;
+        configuration.circuitOpenDuration = openDuration;
+        configuration.circuitProbes = probes;
+
+        return this;
+    }
+
+    /**
+     * Configures the maximum number of times a number is dialed when the Twilio API fails transiently.
+     *
+     * @param dialAttempts  The maximum number of times a number is dialed.
+     * @return              The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withDialAttempts(int dialAttempts) {
+        configuration.dialAttempts = dialAttempts;
+
+        return this;
+    }
+
+    /**
+     * Enables the reconciliation of calls that never received a status callback before dialing.
+     *
+     * @param pageSize          The number of calls fetched per page.
+     * @param pagesPerSecond    The maximum number of pages fetched per second.
+     * @param gracePeriod       The time after which a call without a final status is considered lost.
+     * @return                  The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withReconciliation(int pageSize, double pagesPerSecond, Duration gracePeriod) {
+        configuration.reconciliationEnabled = true;
+        configuration.reconciliationPageSize = pageSize;
+        configuration.reconciliationPagesPerSecond = pagesPerSecond;
+        configuration.reconciliationGracePeriod = gracePeriod;
+
+        return this;
+    }
+
+    /**
+     * Dials only a shard of the numbers, so several processes can share a campaign without dialing a number twice.
+     * </p>
+     * Numbers are assigned to shards by a stable hash. Every process sharing the campaign must use the same number of shards.
+     *
+     * @param shardId       The shard dialed by this process, between 0 and the number of shards exclusive.
+     * @param shardCount    The number of shards.
+     * @return              The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withShard(int shardId, int shardCount) {
+        configuration.sharded = true;
+        configuration.shardId = shardId;
+        configuration.shardCount = shardCount;
+
+        return this;
+    }
+
+    /**
+     * Configures the lease on the shard dialed by this process.
+     *
+     * @param lease     The time the shard stays claimed after this process stops renewing it.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withShardLease(Duration lease) {
+        configuration.shardLease = lease;
+
+        return this;
+    }
+
+    /**
+     * Configures the identifier of this process in the shard leases, the process id and host name by default.
+     *
+     * @param nodeId    The identifier of this process, e.g. the host name.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withNodeId(String nodeId) {
+        configuration.nodeId = nodeId;
+
+        return this;
+    }
+
+    /**
+     * Shares the rate limit of each account with the other processes using it, through the database, so together they
+     * don't queue more calls per second than the account allows.
+     * </p>
+     * Larger batches mean fewer round trips to the database, but calls are spread less evenly across the processes.
+     *
+     * @param batchSize The maximum number of calls reserved on an account per round trip to the database.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withSharedRateLimit(int batchSize) {
+        configuration.sharedRateLimit = true;
+        configuration.sharedRateLimitBatch = batchSize;
+
+        return this;
+    }
+
+    /**
+     * Calls each number only within the calling window of its time zone, e.g. from 9:00 to 21:00 local time.
+     * </p>
+     * Numbers are mapped to time zones by their prefix, using the {@link CallingZones#defaults() default prefixes}
+     * unless others are configured. The survey keeps running until the window opens for every number left.
+     *
+     * @param start     The local time the calling window opens at.
+     * @param end       The local time the calling window closes at, may be before the start if it spans midnight.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withCallingWindow(LocalTime start, LocalTime end) {
+        configuration.callingWindowEnabled = true;
+        configuration.callingWindowStart = start;
+        configuration.callingWindowEnd = end;
+        if (configuration.callingZones == null) {
+            configuration.callingZones = CallingZones.defaults();
+        }
+
+        return this;
+    }
+
+    /**
+     * Configures how numbers are mapped to time zones when calling them within their calling window.
+     *
+     * @param zones     The {@link CallingZones}.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withCallingZones(CallingZones zones) {
+        configuration.callingZones = zones;
+
+        return this;
+    }
+
+    /**
+     * Tracks the attempts on each number and dials the ones whose calls did not complete again following a policy,
+     * instead of dialing every number not completed again on each run.
+     * </p>
+     * The survey keeps running until every retry allowed by the policy was dialed.
+     *
+     * @param policy    The {@link RetryPolicy retry policy}.
+     * @return          The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withRetryPolicy(RetryPolicy policy) {
+        configuration.retryPolicy = policy;
+
+        return this;
+    }
+
+    /**
+     * Paces the calls to hold a number of live calls, the ones queued without a final status yet, instead of queueing
+     * them as fast as the accounts allow.
+     * </p>
+     * The pace is adjusted as the final statuses reach the result handler, slowing down when the answer rate drops.
+     * The target applies to each process dialing the campaign.
+     *
+     * @param targetCalls   The number of live calls to hold.
+     * @return              The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withAdaptivePacing(int targetCalls) {
+        configuration.adaptivePacing = true;
+        configuration.pacingTargetCalls = targetCalls;
+
+        return this;
+    }
+
+    /**
+     * Asks Twilio to also send the ringing and answered statuses of the calls to the status callback, so the result
+     * handler can measure how long each call spends ringing and talking, not only how long it took to end.
+     * </p>
+     * The status callback then receives up to three requests per call instead of one.
+     *
+     * @return  The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withCallProgressEvents() {
+        configuration.callProgressEvents = true;
+
+        return this;
+    }
+
+    /**
+     * Skips the numbers on a do-not-call list, both the numbers of the survey and the retries of the numbers dialed
+     * before they were added to the list.
+     *
+     * @param suppressionList   The {@link SuppressionList suppression list}.
+     * @return                  The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withSuppressionList(SuppressionList suppressionList) {
+        configuration.suppressionList = suppressionList;
+
+        return this;
+    }
+
+    /**
+     * Rules out the numbers never completed with a Bloom filter kept next to the database, instead of reading every
+     * number completed by the campaign into memory. Only the numbers the filter reports are looked up in the database.
+     * </p>
+     * The filter is built twice as large once it holds more numbers than its capacity.
+     *
+     * @param capacity          The number of numbers the filter is sized for.
+     * @param falsePositiveRate The rate of numbers never completed that are still looked up, e.g. {@code 0.01}.
+     * @return                  The {@link SurveyBuilder} instance.
+     */
+    public SurveyBuilder withCompletedFilter(long capacity, double falsePositiveRate) {
+        configuration.completedFilter = true;
+        configuration.completedFilterCapacity = capacity;
+        configuration.completedFilterFalsePositiveRate = falsePositiveRate;
+
+        return this;
+    }
+
+    /**
+     * Rules out the numbers never completed with a filter already open, which the survey opens again to add the numbers
+     * completed since, and leaves open once over. Closing it is up to the caller.
+     *
+     * @param filter    The {@link CompletedFilter}, built from the configuration of an earlier survey of the campaign.
+     * @return          The {@link SurveyBuilder} instance.
+     * @see             #buildCompletedFilter()
+     */
+    public SurveyBuilder withCompletedFilter(CompletedFilter filter) {
+        completedFilter = filter;
+        configuration.completedFilter = true;
+
+        return this;
+    }
+
+    /**
+     * Queues the calls on the accounts of a pool shared with other campaigns, instead of setting up the configured
+     * accounts, and gets a share of their rate in proportion to the weight of the campaign.
+     *
+     * @param pool      The {@link AccountPool}, built from a survey configuration.
+     * @param weight    The weight of the campaign.
+     * @return          The {@link SurveyBuilder} instance.
+     * @see             #buildAccountPool()
+     */
+    public SurveyBuilder withAccountPool(AccountPool pool, double weight) {
+        accountPool = pool;
+        configuration.fairShareWeight = weight;
+
+        return this;
+    }
+
+    /**
+     * Builds an {@link AccountPool} from the configured accounts and connections, to be shared by several campaigns.
+     *
+     * @return                          An instance of {@link AccountPool}.
+     * @throws IllegalArgumentException If the configuration of the accounts is invalid.
+     */
+    public AccountPool buildAccountPool() throws IllegalArgumentException {
+        configuration.validateAccounts();
+
+        return new AccountPool(configuration);
+    }
+
+    /**
+     * Builds a {@link CompletedFilter} of the configured campaign, to be kept open across its surveys.
+     *
+     * @return                          An instance of {@link CompletedFilter}.
+     * @throws IllegalArgumentException If the filter of the numbers completed is not configured.
+     */
+    public CompletedFilter buildCompletedFilter() throws IllegalArgumentException {
+        Preconditions.checkArgument(
+                configuration.completedFilter,
+                String.format("The filter of the numbers completed is not configured for campaign %s",
+                        configuration.campaign)
+        );
+
+        return new CompletedFilter(configuration);
+    }
+
     /**
      * Builds a {@link com.motionizr.percenseo.executor.SurveyOrchestrator}.
      *
@@ -169,7 +580,7 @@ public class SurveyBuilder {
     public SurveyOrchestrator build() throws IllegalArgumentException {
         configuration.validate();
 
-        return new SurveyOrchestrator(configuration);
+        return new SurveyOrchestrator(configuration, accountPool, completedFilter);
 
     }
 }
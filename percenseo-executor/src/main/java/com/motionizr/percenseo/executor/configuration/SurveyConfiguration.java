@@ -24,10 +24,19 @@
 package com.motionizr.percenseo.executor.configuration;
 
 import com.google.common.base.Preconditions;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.PhoneNumbers;
+import com.motionizr.percenseo.commons.SuppressionList;
 import org.apache.commons.lang3.StringUtils;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
  * @TODO: Fill description
@@ -37,6 +46,26 @@ import java.util.Locale;
  */
 public class SurveyConfiguration {
 
+    /**
+     * The pattern campaign identifiers must follow, they travel in the StatusCallback URL and are stored in the database.
+     */
+    private static final Pattern CAMPAIGN_PATTERN = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+    /**
+     * The default time idle connections are kept open when the Twilio API does not advertise one.
+     */
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 60000;
+
+    /**
+     * The default number of numbers the filter of the numbers completed is sized for.
+     */
+    public static final long DEFAULT_COMPLETED_FILTER_CAPACITY = 10_000_000;
+
+    /**
+     * The identifier of the campaign, used to keep the results of different surveys apart.
+     */
+    protected String campaign = CallResult.DEFAULT_CAMPAIGN;
+
     /**
      * The path to the CSV file containing the list of numbers to call in the survey.
      */
@@ -93,6 +122,602 @@ public class SurveyConfiguration {
      */
     protected String internationalPrefix;
 
+    /**
+     * The base URL of the Twilio API, {@code null} to use the default one.
+     */
+    protected String apiEndpoint;
+
+    /**
+     * Flag indicating if calls that never received a status callback should be reconciled before dialing.
+     */
+    protected boolean reconciliationEnabled;
+
+    /**
+     * The number of calls fetched per page when reconciling.
+     */
+    protected int reconciliationPageSize = 1000;
+
+    /**
+     * The maximum number of pages fetched per second when reconciling.
+     */
+    protected double reconciliationPagesPerSecond = 5;
+
+    /**
+     * The time after which a call without a final status is considered lost and is reconciled.
+     */
+    protected Duration reconciliationGracePeriod = Duration.ofHours(1);
+
+    /**
+     * The number of calls queued concurrently.
+     */
+    protected int dialConcurrency = 1;
+
+    /**
+     * The maximum number of persistent connections to the Twilio API.
+     */
+    protected int maxConnections = 10;
+
+    /**
+     * The number of connections opened before the first call is queued.
+     */
+    protected int warmupConnections = 1;
+
+    /**
+     * The timeout to establish a connection to the Twilio API.
+     */
+    protected int connectTimeoutMillis = 10000;
+
+    /**
+     * The timeout waiting for data from the Twilio API.
+     */
+    protected int socketTimeoutMillis = 30500;
+
+    /**
+     * The time idle connections are kept open when the Twilio API does not advertise one.
+     */
+    protected long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+
+    /**
+     * The maximum number of calls queued per second by the account given by {@link #accountSID}.
+     */
+    protected double callsPerSecond = AccountConfiguration.DEFAULT_CALLS_PER_SECOND;
+
+    /**
+     * The pool of accounts used to queue the calls, when configured it replaces the single account.
+     */
+    protected List<AccountConfiguration> accounts = new ArrayList<>();
+
+    /**
+     * Flag indicating if each destination is dialed from a caller number sharing its country and area prefix.
+     */
+    protected boolean localPresence;
+
+    /**
+     * The minimum number of digits a caller number must share with the destination to be preferred.
+     */
+    protected int localPresenceMinDigits = 1;
+
+    /**
+     * The maximum number of times a number is dialed when the Twilio API fails transiently.
+     */
+    protected int dialAttempts = 10;
+
+    /**
+     * Checks if each destination is dialed from a caller number sharing its country and area prefix.
+     *
+     * @return  {@code true} if local presence is enabled, {@code false} otherwise.
+     */
+    public boolean isLocalPresence() {
+        return localPresence;
+    }
+
+    /**
+     * Gets the minimum number of digits a caller number must share with the destination to be preferred.
+     *
+     * @return  The minimum number of shared digits.
+     */
+    public int getLocalPresenceMinDigits() {
+        return localPresenceMinDigits;
+    }
+
+    /**
+     * Gets the accounts used to queue the calls.
+     * </p>
+     * When no pool of accounts is configured, the single account given by the account SID, auth token and caller number is used.
+     *
+     * @return  The accounts used to queue the calls.
+     */
+    public List<AccountConfiguration> getAccounts() {
+        if (!accounts.isEmpty()) {
+            return Collections.unmodifiableList(accounts);
+        }
+
+        return Collections.singletonList(new AccountConfiguration(accountSID, authToken, callsPerSecond, Collections.singletonList(callerNumber)));
+    }
+
+    /**
+     * The number of calls whose outcome is considered by the circuit breaker.
+     */
+    protected int circuitWindowSize = 20;
+
+    /**
+     * The rate of failed calls that opens the circuit breaker.
+     */
+    protected double circuitFailureRate = 0.5;
+
+    /**
+     * The duration above which a call is considered slow by the circuit breaker.
+     */
+    protected Duration circuitSlowCall = Duration.ofSeconds(5);
+
+    /**
+     * The rate of slow calls that opens the circuit breaker.
+     */
+    protected double circuitSlowCallRate = 0.8;
+
+    /**
+     * The time the circuit breaker stays open before probing the Twilio API.
+     */
+    protected Duration circuitOpenDuration = Duration.ofSeconds(30);
+
+    /**
+     * The number of probe calls let through while the circuit breaker is half open.
+     */
+    protected int circuitProbes = 3;
+
+    /**
+     * Flag indicating if only a shard of the numbers is dialed by this process.
+     */
+    protected boolean sharded;
+
+    /**
+     * The shard of the numbers dialed by this process.
+     */
+    protected int shardId;
+
+    /**
+     * The number of shards the numbers are partitioned into.
+     */
+    protected int shardCount = 1;
+
+    /**
+     * The time a shard stays claimed by a process that stopped renewing it.
+     */
+    protected Duration shardLease = Duration.ofMinutes(1);
+
+    /**
+     * The identifier of this process in the shard leases.
+     */
+    protected String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * Flag indicating if the rate limits of the accounts are shared with the other processes through the database.
+     */
+    protected boolean sharedRateLimit;
+
+    /**
+     * The maximum number of calls reserved on an account per round trip to the shared rate limit.
+     */
+    protected int sharedRateLimitBatch = 1;
+
+    /**
+     * Flag indicating if numbers are only called within the calling window of their time zone.
+     */
+    protected boolean callingWindowEnabled;
+
+    /**
+     * The local time the calling window opens at.
+     */
+    protected LocalTime callingWindowStart;
+
+    /**
+     * The local time the calling window closes at.
+     */
+    protected LocalTime callingWindowEnd;
+
+    /**
+     * Maps the numbers to their time zones.
+     */
+    protected CallingZones callingZones;
+
+    /**
+     * How numbers whose calls did not complete are dialed again, {@code null} if every number not completed is dialed
+     * again on each run.
+     */
+    protected RetryPolicy retryPolicy;
+
+    /**
+     * Flag indicating if the calls are paced to hold a target number of live calls.
+     */
+    protected boolean adaptivePacing;
+
+    /**
+     * The number of live calls held by this process when pacing the calls.
+     */
+    protected int pacingTargetCalls;
+
+    /**
+     * The weight of the campaign when its accounts are shared with other campaigns.
+     */
+    protected double fairShareWeight = 1;
+
+    /**
+     * Flag indicating if the status callback also receives the ringing and answered statuses of the calls.
+     */
+    protected boolean callProgressEvents;
+
+    /**
+     * The numbers that must not be called, {@code null} if every number can be called.
+     */
+    protected SuppressionList suppressionList;
+
+    /**
+     * Flag indicating if the numbers completed are ruled out by a Bloom filter before being looked up.
+     */
+    protected boolean completedFilter;
+
+    /**
+     * The number of numbers the filter of the numbers completed is sized for.
+     */
+    protected long completedFilterCapacity = DEFAULT_COMPLETED_FILTER_CAPACITY;
+
+    /**
+     * The rate of false positives of the filter of the numbers completed once it holds its capacity.
+     */
+    protected double completedFilterFalsePositiveRate;
+
+    /**
+     * Gets the maximum number of times a number is dialed when the Twilio API fails transiently.
+     *
+     * @return  The maximum number of times a number is dialed.
+     */
+    public int getDialAttempts() {
+        return dialAttempts;
+    }
+
+    /**
+     * Gets the number of calls whose outcome is considered by the circuit breaker.
+     *
+     * @return  The number of calls whose outcome is considered by the circuit breaker.
+     */
+    public int getCircuitWindowSize() {
+        return circuitWindowSize;
+    }
+
+    /**
+     * Gets the rate of failed calls that opens the circuit breaker.
+     *
+     * @return  The rate of failed calls that opens the circuit breaker.
+     */
+    public double getCircuitFailureRate() {
+        return circuitFailureRate;
+    }
+
+    /**
+     * Gets the duration above which a call is considered slow by the circuit breaker.
+     *
+     * @return  The duration above which a call is considered slow.
+     */
+    public Duration getCircuitSlowCall() {
+        return circuitSlowCall;
+    }
+
+    /**
+     * Gets the rate of slow calls that opens the circuit breaker.
+     *
+     * @return  The rate of slow calls that opens the circuit breaker.
+     */
+    public double getCircuitSlowCallRate() {
+        return circuitSlowCallRate;
+    }
+
+    /**
+     * Gets the time the circuit breaker stays open before probing the Twilio API.
+     *
+     * @return  The time the circuit breaker stays open.
+     */
+    public Duration getCircuitOpenDuration() {
+        return circuitOpenDuration;
+    }
+
+    /**
+     * Gets the number of probe calls let through while the circuit breaker is half open.
+     *
+     * @return  The number of probe calls.
+     */
+    public int getCircuitProbes() {
+        return circuitProbes;
+    }
+
+    /**
+     * Gets the number of calls queued concurrently.
+     *
+     * @return  The number of calls queued concurrently.
+     */
+    public int getDialConcurrency() {
+        return dialConcurrency;
+    }
+
+    /**
+     * Gets the maximum number of persistent connections to the Twilio API.
+     *
+     * @return  The maximum number of persistent connections to the Twilio API.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Gets the number of connections opened before the first call is queued.
+     *
+     * @return  The number of connections opened before the first call is queued.
+     */
+    public int getWarmupConnections() {
+        return warmupConnections;
+    }
+
+    /**
+     * Gets the timeout to establish a connection to the Twilio API.
+     *
+     * @return  The timeout to establish a connection to the Twilio API in milliseconds.
+     */
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * Gets the timeout waiting for data from the Twilio API.
+     *
+     * @return  The timeout waiting for data from the Twilio API in milliseconds.
+     */
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * Gets the time idle connections are kept open when the Twilio API does not advertise one.
+     *
+     * @return  The time idle connections are kept open in milliseconds.
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * Gets the base URL of the Twilio API.
+     *
+     * @return  The base URL of the Twilio API or {@code null} to use the default one.
+     */
+    public String getApiEndpoint() {
+        return apiEndpoint;
+    }
+
+    /**
+     * Indicates if calls that never received a status callback should be reconciled before dialing.
+     *
+     * @return  {@code true} if the calls should be reconciled, {@code false} otherwise.
+     */
+    public boolean isReconciliationEnabled() {
+        return reconciliationEnabled;
+    }
+
+    /**
+     * Gets the number of calls fetched per page when reconciling.
+     *
+     * @return  The number of calls fetched per page when reconciling.
+     */
+    public int getReconciliationPageSize() {
+        return reconciliationPageSize;
+    }
+
+    /**
+     * Gets the maximum number of pages fetched per second when reconciling.
+     *
+     * @return  The maximum number of pages fetched per second when reconciling.
+     */
+    public double getReconciliationPagesPerSecond() {
+        return reconciliationPagesPerSecond;
+    }
+
+    /**
+     * Gets the time after which a call without a final status is considered lost.
+     *
+     * @return  The time after which a call without a final status is considered lost.
+     */
+    public Duration getReconciliationGracePeriod() {
+        return reconciliationGracePeriod;
+    }
+
+    /**
+     * Indicates if only a shard of the numbers is dialed by this process.
+     *
+     * @return  {@code true} if only a shard is dialed, {@code false} if every number is.
+     */
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * Gets the shard of the numbers dialed by this process.
+     *
+     * @return  The shard, between 0 and the number of shards exclusive.
+     */
+    public int getShardId() {
+        return shardId;
+    }
+
+    /**
+     * Gets the number of shards the numbers are partitioned into.
+     *
+     * @return  The number of shards.
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Gets the time a shard stays claimed by a process that stopped renewing it.
+     *
+     * @return  The duration of the shard lease.
+     */
+    public Duration getShardLease() {
+        return shardLease;
+    }
+
+    /**
+     * Gets the identifier of this process in the shard leases.
+     *
+     * @return  The identifier of this process.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Indicates if the rate limits of the accounts are shared with the other processes through the database.
+     *
+     * @return  {@code true} if the rate limits are shared, {@code false} if each process paces only itself.
+     */
+    public boolean isSharedRateLimit() {
+        return sharedRateLimit;
+    }
+
+    /**
+     * Gets the maximum number of calls reserved on an account per round trip to the shared rate limit.
+     *
+     * @return  The maximum number of calls reserved per round trip.
+     */
+    public int getSharedRateLimitBatch() {
+        return sharedRateLimitBatch;
+    }
+
+    /**
+     * Indicates if numbers are only called within the calling window of their time zone.
+     *
+     * @return  {@code true} if the calling window is enforced, {@code false} if numbers are called as soon as possible.
+     */
+    public boolean isCallingWindowEnabled() {
+        return callingWindowEnabled;
+    }
+
+    /**
+     * Gets the local time the calling window opens at.
+     *
+     * @return  The local time the calling window opens at.
+     */
+    public LocalTime getCallingWindowStart() {
+        return callingWindowStart;
+    }
+
+    /**
+     * Gets the local time the calling window closes at.
+     *
+     * @return  The local time the calling window closes at.
+     */
+    public LocalTime getCallingWindowEnd() {
+        return callingWindowEnd;
+    }
+
+    /**
+     * Gets the mapping of the numbers to their time zones.
+     *
+     * @return  The {@link CallingZones}.
+     */
+    public CallingZones getCallingZones() {
+        return callingZones;
+    }
+
+    /**
+     * Gets how numbers whose calls did not complete are dialed again.
+     *
+     * @return  The {@link RetryPolicy retry policy}, {@code null} if every number not completed is dialed again on each run.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Indicates if the calls are paced to hold a target number of live calls.
+     *
+     * @return  {@code true} if the calls are paced by their outcomes, {@code false} if only the account rates apply.
+     */
+    public boolean isAdaptivePacing() {
+        return adaptivePacing;
+    }
+
+    /**
+     * Gets the number of live calls held by this process when pacing the calls.
+     *
+     * @return  The number of live calls.
+     */
+    public int getPacingTargetCalls() {
+        return pacingTargetCalls;
+    }
+
+    /**
+     * Gets the weight of the campaign when its accounts are shared with other campaigns.
+     *
+     * @return  The weight of the campaign.
+     */
+    public double getFairShareWeight() {
+        return fairShareWeight;
+    }
+
+    /**
+     * Indicates if the status callback also receives the ringing and answered statuses of the calls.
+     *
+     * @return  {@code true} if the progress of the calls is sent, {@code false} if only their final status is.
+     */
+    public boolean isCallProgressEvents() {
+        return callProgressEvents;
+    }
+
+    /**
+     * Gets the numbers that must not be called.
+     *
+     * @return  The {@link SuppressionList suppression list}, {@code null} if every number can be called.
+     */
+    public SuppressionList getSuppressionList() {
+        return suppressionList;
+    }
+
+    /**
+     * Indicates if the numbers completed are ruled out by a Bloom filter before being looked up, instead of being all
+     * read into memory.
+     *
+     * @return  {@code true} if the numbers completed are filtered, {@code false} otherwise.
+     */
+    public boolean isCompletedFilterEnabled() {
+        return completedFilter;
+    }
+
+    /**
+     * Gets the number of numbers the filter of the numbers completed is sized for.
+     *
+     * @return  The capacity of the filter.
+     */
+    public long getCompletedFilterCapacity() {
+        return completedFilterCapacity;
+    }
+
+    /**
+     * Gets the rate of false positives of the filter of the numbers completed once it holds its capacity.
+     *
+     * @return  The rate of false positives.
+     */
+    public double getCompletedFilterFalsePositiveRate() {
+        return completedFilterFalsePositiveRate;
+    }
+
+    /**
+     * Gets the identifier of the campaign.
+     *
+     * @return  The identifier of the campaign.
+     */
+    public String getCampaign() {
+        return campaign;
+    }
+
     /**
      * Gets the path to the CSV file containing the list of numbers to call in the survey.
      *
@@ -212,6 +837,11 @@ public class SurveyConfiguration {
             );
         }
 
+        Preconditions.checkArgument(
+                campaign != null && CAMPAIGN_PATTERN.matcher(campaign).matches(),
+                String.format("Invalid campaign, use up to 64 letters, digits, '_', '.' or '-': %s", campaign)
+        );
+
         Preconditions.checkArgument(
                 StringUtils.isNotBlank(databaseFile),
                 "Invalid H2 database file"
@@ -228,18 +858,102 @@ public class SurveyConfiguration {
         );
 
         Preconditions.checkArgument(
-                StringUtils.isNotBlank(accountSID),
-                String.format("Invalid Twilio account SID: %s", accountSID)
+                dialConcurrency > 0,
+                String.format("Invalid dial concurrency: %d", dialConcurrency)
+        );
+
+        validateAccounts();
+
+        Preconditions.checkArgument(
+                localPresenceMinDigits >= 0 && localPresenceMinDigits <= PhoneNumbers.MAX_DIGITS,
+                String.format("Invalid local presence minimum prefix: %d", localPresenceMinDigits)
+        );
+
+        Preconditions.checkArgument(
+                dialAttempts > 0,
+                String.format("Invalid number of dial attempts: %d", dialAttempts)
+        );
+
+        Preconditions.checkArgument(
+                circuitWindowSize > 0 && circuitProbes > 0 && circuitProbes <= circuitWindowSize,
+                String.format("Invalid circuit breaker window (%d) or probes (%d)", circuitWindowSize, circuitProbes)
         );
 
         Preconditions.checkArgument(
-                StringUtils.isNotBlank(authToken),
-                String.format("Invalid auth token: %s", authToken)
+                circuitFailureRate > 0 && circuitFailureRate <= 1 && circuitSlowCallRate > 0 && circuitSlowCallRate <= 1,
+                String.format("Invalid circuit breaker thresholds: %f, %f", circuitFailureRate, circuitSlowCallRate)
         );
 
         Preconditions.checkArgument(
-                StringUtils.isNotBlank(callerNumber),
-                String.format("Invalid Twilio caller number: %s", callerNumber)
+                !circuitSlowCall.isNegative() && !circuitOpenDuration.isNegative() && !circuitOpenDuration.isZero(),
+                "Invalid circuit breaker durations"
+        );
+
+        if (reconciliationEnabled) {
+            Preconditions.checkArgument(
+                    reconciliationPageSize > 0 && reconciliationPageSize <= 1000,
+                    String.format("Invalid reconciliation page size, must be between 1 and 1000: %d", reconciliationPageSize)
+            );
+
+            Preconditions.checkArgument(
+                    reconciliationPagesPerSecond > 0,
+                    String.format("Invalid reconciliation rate: %f", reconciliationPagesPerSecond)
+            );
+
+            Preconditions.checkArgument(
+                    reconciliationGracePeriod != null && !reconciliationGracePeriod.isNegative(),
+                    String.format("Invalid reconciliation grace period: %s", reconciliationGracePeriod)
+            );
+        }
+
+        if (sharded) {
+            Preconditions.checkArgument(
+                    shardCount > 0 && shardId >= 0 && shardId < shardCount,
+                    String.format("Invalid shard %d of %d", shardId, shardCount)
+            );
+
+            Preconditions.checkArgument(
+                    shardLease != null && !shardLease.isNegative() && !shardLease.isZero(),
+                    String.format("Invalid shard lease: %s", shardLease)
+            );
+
+            Preconditions.checkArgument(
+                    StringUtils.isNotBlank(nodeId) && nodeId.length() <= 128,
+                    String.format("Invalid node identifier: %s", nodeId)
+            );
+        }
+
+        if (callingWindowEnabled) {
+            Preconditions.checkArgument(
+                    callingWindowStart != null && callingWindowEnd != null && !callingWindowStart.equals(callingWindowEnd),
+                    String.format("Invalid calling window: %s to %s", callingWindowStart, callingWindowEnd)
+            );
+
+            Preconditions.checkArgument(callingZones != null, "The calling zones are not configured");
+        }
+
+        if (adaptivePacing) {
+            Preconditions.checkArgument(
+                    pacingTargetCalls > 0,
+                    String.format("Invalid target of live calls: %d", pacingTargetCalls)
+            );
+        }
+
+        if (completedFilter) {
+            Preconditions.checkArgument(
+                    completedFilterCapacity > 0,
+                    String.format("Invalid capacity of the filter of the numbers completed: %d", completedFilterCapacity)
+            );
+
+            Preconditions.checkArgument(
+                    completedFilterFalsePositiveRate > 0 && completedFilterFalsePositiveRate < 1,
+                    String.format("Invalid false positive rate of the filter of the numbers completed: %f", completedFilterFalsePositiveRate)
+            );
+        }
+
+        Preconditions.checkArgument(
+                fairShareWeight > 0,
+                String.format("Invalid fair share weight: %f", fairShareWeight)
         );
 
         if (prefixConfigured) {
@@ -250,4 +964,61 @@ public class SurveyConfiguration {
         }
 
     }
+
+    /**
+     * Validates the configuration of the accounts and of the connections to the Twilio API, which is all an
+     * {@link com.motionizr.percenseo.executor.AccountPool account pool} needs.
+     *
+     * @throws IllegalArgumentException If the configuration of the accounts is invalid.
+     */
+    protected void validateAccounts() throws IllegalArgumentException {
+        if (accounts.isEmpty()) {
+            Preconditions.checkArgument(
+                    StringUtils.isNotBlank(accountSID),
+                    String.format("Invalid Twilio account SID: %s", accountSID)
+            );
+
+            Preconditions.checkArgument(
+                    StringUtils.isNotBlank(authToken),
+                    String.format("Invalid auth token: %s", authToken)
+            );
+
+            Preconditions.checkArgument(
+                    StringUtils.isNotBlank(callerNumber),
+                    String.format("Invalid Twilio caller number: %s", callerNumber)
+            );
+
+            Preconditions.checkArgument(
+                    callsPerSecond > 0,
+                    String.format("Invalid calls per second: %f", callsPerSecond)
+            );
+        } else {
+            Preconditions.checkArgument(
+                    accounts.stream().map(AccountConfiguration::getAccountSID).distinct().count() == accounts.size(),
+                    "The same account is configured more than once"
+            );
+        }
+
+        Preconditions.checkArgument(
+                maxConnections >= dialConcurrency,
+                String.format("The maximum number of connections (%d) must be at least the dial concurrency (%d)", maxConnections, dialConcurrency)
+        );
+
+        Preconditions.checkArgument(
+                warmupConnections >= 0 && warmupConnections <= maxConnections,
+                String.format("Invalid number of warm up connections: %d", warmupConnections)
+        );
+
+        Preconditions.checkArgument(
+                connectTimeoutMillis > 0 && socketTimeoutMillis > 0 && keepAliveMillis >= 0,
+                "Invalid connection timeouts"
+        );
+
+        if (sharedRateLimit) {
+            Preconditions.checkArgument(
+                    sharedRateLimitBatch > 0,
+                    String.format("Invalid shared rate limit batch: %d", sharedRateLimitBatch)
+            );
+        }
+    }
 }
@@ -0,0 +1,230 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor.export;
+
+import com.feedzai.commons.sql.abstraction.dml.Expression;
+import com.feedzai.commons.sql.abstraction.dml.result.ResultColumn;
+import com.feedzai.commons.sql.abstraction.dml.result.ResultIterator;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.google.common.base.Preconditions;
+import com.motionizr.percenseo.commons.CallDirection;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+
+/**
+ * Exports the {@link com.motionizr.percenseo.commons.CallResult call results} stored in the database to CSV.
+ * <p/>
+ * Rows are read through a forward-only cursor with a bounded fetch size and written as soon as they are read,
+ * so memory usage does not depend on the number of results being exported.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class ResultExporter {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ResultExporter.class);
+
+    /**
+     * The default number of rows fetched from the database on each round-trip.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * The default number of rows between progress reports.
+     */
+    public static final int DEFAULT_REPORT_INTERVAL = 100000;
+
+    /**
+     * The columns exported, in order.
+     */
+    private static final String[] HEADER = {
+            SurveyEntities.CALL_RESULT_SID,
+            SurveyEntities.CALL_RESULT_TO,
+            SurveyEntities.CALL_RESULT_DURATION,
+            SurveyEntities.CALL_RESULT_STATUS,
+            SurveyEntities.CALL_RESULT_DATE,
+            SurveyEntities.CALL_RESULT_HUMAN_ANSWERED,
+            SurveyEntities.CALL_RESULT_DIRECTION,
+            SurveyEntities.CALL_RESULT_DIGITS,
+            SurveyEntities.CALL_RESULT_CAMPAIGN
+    };
+
+    /**
+     * The database connection.
+     */
+    private final DatabaseEngine engine;
+
+    /**
+     * The number of rows fetched from the database on each round-trip.
+     */
+    private final int fetchSize;
+
+    /**
+     * The number of rows between progress reports.
+     */
+    private final int reportInterval;
+
+    /**
+     * Creates a new instance of {@link ResultExporter}.
+     *
+     * @param engine            The database connection.
+     * @param fetchSize         The number of rows fetched from the database on each round-trip.
+     * @param reportInterval    The number of rows between progress reports.
+     */
+    public ResultExporter(DatabaseEngine engine, int fetchSize, int reportInterval) {
+        Preconditions.checkArgument(fetchSize > 0, String.format("Invalid fetch size: %d", fetchSize));
+        Preconditions.checkArgument(reportInterval > 0, String.format("Invalid report interval: %d", reportInterval));
+
+        this.engine = engine;
+        this.fetchSize = fetchSize;
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Creates a new instance of {@link ResultExporter} using the default fetch size and report interval.
+     *
+     * @param engine    The database connection.
+     */
+    public ResultExporter(DatabaseEngine engine) {
+        this(engine, DEFAULT_FETCH_SIZE, DEFAULT_REPORT_INTERVAL);
+    }
+
+    /**
+     * Exports all the call results to CSV.
+     * <p/>
+     * The writer is flushed but not closed.
+     *
+     * @param out                       The writer where the CSV will be written.
+     * @return                          The {@link ExportReport report} of the export.
+     * @throws DatabaseEngineException  If an error occurs reading the results from the database.
+     * @throws IOException              If an error occurs writing the CSV.
+     */
+    public ExportReport export(Writer out) throws DatabaseEngineException, IOException {
+        return export(out, select(all()).from(table(SurveyEntities.CALL_RESULT_TABLE)));
+    }
+
+    /**
+     * Exports the call results of a single campaign to CSV.
+     * <p/>
+     * The writer is flushed but not closed.
+     *
+     * @param out                       The writer where the CSV will be written.
+     * @param campaign                  The campaign whose results should be exported.
+     * @return                          The {@link ExportReport report} of the export.
+     * @throws DatabaseEngineException  If an error occurs reading the results from the database.
+     * @throws IOException              If an error occurs writing the CSV.
+     */
+    public ExportReport export(Writer out, String campaign) throws DatabaseEngineException, IOException {
+        return export(out, select(all())
+                .from(table(SurveyEntities.CALL_RESULT_TABLE))
+                .where(eq(column(SurveyEntities.CALL_RESULT_CAMPAIGN), k(campaign))));
+    }
+
+    /**
+     * Exports the call results returned by a query to CSV.
+     *
+     * @param out                       The writer where the CSV will be written.
+     * @param query                     The query returning the call results.
+     * @return                          The {@link ExportReport report} of the export.
+     * @throws DatabaseEngineException  If an error occurs reading the results from the database.
+     * @throws IOException              If an error occurs writing the CSV.
+     */
+    private ExportReport export(Writer out, Expression query) throws DatabaseEngineException, IOException {
+        final long start = System.nanoTime();
+        long rows = 0;
+
+        CSVPrinter printer = new CSVPrinter(out, CSVFormat.EXCEL);
+        printer.printRecord((Object[]) HEADER);
+
+        ResultIterator iterator = engine.iterator(query, fetchSize);
+
+        try {
+            Map<String, ResultColumn> row;
+            while ((row = iterator.next()) != null) {
+                printRow(printer, row);
+
+                if (++rows % reportInterval == 0) {
+                    logger.info("Exported {} call results so far ({} results/s).", rows, new ExportReport(rows, System.nanoTime() - start).getRowsPerSecond());
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+
+        printer.flush();
+
+        ExportReport report = new ExportReport(rows, System.nanoTime() - start);
+        logger.info("Export finished: {}", report);
+
+        return report;
+    }
+
+    /**
+     * Writes a single row to the CSV, replacing internal codes by their public descriptions.
+     *
+     * @param printer       The CSV printer.
+     * @param row           The database row.
+     * @throws IOException  If an error occurs writing the row.
+     */
+    private void printRow(CSVPrinter printer, Map<String, ResultColumn> row) throws IOException {
+        ResultColumn date = row.get(SurveyEntities.CALL_RESULT_DATE);
+
+        printer.print(asString(row.get(SurveyEntities.CALL_RESULT_SID)));
+        printer.print(asString(row.get(SurveyEntities.CALL_RESULT_TO)));
+        printer.print(row.get(SurveyEntities.CALL_RESULT_DURATION).toInt());
+        printer.print(CallStatus.fromInternalCode(row.get(SurveyEntities.CALL_RESULT_STATUS).toInt()).getDesc());
+        printer.print(date.isNull() ? null : LocalDateTime.ofEpochSecond(date.toLong(), 0, ZoneOffset.UTC));
+        printer.print(row.get(SurveyEntities.CALL_RESULT_HUMAN_ANSWERED).toBoolean());
+        printer.print(CallDirection.fromInternalCode(row.get(SurveyEntities.CALL_RESULT_DIRECTION).toInt()).getDesc());
+        printer.print(asString(row.get(SurveyEntities.CALL_RESULT_DIGITS)));
+        printer.print(asString(row.get(SurveyEntities.CALL_RESULT_CAMPAIGN)));
+        printer.println();
+    }
+
+    /**
+     * Reads a column that can be {@code null} as a string.
+     *
+     * @param column    The column.
+     * @return          The value of the column or {@code null}.
+     */
+    private static String asString(ResultColumn column) {
+        return column == null || column.isNull() ? null : column.toString();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import mockit.Deencapsulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallPacerTest {
+
+    private static final String CAMPAIGN = "pacing";
+
+    private static final double DELTA = 1e-9;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private SurveyConfiguration configuration;
+
+    private DatabaseEngine engine;
+
+    private NumberStateFeed feed;
+
+    private CallPacer pacer;
+
+    @Before
+    public void setUp() throws Exception {
+        String databaseFile = Files.createTempDirectory("percenseo").resolve("results").toString();
+        engine = DatabaseUtils.initializeDbConnection(databaseFile);
+
+        configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "campaign", CAMPAIGN);
+        Deencapsulation.setField(configuration, "databaseFile", databaseFile);
+        Deencapsulation.setField(configuration, "callerNumber", "+351123123123");
+        Deencapsulation.setField(configuration, "accountSID", "anSID");
+        Deencapsulation.setField(configuration, "authToken", "aToken");
+        Deencapsulation.setField(configuration, "callsPerSecond", 10.0);
+        Deencapsulation.setField(configuration, "adaptivePacing", true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        feed.close();
+        DatabaseUtils.closeDbConnection(engine);
+    }
+
+    @Test
+    public void testLiveCallsAreCappedAtTheTarget() throws Exception {
+        open(2);
+        dial(1);
+        dial(2);
+
+        assertEquals("Should count the calls without a final status", 2, pacer.getLiveCalls());
+        assertTrue("Should not queue calls beyond the target", pacer.tryAcquire() > 0);
+    }
+
+    @Test
+    public void testFinalStatusesFreeTheLiveCalls() throws Exception {
+        open(2);
+        dial(1);
+        dial(2);
+
+        DatabaseUtils.recordFinalStatus(engine, result(1, CallStatus.COMPLETED), clock.get());
+        clock.addAndGet(CallPacer.CONTROL_PERIOD_MILLIS);
+
+        assertEquals("Should queue a call once another one is over", 0, pacer.tryAcquire());
+        assertEquals("Should count the call being queued", 2, pacer.getLiveCalls());
+    }
+
+    @Test
+    public void testRateGrowsBelowTheTargetAndHalvesAtIt() throws Exception {
+        open(1);
+        assertEquals("Should start at the initial rate", CallPacer.INITIAL_RATE, pacer.getRate(), DELTA);
+
+        clock.addAndGet(CallPacer.CONTROL_PERIOD_MILLIS);
+        pacer.tryAcquire();
+        assertEquals("Should grow the rate below the target", CallPacer.INITIAL_RATE + CallPacer.INCREASE_STEP, pacer.getRate(), DELTA);
+
+        clock.addAndGet(CallPacer.CONTROL_PERIOD_MILLIS);
+        pacer.tryAcquire();
+        assertEquals("Should halve the rate at the target",
+                (CallPacer.INITIAL_RATE + CallPacer.INCREASE_STEP) * CallPacer.DECREASE_FACTOR, pacer.getRate(), DELTA);
+    }
+
+    @Test
+    public void testRateIsCappedByTheAccounts() throws Exception {
+        Deencapsulation.setField(configuration, "callsPerSecond", 1.2);
+        open(10);
+
+        clock.addAndGet(CallPacer.CONTROL_PERIOD_MILLIS);
+        pacer.tryAcquire();
+
+        assertEquals("Should not exceed the rate of the accounts", 1.2, pacer.getRate(), DELTA);
+    }
+
+    @Test
+    public void testAnswerRateDropSlowsDown() throws Exception {
+        open(1000);
+        int calls = CallPacer.MIN_OUTCOMES + 10;
+        for (int i = 0; i < calls; i++) {
+            dial(i);
+        }
+
+        for (int i = 0; i < CallPacer.MIN_OUTCOMES; i++) {
+            DatabaseUtils.recordFinalStatus(engine, result(i, CallStatus.COMPLETED), clock.get());
+        }
+        clock.addAndGet(CallPacer.CONTROL_PERIOD_MILLIS);
+        pacer.tryAcquire();
+        double rate = pacer.getRate();
+
+        for (int i = CallPacer.MIN_OUTCOMES; i < calls; i++) {
+            DatabaseUtils.recordFinalStatus(engine, result(i, CallStatus.NO_ANSWER), clock.get());
+        }
+        clock.addAndGet(CallPacer.CONTROL_PERIOD_MILLIS);
+        pacer.tryAcquire();
+
+        assertEquals("Should halve the rate when the answer rate drops", rate * CallPacer.DECREASE_FACTOR, pacer.getRate(), DELTA);
+    }
+
+    private void open(int targetCalls) throws Exception {
+        Deencapsulation.setField(configuration, "pacingTargetCalls", targetCalls);
+        feed = new NumberStateFeed(configuration, clock::get);
+        feed.open();
+        pacer = new CallPacer(configuration, feed, clock::get);
+        pacer.open();
+    }
+
+    private void dial(int call) {
+        for (long wait = pacer.tryAcquire(); wait > 0; wait = pacer.tryAcquire()) {
+            clock.addAndGet(wait);
+        }
+        pacer.onDialed(result(call, CallStatus.QUEUED));
+    }
+
+    private static CallResult result(int call, CallStatus status) {
+        return CallResult.builder()
+                .withCallSID("CA" + call)
+                .withDestination("+3512100000" + String.format("%02d", call))
+                .withStatus(status)
+                .withCampaign(CAMPAIGN)
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.dml.result.ResultColumn;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import mockit.Deencapsulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the {@link CallReconciler} against a local stub of the Calls list resource.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallReconcilerTest {
+
+    private static final String ACCOUNT_SID = "AC34567890123456789012345678901234";
+
+    private static final String CALLS_PATH = "/2010-04-01/Accounts/" + ACCOUNT_SID + "/Calls.json";
+
+    private HttpServer server;
+
+    private DatabaseEngine engine;
+
+    private SurveyConfiguration configuration;
+
+    private final AtomicInteger pagesRequested = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(CALLS_PATH, this::handleCalls);
+        server.start();
+
+        engine = DatabaseUtils.initializeDbConnection(Files.createTempDirectory("percenseo").resolve("results").toString());
+
+        configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "accountSID", ACCOUNT_SID);
+        Deencapsulation.setField(configuration, "authToken", "aToken");
+        Deencapsulation.setField(configuration, "callerNumber", "+351123123123");
+        Deencapsulation.setField(configuration, "apiEndpoint", "http://localhost:" + server.getAddress().getPort());
+        Deencapsulation.setField(configuration, "reconciliationEnabled", true);
+        Deencapsulation.setField(configuration, "reconciliationPageSize", 2);
+        Deencapsulation.setField(configuration, "reconciliationPagesPerSecond", 100.0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+        DatabaseUtils.closeDbConnection(engine);
+    }
+
+    @Test
+    public void testReconcile() throws Exception {
+        LocalDateTime queuedLongAgo = LocalDateTime.now().minusHours(2);
+        persist("CA1", CallStatus.QUEUED, queuedLongAgo);
+        persist("CA2", CallStatus.RINGING, queuedLongAgo);
+        persist("CA3", CallStatus.QUEUED, queuedLongAgo);
+        persist("CA4", CallStatus.NO_ANSWER, queuedLongAgo);
+        persist("CA5", CallStatus.QUEUED, LocalDateTime.now());
+
+        int reconciled = new CallReconciler(configuration, engine).reconcile();
+
+        assertEquals("Should reconcile the lost calls that are over", 2, reconciled);
+        assertEquals("Should store the final status of the lost calls", CallStatus.COMPLETED, statusOf("CA1"));
+        assertEquals("Should store the final status of the lost calls", CallStatus.BUSY, statusOf("CA2"));
+        assertEquals("Should leave calls that are not over", CallStatus.QUEUED, statusOf("CA3"));
+        assertEquals("Should not touch calls with a final status", CallStatus.NO_ANSWER, statusOf("CA4"));
+        assertEquals("Should leave recent calls for the status callback", CallStatus.QUEUED, statusOf("CA5"));
+        assertEquals("Should go through all the pages while calls are missing", 2, pagesRequested.get());
+    }
+
+    @Test
+    public void testNothingToReconcile() throws Exception {
+        persist("CA4", CallStatus.COMPLETED, LocalDateTime.now().minusHours(2));
+
+        assertEquals("Should not reconcile anything", 0, new CallReconciler(configuration, engine).reconcile());
+        assertEquals("Should not call the API", 0, pagesRequested.get());
+    }
+
+    private void persist(String sid, CallStatus status, LocalDateTime callDate) throws Exception {
+        engine.persist(SurveyEntities.CALL_RESULT_TABLE, CallResult.builder()
+                .withCallSID(sid)
+                .withDestination("+351321321321")
+                .withStatus(status)
+                .withCallDate(callDate)
+                .build()
+                .toEntity());
+    }
+
+    private CallStatus statusOf(String sid) throws Exception {
+        List<Map<String, ResultColumn>> rows = engine.query(select(column(SurveyEntities.CALL_RESULT_STATUS))
+                .from(table(SurveyEntities.CALL_RESULT_TABLE))
+                .where(eq(column(SurveyEntities.CALL_RESULT_SID), k(sid))));
+
+        return CallStatus.fromInternalCode(rows.get(0).get(SurveyEntities.CALL_RESULT_STATUS).toInt());
+    }
+
+    private void handleCalls(HttpExchange exchange) throws IOException {
+        boolean firstPage = pagesRequested.getAndIncrement() == 0;
+        String body = firstPage ?
+                "{\"calls\":[" + call("CA1", "completed") + "," + call("CA5", "completed") + "],"
+                        + "\"next_page_uri\":\"" + CALLS_PATH + "?Page=1&PageSize=2\"}" :
+                "{\"calls\":[" + call("CA2", "busy") + "," + call("CA3", "in-progress") + "],"
+                        + "\"next_page_uri\":null}";
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String call(String sid, String status) {
+        return "{\"sid\":\"" + sid + "\",\"to\":\"+351321321321\",\"status\":\"" + status + "\",\"duration\":\"10\","
+                + "\"direction\":\"outbound-api\",\"date_created\":\"Wed, 18 Nov 2015 19:00:00 +0000\"}";
+    }
+}
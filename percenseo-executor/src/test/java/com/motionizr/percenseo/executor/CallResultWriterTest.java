@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static com.feedzai.commons.sql.abstraction.dml.dialect.SqlBuilder.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallResultWriterTest {
+
+    private DatabaseEngine engine;
+
+    private CallResultWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = DatabaseUtils.initializeDbConnection(Files.createTempDirectory("percenseo").resolve("results").toString());
+        writer = new CallResultWriter(engine, TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        writer.close();
+        DatabaseUtils.closeDbConnection(engine);
+    }
+
+    @Test
+    public void testLastRowsAreWrittenWithoutAnotherWrite() throws Exception {
+        writer.write(queued("CA1"));
+        writer.write(queued("CA2"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (storedCalls() < 2 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        assertEquals("Should write the pending rows once they waited long enough", 2, storedCalls());
+    }
+
+    @Test
+    public void testPendingRowsAreWrittenOnClose() throws Exception {
+        writer.close();
+        writer = new CallResultWriter(engine, TimeUnit.HOURS.toNanos(1));
+        writer.write(queued("CA1"));
+
+        assertEquals("Should wait for more rows", 0, storedCalls());
+
+        writer.close();
+
+        assertEquals("Should write the pending rows when closed", 1, storedCalls());
+    }
+
+    private static CallResult queued(String sid) {
+        return CallResult.builder()
+                .withCallSID(sid)
+                .withDestination("+351321321321")
+                .withStatus(CallStatus.QUEUED)
+                .withCallDate(LocalDateTime.now())
+                .build();
+    }
+
+    private int storedCalls() throws Exception {
+        synchronized (writer) {
+            return engine.query(select(all())
+                    .from(table(SurveyEntities.CALL_RESULT_TABLE))).size();
+        }
+    }
+}
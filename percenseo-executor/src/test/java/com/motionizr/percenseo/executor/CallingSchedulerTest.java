@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.executor.configuration.CallingZones;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallingSchedulerTest {
+
+    private static final String LISBON = "+351211111111";
+
+    private static final String LISBON_TOO = "+351211111112";
+
+    private static final String BOSTON = "+16175551212";
+
+    private static final String TOKYO = "+81312345678";
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testOnlyOpenZonesAreCalled() throws Exception {
+        clock.set(Instant.parse("2026-01-15T12:00:00Z").toEpochMilli());
+        CallingScheduler scheduler = scheduler(LocalTime.of(9, 0), LocalTime.of(21, 0), BOSTON, LISBON, TOKYO, LISBON_TOO);
+
+        assertEquals("Should call the open zone in order", LISBON, scheduler.poll().number);
+        assertEquals("Should call the open zone in order", LISBON_TOO, scheduler.poll().number);
+        assertNull("Should not call zones outside the window", scheduler.poll());
+        assertEquals("Should wait for Boston to open", TimeUnit.HOURS.toMillis(2), scheduler.millisUntilOpen());
+        assertEquals("Should keep the numbers outside the window", 2, scheduler.size());
+
+        clock.addAndGet(TimeUnit.HOURS.toMillis(2));
+        assertEquals("Should call Boston once it opens", 0, scheduler.millisUntilOpen());
+        assertEquals("Should call Boston once it opens", BOSTON, scheduler.poll().number);
+    }
+
+    @Test
+    public void testZoneClosingFirstIsCalledFirst() throws Exception {
+        clock.set(Instant.parse("2026-01-15T14:00:00Z").toEpochMilli());
+        CallingScheduler scheduler = scheduler(LocalTime.of(9, 0), LocalTime.of(21, 0), BOSTON, LISBON, BOSTON);
+
+        List<String> called = new ArrayList<>();
+        CallingScheduler.Entry entry;
+        while ((entry = scheduler.poll()) != null) {
+            called.add(entry.number);
+        }
+
+        assertEquals("Should call Lisbon before Boston", Arrays.asList(LISBON, BOSTON, BOSTON), called);
+        assertTrue("Should hand out every number", scheduler.isEmpty());
+    }
+
+    @Test
+    public void testZoneClosesWhileCalling() throws Exception {
+        clock.set(Instant.parse("2026-01-15T20:59:00Z").toEpochMilli());
+        CallingScheduler scheduler = scheduler(LocalTime.of(9, 0), LocalTime.of(21, 0), LISBON, LISBON_TOO);
+
+        assertEquals("Should call within the window", LISBON, scheduler.poll().number);
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        assertNull("Should stop calling once the window closes", scheduler.poll());
+        assertEquals("Should wait until the window opens the next day", TimeUnit.HOURS.toMillis(12), scheduler.millisUntilOpen());
+    }
+
+    @Test
+    public void testWindowSpanningMidnight() throws Exception {
+        clock.set(Instant.parse("2026-01-15T23:00:00Z").toEpochMilli());
+        CallingScheduler scheduler = scheduler(LocalTime.of(22, 0), LocalTime.of(6, 0), LISBON, TOKYO);
+
+        assertEquals("Should call within a window spanning midnight", LISBON, scheduler.poll().number);
+        assertNull("Should not call outside a window spanning midnight", scheduler.poll());
+        assertEquals("Should wait for Tokyo to open", TimeUnit.HOURS.toMillis(14), scheduler.millisUntilOpen());
+    }
+
+    @Test
+    public void testPositionIsKept() throws Exception {
+        clock.set(Instant.parse("2026-01-15T12:00:00Z").toEpochMilli());
+        CallingScheduler scheduler = new CallingScheduler(CallingZones.defaults(), LocalTime.of(9, 0), LocalTime.of(21, 0), clock::get);
+        scheduler.add(LISBON, 42);
+
+        assertEquals("Should keep the shard position of the number", 42, scheduler.poll().position);
+    }
+
+    private CallingScheduler scheduler(LocalTime start, LocalTime end, String... numbers) {
+        CallingScheduler scheduler = new CallingScheduler(CallingZones.defaults(), start, end, clock::get);
+        for (String number : numbers) {
+            scheduler.add(number, 0);
+        }
+        return scheduler;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CampaignControlTest {
+
+    private final AtomicLong ticker = new AtomicLong(1_000_000);
+
+    private final CampaignControl control = new CampaignControl("control", 2, 4, ticker::get);
+
+    @Test
+    public void testPauseHoldsTheCallsUntilResumed() throws Exception {
+        control.pause();
+        assertTrue("Should be paused", control.isPaused());
+        assertEquals("Should not queue calls while paused", Long.MAX_VALUE, control.tryBegin());
+
+        control.resume();
+        assertFalse("Should no longer be paused", control.isPaused());
+        assertEquals("Should queue calls once resumed", 0, control.tryBegin());
+    }
+
+    @Test
+    public void testCancelDropsTheCalls() throws Exception {
+        control.pause();
+        control.cancel();
+
+        assertTrue("Should be cancelled", control.isCancelled());
+        assertFalse("Should no longer be paused once cancelled", control.isPaused());
+        assertEquals("Should not queue calls once cancelled", CampaignControl.CANCELLED, control.tryBegin());
+        assertFalse("Should not wait once cancelled", control.begin());
+    }
+
+    @Test
+    public void testConcurrencyCanBeRaisedWhileRunning() throws Exception {
+        assertEquals("Should queue a first call", 0, control.tryBegin());
+        assertEquals("Should queue a second call", 0, control.tryBegin());
+        assertEquals("Should not queue calls beyond the concurrency", Long.MAX_VALUE, control.tryBegin());
+
+        control.setDialConcurrency(3);
+        assertEquals("Should queue a call once the concurrency is raised", 0, control.tryBegin());
+        assertEquals("Should count the calls being queued", 3, control.getActiveDials());
+
+        control.end();
+        control.setDialConcurrency(1);
+        assertEquals("Should not queue calls beyond a lowered concurrency", Long.MAX_VALUE, control.tryBegin());
+    }
+
+    @Test
+    public void testCallsPerSecondSpaceTheCalls() throws Exception {
+        control.setCallsPerSecond(4);
+        assertEquals("Should queue a first call", 0, control.tryBegin());
+        control.end();
+
+        assertEquals("Should wait a quarter of a second", TimeUnit.MILLISECONDS.toNanos(250), control.tryBegin());
+
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals("Should queue a call once spaced", 0, control.tryBegin());
+        control.end();
+
+        control.setCallsPerSecond(0);
+        assertEquals("Should not space calls once unlimited", 0, control.tryBegin());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConcurrencyAboveTheConnectionsIsRejected() {
+        control.setDialConcurrency(5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCallsPerSecondAreRejected() {
+        control.setCallsPerSecond(-1);
+    }
+}
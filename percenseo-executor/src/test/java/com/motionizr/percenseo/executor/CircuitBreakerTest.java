@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CircuitBreakerTest {
+
+    /**
+     * The current time, in nanoseconds.
+     */
+    private long now;
+
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() throws Exception {
+        now = 0;
+        breaker = new CircuitBreaker(4, 0.5, Duration.ofSeconds(1), 0.75, Duration.ofSeconds(10), 2, () -> now);
+    }
+
+    @Test
+    public void testStaysClosedUntilTheWindowIsFull() throws Exception {
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+
+        assertEquals("Should not open before the window is full", CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue("Should let calls through", breaker.tryAcquire());
+    }
+
+    @Test
+    public void testOpensOnFailureRate() throws Exception {
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+
+        assertEquals("Should open once half of the calls failed", CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse("Should hold calls while open", breaker.tryAcquire());
+        assertEquals("Should count the opening", 1, breaker.getTimesOpened());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() throws Exception {
+        long slow = TimeUnit.SECONDS.toNanos(2);
+        breaker.onSuccess(0);
+        breaker.onSuccess(slow);
+        breaker.onSuccess(slow);
+
+        assertEquals("Should not open below the slow call rate", CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onSuccess(slow);
+        assertEquals("Should open once three quarters of the calls were slow", CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testOldOutcomesLeaveTheWindow() throws Exception {
+        breaker.onFailure(0);
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        breaker.onFailure(0);
+
+        assertEquals("Should only consider the last calls", 0.25, breaker.getFailureRate(), 0);
+        assertEquals("Should stay closed", CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenProbesClose() throws Exception {
+        open();
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertTrue("Should let the first probe through", breaker.tryAcquire());
+        assertEquals("Should be half open", CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue("Should let the second probe through", breaker.tryAcquire());
+        assertFalse("Should hold calls beyond the probes", breaker.tryAcquire());
+
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+
+        assertEquals("Should close once all the probes succeeded", CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals("Should start from a clean window", 0, breaker.getFailureRate(), 0);
+    }
+
+    @Test
+    public void testHalfOpenProbeFailureReopens() throws Exception {
+        open();
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertTrue("Should let the probe through", breaker.tryAcquire());
+        breaker.onFailure(0);
+
+        assertEquals("Should open again", CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals("Should count both openings", 2, breaker.getTimesOpened());
+
+        now += TimeUnit.SECONDS.toNanos(5);
+        assertFalse("Should wait the whole open duration again", breaker.tryAcquire());
+    }
+
+    @Test
+    public void testIgnoredProbeIsGivenBack() throws Exception {
+        open();
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertTrue("Should let the first probe through", breaker.tryAcquire());
+        assertTrue("Should let the second probe through", breaker.tryAcquire());
+        breaker.onIgnored();
+
+        assertEquals("Should not record the ignored call", CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue("Should let another probe take the place of the ignored one", breaker.tryAcquire());
+
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        assertEquals("Should close once the probes succeeded", CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * Opens the circuit.
+     */
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(0);
+        }
+        assertEquals("Should be open", CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import mockit.Deencapsulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CompletedFilterTest {
+
+    private static final String CAMPAIGN = "filtered";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private SurveyConfiguration configuration;
+
+    private DatabaseEngine engine;
+
+    private String databaseFile;
+
+    private NumberStateFeed feed;
+
+    private CompletedFilter filter;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseFile = Files.createTempDirectory("percenseo").resolve("results").toString();
+        engine = DatabaseUtils.initializeDbConnection(databaseFile);
+
+        configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "campaign", CAMPAIGN);
+        Deencapsulation.setField(configuration, "databaseFile", databaseFile);
+        Deencapsulation.setField(configuration, "completedFilter", true);
+        Deencapsulation.setField(configuration, "completedFilterCapacity", 1000L);
+        Deencapsulation.setField(configuration, "completedFilterFalsePositiveRate", 0.01);
+
+        feed = new NumberStateFeed(configuration, clock::get);
+        feed.open();
+        filter = new CompletedFilter(configuration, clock::get);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        filter.close();
+        feed.close();
+        DatabaseUtils.closeDbConnection(engine);
+    }
+
+    @Test
+    public void testFilterIsBuiltFromResults() throws Exception {
+        persist("CA1", "+351211111111", CallStatus.COMPLETED, CAMPAIGN);
+        persist("CA2", "+351222222222", CallStatus.BUSY, CAMPAIGN);
+        persist("CA3", "+351233333333", CallStatus.COMPLETED, "other");
+
+        filter.open(feed);
+
+        assertTrue("Should create the filter file",
+                Files.exists(Paths.get(databaseFile + "." + CAMPAIGN + CompletedFilter.FILE_SUFFIX)));
+        assertEquals("Should only hold the numbers completed by the campaign", 1, filter.getFilter().getEntries());
+        assertTrue("Should find a number completed", filter.contains("+351211111111"));
+        assertFalse("Should not find a number not completed", filter.contains("+351222222222"));
+        assertFalse("Should not find a number completed by another campaign", filter.contains("+351233333333"));
+        assertFalse("Should not find a number never called", filter.contains("+351244444444"));
+    }
+
+    @Test
+    public void testFilterIsUpdatedWithTheNumbersCompletedSince() throws Exception {
+        persist("CA1", "+351211111111", CallStatus.COMPLETED, CAMPAIGN);
+        filter.open(feed);
+        filter.close();
+
+        clock.addAndGet(TimeUnit.HOURS.toMillis(1));
+        CallResult result = persist("CA2", "+351222222222", CallStatus.COMPLETED, CAMPAIGN);
+        DatabaseUtils.recordFinalStatus(engine, result, clock.get());
+
+        filter = new CompletedFilter(configuration, clock::get);
+        filter.open(feed);
+
+        assertEquals("Should add the number completed since", 2, filter.getFilter().getEntries());
+        assertEquals("Should move the watermark", clock.get(), filter.getFilter().getWatermark());
+        assertTrue("Should find the number completed before", filter.contains("+351211111111"));
+        assertTrue("Should find the number completed since", filter.contains("+351222222222"));
+    }
+
+    @Test
+    public void testNumbersCompletedWhileRunningAreAdded() throws Exception {
+        filter.open(feed);
+
+        CallResult result = persist("CA1", "+351211111111", CallStatus.COMPLETED, CAMPAIGN);
+        DatabaseUtils.recordFinalStatus(engine, result, clock.get());
+        clock.addAndGet(NumberStateFeed.PERIOD_MILLIS);
+        feed.poll();
+
+        assertEquals("Should add the number completed while running", 1, filter.getFilter().getEntries());
+        assertTrue("Should find the number completed while running", filter.contains("+351211111111"));
+    }
+
+    @Test
+    public void testFilterCanBeOpenedAgain() throws Exception {
+        filter.open(feed);
+
+        clock.addAndGet(TimeUnit.HOURS.toMillis(1));
+        CallResult result = persist("CA1", "+351211111111", CallStatus.COMPLETED, CAMPAIGN);
+        DatabaseUtils.recordFinalStatus(engine, result, clock.get());
+        filter.open(feed);
+
+        assertEquals("Should add the number completed since it was opened", 1, filter.getFilter().getEntries());
+        assertTrue("Should find the number completed since it was opened", filter.contains("+351211111111"));
+    }
+
+    @Test
+    public void testFullFilterIsBuiltLarger() throws Exception {
+        Deencapsulation.setField(configuration, "completedFilterCapacity", 1L);
+        persist("CA1", "+351211111111", CallStatus.COMPLETED, CAMPAIGN);
+        persist("CA2", "+351222222222", CallStatus.COMPLETED, CAMPAIGN);
+
+        filter.open(feed);
+
+        assertEquals("Should be sized for twice the numbers it holds", 4, filter.getFilter().getCapacity());
+        assertTrue("Should find the numbers completed", filter.contains("+351211111111") && filter.contains("+351222222222"));
+    }
+
+    @Test
+    public void testInvalidFilterIsBuiltAgain() throws Exception {
+        persist("CA1", "+351211111111", CallStatus.COMPLETED, CAMPAIGN);
+        Path file = Paths.get(databaseFile + "." + CAMPAIGN + CompletedFilter.FILE_SUFFIX);
+        Files.write(file, new byte[]{1, 2, 3});
+
+        filter.open(feed);
+
+        assertTrue("Should find the numbers completed", filter.contains("+351211111111"));
+    }
+
+    private CallResult persist(String sid, String number, CallStatus status, String campaign) throws Exception {
+        CallResult result = CallResult.builder()
+                .withCallSID(sid)
+                .withDestination(number)
+                .withStatus(status)
+                .withCampaign(campaign)
+                .build();
+        engine.persist(SurveyEntities.CALL_RESULT_TABLE, result.toEntity());
+        return result;
+    }
+}
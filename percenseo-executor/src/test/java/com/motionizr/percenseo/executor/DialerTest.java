@@ -32,11 +32,19 @@ import com.twilio.sdk.resource.instance.Account;
 import mockit.Deencapsulation;
 import mockit.Expectations;
 import mockit.Mocked;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpClient;
+import org.apache.http.message.BasicNameValuePair;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * @author Miguel Bento (migueljbento@gmail.com)
  * @version 1.0.0
@@ -56,6 +64,8 @@ public class DialerTest {
 
     private String destination = "+351321321321";
 
+    private long queuedAt = 1_000_000;
+
     private Map<String, String> expectedParams;
 
     @Before
@@ -71,7 +81,7 @@ public class DialerTest {
         expectedParamsBuilder.put("From", configuration.getCallerNumber());
         expectedParamsBuilder.put("To", destination);
         expectedParamsBuilder.put("Url", configuration.getCallHandlerURL());
-        expectedParamsBuilder.put("StatusCallback", configuration.getCallResultURL());
+        expectedParamsBuilder.put("StatusCallback", configuration.getCallResultURL() + "?campaign=" + configuration.getCampaign() + "&queuedAt=" + queuedAt);
         expectedParamsBuilder.put("IfMachine", "Hangup");
         expectedParamsBuilder.put("Timeout", "30");
 
@@ -83,13 +93,14 @@ public class DialerTest {
         new Expectations() {
             {
                 new TwilioRestClient(configuration.getAccountSID(), configuration.getAuthToken());
+                client.setHttpClient((HttpClient) any); times = 1;
                 client.getAccount(); times = 1; result = account;
                 account.getCallFactory(); times = 1; result = factory;
                 factory.create(expectedParams); times = 1;
             }
         };
 
-        Dialer dialer = new Dialer(configuration);
+        Dialer dialer = new Dialer(configuration, () -> queuedAt);
         dialer.dial(destination);
 
     }
@@ -99,13 +110,45 @@ public class DialerTest {
         new Expectations() {
             {
                 new TwilioRestClient(configuration.getAccountSID(), configuration.getAuthToken());
+                client.setHttpClient((HttpClient) any); times = 1;
                 client.getAccount(); times = 1; result = account;
                 account.getCallFactory(); times = 1; result = factory;
                 factory.create(expectedParams); times = 1; result = new TwilioRestException("mocked error", 0);
             }
         };
 
-        Dialer dialer = new Dialer(configuration);
+        Dialer dialer = new Dialer(configuration, () -> queuedAt);
+        dialer.dial(destination);
+    }
+
+    @Test
+    public void testDialWithProgressEvents() throws Exception {
+        Deencapsulation.setField(configuration, "callProgressEvents", true);
+        final List<List<NameValuePair>> requests = new ArrayList<>();
+        new Expectations() {
+            {
+                new TwilioRestClient(configuration.getAccountSID(), configuration.getAuthToken());
+                client.setHttpClient((HttpClient) any); times = 1;
+                client.getAccount(); times = 1; result = account;
+                account.getCallFactory(); times = 1; result = factory;
+                factory.create(withCapture(requests)); times = 1;
+            }
+        };
+
+        Dialer dialer = new Dialer(configuration, () -> queuedAt);
         dialer.dial(destination);
+
+        List<NameValuePair> params = requests.get(0);
+        expectedParams.forEach((name, value) ->
+                assertTrue("Should send the parameter " + name, params.contains(new BasicNameValuePair(name, value))));
+        for (String event : new String[]{"ringing", "answered", "completed"}) {
+            assertTrue("Should ask for the " + event + " status", params.contains(new BasicNameValuePair("StatusCallbackEvent", event)));
+        }
+    }
+
+    @Test
+    public void testWithQueryParameter() throws Exception {
+        assertEquals("Should start the query string", "http://host/result?campaign=a+b", Dialer.withQueryParameter("http://host/result", "campaign", "a b"));
+        assertEquals("Should append to an existing query string", "http://host/result?x=1&campaign=c", Dialer.withQueryParameter("http://host/result?x=1", "campaign", "c"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class FairShareTest {
+
+    private static final int TURNS = 600;
+
+    private static final long TURN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final int THREADS_PER_SHARE = 4;
+
+    @Test
+    public void testTurnsFollowTheWeights() throws Exception {
+        FairShare fairShare = new FairShare();
+        FairShare.Share heavy = fairShare.register("heavy", 2);
+        FairShare.Share light = fairShare.register("light", 1);
+
+        contend(heavy, light);
+
+        double heavyRatio = (double) heavy.getTurns() / (heavy.getTurns() + light.getTurns());
+        assertTrue("Should give two thirds of the turns to the heavier share: " + heavyRatio, heavyRatio > 0.6 && heavyRatio < 0.73);
+    }
+
+    @Test
+    public void testLoneShareTakesEveryTurn() throws Exception {
+        FairShare fairShare = new FairShare();
+        FairShare.Share busy = fairShare.register("busy", 1);
+        FairShare.Share idle = fairShare.register("idle", 10);
+
+        for (int i = 0; i < 10; i++) {
+            busy.acquire();
+            busy.release();
+        }
+
+        assertEquals("Should give the turns of an idle share to the others", 10, busy.getTurns());
+        assertEquals("Should not count turns for an idle share", 0, idle.getTurns());
+    }
+
+    @Test
+    public void testClosedShareIsRemoved() throws Exception {
+        FairShare fairShare = new FairShare();
+        FairShare.Share first = fairShare.register("first", 1);
+        fairShare.register("second", 1).close();
+
+        first.acquire();
+        first.release();
+
+        assertEquals("Should remove a closed share", 1, fairShare.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWeight() throws Exception {
+        new FairShare().register("invalid", 0);
+    }
+
+    private static void contend(FairShare.Share... shares) throws InterruptedException {
+        AtomicInteger left = new AtomicInteger(TURNS);
+        CyclicBarrier start = new CyclicBarrier(shares.length * THREADS_PER_SHARE);
+        List<Thread> threads = new ArrayList<>();
+        for (FairShare.Share share : shares) {
+            for (int i = 0; i < THREADS_PER_SHARE; i++) {
+                threads.add(new Thread(() -> {
+                    try {
+                        start.await();
+                        while (left.get() > 0) {
+                            share.acquire();
+                            left.decrementAndGet();
+                            LockSupport.parkNanos(TURN_NANOS);
+                            share.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (BrokenBarrierException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.executor.NumberStateFeed.NumberState;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import mockit.Deencapsulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class NumberStateFeedTest {
+
+    private static final String CAMPAIGN = "feed";
+
+    private static final String NUMBER = "+351211111111";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private DatabaseEngine engine;
+
+    private NumberStateFeed feed;
+
+    @Before
+    public void setUp() throws Exception {
+        String databaseFile = Files.createTempDirectory("percenseo").resolve("results").toString();
+        engine = DatabaseUtils.initializeDbConnection(databaseFile);
+
+        SurveyConfiguration configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "campaign", CAMPAIGN);
+        Deencapsulation.setField(configuration, "databaseFile", databaseFile);
+
+        feed = new NumberStateFeed(configuration, clock::get);
+        feed.open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        feed.close();
+        DatabaseUtils.closeDbConnection(engine);
+    }
+
+    @Test
+    public void testEverySubscriberGetsTheSameRead() throws Exception {
+        List<List<NumberState>> first = new ArrayList<>();
+        List<List<NumberState>> second = new ArrayList<>();
+        feed.subscribe(first::add);
+        feed.subscribe(second::add);
+
+        DatabaseUtils.recordAttempt(engine, CAMPAIGN, NUMBER, "CA1", CallStatus.QUEUED, 1, clock.get());
+        feed.poll();
+        assertTrue("Should not read before the period elapsed", first.isEmpty());
+
+        clock.addAndGet(NumberStateFeed.PERIOD_MILLIS);
+        DatabaseUtils.recordFinalStatus(engine, result("CA1", CallStatus.BUSY), clock.get());
+        feed.poll();
+        feed.poll();
+
+        assertEquals("Should read once per period", 1, first.size());
+        assertSame("Should hand the same states to every subscriber", first.get(0), second.get(0));
+
+        NumberState state = first.get(0).get(0);
+        assertEquals("Should read the number", NUMBER, state.number);
+        assertEquals("Should read the last call", "CA1", state.sid);
+        assertEquals("Should read the final status", CallStatus.BUSY, state.status);
+        assertEquals("Should read the attempts", 1, state.attempts);
+    }
+
+    @Test
+    public void testOnlyRecentChangesAreRead() throws Exception {
+        List<NumberState> changed = new ArrayList<>();
+        feed.subscribe(changed::addAll);
+
+        DatabaseUtils.recordAttempt(engine, CAMPAIGN, NUMBER, "CA1", CallStatus.COMPLETED, 1,
+                clock.get() - NumberStateFeed.OVERLAP_MILLIS - 1);
+        DatabaseUtils.recordAttempt(engine, CAMPAIGN, "+351222222222", "CA2", CallStatus.COMPLETED, 1,
+                clock.get() - NumberStateFeed.OVERLAP_MILLIS);
+        clock.addAndGet(NumberStateFeed.PERIOD_MILLIS);
+        feed.poll();
+
+        assertEquals("Should only read the states changed around the last read", 1, changed.size());
+        assertEquals("Should read the states committed out of order", "+351222222222", changed.get(0).number);
+        assertEquals("Should read every state when asked", 2, feed.readAll().size());
+
+        List<String> completed = new ArrayList<>();
+        assertEquals("Should stream the numbers completed since a given time", 1,
+                feed.readNumbers(CallStatus.COMPLETED, clock.get() - NumberStateFeed.PERIOD_MILLIS, completed::add));
+        assertEquals("Should stream the numbers completed since a given time", "+351222222222", completed.get(0));
+    }
+
+    private static CallResult result(String sid, CallStatus status) {
+        return CallResult.builder()
+                .withCallSID(sid)
+                .withDestination(NUMBER)
+                .withStatus(status)
+                .withCampaign(CAMPAIGN)
+                .build();
+    }
+}
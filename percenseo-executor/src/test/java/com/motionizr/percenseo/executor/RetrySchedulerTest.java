@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.executor.configuration.RetryPolicy;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import mockit.Deencapsulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class RetrySchedulerTest {
+
+    private static final String CAMPAIGN = "retries";
+
+    private static final String NUMBER = "+351211111111";
+
+    private static final String OTHER_NUMBER = "+351212222222";
+
+    private static final long COOLDOWN = TimeUnit.MINUTES.toMillis(10);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private SurveyConfiguration configuration;
+
+    private DatabaseEngine engine;
+
+    private NumberStateFeed feed;
+
+    private RetryScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        String databaseFile = Files.createTempDirectory("percenseo").resolve("results").toString();
+        engine = DatabaseUtils.initializeDbConnection(databaseFile);
+
+        configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "campaign", CAMPAIGN);
+        Deencapsulation.setField(configuration, "databaseFile", databaseFile);
+        Deencapsulation.setField(configuration, "retryPolicy", new RetryPolicy(3, 2)
+                .withCooldown(CallStatus.BUSY, Duration.ofMillis(COOLDOWN))
+                .withCooldown(CallStatus.NO_ANSWER, Duration.ofMillis(COOLDOWN))
+                .withResultTimeout(Duration.ofMinutes(5)));
+
+        feed = new NumberStateFeed(configuration, clock::get);
+        feed.open();
+        scheduler = new RetryScheduler(configuration, feed, number -> true, clock::get);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        feed.close();
+        DatabaseUtils.closeDbConnection(engine);
+    }
+
+    @Test
+    public void testNewNumbersAreDialedOnce() throws Exception {
+        scheduler.load();
+
+        assertTrue("Should dial a new number", scheduler.admit(NUMBER));
+        assertFalse("Should not dial a number twice", scheduler.admit(NUMBER));
+    }
+
+    @Test
+    public void testPreviousRunIsRetriedAfterCooldown() throws Exception {
+        DatabaseUtils.recordAttempt(engine, CAMPAIGN, NUMBER, "CA1", CallStatus.QUEUED, 1, clock.get());
+        DatabaseUtils.recordFinalStatus(engine, result("CA1", CallStatus.BUSY), clock.get());
+
+        scheduler.load();
+        assertFalse("Should not dial a number dialed before", scheduler.admit(NUMBER));
+        assertNull("Should wait for the cooldown", scheduler.pollDue());
+        assertEquals("Should wait for the cooldown", COOLDOWN, scheduler.millisUntilDue());
+
+        clock.addAndGet(COOLDOWN);
+        assertEquals("Should retry once the cooldown elapsed", NUMBER, scheduler.pollDue());
+    }
+
+    @Test
+    public void testFinalStatusDuringTheRunIsRetriedWithBackoff() throws Exception {
+        DatabaseUtils.recordAttempt(engine, CAMPAIGN, NUMBER, "CA1", CallStatus.QUEUED, 1, clock.get());
+        DatabaseUtils.recordFinalStatus(engine, result("CA1", CallStatus.BUSY), clock.get());
+        scheduler.load();
+        clock.addAndGet(COOLDOWN);
+        scheduler.pollDue();
+
+        assertEquals("Should count the attempts of every run", 2, scheduler.onDialed(NUMBER, result("CA2", CallStatus.QUEUED)));
+        assertFalse("Should wait for the final status", scheduler.isDone());
+
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        DatabaseUtils.recordFinalStatus(engine, result("CA2", CallStatus.NO_ANSWER), clock.get());
+        scheduler.refresh();
+
+        assertEquals("Should double the cooldown on the second attempt", 2 * COOLDOWN, scheduler.millisUntilDue());
+        assertFalse("Should wait for the retry", scheduler.isDone());
+    }
+
+    @Test
+    public void testAttemptsAreCapped() throws Exception {
+        DatabaseUtils.recordAttempt(engine, CAMPAIGN, NUMBER, "CA3", CallStatus.QUEUED, 3, clock.get());
+        DatabaseUtils.recordFinalStatus(engine, result("CA3", CallStatus.NO_ANSWER), clock.get());
+
+        scheduler.load();
+        clock.addAndGet(TimeUnit.DAYS.toMillis(1));
+
+        assertNull("Should not retry past the maximum attempts", scheduler.pollDue());
+        assertTrue("Should have nothing left to do", scheduler.isDone());
+    }
+
+    @Test
+    public void testStatusesWithoutCooldownAreNotRetried() throws Exception {
+        scheduler.load();
+        scheduler.admit(NUMBER);
+
+        scheduler.onDialed(NUMBER, CallResult.failedCall(NUMBER));
+
+        assertEquals("Should not retry a status without a cooldown", Long.MAX_VALUE, scheduler.millisUntilDue());
+        assertTrue("Should have nothing left to do", scheduler.isDone());
+    }
+
+    @Test
+    public void testMissingFinalStatusIsNotWaitedForever() throws Exception {
+        scheduler.load();
+        scheduler.admit(NUMBER);
+        scheduler.onDialed(NUMBER, result("CA1", CallStatus.QUEUED));
+        assertFalse("Should wait for the final status", scheduler.isDone());
+
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(6));
+        assertTrue("Should stop waiting after the result timeout", scheduler.isDone());
+    }
+
+    @Test
+    public void testAbandonedNumbersAreNotWaitedFor() throws Exception {
+        DatabaseUtils.recordAttempt(engine, CAMPAIGN, NUMBER, "CA1", CallStatus.QUEUED, 1, clock.get());
+        DatabaseUtils.recordFinalStatus(engine, result("CA1", CallStatus.BUSY), clock.get());
+        scheduler.load();
+        scheduler.admit(OTHER_NUMBER);
+        clock.addAndGet(COOLDOWN);
+        assertEquals("Should retry once the cooldown elapsed", NUMBER, scheduler.pollDue());
+
+        scheduler.abandon(OTHER_NUMBER);
+        scheduler.abandon(NUMBER);
+
+        assertTrue("Should not wait for numbers that were not dialed", scheduler.isDone());
+        assertFalse("Should not dial an abandoned number again in the same run", scheduler.admit(OTHER_NUMBER));
+    }
+
+    @Test
+    public void testDialedNumbersAreNotAbandoned() throws Exception {
+        scheduler.load();
+        scheduler.admit(NUMBER);
+        scheduler.onDialed(NUMBER, result("CA1", CallStatus.QUEUED));
+
+        scheduler.abandon(NUMBER);
+
+        assertFalse("Should still wait for the final status", scheduler.isDone());
+    }
+
+    private static CallResult result(String sid, CallStatus status) {
+        return CallResult.builder()
+                .withCallSID(sid)
+                .withDestination(NUMBER)
+                .withStatus(status)
+                .withCampaign(CAMPAIGN)
+                .build();
+    }
+}
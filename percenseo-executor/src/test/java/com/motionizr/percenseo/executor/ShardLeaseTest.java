@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import mockit.Deencapsulation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class ShardLeaseTest {
+
+    private static final List<String> NUMBERS = IntStream.range(0, 200)
+            .mapToObj(i -> String.format("+1555%07d", i))
+            .collect(Collectors.toList());
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private String databaseFile;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseFile = Files.createTempDirectory("percenseo").resolve("results").toString();
+    }
+
+    @Test
+    public void testShardOfIsStable() throws Exception {
+        assertEquals("Should not change across releases", 0, ShardLease.shardOf("+351211111111", 8));
+        assertEquals("Should not change across releases", 3, ShardLease.shardOf("+16175551212", 8));
+    }
+
+    @Test
+    public void testShardsPartitionTheNumbers() throws Exception {
+        Set<String> selected = new HashSet<>();
+        int total = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            try (ShardLease lease = new ShardLease(configuration(shard, 3, "node" + shard), clock::get)) {
+                assertTrue("Should claim a free shard", lease.acquire());
+                List<String> numbers = lease.select(NUMBERS.stream()).collect(Collectors.toList());
+                total += numbers.size();
+                selected.addAll(numbers);
+            }
+        }
+
+        assertEquals("Should select every number once", NUMBERS.size(), total);
+        assertEquals("Should select every number", new HashSet<>(NUMBERS), selected);
+    }
+
+    @Test
+    public void testHeldShardIsNotClaimed() throws Exception {
+        ShardLease first = new ShardLease(configuration(0, 2, "first"), clock::get);
+        ShardLease second = new ShardLease(configuration(0, 2, "second"), clock::get);
+        try {
+            assertTrue("Should claim a free shard", first.acquire());
+            assertFalse("Should not claim a shard held by another node", second.acquire());
+
+            clock.addAndGet(Duration.ofMinutes(2).toMillis());
+            assertTrue("Should consider an expired lease lost", first.isLost());
+            assertTrue("Should take over an expired lease", second.acquire());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void testTakeOverResumesFromCheckpoint() throws Exception {
+        List<String> handled = new ArrayList<>();
+        try (ShardLease lease = new ShardLease(configuration(1, 2, "first"), clock::get)) {
+            assertTrue("Should claim a free shard", lease.acquire());
+
+            Iterator<String> numbers = lease.select(NUMBERS.stream()).iterator();
+            ShardProgress progress = lease.getProgress();
+            for (int i = 0; i < 10; i++) {
+                handled.add(numbers.next());
+                progress.end(progress.begin());
+            }
+        }
+
+        try (ShardLease lease = new ShardLease(configuration(1, 2, "second"), clock::get)) {
+            assertTrue("Should claim a released shard", lease.acquire());
+
+            List<String> remaining = lease.select(NUMBERS.stream()).collect(Collectors.toList());
+            List<String> shard = NUMBERS.stream().filter(number -> ShardLease.shardOf(number, 2) == 1).collect(Collectors.toList());
+            assertEquals("Should skip the numbers handled by the previous owner", shard.subList(10, shard.size()), remaining);
+            assertEquals("Should have handled the first numbers of the shard", shard.subList(0, 10), handled);
+        }
+    }
+
+    @Test
+    public void testFinishedShardIsNotDialedAgain() throws Exception {
+        try (ShardLease lease = new ShardLease(configuration(0, 1, "first"), clock::get)) {
+            assertTrue("Should claim a free shard", lease.acquire());
+            lease.select(NUMBERS.stream()).forEach(number -> {});
+            lease.finish();
+        }
+
+        try (ShardLease lease = new ShardLease(configuration(0, 1, "second"), clock::get)) {
+            assertFalse("Should not dial a finished shard", lease.acquire());
+        }
+    }
+
+    @Test
+    public void testDifferentShardCountIsRejected() throws Exception {
+        try (ShardLease lease = new ShardLease(configuration(0, 2, "first"), clock::get)) {
+            assertTrue("Should claim a free shard", lease.acquire());
+        }
+
+        try (ShardLease lease = new ShardLease(configuration(0, 4, "second"), clock::get)) {
+            assertFalse("Should not claim a shard partitioned differently", lease.acquire());
+        }
+    }
+
+    private SurveyConfiguration configuration(int shardId, int shardCount, String nodeId) {
+        SurveyConfiguration configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "campaign", "sharded");
+        Deencapsulation.setField(configuration, "databaseFile", databaseFile);
+        Deencapsulation.setField(configuration, "sharded", true);
+        Deencapsulation.setField(configuration, "shardId", shardId);
+        Deencapsulation.setField(configuration, "shardCount", shardCount);
+        Deencapsulation.setField(configuration, "shardLease", Duration.ofMinutes(1));
+        Deencapsulation.setField(configuration, "nodeId", nodeId);
+        return configuration;
+    }
+}
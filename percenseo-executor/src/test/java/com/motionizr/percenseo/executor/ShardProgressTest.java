@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class ShardProgressTest {
+
+    @Test
+    public void testCheckpointStopsAtTheOldestNumberInFlight() throws Exception {
+        ShardProgress progress = new ShardProgress(100);
+        assertEquals("Should start at the claimed checkpoint", 100, progress.getCheckpoint());
+
+        progress.scan();
+        long first = progress.begin();
+        progress.scan();
+        long second = progress.begin();
+        progress.scan();
+        long third = progress.begin();
+
+        progress.end(second);
+        progress.end(third);
+        assertEquals("Should not pass a number still being dialed", 100, progress.getCheckpoint());
+
+        progress.end(first);
+        assertEquals("Should cover every number dialed", 103, progress.getCheckpoint());
+    }
+
+    @Test
+    public void testSkippedNumbersAreCoveredByTheNextOneDialed() throws Exception {
+        ShardProgress progress = new ShardProgress(0);
+
+        progress.scan();
+        progress.scan();
+        progress.scan();
+        assertEquals("Should not cover numbers skipped after the last one dialed", 0, progress.getCheckpoint());
+
+        progress.scan();
+        progress.end(progress.begin());
+        assertEquals("Should cover the skipped numbers before a number dialed", 4, progress.getCheckpoint());
+        assertEquals("Should cover every number scanned once finished", 4, progress.getFinalCheckpoint());
+    }
+}
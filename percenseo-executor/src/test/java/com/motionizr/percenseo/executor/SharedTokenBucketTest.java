@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import mockit.Deencapsulation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class SharedTokenBucketTest {
+
+    private static final AccountConfiguration ACCOUNT = new AccountConfiguration("anSID", "aToken", 10, Collections.singletonList("+351123123123"));
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private String databaseFile;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseFile = Files.createTempDirectory("percenseo").resolve("results").toString();
+    }
+
+    @Test
+    public void testTakesABatchPerRoundTrip() throws Exception {
+        try (SharedTokenBucket bucket = new SharedTokenBucket(configuration(databaseFile, 5), ACCOUNT, clock::get)) {
+            assertTrue("Should hold a token when created", bucket.tryAcquire());
+            assertFalse("Should not hold a second token", bucket.tryAcquire());
+            assertEquals("Should wait for the bucket to refill a token", TimeUnit.MILLISECONDS.toNanos(100), bucket.nanosUntilAvailable());
+
+            clock.addAndGet(TimeUnit.SECONDS.toMillis(1));
+            for (int i = 0; i < 5; i++) {
+                assertTrue("Should take the tokens of the batch", bucket.tryAcquire());
+            }
+            assertTrue("Should take another batch from the refilled bucket", bucket.tryAcquire());
+        }
+    }
+
+    @Test
+    public void testProcessesShareTheRate() throws Exception {
+        int taken = 0;
+        try (SharedTokenBucket first = new SharedTokenBucket(configuration(databaseFile, 3), ACCOUNT, clock::get);
+             SharedTokenBucket second = new SharedTokenBucket(configuration(databaseFile, 3), ACCOUNT, clock::get)) {
+            for (int step = 0; step < 1000; step++) {
+                while (first.tryAcquire()) {
+                    taken++;
+                }
+                while (second.tryAcquire()) {
+                    taken++;
+                }
+                clock.addAndGet(10);
+            }
+        }
+
+        assertTrue("Should not exceed the rate of the account across processes: " + taken, taken <= 101);
+        assertTrue("Should use the rate of the account: " + taken, taken >= 90);
+    }
+
+    @Test
+    public void testUnusedTokensExpire() throws Exception {
+        try (SharedTokenBucket first = new SharedTokenBucket(configuration(databaseFile, 5), ACCOUNT, clock::get);
+             SharedTokenBucket second = new SharedTokenBucket(configuration(databaseFile, 5), ACCOUNT, clock::get)) {
+            first.tryAcquire();
+            clock.addAndGet(TimeUnit.SECONDS.toMillis(1));
+            assertTrue("Should take a batch", first.tryAcquire());
+
+            clock.addAndGet(TimeUnit.SECONDS.toMillis(1));
+            assertTrue("Should take a batch from the refilled bucket", second.tryAcquire());
+
+            int taken = 0;
+            while (first.tryAcquire()) {
+                taken++;
+            }
+            assertEquals("Should drop the tokens not used in time and take a new batch", 5, taken);
+        }
+    }
+
+    @Test
+    public void testUnreachableDatabaseQueuesNoCalls() throws Exception {
+        String unreachable = Files.createTempFile("percenseo", "file").resolve("results").toString();
+        try (SharedTokenBucket bucket = new SharedTokenBucket(configuration(unreachable, 5), ACCOUNT, clock::get)) {
+            assertFalse("Should not hand out tokens without the database", bucket.tryAcquire());
+            assertEquals("Should back off before reaching the database again", TimeUnit.SECONDS.toNanos(1), bucket.nanosUntilAvailable());
+        }
+    }
+
+    private SurveyConfiguration configuration(String databaseFile, int batchSize) {
+        SurveyConfiguration configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "databaseFile", databaseFile);
+        Deencapsulation.setField(configuration, "sharedRateLimit", true);
+        Deencapsulation.setField(configuration, "sharedRateLimitBatch", batchSize);
+        return configuration;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SuppressionList;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import com.twilio.sdk.TwilioRestException;
+import mockit.Deencapsulation;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+import org.apache.http.HttpHost;
+import org.apache.http.NoHttpResponseException;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class SurveyOrchestratorTest {
+
+    @Test
+    public void testOnlyRefusedCallsAreTransient() throws Exception {
+        assertTrue("Rate limited calls should be retried", SurveyOrchestrator.isTransient(new TwilioRestException("Too Many Requests", 20429)));
+        assertTrue("Rate limited calls should be retried", SurveyOrchestrator.isTransient(new TwilioRestException("Too Many Requests", 429)));
+        assertTrue("Calls refused while unavailable should be retried", SurveyOrchestrator.isTransient(new TwilioRestException("Service Unavailable", 20503)));
+        assertTrue("Calls refused while unavailable should be retried", SurveyOrchestrator.isTransient(new TwilioRestException("Service Unavailable", 503)));
+
+        TwilioRestException internalError = new TwilioRestException("Internal Server Error", 500);
+        assertFalse("Calls that may have been created should not be retried", SurveyOrchestrator.isTransient(internalError));
+        assertTrue("Other server errors should still tell the API is degraded", SurveyOrchestrator.isServerError(internalError));
+        assertFalse("Invalid numbers should not be retried", SurveyOrchestrator.isTransient(new TwilioRestException("Invalid To", 21211)));
+        assertFalse("Invalid numbers do not tell the API is degraded", SurveyOrchestrator.isServerError(new TwilioRestException("Invalid To", 21211)));
+    }
+
+    @Test
+    public void testOnlyConnectFailuresAreRetried() throws Exception {
+        assertTrue("Refused connections should be retried",
+                SurveyOrchestrator.isConnectFailure(new RuntimeException(new HttpHostConnectException(new HttpHost("api.twilio.com"), new ConnectException()))));
+        assertTrue("Connection timeouts should be retried",
+                SurveyOrchestrator.isConnectFailure(new RuntimeException(new ConnectTimeoutException("Connect timed out"))));
+
+        assertFalse("Read timeouts should not be retried, the call may have been created",
+                SurveyOrchestrator.isConnectFailure(new RuntimeException(new SocketTimeoutException("Read timed out"))));
+        assertFalse("Dropped responses should not be retried, the call may have been created",
+                SurveyOrchestrator.isConnectFailure(new RuntimeException(new NoHttpResponseException("The target server failed to respond"))));
+        assertFalse("Bugs should not be retried", SurveyOrchestrator.isConnectFailure(new NullPointerException()));
+    }
+
+    @Test
+    public void testInvalidNumbersAreSuppressed() throws Exception {
+        Path file = Files.createTempDirectory("percenseo").resolve("dnc.bin");
+        SuppressionList.write(file, new long[]{351912345678L}, 1);
+        SuppressionList list = SuppressionList.open(file);
+
+        assertTrue("Should suppress the numbers on the list", SurveyOrchestrator.isSuppressed(list, "+351912345678"));
+        assertFalse("Should call the numbers missing from the list", SurveyOrchestrator.isSuppressed(list, "+351912345679"));
+        assertTrue("Should not call numbers that can't be checked", SurveyOrchestrator.isSuppressed(list, "+351 91x 345 678"));
+        assertTrue("Should not call numbers that can't be checked", SurveyOrchestrator.isSuppressed(list, ""));
+        assertFalse("Should call every number without a list", SurveyOrchestrator.isSuppressed(null, "not a number"));
+    }
+
+    @Test
+    public void testNumbersWaitingForThePacerAreNotDialedOnceCancelled() throws Exception {
+        String databaseFile = Files.createTempDirectory("percenseo").resolve("results").toString();
+        DatabaseEngine engine = DatabaseUtils.initializeDbConnection(databaseFile);
+        AtomicLong clock = new AtomicLong(1_000_000);
+
+        SurveyConfiguration configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "campaign", "cancelled");
+        Deencapsulation.setField(configuration, "databaseFile", databaseFile);
+        Deencapsulation.setField(configuration, "callerNumber", "+351123123123");
+        Deencapsulation.setField(configuration, "callHandlerURL", "handlerURL");
+        Deencapsulation.setField(configuration, "callResultURL", "resultURL");
+        Deencapsulation.setField(configuration, "accountSID", "anSID");
+        Deencapsulation.setField(configuration, "authToken", "aToken");
+        Deencapsulation.setField(configuration, "apiEndpoint", "http://localhost:1");
+        Deencapsulation.setField(configuration, "callsPerSecond", 10.0);
+        Deencapsulation.setField(configuration, "adaptivePacing", true);
+        Deencapsulation.setField(configuration, "pacingTargetCalls", 1);
+
+        NumberStateFeed feed = new NumberStateFeed(configuration, clock::get);
+        feed.open();
+        CallPacer pacer = new CallPacer(configuration, feed, clock::get);
+        pacer.open();
+        pacer.acquire();
+        pacer.onDialed(result(CallStatus.QUEUED));
+
+        SurveyOrchestrator orchestrator = new SurveyOrchestrator(configuration);
+        Deencapsulation.setField(orchestrator, "pacer", pacer);
+        AtomicReference<CallResult> dialed = new AtomicReference<>(result(CallStatus.QUEUED));
+        Thread worker = new Thread(() -> dialed.set(Deencapsulation.invoke(orchestrator, "pace", "+351210000002")));
+        try {
+            worker.start();
+            while (worker.getState() != Thread.State.TIMED_WAITING) {
+                Thread.sleep(1);
+            }
+
+            orchestrator.getControl().cancel();
+            DatabaseUtils.recordFinalStatus(engine, result(CallStatus.COMPLETED), clock.get());
+            clock.addAndGet(CallPacer.CONTROL_PERIOD_MILLIS);
+            worker.join();
+
+            assertNull("Should not dial a number the pacer let through after the campaign was cancelled", dialed.get());
+            assertEquals("Should give the call back to the pacer", 0, pacer.getLiveCalls());
+        } finally {
+            orchestrator.close();
+            feed.close();
+            DatabaseUtils.closeDbConnection(engine);
+        }
+    }
+
+    private static CallResult result(CallStatus status) {
+        return CallResult.builder()
+                .withCallSID("CA1")
+                .withDestination("+351210000001")
+                .withStatus(status)
+                .withCampaign("cancelled")
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class TokenBucketTest {
+
+    /**
+     * The current time, in nanoseconds.
+     */
+    private long now;
+
+    private TokenBucket bucket;
+
+    @Before
+    public void setUp() throws Exception {
+        now = 0;
+        bucket = new TokenBucket(4, () -> now);
+    }
+
+    @Test
+    public void testStartsWithASingleToken() throws Exception {
+        assertTrue("Should hold a token", bucket.tryAcquire());
+        assertFalse("Should not hold a second token", bucket.tryAcquire());
+        assertEquals("Should refill a token in a quarter of a second", TimeUnit.MILLISECONDS.toNanos(250), bucket.nanosUntilAvailable());
+    }
+
+    @Test
+    public void testRefill() throws Exception {
+        bucket.tryAcquire();
+
+        now += TimeUnit.MILLISECONDS.toNanos(250);
+        assertEquals("Should have a token available", 0, bucket.nanosUntilAvailable());
+        assertTrue("Should take the refilled token", bucket.tryAcquire());
+    }
+
+    @Test
+    public void testBurstIsCappedToOneSecond() throws Exception {
+        now += TimeUnit.SECONDS.toNanos(10);
+
+        int taken = 0;
+        while (bucket.tryAcquire()) {
+            taken++;
+        }
+
+        assertEquals("Should not store more than a second worth of tokens", 4, taken);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor;
+
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
+import mockit.Deencapsulation;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class TwilioHttpClientFactoryTest {
+
+    @Test
+    public void testCreate() throws Exception {
+        SurveyConfiguration configuration = new SurveyConfiguration();
+        Deencapsulation.setField(configuration, "maxConnections", 32);
+        Deencapsulation.setField(configuration, "connectTimeoutMillis", 1000);
+        Deencapsulation.setField(configuration, "socketTimeoutMillis", 2000);
+
+        DefaultHttpClient client = TwilioHttpClientFactory.create(configuration,
+                new AccountConfiguration("anSID", "aToken", 1, Collections.singletonList("+351123123123")));
+        try {
+            assertTrue("The connections should be pooled", client.getConnectionManager() instanceof PoolingClientConnectionManager);
+
+            PoolingClientConnectionManager connectionManager = (PoolingClientConnectionManager) client.getConnectionManager();
+            assertEquals("The pool should hold the configured connections", 32, connectionManager.getMaxTotal());
+            assertEquals("A single route should be able to use the whole pool", 32, connectionManager.getDefaultMaxPerRoute());
+            assertEquals("The connect timeout should be configured", 1000, HttpConnectionParams.getConnectionTimeout(client.getParams()));
+            assertEquals("The socket timeout should be configured", 2000, HttpConnectionParams.getSoTimeout(client.getParams()));
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testBasicAuthorization() throws Exception {
+        assertEquals("Should encode the credentials", "Basic QWxhZGRpbjpvcGVuIHNlc2FtZQ==",
+                TwilioHttpClientFactory.basicAuthorization("Aladdin", "open sesame"));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor.configuration;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.ZoneId;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallingZonesTest {
+
+    @Test
+    public void testLongestPrefixWins() throws Exception {
+        CallingZones zones = CallingZones.defaults();
+
+        assertEquals("Should map the country code", ZoneId.of("Europe/Lisbon"), zones.zoneOf("+351211111111"));
+        assertEquals("Should map the area code", ZoneId.of("Atlantic/Azores"), zones.zoneOf("+351296123456"));
+        assertEquals("Should map the area code", ZoneId.of("Pacific/Honolulu"), zones.zoneOf("+18085551212"));
+        assertEquals("Should fall back to the country code", ZoneId.of("America/New_York"), zones.zoneOf("+16175551212"));
+    }
+
+    @Test
+    public void testUnknownNumbersUseTheLocalZone() throws Exception {
+        CallingZones zones = CallingZones.defaults();
+
+        assertEquals("Should use the local zone for unknown prefixes", ZoneId.systemDefault(), zones.zoneOf("+999123456"));
+        assertEquals("Should use the local zone for invalid numbers", ZoneId.systemDefault(), zones.zoneOf("not a number"));
+    }
+
+    @Test
+    public void testCsvOverridesTheDefaults() throws Exception {
+        CallingZones zones = CallingZones.fromCSV(new StringReader("# Operators in Manaus\n+5592,America/Manaus\n1,America/Chicago\n"));
+
+        assertEquals("Should add the prefix", ZoneId.of("America/Manaus"), zones.zoneOf("+559212345678"));
+        assertEquals("Should keep the defaults", ZoneId.of("America/Sao_Paulo"), zones.zoneOf("+551112345678"));
+        assertEquals("Should override the default", ZoneId.of("America/Chicago"), zones.zoneOf("+16175551212"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidZoneIsRejected() throws Exception {
+        CallingZones.fromCSV(new StringReader("+351,Europe/Nowhere\n"));
+    }
+}
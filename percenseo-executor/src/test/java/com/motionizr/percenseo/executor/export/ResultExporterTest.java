@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.executor.export;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.motionizr.percenseo.commons.CallDirection;
+import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.SurveyEntities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class ResultExporterTest {
+
+    private DatabaseEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = DatabaseUtils.initializeDbConnection(Files.createTempDirectory("percenseo").resolve("results").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DatabaseUtils.closeDbConnection(engine);
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            engine.persist(SurveyEntities.CALL_RESULT_TABLE, CallResult.builder()
+                    .withDestination("+35132132132" + i)
+                    .withCallSID("CA" + i)
+                    .withCallDuration(i)
+                    .withHumanAnswered(true)
+                    .withStatus(CallStatus.COMPLETED)
+                    .withCallDate(LocalDateTime.of(2015, 11, 18, 19, 0, i))
+                    .withDirection(CallDirection.OUTBOUND)
+                    .withDigits("1")
+                    .withCampaign(i < 3 ? "first" : "second")
+                    .build()
+                    .toEntity());
+        }
+
+        StringWriter out = new StringWriter();
+        ExportReport report = new ResultExporter(engine, 2, 2).export(out);
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals("Should report all the rows exported", 5, report.getRows());
+        assertEquals("Should write the header and one line per row", 6, lines.length);
+        assertEquals("Should write the header", "SID,TO,DURATION,STATUS,DATE,HUMAN_ANSWERED,DIRECTION,DIGITS_PRESSED,CAMPAIGN", lines[0]);
+        assertEquals("Should replace internal codes by descriptions", "CA0,+351321321320,0,completed,2015-11-18T19:00,true,outbound-api,1,first", lines[1]);
+    }
+
+    @Test
+    public void testExportCampaign() throws Exception {
+        testExport();
+
+        StringWriter out = new StringWriter();
+        ExportReport report = new ResultExporter(engine).export(out, "second");
+
+        assertEquals("Should only export the results of the campaign", 2, report.getRows());
+        assertEquals("Should write the header and one line per row", 3, out.toString().split("\r\n").length);
+    }
+}
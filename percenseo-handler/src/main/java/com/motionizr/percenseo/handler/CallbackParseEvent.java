@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.handler;
+
+import com.motionizr.percenseo.commons.FlightEvents;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event spanning the parse of a status callback from Twilio into a {@link com.motionizr.percenseo.commons.CallResult call result}.
+ * <p/>
+ * Only created when {@link FlightEvents#ENABLED}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@Name("com.motionizr.percenseo.CallbackParse")
+@Label("Callback Parse")
+@Category({FlightEvents.CATEGORY, "Handler"})
+@Description("Parse of a status callback into a call result.")
+final class CallbackParseEvent extends Event {
+
+    /**
+     * The SID of the call.
+     */
+    @Label("Call SID")
+    String callSid;
+
+    /**
+     * The number called.
+     */
+    @Label("Number")
+    String number;
+
+    /**
+     * The status of the call.
+     */
+    @Label("Status")
+    String status;
+
+    /**
+     * Creates a new {@link CallbackParseEvent} and starts timing it, the call is known once parsed.
+     */
+    CallbackParseEvent() {
+        begin();
+    }
+}
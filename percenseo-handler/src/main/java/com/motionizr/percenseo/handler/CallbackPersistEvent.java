@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.handler;
+
+import com.motionizr.percenseo.commons.FlightEvents;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event spanning the persist of the {@link com.motionizr.percenseo.commons.CallResult call result} of a status callback, waiting for the other callbacks included.
+ * <p/>
+ * Only created when {@link FlightEvents#ENABLED}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+@Name("com.motionizr.percenseo.CallbackPersist")
+@Label("Callback Persist")
+@Category({FlightEvents.CATEGORY, "Handler"})
+@Description("Persist of a call result, waiting for the other callbacks included.")
+final class CallbackPersistEvent extends Event {
+
+    /**
+     * The SID of the call.
+     */
+    @Label("Call SID")
+    String callSid;
+
+    /**
+     * The number called.
+     */
+    @Label("Number")
+    String number;
+
+    /**
+     * The status of the call.
+     */
+    @Label("Status")
+    String status;
+
+    /**
+     * Creates a new {@link CallbackPersistEvent} and starts timing it.
+     *
+     * @param callSid   The SID of the call.
+     * @param number    The number called.
+     * @param status    The status of the call.
+     */
+    CallbackPersistEvent(String callSid, String number, String status) {
+        this.callSid = callSid;
+        this.number = number;
+        this.status = status;
+        begin();
+    }
+}
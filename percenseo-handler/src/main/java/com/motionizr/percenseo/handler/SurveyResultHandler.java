@@ -26,9 +26,14 @@ package com.motionizr.percenseo.handler;
 import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
 import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
 import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.motionizr.percenseo.commons.CallProgressTracker;
 import com.motionizr.percenseo.commons.CallResult;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.CampaignStatistics;
 import com.motionizr.percenseo.commons.DatabaseUtils;
-import com.motionizr.percenseo.commons.SurveyEntities;
+import com.motionizr.percenseo.commons.FlightEvents;
+import com.motionizr.percenseo.commons.LatencyHistogram;
+import com.motionizr.percenseo.commons.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,17 +49,52 @@ import java.util.stream.Collectors;
  * This endpoint collects information about the outcome of the survey calls.
  * <p/>
  * Basically it creates a {@link com.motionizr.percenseo.commons.CallResult} from the information provided to the endpoint.
+ * Every status feeds the {@link CallProgressTracker}, while only the final ones are persisted and counted in the
+ * statistics, the ringing and answered statuses are only sent when the executor asks for the progress of the calls.
  *
  * @author Miguel Bento (migueljbento@gmail.com)
  * @version 1.0.0
  */
 public class SurveyResultHandler extends HttpServlet {
 
+    /**
+     * The context parameter holding the path to the H2 database file. A system property with the same name takes precedence.
+     */
+    public static final String DATABASE_FILE_PARAMETER = "percenseo.databaseFile";
+
+    /**
+     * The time taken to handle a callback, in nanoseconds.
+     */
+    private static final LatencyHistogram REQUEST_LATENCY = Metrics.getDefault().latency("percenseo_callback_seconds",
+            "Time taken to handle a status callback.");
+
+    /**
+     * The time taken to persist a call result, waiting for the other callbacks included, in nanoseconds.
+     */
+    private static final LatencyHistogram PERSIST_LATENCY = Metrics.getDefault().latency("percenseo_persist_seconds",
+            "Time taken to persist a call result, waiting for the other callbacks included.");
+
+    /**
+     * The time taken to commit a call result, in nanoseconds.
+     */
+    private static final LatencyHistogram COMMIT_LATENCY = Metrics.getDefault().latency("percenseo_commit_seconds",
+            "Time taken to commit a call result.");
+
     /**
      * The database connection.
      */
     private DatabaseEngine engine;
 
+    /**
+     * The live statistics, shared with the {@link SurveyStatisticsHandler}.
+     */
+    private CampaignStatistics statistics;
+
+    /**
+     * Measures the time the calls spend in each status.
+     */
+    private final CallProgressTracker progress = new CallProgressTracker();
+
     /**
      * The logger.
      */
@@ -63,24 +103,48 @@ public class SurveyResultHandler extends HttpServlet {
     @Override
     public void init() throws ServletException {
         try {
-            engine = DatabaseUtils.initializeDbConnection("YOU_DB_FILE_HERE");
+            String databaseFile = System.getProperty(DATABASE_FILE_PARAMETER, getServletContext().getInitParameter(DATABASE_FILE_PARAMETER));
+            engine = DatabaseUtils.initializeDbConnection(databaseFile);
         } catch (DatabaseFactoryException | DatabaseEngineException e) {
             logger.error("Unable to initilize the database connection.", e);
             throw new ServletException("Unable to initialize the database connection. Please correct this error before proceeding.");
         }
+
+        statistics = CampaignStatistics.fromContext(getServletContext());
+        Metrics.getDefault().gauge("percenseo_calls_in_progress", "Calls whose progress is tracked until their final status.",
+                null, null, progress::size);
+        Metrics.getDefault().registerMBean();
     }
 
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        long start = System.nanoTime();
+        long receivedAt = System.currentTimeMillis();
         logger.info("Call result request: {}", req.getParameterMap().entrySet().stream()
                 .map(entry -> entry.getKey() + ":" + Arrays.toString(entry.getValue()))
                 .collect(Collectors.joining(", ")));
 
+        CallbackParseEvent parseEvent = FlightEvents.ENABLED ? new CallbackParseEvent() : null;
         CallResult result = CallResult.fromHttpServletRequest(req);
+        if (parseEvent != null) {
+            parseEvent.callSid = result.getCallSID();
+            parseEvent.number = result.getDestination();
+            parseEvent.status = String.valueOf(result.getStatus());
+            parseEvent.commit();
+        }
         logger.info("Call result: {}", result);
 
+        progress.record(result, queuedAt(req), receivedAt);
+        if (isProgress(result.getStatus())) {
+            resp.setStatus(HttpServletResponse.SC_OK);
+            REQUEST_LATENCY.record(System.nanoTime() - start);
+            return;
+        }
+
         persistCallResult(result);
+        statistics.record(result);
         resp.setStatus(HttpServletResponse.SC_OK);
+        REQUEST_LATENCY.record(System.nanoTime() - start);
     }
 
     @Override
@@ -91,21 +155,61 @@ public class SurveyResultHandler extends HttpServlet {
     }
 
     /**
-     * Persists a {@link CallResult call result} in the database.
+     * Gets when the call of a status callback was queued by the executor.
+     *
+     * @param req   The status callback.
+     * @return      When the call was queued, in epoch milliseconds, {@code 0} if unknown.
+     */
+    private static long queuedAt(HttpServletRequest req) {
+        String queuedAt = req.getParameter(CallResult.QUEUED_AT_PARAMETER);
+        if (queuedAt == null) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(queuedAt);
+        } catch (NumberFormatException e) {
+            logger.debug("Invalid queue time: {}", queuedAt);
+            return 0;
+        }
+    }
+
+    /**
+     * Checks whether a status only tells the progress of a call, which is neither persisted nor counted.
+     *
+     * @param status    The {@link CallStatus status} of the call.
+     * @return          {@code true} if the call is not over yet, {@code false} if the status is final or unknown.
+     */
+    private static boolean isProgress(CallStatus status) {
+        return status != null && !status.isTerminal() && status != CallStatus.UNKNOWN;
+    }
+
+    /**
+     * Persists a {@link CallResult call result} in the database, replacing the one stored when the call was queued.
+     * <p/>
+     * A final status is also recorded in the state of the number, so the executor can retry it.
      *
      * @param result    The {@link CallResult call result} to persist.
      */
     private void persistCallResult(CallResult result) {
+        long start = System.nanoTime();
+        CallbackPersistEvent event = FlightEvents.ENABLED ?
+                new CallbackPersistEvent(result.getCallSID(), result.getDestination(), String.valueOf(result.getStatus())) : null;
 
         /* No need to use nothing too fancy, this won't handle a huge amount of requests per second. */
         synchronized (this) {
             try {
                 engine.beginTransaction();
 
-                engine.persist(SurveyEntities.CALL_RESULT_TABLE, result.toEntity());
+                DatabaseUtils.upsertCallResult(engine, result);
+                if (result.getStatus().isTerminal()) {
+                    DatabaseUtils.recordFinalStatus(engine, result, System.currentTimeMillis());
+                }
 
                 engine.flush();
+                long commitStart = System.nanoTime();
                 engine.commit();
+                COMMIT_LATENCY.record(System.nanoTime() - commitStart);
                 logger.debug("Call {} persisted.", result.getCallSID());
 
             } catch (DatabaseEngineException e) {
@@ -116,6 +220,10 @@ public class SurveyResultHandler extends HttpServlet {
                 }
             }
         }
+        PERSIST_LATENCY.record(System.nanoTime() - start);
+        if (event != null) {
+            event.commit();
+        }
 
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.initializer;
+
+import com.beust.jcommander.JCommander;
+import com.motionizr.percenseo.commons.PhoneNumbers;
+import com.motionizr.percenseo.commons.SuppressionList;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command line utility to build the {@link SuppressionList suppression list} of the numbers that must not be called
+ * from a CSV file, e.g. a do-not-call registry.
+ * <p/>
+ * The CSV is streamed and only the numeric form of the numbers is kept, so a list of tens of millions of numbers is
+ * built with a few hundred megabytes of heap. Numbers that are not valid phone numbers, e.g. a header, are skipped.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class SuppressionListBuilder {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SuppressionListBuilder.class);
+
+    /**
+     * The size of the input buffers.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The initial capacity of the numbers read.
+     */
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+
+    /**
+     * Empty constructor to avoid accidental initialization.
+     */
+    private SuppressionListBuilder() {}
+
+    public static void main(String[] args) {
+
+        SuppressionListBuilderArguments builderArgs = new SuppressionListBuilderArguments();
+        JCommander cmd = new JCommander(builderArgs, args);
+
+        if (builderArgs.help) {
+            builderArgs.printHelpAndExit(cmd);
+        }
+        logger.debug("All arguments read successfully: {}", builderArgs);
+
+        long start = System.nanoTime();
+        long[] numbers = new long[INITIAL_CAPACITY];
+        int count = 0;
+        long skipped = 0;
+        String prefix = StringUtils.isNotBlank(builderArgs.internationalPrefix) ? builderArgs.internationalPrefix : "";
+        try (Reader reader = openInput(builderArgs.numbersFile);
+             CSVParser parser = new CSVParser(reader, CSVFormat.EXCEL)) {
+            for (CSVRecord record : parser) {
+                long number = toLong(prefix, record.get(0));
+                if (number == PhoneNumbers.NO_NUMBER) {
+                    skipped++;
+                    continue;
+                }
+
+                if (count == numbers.length) {
+                    numbers = Arrays.copyOf(numbers, Math.min(SuppressionList.MAX_ENTRIES, numbers.length * 2));
+                    if (count == numbers.length) {
+                        throw new IllegalArgumentException(String.format(
+                                "A suppression list can't have more than %d entries.", SuppressionList.MAX_ENTRIES));
+                    }
+                }
+                numbers[count++] = number;
+            }
+
+            int entries = SuppressionList.write(Paths.get(builderArgs.outputFile), numbers, count);
+            logger.info("Wrote {} numbers to {} in {} ms, skipping {} duplicates and {} invalid numbers.", entries,
+                    builderArgs.outputFile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), count - entries, skipped);
+        } catch (IOException e) {
+            logger.error("An exception occurred trying to build the suppression list.", e);
+        } catch (IllegalArgumentException e) {
+            logger.error("Unable to build the suppression list: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Converts a number of the CSV to its numeric representation.
+     *
+     * @param prefix    The international prefix, empty if none.
+     * @param number    The number as read from the CSV.
+     * @return          The numeric representation of the number, {@link PhoneNumbers#NO_NUMBER} if it is not valid.
+     */
+    private static long toLong(String prefix, String number) {
+        if (StringUtils.isBlank(number)) {
+            return PhoneNumbers.NO_NUMBER;
+        }
+
+        try {
+            return PhoneNumbers.toLong(prefix + number.trim());
+        } catch (IllegalArgumentException e) {
+            return PhoneNumbers.NO_NUMBER;
+        }
+    }
+
+    /**
+     * Opens the input file, decompressing it with gzip if the file name ends with {@code .gz}.
+     *
+     * @param file          The path of the input file.
+     * @return              The buffered reader for the input file.
+     * @throws IOException  If the input file can't be opened.
+     */
+    private static Reader openInput(String file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.toLowerCase(Locale.ENGLISH).endsWith(".gz")) {
+            in = new GZIPInputStream(in, BUFFER_SIZE);
+        }
+
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+}
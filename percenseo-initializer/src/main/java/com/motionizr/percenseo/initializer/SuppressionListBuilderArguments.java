@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.initializer;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Configuration arguments support for the {@link SuppressionListBuilder}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class SuppressionListBuilderArguments {
+
+    /**
+     * The path to the CSV file with the numbers that must not be called.
+     */
+    @Parameter(names = {"-n", "--numbers"}, description = "The path to the CSV file with the numbers that must not be called in the first column, compressed with gzip if it ends with .gz", required = true)
+    public String numbersFile;
+
+    /**
+     * The path of the suppression list file that will be written.
+     */
+    @Parameter(names = {"-o", "--output"}, description = "The path of the suppression list file that will be written, replacing the existing one", required = true)
+    public String outputFile;
+
+    /**
+     * The international prefix added to the numbers of the CSV.
+     */
+    @Parameter(names = {"-i", "--internationalprefix"}, description = "The international prefix that should be added to all the numbers, the same one the surveys are run with")
+    public String internationalPrefix;
+
+    /**
+     * The help parameter used to print the help menu.
+     */
+    @Parameter(names = {"-h", "--help"}, help = true, description = "Shows this help menu")
+    public boolean help;
+
+    /**
+     * Prints the help menu and exits the execution.
+     *
+     * @param cmd   The reference to the Jcommander instance.
+     */
+    public void printHelpAndExit(JCommander cmd) {
+        cmd.setProgramName("java -cp percenseo-initializer-*.jar " + SuppressionListBuilder.class.getName());
+
+        StringBuilder helpBuilder = new StringBuilder();
+        cmd.usage(helpBuilder);
+        System.out.println(helpBuilder.toString());
+        System.exit(0);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("numbersFile", numbersFile)
+                .add("outputFile", outputFile)
+                .add("internationalPrefix", internationalPrefix)
+                .add("help", help)
+                .toString();
+    }
+}
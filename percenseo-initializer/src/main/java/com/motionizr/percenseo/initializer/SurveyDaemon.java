@@ -0,0 +1,661 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.initializer;
+
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.google.common.base.Preconditions;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.commons.JsonStrings;
+import com.motionizr.percenseo.commons.Metrics;
+import com.motionizr.percenseo.commons.SuppressionList;
+import com.motionizr.percenseo.executor.AccountPool;
+import com.motionizr.percenseo.executor.CampaignControl;
+import com.motionizr.percenseo.executor.CompletedFilter;
+import com.motionizr.percenseo.executor.SurveyOrchestrator;
+import com.motionizr.percenseo.executor.configuration.SurveyBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the campaigns submitted over a local HTTP endpoint, keeping what they share warm between them.
+ * <p/>
+ * The accounts are set up once in an {@link AccountPool}, so every campaign queues its calls over connections to the
+ * Twilio API already open, and the calls per second of the accounts are split among the campaigns running by their
+ * weights. A connection to the database is held for the lifetime of the daemon, so the database stays open and its
+ * cache stays warm for the campaigns. The suppression list is mapped once, and the filter of the numbers completed by
+ * a campaign stays open between its runs, so each run only adds the numbers completed since the last one. Up to a
+ * configured number of campaigns run at the same time, the others wait.
+ * <p/>
+ * Every campaign is configured by the command line arguments of the daemon, apart from its identifier, numbers and
+ * weight:
+ * <ul>
+ *     <li>{@code POST /campaigns} with the form parameters {@code campaign}, {@code numbers} (the path to the numbers
+ *     CSV) and optionally {@code weight} submits a campaign;</li>
+ *     <li>{@code GET /campaigns} lists the campaigns submitted and {@code GET /campaigns/<campaign>} describes one;</li>
+ *     <li>{@code POST /campaigns/<campaign>/pause}, {@code /resume} and {@code /cancel} pause, resume and cancel a
+ *     campaign, {@code POST /campaigns/<campaign>/rate} with the form parameters {@code cps} and/or
+ *     {@code concurrency} changes its calls per second and dial concurrency.</li>
+ * </ul>
+ * The {@link Metrics metrics} of the daemon are served in the Prometheus text format on {@code GET /metrics}.
+ * A campaign can be submitted again once over, e.g. to retry the numbers not completed.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class SurveyDaemon implements AutoCloseable {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SurveyDaemon.class);
+
+    /**
+     * The path the campaigns are submitted to and listed from.
+     */
+    public static final String CAMPAIGNS_PATH = "/campaigns";
+
+    /**
+     * The path the metrics are served on.
+     */
+    public static final String METRICS_PATH = "/metrics";
+
+    /**
+     * The state of a campaign submitted.
+     */
+    enum State {
+        /**
+         * Waiting for another campaign to end.
+         */
+        QUEUED,
+
+        /**
+         * Queueing its calls.
+         */
+        RUNNING,
+
+        /**
+         * All its calls were queued.
+         */
+        DONE,
+
+        /**
+         * Stopped by an unexpected error.
+         */
+        FAILED,
+
+        /**
+         * Cancelled before all its calls were queued.
+         */
+        CANCELLED
+    }
+
+    /**
+     * A campaign submitted.
+     */
+    private static final class Campaign {
+
+        /**
+         * The identifier of the campaign.
+         */
+        final String name;
+
+        /**
+         * The path to the numbers CSV.
+         */
+        final String numbersFile;
+
+        /**
+         * The weight of the campaign.
+         */
+        final double weight;
+
+        /**
+         * When the campaign was submitted, in epoch milliseconds.
+         */
+        final long submittedAt;
+
+        /**
+         * The control of the campaign.
+         */
+        final CampaignControl control;
+
+        /**
+         * The state of the campaign.
+         */
+        volatile State state = State.QUEUED;
+
+        /**
+         * The number of calls queued per {@link CallStatus status}, once the campaign is over.
+         */
+        volatile Map<CallStatus, Long> outcomes = Collections.emptyMap();
+
+        /**
+         * Creates a new instance of {@link Campaign}.
+         *
+         * @param name          The identifier of the campaign.
+         * @param numbersFile   The path to the numbers CSV.
+         * @param weight        The weight of the campaign.
+         * @param control       The control of the campaign.
+         */
+        Campaign(String name, String numbersFile, double weight, CampaignControl control) {
+            this.name = name;
+            this.numbersFile = numbersFile;
+            this.weight = weight;
+            this.submittedAt = System.currentTimeMillis();
+            this.control = control;
+        }
+
+        /**
+         * Indicates if the campaign is waiting or running.
+         *
+         * @return  {@code true} if the campaign is not over, {@code false} otherwise.
+         */
+        boolean isActive() {
+            return state == State.QUEUED || state == State.RUNNING;
+        }
+
+        /**
+         * Appends the campaign as a JSON object.
+         *
+         * @param json  The JSON being built.
+         */
+        void appendJson(StringBuilder json) {
+            json.append('{');
+            JsonStrings.field(json, "campaign", name).append(',');
+            JsonStrings.field(json, "numbers", numbersFile).append(',');
+            json.append("\"weight\":").append(weight).append(',');
+            JsonStrings.field(json, "state", state.name()).append(',');
+            json.append("\"paused\":").append(control.isPaused()).append(',');
+            json.append("\"cps\":").append(control.getCallsPerSecond()).append(',');
+            json.append("\"concurrency\":").append(control.getDialConcurrency()).append(',');
+            json.append("\"submitted\":").append(submittedAt).append(",\"outcomes\":{");
+            boolean first = true;
+            for (Map.Entry<CallStatus, Long> outcome : outcomes.entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                json.append('"').append(outcome.getKey().getDesc()).append("\":").append(outcome.getValue());
+                first = false;
+            }
+            json.append("}}");
+        }
+    }
+
+    /**
+     * The arguments shared by the campaigns.
+     */
+    private final SurveyInitializerArguments arguments;
+
+    /**
+     * The campaigns submitted, in the order they were submitted. Guarded by the daemon.
+     */
+    private final Map<String, Campaign> campaigns = new LinkedHashMap<>();
+
+    /**
+     * The threads running the campaigns.
+     */
+    private final ExecutorService runners;
+
+    /**
+     * The threads handling the requests.
+     */
+    private final ExecutorService requestHandlers = Executors.newCachedThreadPool();
+
+    /**
+     * The filters of the numbers completed, per campaign, kept open between its runs. Guarded by the daemon.
+     */
+    private final Map<String, CompletedFilter> completedFilters = new HashMap<>();
+
+    /**
+     * The accounts shared by the campaigns.
+     */
+    private AccountPool pool;
+
+    /**
+     * The suppression list shared by the campaigns, {@code null} if there is none.
+     */
+    private SuppressionList suppressionList;
+
+    /**
+     * The connection keeping the database open.
+     */
+    private DatabaseEngine engine;
+
+    /**
+     * The HTTP server.
+     */
+    private HttpServer server;
+
+    /**
+     * Creates a new instance of {@link SurveyDaemon}.
+     *
+     * @param arguments                 The arguments shared by the campaigns.
+     * @throws IllegalArgumentException If the maximum number of campaigns is not positive.
+     */
+    public SurveyDaemon(SurveyInitializerArguments arguments) throws IllegalArgumentException {
+        Preconditions.checkArgument(
+                arguments.maxCampaigns > 0,
+                String.format("Invalid maximum number of campaigns: %d", arguments.maxCampaigns)
+        );
+
+        this.arguments = arguments;
+        this.runners = Executors.newFixedThreadPool(arguments.maxCampaigns);
+    }
+
+    /**
+     * Opens the database, the suppression list and the connections to the Twilio API, then starts accepting campaigns.
+     *
+     * @throws IOException                  If an error occurs reading the configuration files or starting the server.
+     * @throws DatabaseFactoryException     If an error occurs getting the database connection.
+     * @throws DatabaseEngineException      If an error occurs creating the tables.
+     * @throws IllegalArgumentException     If the configuration of the accounts is invalid.
+     */
+    public void start() throws IOException, DatabaseFactoryException, DatabaseEngineException, IllegalArgumentException {
+        engine = DatabaseUtils.initializeDbConnection(arguments.databaseFile);
+
+        suppressionList = SurveyInitializer.openSuppressionList(arguments);
+        pool = SurveyInitializer.newBuilder(arguments, suppressionList).buildAccountPool();
+        logger.debug("Opened {} connections to the Twilio API.", pool.warmUp());
+        Metrics.getDefault().registerMBean();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", arguments.daemonPort), 64);
+        server.createContext(CAMPAIGNS_PATH, this::handle);
+        server.createContext(METRICS_PATH, SurveyDaemon::handleMetrics);
+        server.setExecutor(requestHandlers);
+        server.start();
+    }
+
+    /**
+     * Gets the port the campaigns are accepted on.
+     *
+     * @return  The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting campaigns, interrupts the ones running and releases the filters of the numbers completed, the
+     * accounts and the database.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        requestHandlers.shutdownNow();
+
+        runners.shutdownNow();
+        try {
+            if (!runners.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Some campaigns did not stop in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            completedFilters.values().forEach(CompletedFilter::close);
+            completedFilters.clear();
+        }
+        if (pool != null) {
+            pool.close();
+        }
+        if (engine != null) {
+            DatabaseUtils.closeDbConnection(engine);
+        }
+    }
+
+    /**
+     * Submits a campaign, which runs as soon as fewer campaigns than the maximum are running.
+     *
+     * @param name                      The identifier of the campaign.
+     * @param numbersFile               The path to the numbers CSV.
+     * @param weight                    The weight of the campaign in the split of the calls per second.
+     * @return                          The campaign.
+     * @throws IOException              If an error occurs reading the configuration files.
+     * @throws IllegalArgumentException If the campaign is invalid.
+     * @throws IllegalStateException    If the campaign is already waiting or running.
+     */
+    private synchronized Campaign submit(String name, String numbersFile, double weight) throws IOException,
+            IllegalArgumentException, IllegalStateException {
+        Campaign previous = campaigns.get(name);
+        if (previous != null && previous.isActive()) {
+            throw new IllegalStateException(String.format("Campaign %s is already %s", name, previous.state));
+        }
+
+        SurveyBuilder builder = SurveyInitializer.newBuilder(arguments, suppressionList)
+                .withCampaign(name)
+                .withNumbersCSV(numbersFile)
+                .withAccountPool(pool, weight);
+        if (arguments.completedFilterRate != null) {
+            CompletedFilter completedFilter = completedFilters.get(name);
+            if (completedFilter == null) {
+                completedFilter = builder.buildCompletedFilter();
+                completedFilters.put(name, completedFilter);
+            }
+            builder.withCompletedFilter(completedFilter);
+        }
+        SurveyOrchestrator orchestrator = builder.build();
+
+        Campaign campaign = new Campaign(name, numbersFile, weight, orchestrator.getControl());
+        try {
+            runners.execute(() -> run(campaign, orchestrator));
+        } catch (RejectedExecutionException e) {
+            orchestrator.close();
+            throw new IllegalStateException("The daemon is shutting down", e);
+        }
+        campaigns.remove(name);
+        campaigns.put(name, campaign);
+        logger.info("Campaign {} submitted with the numbers of {} and a weight of {}.", name, numbersFile, weight);
+        return campaign;
+    }
+
+    /**
+     * Runs a campaign.
+     *
+     * @param campaign      The campaign.
+     * @param orchestrator  The {@link SurveyOrchestrator} of the campaign.
+     */
+    private void run(Campaign campaign, SurveyOrchestrator orchestrator) {
+        if (campaign.control.isCancelled()) {
+            // Never executed, so its share of the accounts would otherwise stay registered.
+            orchestrator.close();
+            campaign.state = State.CANCELLED;
+            return;
+        }
+
+        campaign.state = State.RUNNING;
+        try {
+            campaign.outcomes = orchestrator.execute();
+            campaign.state = campaign.control.isCancelled() ? State.CANCELLED : State.DONE;
+        } catch (RuntimeException e) {
+            campaign.state = State.FAILED;
+            logger.error("Campaign {} stopped unexpectedly.", campaign.name, e);
+        }
+    }
+
+    /**
+     * Routes a request.
+     *
+     * @param exchange  The request.
+     */
+    private void handle(HttpExchange exchange) {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (CAMPAIGNS_PATH.equals(path) && "POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                handleSubmit(exchange);
+            } else if (CAMPAIGNS_PATH.equals(path)) {
+                List<Campaign> submitted;
+                synchronized (this) {
+                    submitted = new ArrayList<>(campaigns.values());
+                }
+
+                StringBuilder json = new StringBuilder(64 + submitted.size() * 256).append('[');
+                for (int i = 0; i < submitted.size(); i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    submitted.get(i).appendJson(json);
+                }
+                respond(exchange, 200, json.append(']').toString());
+            } else if (path.startsWith(CAMPAIGNS_PATH + "/")) {
+                String name = path.substring(CAMPAIGNS_PATH.length() + 1);
+                String action = null;
+                int separator = name.indexOf('/');
+                if (separator >= 0) {
+                    action = name.substring(separator + 1);
+                    name = name.substring(0, separator);
+                }
+
+                Campaign campaign;
+                synchronized (this) {
+                    campaign = campaigns.get(name);
+                }
+
+                if (campaign == null) {
+                    error(exchange, 404, "Unknown campaign");
+                } else if (action != null) {
+                    handleControl(exchange, campaign, action);
+                } else {
+                    StringBuilder json = new StringBuilder(256);
+                    campaign.appendJson(json);
+                    respond(exchange, 200, json.toString());
+                }
+            } else {
+                error(exchange, 404, "Not found");
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to handle request {}: {}", exchange.getRequestURI(), e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Serves the {@link Metrics metrics} in the Prometheus text format.
+     *
+     * @param exchange  The request.
+     */
+    private static void handleMetrics(HttpExchange exchange) {
+        try {
+            byte[] body = Metrics.getDefault().toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", Metrics.PROMETHEUS_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to serve the metrics: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Handles the submission of a campaign.
+     *
+     * @param exchange      The request.
+     * @throws IOException  If an error occurs reading the request or writing the response.
+     */
+    private void handleSubmit(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseForm(new String(readFully(exchange.getRequestBody()), StandardCharsets.UTF_8));
+        if (StringUtils.isBlank(params.get("campaign")) || StringUtils.isBlank(params.get("numbers"))) {
+            error(exchange, 400, "The campaign and numbers parameters are required");
+            return;
+        }
+
+        Campaign campaign;
+        try {
+            double weight = params.containsKey("weight") ? Double.parseDouble(params.get("weight")) : 1;
+            campaign = submit(params.get("campaign"), params.get("numbers"), weight);
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, e.getMessage());
+            return;
+        } catch (IllegalStateException e) {
+            error(exchange, 409, e.getMessage());
+            return;
+        }
+
+        StringBuilder json = new StringBuilder(256);
+        campaign.appendJson(json);
+        respond(exchange, 202, json.toString());
+    }
+
+    /**
+     * Handles a change to a campaign through its {@link CampaignControl control}.
+     *
+     * @param exchange      The request.
+     * @param campaign      The campaign.
+     * @param action        The change, one of {@code pause}, {@code resume}, {@code cancel} or {@code rate}.
+     * @throws IOException  If an error occurs reading the request or writing the response.
+     */
+    private void handleControl(HttpExchange exchange, Campaign campaign, String action) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            error(exchange, 405, "Method not allowed");
+            return;
+        }
+        if (!campaign.isActive()) {
+            error(exchange, 409, String.format("Campaign %s is %s", campaign.name, campaign.state));
+            return;
+        }
+
+        CampaignControl control = campaign.control;
+        try {
+            switch (action) {
+                case "pause":
+                    control.pause();
+                    break;
+                case "resume":
+                    control.resume();
+                    break;
+                case "cancel":
+                    control.cancel();
+                    break;
+                case "rate":
+                    Map<String, String> params = parseForm(new String(readFully(exchange.getRequestBody()), StandardCharsets.UTF_8));
+                    if (StringUtils.isBlank(params.get("cps")) && StringUtils.isBlank(params.get("concurrency"))) {
+                        error(exchange, 400, "The cps or concurrency parameter is required");
+                        return;
+                    }
+                    if (StringUtils.isNotBlank(params.get("concurrency"))) {
+                        control.setDialConcurrency(Integer.parseInt(params.get("concurrency")));
+                    }
+                    if (StringUtils.isNotBlank(params.get("cps"))) {
+                        control.setCallsPerSecond(Double.parseDouble(params.get("cps")));
+                    }
+                    break;
+                default:
+                    error(exchange, 404, "Not found");
+                    return;
+            }
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, e.getMessage());
+            return;
+        }
+
+        StringBuilder json = new StringBuilder(256);
+        campaign.appendJson(json);
+        respond(exchange, 200, json.toString());
+    }
+
+    /**
+     * Responds with an error.
+     *
+     * @param exchange      The request.
+     * @param status        The HTTP status.
+     * @param message       The error message.
+     * @throws IOException  If an error occurs writing the response.
+     */
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{");
+        JsonStrings.field(json, "error", message).append('}');
+        respond(exchange, status, json.toString());
+    }
+
+    /**
+     * Responds with a JSON body.
+     *
+     * @param exchange      The request.
+     * @param status        The HTTP status.
+     * @param json          The body.
+     * @throws IOException  If an error occurs writing the response.
+     */
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Reads a stream until its end.
+     *
+     * @param in            The stream.
+     * @return              The bytes read.
+     * @throws IOException  If an error occurs reading the stream.
+     */
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Parses an URL encoded form.
+     *
+     * @param form  The form, may be {@code null}.
+     * @return      The parameters.
+     */
+    private static Map<String, String> parseForm(String form) {
+        Map<String, String> params = new HashMap<>();
+        if (form == null || form.isEmpty()) {
+            return params;
+        }
+
+        try {
+            for (String pair : form.split("&")) {
+                int separator = pair.indexOf('=');
+                String name = separator < 0 ? pair : pair.substring(0, separator);
+                String value = separator < 0 ? "" : pair.substring(separator + 1);
+                params.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported.", e);
+        }
+        return params;
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.initializer;
+
+import com.beust.jcommander.JCommander;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngine;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.motionizr.percenseo.commons.DatabaseUtils;
+import com.motionizr.percenseo.executor.export.ExportReport;
+import com.motionizr.percenseo.executor.export.ResultExporter;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Command line utility to export the results of the surveys to a CSV file, optionally compressed with gzip.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class SurveyExporter {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SurveyExporter.class);
+
+    /**
+     * The size of the output buffers.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Empty constructor to avoid accidental initialization.
+     */
+    private SurveyExporter() {}
+
+    public static void main(String[] args) {
+
+        SurveyExporterArguments exporterArgs = new SurveyExporterArguments();
+        JCommander cmd = new JCommander(exporterArgs, args);
+
+        if (exporterArgs.help) {
+            exporterArgs.printHelpAndExit(cmd);
+        }
+        logger.debug("All arguments read successfully: {}", exporterArgs);
+
+        DatabaseEngine engine = null;
+        try {
+            engine = DatabaseUtils.initializeDbConnection(exporterArgs.databaseFile);
+
+            try (Writer out = openOutput(exporterArgs)) {
+                ResultExporter exporter = new ResultExporter(engine, exporterArgs.fetchSize, exporterArgs.reportInterval);
+                ExportReport report = StringUtils.isNotBlank(exporterArgs.campaign) ? exporter.export(out, exporterArgs.campaign) : exporter.export(out);
+                logger.info("Exported {} call results to {} in {} ms ({} results/s).",
+                        report.getRows(), exporterArgs.outputFile, report.getElapsedMillis(), report.getRowsPerSecond());
+            }
+        } catch (IOException e) {
+            logger.error("An exception occurred trying to write the results CSV.", e);
+        } catch (DatabaseEngineException e) {
+            logger.error("An exception occurred trying to read the results from the database.", e);
+        } catch (DatabaseFactoryException e) {
+            logger.error("An exception occurred trying to initialize the database.", e);
+        } finally {
+            if (engine != null) {
+                DatabaseUtils.closeDbConnection(engine);
+            }
+        }
+    }
+
+    /**
+     * Opens the output file, compressing it with gzip if requested or if the file name ends with {@code .gz}.
+     *
+     * @param exporterArgs  The exporter arguments.
+     * @return              The buffered writer for the output file.
+     * @throws IOException  If the output file can't be opened.
+     */
+    private static Writer openOutput(SurveyExporterArguments exporterArgs) throws IOException {
+        OutputStream out = new FileOutputStream(exporterArgs.outputFile);
+        if (exporterArgs.gzip || exporterArgs.outputFile.toLowerCase(Locale.ENGLISH).endsWith(".gz")) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+}
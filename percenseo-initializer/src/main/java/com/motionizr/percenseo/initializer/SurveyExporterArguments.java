@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.initializer;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.common.base.MoreObjects;
+import com.motionizr.percenseo.executor.export.ResultExporter;
+
+/**
+ * Configuration arguments support for the {@link SurveyExporter}.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class SurveyExporterArguments {
+
+    /**
+     * The path to the H2 database file containing the results.
+     */
+    @Parameter(names = {"-d", "--database"}, description = "The path to the H2 database file containing the results", required = true)
+    public String databaseFile;
+
+    /**
+     * The path of the CSV file where the results will be written.
+     */
+    @Parameter(names = {"-o", "--output"}, description = "The path of the CSV file where the results will be written, compressed with gzip if it ends with .gz", required = true)
+    public String outputFile;
+
+    /**
+     * The campaign whose results should be exported.
+     */
+    @Parameter(names = {"-k", "--campaign"}, description = "The campaign whose results should be exported, exports all the campaigns if omitted")
+    public String campaign;
+
+    /**
+     * Flag indicating if the output should be compressed with gzip.
+     */
+    @Parameter(names = {"-z", "--gzip"}, description = "Compresses the output with gzip")
+    public boolean gzip;
+
+    /**
+     * The number of rows fetched from the database on each round-trip.
+     */
+    @Parameter(names = {"-f", "--fetchsize"}, description = "The number of rows fetched from the database on each round-trip")
+    public int fetchSize = ResultExporter.DEFAULT_FETCH_SIZE;
+
+    /**
+     * The number of rows between progress reports.
+     */
+    @Parameter(names = {"-r", "--reportinterval"}, description = "The number of rows between progress reports")
+    public int reportInterval = ResultExporter.DEFAULT_REPORT_INTERVAL;
+
+    /**
+     * The help parameter used to print the help menu.
+     */
+    @Parameter(names = {"-h", "--help"}, help = true, description = "Shows this help menu")
+    public boolean help;
+
+    /**
+     * Prints the help menu and exits the execution.
+     *
+     * @param cmd   The reference to the Jcommander instance.
+     */
+    public void printHelpAndExit(JCommander cmd) {
+        cmd.setProgramName("java -cp percenseo-initializer-*.jar " + SurveyExporter.class.getName());
+
+        StringBuilder helpBuilder = new StringBuilder();
+        cmd.usage(helpBuilder);
+        System.out.println(helpBuilder.toString());
+        System.exit(0);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("databaseFile", databaseFile)
+                .add("outputFile", outputFile)
+                .add("campaign", campaign)
+                .add("gzip", gzip)
+                .add("fetchSize", fetchSize)
+                .add("reportInterval", reportInterval)
+                .add("help", help)
+                .toString();
+    }
+}
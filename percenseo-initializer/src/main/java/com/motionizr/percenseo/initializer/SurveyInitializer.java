@@ -24,14 +24,32 @@
 package com.motionizr.percenseo.initializer;
 
 import com.beust.jcommander.JCommander;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseEngineException;
+import com.feedzai.commons.sql.abstraction.engine.DatabaseFactoryException;
+import com.motionizr.percenseo.commons.CallStatus;
+import com.motionizr.percenseo.commons.SuppressionList;
 import com.motionizr.percenseo.executor.SurveyOrchestrator;
+import com.motionizr.percenseo.executor.configuration.AccountConfiguration;
+import com.motionizr.percenseo.executor.configuration.CallingZones;
+import com.motionizr.percenseo.executor.configuration.RetryPolicy;
 import com.motionizr.percenseo.executor.configuration.SurveyBuilder;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalTime;
+
 /**
  * Command line utility to initialize a survey that follows a certain configuration.
+ * <p/>
+ * With {@code --daemon}, keeps running instead and accepts campaigns over HTTP, see {@link SurveyDaemon}.
  *
  * @author Miguel Bento (migueljbento@gmail.com)
  * @version 1.0.0
@@ -58,22 +76,172 @@ public final class SurveyInitializer {
         }
         logger.debug("All arguments read successfully: {}", initializerArgs);
 
+        if (initializerArgs.daemonPort != null) {
+            startDaemon(initializerArgs);
+            return;
+        }
+
+        SurveyBuilder builder;
+        try {
+            builder = newBuilder(initializerArgs);
+        } catch (IOException e) {
+            logger.error("An exception occurred trying to read the configuration files.", e);
+            return;
+        }
+
+        SurveyOrchestrator orchestrator = builder.build();
+
+        orchestrator.execute();
+        logger.info("Survey executed. Please note that this operation is asynchronous, the survey was merely queued. Results will be gathered in the following minutes.");
+    }
+
+    /**
+     * Starts a {@link SurveyDaemon} running the campaigns submitted to it until the process is stopped.
+     *
+     * @param initializerArgs   The arguments shared by the campaigns.
+     */
+    private static void startDaemon(SurveyInitializerArguments initializerArgs) {
+        SurveyDaemon daemon = new SurveyDaemon(initializerArgs);
+        try {
+            daemon.start();
+        } catch (IOException | DatabaseFactoryException | DatabaseEngineException | IllegalArgumentException e) {
+            logger.error("Unable to start the survey daemon.", e);
+            daemon.close();
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+        logger.info("Survey daemon accepting campaigns on http://localhost:{}{}", daemon.getPort(), SurveyDaemon.CAMPAIGNS_PATH);
+    }
+
+    /**
+     * Configures a survey from the command line arguments.
+     *
+     * @param initializerArgs   The arguments.
+     * @return                  The {@link SurveyBuilder} holding the configuration.
+     * @throws IOException      If an error occurs reading the accounts or calling zones CSV, or the suppression list.
+     */
+    static SurveyBuilder newBuilder(SurveyInitializerArguments initializerArgs) throws IOException {
+        return newBuilder(initializerArgs, openSuppressionList(initializerArgs));
+    }
+
+    /**
+     * Configures a survey from the command line arguments, skipping the numbers of a suppression list already mapped.
+     *
+     * @param initializerArgs   The arguments.
+     * @param suppressionList   The {@link SuppressionList suppression list}, {@code null} if there is none.
+     * @return                  The {@link SurveyBuilder} holding the configuration.
+     * @throws IOException      If an error occurs reading the accounts or calling zones CSV.
+     */
+    static SurveyBuilder newBuilder(SurveyInitializerArguments initializerArgs, SuppressionList suppressionList)
+            throws IOException {
         SurveyBuilder builder = new SurveyBuilder()
                 .withAccountSID(initializerArgs.accountSid)
                 .withAuthToken(initializerArgs.authToken)
                 .withCallerNumber(initializerArgs.callerNumber)
+                .withCallsPerSecond(initializerArgs.callsPerSecond)
                 .withCallHandlerURL(initializerArgs.callHandlerUrl)
                 .withCallResultURL(initializerArgs.callResultUrl)
                 .withDatabaseFile(initializerArgs.databaseFile)
-                .withNumbersCSV(initializerArgs.numbersFile);
+                .withNumbersCSV(initializerArgs.numbersFile)
+                .withDialConcurrency(initializerArgs.dialConcurrency)
+                .withDialAttempts(initializerArgs.dialAttempts)
+                .withConnectionPool(Math.max(initializerArgs.maxConnections, initializerArgs.dialConcurrency),
+                        initializerArgs.warmupConnections, SurveyConfiguration.DEFAULT_KEEP_ALIVE_MILLIS);
+
+        if (StringUtils.isNotBlank(initializerArgs.accountsFile)) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(initializerArgs.accountsFile), StandardCharsets.UTF_8)) {
+                builder.withAccounts(AccountConfiguration.fromCSV(reader));
+            } catch (IOException e) {
+                throw new IOException("Unable to read the accounts CSV: " + initializerArgs.accountsFile, e);
+            }
+        }
+
+        if (initializerArgs.localPresenceMinDigits != null) {
+            builder.withLocalPresence(initializerArgs.localPresenceMinDigits);
+        }
 
         if (StringUtils.isNotBlank(initializerArgs.internationalPrefix)) {
             builder.withInternationalPrefix(initializerArgs.internationalPrefix);
         }
 
-        SurveyOrchestrator orchestrator = builder.build();
+        if (StringUtils.isNotBlank(initializerArgs.campaign)) {
+            builder.withCampaign(initializerArgs.campaign);
+        }
 
-        orchestrator.execute();
-        logger.info("Survey executed. Please note that this operation is asynchronous, the survey was merely queued. Results will be gathered in the following minutes.");
+        if (initializerArgs.shardId != null) {
+            builder.withShard(initializerArgs.shardId, initializerArgs.shardCount)
+                    .withShardLease(Duration.ofSeconds(initializerArgs.shardLeaseSeconds));
+            if (StringUtils.isNotBlank(initializerArgs.nodeId)) {
+                builder.withNodeId(initializerArgs.nodeId);
+            }
+        }
+
+        if (initializerArgs.sharedRateLimitBatch != null) {
+            builder.withSharedRateLimit(initializerArgs.sharedRateLimitBatch);
+        }
+
+        if (StringUtils.isNotBlank(initializerArgs.callingWindowStart)) {
+            builder.withCallingWindow(LocalTime.parse(initializerArgs.callingWindowStart), LocalTime.parse(initializerArgs.callingWindowEnd));
+            if (StringUtils.isNotBlank(initializerArgs.callingZonesFile)) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(initializerArgs.callingZonesFile), StandardCharsets.UTF_8)) {
+                    builder.withCallingZones(CallingZones.fromCSV(reader));
+                } catch (IOException e) {
+                    throw new IOException("Unable to read the calling zones CSV: " + initializerArgs.callingZonesFile, e);
+                }
+            }
+        }
+
+        if (initializerArgs.maxAttempts != null) {
+            RetryPolicy policy = new RetryPolicy(initializerArgs.maxAttempts, initializerArgs.retryBackoff)
+                    .withCooldown(CallStatus.BUSY, Duration.ofMinutes(initializerArgs.busyCooldownMinutes))
+                    .withCooldown(CallStatus.NO_ANSWER, Duration.ofMinutes(initializerArgs.noAnswerCooldownMinutes));
+            if (initializerArgs.failedCooldownMinutes != null) {
+                policy.withCooldown(CallStatus.FAILED, Duration.ofMinutes(initializerArgs.failedCooldownMinutes));
+            }
+            builder.withRetryPolicy(policy);
+        }
+
+        if (initializerArgs.targetCalls != null) {
+            builder.withAdaptivePacing(initializerArgs.targetCalls);
+        }
+
+        if (initializerArgs.callProgress) {
+            builder.withCallProgressEvents();
+        }
+
+        if (initializerArgs.completedFilterRate != null) {
+            builder.withCompletedFilter(initializerArgs.completedFilterCapacity, initializerArgs.completedFilterRate);
+        }
+
+        if (suppressionList != null) {
+            builder.withSuppressionList(suppressionList);
+        }
+
+        if (initializerArgs.reconcile) {
+            builder.withReconciliation(initializerArgs.reconcilePageSize, initializerArgs.reconcileRate,
+                    Duration.ofMinutes(initializerArgs.reconcileAfterMinutes));
+        }
+
+        return builder;
+    }
+
+    /**
+     * Maps the suppression list of the command line arguments.
+     *
+     * @param initializerArgs   The arguments.
+     * @return                  The {@link SuppressionList suppression list}, {@code null} if none is configured.
+     * @throws IOException      If an error occurs mapping the suppression list.
+     */
+    static SuppressionList openSuppressionList(SurveyInitializerArguments initializerArgs) throws IOException {
+        if (StringUtils.isBlank(initializerArgs.suppressionFile)) {
+            return null;
+        }
+
+        try {
+            return SuppressionList.open(Paths.get(initializerArgs.suppressionFile));
+        } catch (IOException e) {
+            throw new IOException("Unable to map the suppression list: " + initializerArgs.suppressionFile, e);
+        }
     }
 }
@@ -26,6 +26,7 @@ package com.motionizr.percenseo.initializer;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.google.common.base.MoreObjects;
+import com.motionizr.percenseo.executor.configuration.SurveyConfiguration;
 
 /**
  * Configuration arguments support for a
@@ -38,7 +39,7 @@ public class SurveyInitializerArguments {
     /**
      * The path to the CSV file containing the list of numbers to call in the survey.
      */
-    @Parameter(names = {"-n", "--numbers"}, description = "Path to the CSV file containing the list of phone numbers", required = true)
+    @Parameter(names = {"-n", "--numbers"}, description = "Path to the CSV file containing the list of phone numbers, required unless running as a daemon")
     public String numbersFile;
 
     /**
@@ -69,21 +70,214 @@ public class SurveyInitializerArguments {
     /**
      * The SID of your Twilio account.
      */
-    @Parameter(names = {"-s", "--sid"}, description = "The SID of your Twilio account", required = true)
+    @Parameter(names = {"-s", "--sid"}, description = "The SID of your Twilio account, required unless a pool of accounts is given")
     public String accountSid;
 
     /**
      * The authentication token for your Twilio account.
      */
-    @Parameter(names = {"-a", "-authtoken"}, description = "The authentication token for your Twilio account", required = true)
+    @Parameter(names = {"-a", "-authtoken"}, description = "The authentication token for your Twilio account, required unless a pool of accounts is given")
     public String authToken;
 
     /**
      * The Twilio phone number that should be used to make the calls.
      */
-    @Parameter(names = {"-p", "--callerphone"}, description = "The Twilio phone number that should be used to make the calls", required = true)
+    @Parameter(names = {"-p", "--callerphone"}, description = "The Twilio phone number that should be used to make the calls, required unless a pool of accounts is given")
     public String callerNumber;
 
+    /**
+     * The maximum number of calls queued per second by the account.
+     */
+    @Parameter(names = {"--cps"}, description = "The maximum number of calls queued per second by the account")
+    public double callsPerSecond = 1;
+
+    /**
+     * The path to the CSV file containing the pool of accounts.
+     */
+    @Parameter(names = {"--accounts"}, description = "Path to the CSV file containing a pool of accounts, one per line with the SID, the token, the calls per second and the caller numbers")
+    public String accountsFile;
+
+    /**
+     * The minimum number of digits a caller number must share with the destination to be preferred, local presence is disabled when not given.
+     */
+    @Parameter(names = {"--localpresence"}, description = "Dials each number from a caller number sharing at least this many leading digits with it when possible")
+    public Integer localPresenceMinDigits;
+
+    /**
+     * The identifier of the campaign.
+     */
+    @Parameter(names = {"-k", "--campaign"}, description = "The identifier of the campaign, numbers already completed are only skipped within the same campaign")
+    public String campaign;
+
+    /**
+     * Flag indicating if calls that never received a status callback should be reconciled before dialing.
+     */
+    @Parameter(names = {"--reconcile"}, description = "Reconciles the calls that never received a status callback before dialing")
+    public boolean reconcile;
+
+    /**
+     * The number of calls fetched per page when reconciling.
+     */
+    @Parameter(names = {"--reconcilepagesize"}, description = "The number of calls fetched per page when reconciling")
+    public int reconcilePageSize = 1000;
+
+    /**
+     * The maximum number of pages fetched per second when reconciling.
+     */
+    @Parameter(names = {"--reconcilerate"}, description = "The maximum number of pages fetched per second when reconciling")
+    public double reconcileRate = 5;
+
+    /**
+     * The number of minutes after which a call without a final status is considered lost.
+     */
+    @Parameter(names = {"--reconcileafter"}, description = "The number of minutes after which a call without a final status is considered lost")
+    public long reconcileAfterMinutes = 60;
+
+    /**
+     * The number of calls queued concurrently.
+     */
+    @Parameter(names = {"--concurrency"}, description = "The number of calls queued concurrently")
+    public int dialConcurrency = 1;
+
+    /**
+     * The maximum number of persistent connections to the Twilio API.
+     */
+    @Parameter(names = {"--maxconnections"}, description = "The maximum number of persistent connections to the Twilio API")
+    public int maxConnections = 10;
+
+    /**
+     * The number of connections opened before the first call is queued.
+     */
+    @Parameter(names = {"--warmup"}, description = "The number of connections to the Twilio API opened before the first call is queued")
+    public int warmupConnections = 1;
+
+    /**
+     * The maximum number of times a number is dialed when the Twilio API fails transiently.
+     */
+    @Parameter(names = {"--dialattempts"}, description = "The maximum number of times a number is dialed when the Twilio API fails transiently")
+    public int dialAttempts = 10;
+
+    /**
+     * The shard of the numbers dialed by this process, every number is dialed when not given.
+     */
+    @Parameter(names = {"--shard"}, description = "Dials only this shard of the numbers, between 0 and the number of shards exclusive")
+    public Integer shardId;
+
+    /**
+     * The number of shards the numbers are partitioned into.
+     */
+    @Parameter(names = {"--shards"}, description = "The number of shards the numbers are partitioned into, the same for every process of the campaign")
+    public int shardCount = 1;
+
+    /**
+     * The number of seconds a shard stays claimed after this process stops renewing it.
+     */
+    @Parameter(names = {"--leaseseconds"}, description = "The number of seconds a shard stays claimed after this process stops renewing it")
+    public int shardLeaseSeconds = 60;
+
+    /**
+     * The identifier of this process in the shard leases.
+     */
+    @Parameter(names = {"--node"}, description = "The identifier of this process in the shard leases, defaults to pid@host")
+    public String nodeId;
+
+    /**
+     * The maximum number of calls reserved on an account per round trip to the rate limit shared with other processes.
+     */
+    @Parameter(names = {"--sharedratebatch"}, description = "Shares the calls per second of each account with the other processes through the database, reserving up to this many calls per round trip")
+    public Integer sharedRateLimitBatch;
+
+    /**
+     * The local time the calling window opens at, numbers are called at any time when not given.
+     */
+    @Parameter(names = {"--windowstart"}, description = "Calls each number only after this local time in its time zone, e.g. 09:00")
+    public String callingWindowStart;
+
+    /**
+     * The local time the calling window closes at.
+     */
+    @Parameter(names = {"--windowend"}, description = "Calls each number only before this local time in its time zone, e.g. 21:00")
+    public String callingWindowEnd = "21:00";
+
+    /**
+     * The path to the CSV file mapping calling prefixes to time zones, on top of the default ones.
+     */
+    @Parameter(names = {"--zonesfile"}, description = "A CSV file with a calling prefix and its time zone per line, e.g. +1808,Pacific/Honolulu, on top of the default ones")
+    public String callingZonesFile;
+
+    /**
+     * The maximum number of times a number is dialed across runs, every number not completed is dialed again on each
+     * run when not given.
+     */
+    @Parameter(names = {"--maxattempts"}, description = "Tracks the attempts on each number and retries busy and unanswered calls up to this many attempts in total")
+    public Integer maxAttempts;
+
+    /**
+     * The number of minutes to wait before calling a busy number again.
+     */
+    @Parameter(names = {"--busycooldown"}, description = "The number of minutes to wait before calling a busy number again")
+    public int busyCooldownMinutes = 15;
+
+    /**
+     * The number of minutes to wait before calling an unanswered number again.
+     */
+    @Parameter(names = {"--noanswercooldown"}, description = "The number of minutes to wait before calling an unanswered number again")
+    public int noAnswerCooldownMinutes = 120;
+
+    /**
+     * The number of minutes to wait before calling a number whose call failed again, failed calls are not retried when not given.
+     */
+    @Parameter(names = {"--failedcooldown"}, description = "The number of minutes to wait before calling a number whose call failed again, not retried by default")
+    public Integer failedCooldownMinutes;
+
+    /**
+     * The factor the cooldowns are multiplied by for every attempt after the first one.
+     */
+    @Parameter(names = {"--retrybackoff"}, description = "The factor the cooldowns are multiplied by for every attempt after the first one")
+    public double retryBackoff = 2;
+
+    /**
+     * The number of live calls to hold by pacing the calls on their outcomes, the calls are only paced by the accounts when not given.
+     */
+    @Parameter(names = {"--targetcalls"}, description = "Paces the calls on their outcomes to hold this many live calls per process")
+    public Integer targetCalls;
+
+    /**
+     * Flag indicating if the status callback also receives the ringing and answered statuses of the calls.
+     */
+    @Parameter(names = {"--callprogress"}, description = "Sends the ringing and answered statuses of the calls to the result handler, to measure each step of the calls")
+    public boolean callProgress;
+
+    /**
+     * The path to the do-not-call list, built with the {@link SuppressionListBuilder}.
+     */
+    @Parameter(names = {"--suppressionfile"}, description = "A do-not-call list built with SuppressionListBuilder, its numbers are never called")
+    public String suppressionFile;
+
+    /**
+     * The false positive rate of the filter of the numbers completed, the numbers completed are all read into memory when not given.
+     */
+    @Parameter(names = {"--completedfilter"}, description = "Rules out the numbers never completed with a Bloom filter with this false positive rate, e.g. 0.01, instead of reading every number completed into memory")
+    public Double completedFilterRate;
+
+    /**
+     * The number of numbers the filter of the numbers completed is sized for.
+     */
+    @Parameter(names = {"--completedfiltercapacity"}, description = "The number of numbers completed the Bloom filter is sized for, it grows when they are more")
+    public long completedFilterCapacity = SurveyConfiguration.DEFAULT_COMPLETED_FILTER_CAPACITY;
+
+    /**
+     * The port the daemon accepts campaigns on, a single survey is run when not given.
+     */
+    @Parameter(names = {"--daemon"}, description = "Keeps running and accepts campaigns over HTTP on this local port, instead of running a single survey")
+    public Integer daemonPort;
+
+    /**
+     * The maximum number of campaigns the daemon runs at the same time.
+     */
+    @Parameter(names = {"--maxcampaigns"}, description = "The maximum number of campaigns the daemon runs at the same time, the others wait for their turn")
+    public int maxCampaigns = 4;
+
     @Parameter(names = {"-i", "--internationalprefix"}, description = "The internation prefix that should be added to all the numbers being called.")
     public String internationalPrefix;
 
@@ -113,7 +307,39 @@ public class SurveyInitializerArguments {
                 .add("accountSid", accountSid)
                 .add("authToken", authToken)
                 .add("callerNumber", callerNumber)
+                .add("callsPerSecond", callsPerSecond)
+                .add("accountsFile", accountsFile)
+                .add("localPresenceMinDigits", localPresenceMinDigits)
                 .add("internationalPrefix", internationalPrefix)
+                .add("campaign", campaign)
+                .add("reconcile", reconcile)
+                .add("reconcilePageSize", reconcilePageSize)
+                .add("reconcileRate", reconcileRate)
+                .add("reconcileAfterMinutes", reconcileAfterMinutes)
+                .add("dialConcurrency", dialConcurrency)
+                .add("maxConnections", maxConnections)
+                .add("warmupConnections", warmupConnections)
+                .add("dialAttempts", dialAttempts)
+                .add("shardId", shardId)
+                .add("shardCount", shardCount)
+                .add("shardLeaseSeconds", shardLeaseSeconds)
+                .add("nodeId", nodeId)
+                .add("sharedRateLimitBatch", sharedRateLimitBatch)
+                .add("callingWindowStart", callingWindowStart)
+                .add("callingWindowEnd", callingWindowEnd)
+                .add("callingZonesFile", callingZonesFile)
+                .add("maxAttempts", maxAttempts)
+                .add("busyCooldownMinutes", busyCooldownMinutes)
+                .add("noAnswerCooldownMinutes", noAnswerCooldownMinutes)
+                .add("failedCooldownMinutes", failedCooldownMinutes)
+                .add("retryBackoff", retryBackoff)
+                .add("targetCalls", targetCalls)
+                .add("callProgress", callProgress)
+                .add("suppressionFile", suppressionFile)
+                .add("completedFilterRate", completedFilterRate)
+                .add("completedFilterCapacity", completedFilterCapacity)
+                .add("daemonPort", daemonPort)
+                .add("maxCampaigns", maxCampaigns)
                 .toString();
     }
 }
\ No newline at end of file
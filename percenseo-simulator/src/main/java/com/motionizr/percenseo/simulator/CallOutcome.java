@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+/**
+ * The ways a simulated call can end.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public enum CallOutcome {
+
+    /**
+     * A person answers and the call goes on until they hang up.
+     */
+    HUMAN("completed", "human"),
+
+    /**
+     * An answering machine picks up.
+     */
+    MACHINE("completed", "machine"),
+
+    /**
+     * The line is busy.
+     */
+    BUSY("busy", null),
+
+    /**
+     * Nobody picks up before the timeout of the call.
+     */
+    NO_ANSWER("no-answer", null),
+
+    /**
+     * The call can't be connected.
+     */
+    FAILED("failed", null);
+
+    /**
+     * The final status reported to the status callback.
+     */
+    private final String finalStatus;
+
+    /**
+     * Who answered the call, as reported to the webhooks.
+     */
+    private final String answeredBy;
+
+    /**
+     * Creates a new {@link CallOutcome}.
+     *
+     * @param finalStatus   The final status reported to the status callback.
+     * @param answeredBy    Who answered the call, {@code null} if nobody did.
+     */
+    CallOutcome(String finalStatus, String answeredBy) {
+        this.finalStatus = finalStatus;
+        this.answeredBy = answeredBy;
+    }
+
+    /**
+     * Gets the final status reported to the status callback.
+     *
+     * @return  The final status.
+     */
+    public String getFinalStatus() {
+        return finalStatus;
+    }
+
+    /**
+     * Gets who answered the call.
+     *
+     * @return  Who answered the call, {@code null} if nobody did.
+     */
+    public String getAnsweredBy() {
+        return answeredBy;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws the outcome and the durations of the simulated calls from the configured distributions.
+ * <p/>
+ * Outcomes follow the configured weights, ring times are uniformly distributed and the duration of the calls
+ * answered by a person is exponentially distributed around the configured mean.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+class CallOutcomeModel {
+
+    /**
+     * The cumulative weight of each {@link CallOutcome outcome}, in declaration order.
+     */
+    private final double[] cumulativeWeights;
+
+    /**
+     * The configuration.
+     */
+    private final SimulatorArguments arguments;
+
+    /**
+     * The source of randomness.
+     */
+    private final Random random;
+
+    /**
+     * Creates a new instance of {@link CallOutcomeModel}.
+     *
+     * @param arguments The configuration.
+     * @throws IllegalArgumentException If the configured distributions are invalid.
+     */
+    CallOutcomeModel(SimulatorArguments arguments) throws IllegalArgumentException {
+        double[] weights = {arguments.humanWeight, arguments.machineWeight, arguments.busyWeight, arguments.noAnswerWeight, arguments.failedWeight};
+
+        cumulativeWeights = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            Preconditions.checkArgument(weights[i] >= 0, String.format("Invalid outcome weight: %f", weights[i]));
+            total += weights[i];
+            cumulativeWeights[i] = total;
+        }
+
+        Preconditions.checkArgument(total > 0, "At least one outcome needs a positive weight");
+        Preconditions.checkArgument(
+                arguments.minRingSeconds >= 0 && arguments.maxRingSeconds >= arguments.minRingSeconds,
+                String.format("Invalid ring time range: [%f, %f]", arguments.minRingSeconds, arguments.maxRingSeconds)
+        );
+        Preconditions.checkArgument(arguments.timeScale > 0, String.format("Invalid time scale: %f", arguments.timeScale));
+
+        this.arguments = arguments;
+        this.random = new Random(arguments.seed);
+    }
+
+    /**
+     * Draws the outcome of a call.
+     *
+     * @return  The {@link CallOutcome outcome}.
+     */
+    CallOutcome nextOutcome() {
+        double draw = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+
+        CallOutcome[] outcomes = CallOutcome.values();
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return outcomes[i];
+            }
+        }
+
+        return outcomes[outcomes.length - 1];
+    }
+
+    /**
+     * Draws how long a call rings before being picked up or rejected.
+     *
+     * @return  The ring time in seconds.
+     */
+    double nextRingSeconds() {
+        return arguments.minRingSeconds + random.nextDouble() * (arguments.maxRingSeconds - arguments.minRingSeconds);
+    }
+
+    /**
+     * Draws how long a call answered by a person lasts.
+     *
+     * @return  The duration of the call in seconds, at least one.
+     */
+    int nextTalkSeconds() {
+        return Math.max(1, (int) Math.round(-arguments.meanTalkSeconds * Math.log(1 - random.nextDouble())));
+    }
+
+    /**
+     * Gets how long it takes to detect an answering machine.
+     *
+     * @return  The duration in seconds.
+     */
+    int machineDetectionSeconds() {
+        return (int) Math.ceil(arguments.machineDetectionSeconds);
+    }
+
+    /**
+     * Checks if a call creation request should fail with a server error.
+     *
+     * @return  {@code true} if the request should fail, {@code false} otherwise.
+     */
+    boolean nextApiError() {
+        return arguments.apiErrorRate > 0 && random.nextDouble() < arguments.apiErrorRate;
+    }
+
+    /**
+     * Converts a simulated duration into the time actually waited, applying the time scale.
+     *
+     * @param seconds   The simulated duration in seconds.
+     * @return          The time to wait in milliseconds.
+     */
+    long toWallMillis(double seconds) {
+        return (long) (seconds * arguments.timeScale * TimeUnit.SECONDS.toMillis(1));
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+import com.motionizr.percenseo.commons.JsonStrings;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A call created on the emulated API, going through its lifecycle.
+ * <p/>
+ * Knows how to render itself as the JSON call resource returned by the Calls endpoint and as the parameters Twilio
+ * sends to the webhooks.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+class SimulatedCall {
+
+    /**
+     * The format of the dates in the API resources and in the webhook parameters.
+     */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss Z", Locale.US);
+
+    /**
+     * The version of the emulated API.
+     */
+    static final String API_VERSION = "2010-04-01";
+
+    /**
+     * The SID of the call.
+     */
+    private final String sid;
+
+    /**
+     * The SID of the account that created the call.
+     */
+    private final String accountSid;
+
+    /**
+     * The caller number.
+     */
+    private final String from;
+
+    /**
+     * The called number.
+     */
+    private final String to;
+
+    /**
+     * The URL requested once the call is answered.
+     */
+    private final String url;
+
+    /**
+     * The URL receiving the final status of the call, may be {@code null}.
+     */
+    private final String statusCallback;
+
+    /**
+     * The statuses sent to the status callback besides the final one, e.g. {@code ringing} and {@code answered}.
+     */
+    private final Set<String> statusCallbackEvents;
+
+    /**
+     * Whether the call is hung up when an answering machine picks up, instead of requesting the URL.
+     */
+    private final boolean hangupOnMachine;
+
+    /**
+     * The number of seconds the call rings before giving up.
+     */
+    private final int timeoutSeconds;
+
+    /**
+     * When the call was created.
+     */
+    private final ZonedDateTime dateCreated = ZonedDateTime.now(ZoneOffset.UTC);
+
+    /**
+     * The current status.
+     */
+    private volatile String status = "queued";
+
+    /**
+     * The duration of the call in seconds, only known once it's over.
+     */
+    private volatile Integer duration;
+
+    /**
+     * Who answered the call.
+     */
+    private volatile String answeredBy;
+
+    /**
+     * Creates a new instance of {@link SimulatedCall}.
+     *
+     * @param sid                   The SID of the call.
+     * @param accountSid            The SID of the account that created the call.
+     * @param from                  The caller number.
+     * @param to                    The called number.
+     * @param url                   The URL requested once the call is answered.
+     * @param statusCallback        The URL receiving the final status of the call, may be {@code null}.
+     * @param statusCallbackEvents  The statuses sent to the status callback besides the final one.
+     * @param hangupOnMachine       Whether the call is hung up when an answering machine picks up.
+     * @param timeoutSeconds        The number of seconds the call rings before giving up.
+     */
+    SimulatedCall(String sid, String accountSid, String from, String to, String url, String statusCallback,
+                  Set<String> statusCallbackEvents, boolean hangupOnMachine, int timeoutSeconds) {
+        this.sid = sid;
+        this.accountSid = accountSid;
+        this.from = from;
+        this.to = to;
+        this.url = url;
+        this.statusCallback = statusCallback;
+        this.statusCallbackEvents = statusCallbackEvents;
+        this.hangupOnMachine = hangupOnMachine;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Gets the SID of the call.
+     *
+     * @return  The SID of the call.
+     */
+    String getSid() {
+        return sid;
+    }
+
+    /**
+     * Gets the SID of the account that created the call.
+     *
+     * @return  The SID of the account that created the call.
+     */
+    String getAccountSid() {
+        return accountSid;
+    }
+
+    /**
+     * Gets the URL requested once the call is answered.
+     *
+     * @return  The URL requested once the call is answered.
+     */
+    String getUrl() {
+        return url;
+    }
+
+    /**
+     * Gets the URL receiving the final status of the call, may be {@code null}.
+     *
+     * @return  The URL receiving the final status of the call, may be {@code null}.
+     */
+    String getStatusCallback() {
+        return statusCallback;
+    }
+
+    /**
+     * Checks whether a status is sent to the status callback besides the final one.
+     *
+     * @param event The status, e.g. {@code ringing} or {@code answered}.
+     * @return      {@code true} if the status is sent, {@code false} otherwise.
+     */
+    boolean isProgressRequested(String event) {
+        return statusCallback != null && statusCallbackEvents.contains(event);
+    }
+
+    /**
+     * Checks whether the call is hung up when an answering machine picks up.
+     *
+     * @return  Whether the call is hung up when an answering machine picks up.
+     */
+    boolean isHangupOnMachine() {
+        return hangupOnMachine;
+    }
+
+    /**
+     * Gets the number of seconds the call rings before giving up.
+     *
+     * @return  The number of seconds the call rings before giving up.
+     */
+    int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    /**
+     * Gets when the call was created.
+     *
+     * @return  When the call was created.
+     */
+    ZonedDateTime getDateCreated() {
+        return dateCreated;
+    }
+
+    /**
+     * Marks the call as ringing.
+     */
+    void ring() {
+        this.status = "ringing";
+    }
+
+    /**
+     * Marks the call as answered.
+     *
+     * @param answeredBy    Who answered the call.
+     */
+    void answer(String answeredBy) {
+        this.answeredBy = answeredBy;
+        this.status = "in-progress";
+    }
+
+    /**
+     * Marks the call as over.
+     *
+     * @param finalStatus   The final status.
+     * @param duration      The duration of the call in seconds.
+     */
+    void finish(String finalStatus, int duration) {
+        this.duration = duration;
+        this.status = finalStatus;
+    }
+
+    /**
+     * Builds the parameters Twilio sends to the webhooks.
+     *
+     * @return  The webhook parameters.
+     */
+    Map<String, String> toWebhookParameters() {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("CallSid", sid);
+        parameters.put("AccountSid", accountSid);
+        parameters.put("From", from);
+        parameters.put("To", to);
+        parameters.put("Caller", from);
+        parameters.put("Called", to);
+        parameters.put("CallStatus", status);
+        parameters.put("Direction", "outbound-api");
+        parameters.put("ApiVersion", API_VERSION);
+        parameters.put("Timestamp", ZonedDateTime.now(ZoneOffset.UTC).format(DATE_FORMAT));
+        if (answeredBy != null) {
+            parameters.put("AnsweredBy", answeredBy);
+        }
+        if (duration != null) {
+            parameters.put("CallDuration", String.valueOf(duration));
+        }
+        return parameters;
+    }
+
+    /**
+     * Renders the call as the JSON call resource of the API.
+     *
+     * @param json  The builder the call is appended to.
+     */
+    void appendJson(StringBuilder json) {
+        json.append('{');
+        JsonStrings.field(json, "sid", sid).append(',');
+        JsonStrings.field(json, "account_sid", accountSid).append(',');
+        JsonStrings.field(json, "to", to).append(',');
+        JsonStrings.field(json, "from", from).append(',');
+        JsonStrings.field(json, "status", status).append(',');
+        JsonStrings.field(json, "direction", "outbound-api").append(',');
+        JsonStrings.field(json, "answered_by", answeredBy).append(',');
+        JsonStrings.field(json, "duration", duration == null ? null : String.valueOf(duration)).append(',');
+        JsonStrings.field(json, "date_created", dateCreated.format(DATE_FORMAT)).append(',');
+        JsonStrings.field(json, "api_version", API_VERSION).append(',');
+        JsonStrings.field(json, "uri", "/" + API_VERSION + "/Accounts/" + accountSid + "/Calls/" + sid + ".json");
+        json.append('}');
+    }
+
+}
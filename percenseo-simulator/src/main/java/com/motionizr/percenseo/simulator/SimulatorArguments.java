@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Configuration arguments of the {@link TwilioSimulator}.
+ * <p/>
+ * The outcome weights don't need to add up to one, each outcome happens with its share of the total weight.
+ * Every duration is multiplied by the time scale, so a scale of {@code 0.01} plays a two minutes call in just over a second.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class SimulatorArguments {
+
+    /**
+     * The help parameter used to print the help menu.
+     */
+    @Parameter(names = {"-h", "--help"}, help = true, description = "Shows this help menu")
+    public boolean help;
+
+    /**
+     * The port the emulated API listens on, 0 picks a free one.
+     */
+    @Parameter(names = {"--port"}, description = "The port the emulated Twilio API listens on, 0 picks a free one")
+    public int port = 8089;
+
+    /**
+     * Whether the emulated API is served over HTTPS, as the real one is.
+     */
+    @Parameter(names = {"--https"}, description = "Serves the emulated Twilio API over HTTPS with a self-signed certificate")
+    public boolean https;
+
+    /**
+     * The key store holding the certificate served over HTTPS, generated if missing.
+     */
+    @Parameter(names = {"--keystore"}, description = "The PKCS12 key store with the certificate served over HTTPS, generated if missing; clients can use it as their trust store")
+    public String keyStore = "percenseo-simulator.p12";
+
+    /**
+     * The password of the key store.
+     */
+    @Parameter(names = {"--keystorepassword"}, description = "The password of the key store")
+    public String keyStorePassword = "percenseo";
+
+    /**
+     * The weight of calls answered by a person.
+     */
+    @Parameter(names = {"--human"}, description = "The weight of calls answered by a person")
+    public double humanWeight = 0.45;
+
+    /**
+     * The weight of calls answered by an answering machine.
+     */
+    @Parameter(names = {"--machine"}, description = "The weight of calls answered by an answering machine")
+    public double machineWeight = 0.15;
+
+    /**
+     * The weight of calls to a busy line.
+     */
+    @Parameter(names = {"--busy"}, description = "The weight of calls to a busy line")
+    public double busyWeight = 0.1;
+
+    /**
+     * The weight of calls nobody answers.
+     */
+    @Parameter(names = {"--noanswer"}, description = "The weight of calls nobody answers")
+    public double noAnswerWeight = 0.25;
+
+    /**
+     * The weight of calls that fail to connect.
+     */
+    @Parameter(names = {"--failed"}, description = "The weight of calls that fail to connect")
+    public double failedWeight = 0.05;
+
+    /**
+     * The minimum time a call rings before being picked up or rejected.
+     */
+    @Parameter(names = {"--minring"}, description = "The minimum number of seconds a call rings before being picked up")
+    public double minRingSeconds = 3;
+
+    /**
+     * The maximum time a call rings before being picked up or rejected.
+     */
+    @Parameter(names = {"--maxring"}, description = "The maximum number of seconds a call rings before being picked up")
+    public double maxRingSeconds = 20;
+
+    /**
+     * The mean duration of the calls answered by a person, durations are exponentially distributed.
+     */
+    @Parameter(names = {"--talk"}, description = "The mean number of seconds of the calls answered by a person")
+    public double meanTalkSeconds = 60;
+
+    /**
+     * The time it takes to detect an answering machine and hang up.
+     */
+    @Parameter(names = {"--machinedetection"}, description = "The number of seconds it takes to detect an answering machine")
+    public double machineDetectionSeconds = 4;
+
+    /**
+     * The factor applied to every duration.
+     */
+    @Parameter(names = {"--timescale"}, description = "The factor applied to every duration, e.g. 0.01 runs calls a hundred times faster")
+    public double timeScale = 1;
+
+    /**
+     * The maximum number of calls created per second, the remaining requests are rejected as Twilio does.
+     */
+    @Parameter(names = {"--cps"}, description = "The maximum number of calls created per second, 0 for no limit")
+    public double callsPerSecond = 0;
+
+    /**
+     * The latency added to every request to the emulated API.
+     */
+    @Parameter(names = {"--apilatency"}, description = "The number of milliseconds added to every request to the emulated API")
+    public long apiLatencyMillis = 0;
+
+    /**
+     * The rate of call creation requests failing with a server error.
+     */
+    @Parameter(names = {"--apierrors"}, description = "The rate of call creation requests failing with a server error, between 0 and 1")
+    public double apiErrorRate = 0;
+
+    /**
+     * The maximum number of webhook requests sent per second.
+     */
+    @Parameter(names = {"--webhookrate"}, description = "The maximum number of webhook requests sent per second, 0 for no limit")
+    public double webhooksPerSecond = 0;
+
+    /**
+     * The number of threads sending webhook requests.
+     */
+    @Parameter(names = {"--webhookthreads"}, description = "The number of threads sending webhook requests")
+    public int webhookThreads = 32;
+
+    /**
+     * The seed of the random outcomes, so runs can be reproduced.
+     */
+    @Parameter(names = {"--seed"}, description = "The seed of the random outcomes")
+    public long seed = 42;
+
+    /**
+     * Prints the help menu and exits the execution.
+     *
+     * @param cmd   The reference to the Jcommander instance.
+     */
+    public void printHelpAndExit(JCommander cmd) {
+        cmd.setProgramName("java -cp percenseo-simulator-*.jar com.motionizr.percenseo.simulator.TwilioSimulator");
+
+        StringBuilder helpBuilder = new StringBuilder();
+        cmd.usage(helpBuilder);
+        System.out.println(helpBuilder.toString());
+        System.exit(0);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("port", port)
+                .add("https", https)
+                .add("keyStore", keyStore)
+                .add("humanWeight", humanWeight)
+                .add("machineWeight", machineWeight)
+                .add("busyWeight", busyWeight)
+                .add("noAnswerWeight", noAnswerWeight)
+                .add("failedWeight", failedWeight)
+                .add("minRingSeconds", minRingSeconds)
+                .add("maxRingSeconds", maxRingSeconds)
+                .add("meanTalkSeconds", meanTalkSeconds)
+                .add("machineDetectionSeconds", machineDetectionSeconds)
+                .add("timeScale", timeScale)
+                .add("callsPerSecond", callsPerSecond)
+                .add("apiLatencyMillis", apiLatencyMillis)
+                .add("apiErrorRate", apiErrorRate)
+                .add("webhooksPerSecond", webhooksPerSecond)
+                .add("webhookThreads", webhookThreads)
+                .add("seed", seed)
+                .toString();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the self-signed certificate the {@link TwilioSimulator} serves HTTPS with.
+ * <p/>
+ * The key pair is generated with the {@code keytool} of the running JDK into a PKCS12 key store, issued to
+ * {@code localhost} and {@code 127.0.0.1}. Clients trust the simulator by using that same file as their trust store,
+ * e.g. through the {@code javax.net.ssl.trustStore} system property.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public final class SimulatorKeyStore {
+
+    /**
+     * The type of the key store.
+     */
+    public static final String TYPE = "PKCS12";
+
+    /**
+     * The alias of the key pair.
+     */
+    private static final String ALIAS = "percenseo-simulator";
+
+    /**
+     * The validity of the certificate in days.
+     */
+    private static final int VALIDITY_DAYS = 3650;
+
+    /**
+     * Empty constructor to prevent instantiation.
+     */
+    private SimulatorKeyStore() {}
+
+    /**
+     * Generates a key store holding a new self-signed certificate for {@code localhost}, unless it already exists.
+     *
+     * @param file          The key store file.
+     * @param password      The password of the key store and of the key.
+     * @throws IOException  If {@code keytool} can't be run or fails.
+     */
+    public static void generate(Path file, String password) throws IOException {
+        if (Files.exists(file)) {
+            return;
+        }
+
+        List<String> command = Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair",
+                "-alias", ALIAS,
+                "-keyalg", "RSA",
+                "-keysize", "2048",
+                "-validity", String.valueOf(VALIDITY_DAYS),
+                "-dname", "CN=localhost",
+                "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-storetype", TYPE,
+                "-keystore", file.toString(),
+                "-storepass", password,
+                "-keypass", password
+        );
+
+        Process keytool = new ProcessBuilder(command).redirectErrorStream(true).start();
+        byte[] output;
+        try (InputStream in = keytool.getInputStream()) {
+            output = TwilioSimulator.readFully(in);
+        }
+
+        try {
+            if (keytool.waitFor() != 0) {
+                throw new IOException(String.format("Unable to generate the key store %s: %s", file, new String(output).trim()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating the key store " + file, e);
+        }
+    }
+
+    /**
+     * Creates the TLS context serving the certificate of a key store.
+     *
+     * @param file          The key store file.
+     * @param password      The password of the key store and of the key.
+     * @return              The TLS context.
+     * @throws IOException  If the key store can't be read or used.
+     */
+    public static SSLContext sslContext(Path file, String password) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            KeyStore keyStore = KeyStore.getInstance(TYPE);
+            keyStore.load(in, password.toCharArray());
+
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, password.toCharArray());
+
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keyManagers.getKeyManagers(), null, null);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to use the key store " + file, e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+import com.motionizr.percenseo.commons.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of what the {@link TwilioSimulator} did, cheap to update from any thread.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class SimulatorStatistics {
+
+    /**
+     * The number of calls created.
+     */
+    private final LongAdder callsCreated = new LongAdder();
+
+    /**
+     * The number of call creation requests rejected for exceeding the calls per second.
+     */
+    private final LongAdder callsRejected = new LongAdder();
+
+    /**
+     * The number of call creation requests failed on purpose with a server error.
+     */
+    private final LongAdder apiErrors = new LongAdder();
+
+    /**
+     * The number of requests without credentials challenged for them.
+     */
+    private final LongAdder authenticationChallenges = new LongAdder();
+
+    /**
+     * The number of calls that ended, per {@link CallOutcome outcome}.
+     */
+    private final Map<CallOutcome, LongAdder> callsEnded = new EnumMap<>(CallOutcome.class);
+
+    /**
+     * The number of requests sent to the call handler.
+     */
+    private final LongAdder callHandlerRequests = new LongAdder();
+
+    /**
+     * The number of status callbacks sent.
+     */
+    private final LongAdder statusCallbacks = new LongAdder();
+
+    /**
+     * The number of ringing and answered statuses sent to the status callback.
+     */
+    private final LongAdder progressCallbacks = new LongAdder();
+
+    /**
+     * The number of webhook requests that failed or got an error response.
+     */
+    private final LongAdder webhookFailures = new LongAdder();
+
+    /**
+     * The time spent waiting for the call handler to respond, in nanoseconds.
+     */
+    private final LatencyHistogram callHandlerLatency = new LatencyHistogram();
+
+    /**
+     * The time spent waiting for the status callback to respond, in nanoseconds.
+     */
+    private final LatencyHistogram statusCallbackLatency = new LatencyHistogram();
+
+    /**
+     * Creates a new instance of {@link SimulatorStatistics}.
+     */
+    public SimulatorStatistics() {
+        for (CallOutcome outcome : CallOutcome.values()) {
+            callsEnded.put(outcome, new LongAdder());
+        }
+    }
+
+    /**
+     * Records a call created.
+     */
+    void callCreated() {
+        callsCreated.increment();
+    }
+
+    /**
+     * Records a call creation request rejected for exceeding the calls per second.
+     */
+    void callRejected() {
+        callsRejected.increment();
+    }
+
+    /**
+     * Records a call creation request failed on purpose.
+     */
+    void apiError() {
+        apiErrors.increment();
+    }
+
+    /**
+     * Records a request without credentials challenged for them.
+     */
+    void authenticationChallenged() {
+        authenticationChallenges.increment();
+    }
+
+    /**
+     * Records a call that ended.
+     *
+     * @param outcome   The {@link CallOutcome outcome} of the call.
+     */
+    void callEnded(CallOutcome outcome) {
+        callsEnded.get(outcome).increment();
+    }
+
+    /**
+     * Records a webhook request.
+     *
+     * @param statusCallback    Whether it was a status callback, or a request to the call handler otherwise.
+     * @param nanos             The time spent waiting for the response.
+     * @param failed            Whether the request failed or got an error response.
+     */
+    void webhookSent(boolean statusCallback, long nanos, boolean failed) {
+        (statusCallback ? statusCallbacks : callHandlerRequests).increment();
+        (statusCallback ? statusCallbackLatency : callHandlerLatency).record(nanos);
+        if (failed) {
+            webhookFailures.increment();
+        }
+    }
+
+    /**
+     * Gets the number of calls created.
+     *
+     * @return  The number of calls created.
+     */
+    public long getCallsCreated() {
+        return callsCreated.sum();
+    }
+
+    /**
+     * Records a ringing or answered status sent to the status callback. Its latency is recorded with the ones of the
+     * status callbacks, but it is not counted as one.
+     *
+     * @param nanos     The time spent waiting for the response.
+     * @param failed    Whether the request failed or got an error response.
+     */
+    void progressCallbackSent(long nanos, boolean failed) {
+        progressCallbacks.increment();
+        statusCallbackLatency.record(nanos);
+        if (failed) {
+            webhookFailures.increment();
+        }
+    }
+
+    /**
+     * Gets the number of requests without credentials challenged for them.
+     *
+     * @return  The number of requests challenged.
+     */
+    public long getAuthenticationChallenges() {
+        return authenticationChallenges.sum();
+    }
+
+    /**
+     * Gets the number of call creation requests rejected for exceeding the calls per second.
+     *
+     * @return  The number of rejected requests.
+     */
+    public long getCallsRejected() {
+        return callsRejected.sum();
+    }
+
+    /**
+     * Gets the number of calls that ended with a given outcome.
+     *
+     * @param outcome   The {@link CallOutcome outcome}.
+     * @return          The number of calls.
+     */
+    public long getCallsEnded(CallOutcome outcome) {
+        return callsEnded.get(outcome).sum();
+    }
+
+    /**
+     * Gets the number of calls that ended.
+     *
+     * @return  The number of calls that ended.
+     */
+    public long getCallsEnded() {
+        return callsEnded.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Gets the number of status callbacks sent.
+     *
+     * @return  The number of status callbacks sent.
+     */
+    public long getStatusCallbacks() {
+        return statusCallbacks.sum();
+    }
+
+    /**
+     * Gets the number of ringing and answered statuses sent to the status callback.
+     *
+     * @return  The number of progress callbacks sent.
+     */
+    public long getProgressCallbacks() {
+        return progressCallbacks.sum();
+    }
+
+    /**
+     * Gets the number of webhook requests that failed or got an error response.
+     *
+     * @return  The number of failed webhook requests.
+     */
+    public long getWebhookFailures() {
+        return webhookFailures.sum();
+    }
+
+    /**
+     * Gets the time spent waiting for the call handler to respond.
+     *
+     * @return  The latencies of the requests to the call handler, in nanoseconds.
+     */
+    public LatencyHistogram getCallHandlerLatency() {
+        return callHandlerLatency;
+    }
+
+    /**
+     * Gets the time spent waiting for the status callback to respond.
+     *
+     * @return  The latencies of the status callbacks, in nanoseconds.
+     */
+    public LatencyHistogram getStatusCallbackLatency() {
+        return statusCallbackLatency;
+    }
+
+    /**
+     * Renders the statistics as JSON, with latencies in milliseconds.
+     *
+     * @return  The JSON representation of the statistics.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"callsCreated\":").append(callsCreated.sum())
+                .append(",\"callsRejected\":").append(callsRejected.sum())
+                .append(",\"apiErrors\":").append(apiErrors.sum())
+                .append(",\"authenticationChallenges\":").append(authenticationChallenges.sum())
+                .append(",\"callsEnded\":{");
+
+        boolean first = true;
+        for (Map.Entry<CallOutcome, LongAdder> entry : callsEnded.entrySet()) {
+            json.append(first ? "" : ",").append('"').append(entry.getKey().name()).append("\":").append(entry.getValue().sum());
+            first = false;
+        }
+
+        json.append("},\"callHandlerRequests\":").append(callHandlerRequests.sum())
+                .append(",\"statusCallbacks\":").append(statusCallbacks.sum())
+                .append(",\"progressCallbacks\":").append(progressCallbacks.sum())
+                .append(",\"webhookFailures\":").append(webhookFailures.sum())
+                .append(",\"callHandlerLatencyMillis\":").append(callHandlerLatency.toJson(TimeUnit.MILLISECONDS.toNanos(1)))
+                .append(",\"statusCallbackLatencyMillis\":").append(statusCallbackLatency.toJson(TimeUnit.MILLISECONDS.toNanos(1)))
+                .append('}');
+
+        return json.toString();
+    }
+}
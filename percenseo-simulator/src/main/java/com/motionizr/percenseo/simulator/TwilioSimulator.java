@@ -0,0 +1,729 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+import com.beust.jcommander.JCommander;
+import com.google.common.util.concurrent.RateLimiter;
+import com.motionizr.percenseo.commons.JsonStrings;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Emulates the parts of the Twilio REST API used by percenseo on localhost, so the whole survey flow can be load
+ * tested without placing real calls.
+ * <p/>
+ * Serves the account resource and the Calls list and instance resources. Every call created goes through a simulated
+ * lifecycle drawn from the configured distributions: it rings, then is answered by a person or a machine, is busy,
+ * is not answered or fails. Like Twilio, the call URL is requested when a call is answered (unless a machine answered
+ * and {@code IfMachine=Hangup} was given) and the status callback receives the final status of the call, preceded by
+ * the {@code ringing} and {@code answered} statuses when asked for with {@code StatusCallbackEvent}.
+ * Call creation can be limited to a number of calls per second, slowed down or made to fail, to exercise the dialer.
+ * <p/>
+ * Like Twilio, requests without credentials are challenged for them, and the API can be served over HTTPS with a
+ * {@link SimulatorKeyStore self-signed certificate} so the cost of the TLS handshakes is part of the measurements.
+ *
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class TwilioSimulator implements AutoCloseable {
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(TwilioSimulator.class);
+
+    /**
+     * The path of the account resource.
+     */
+    private static final Pattern ACCOUNT_PATH = Pattern.compile("/" + SimulatedCall.API_VERSION + "/Accounts/([^/]+)\\.json");
+
+    /**
+     * The path of the Calls list resource.
+     */
+    private static final Pattern CALLS_PATH = Pattern.compile("/" + SimulatedCall.API_VERSION + "/Accounts/([^/]+)/Calls\\.json");
+
+    /**
+     * The path of a call instance resource.
+     */
+    private static final Pattern CALL_PATH = Pattern.compile("/" + SimulatedCall.API_VERSION + "/Accounts/([^/]+)/Calls/([^/]+)\\.json");
+
+    /**
+     * The path serving the {@link SimulatorStatistics statistics}.
+     */
+    public static final String STATISTICS_PATH = "/simulator/statistics";
+
+    /**
+     * The system property that disables Nagle's algorithm on the connections accepted by the JDK HTTP server.
+     */
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    /**
+     * The number of calls per page of the Calls list resource when no page size is given.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * The maximum number of calls per page of the Calls list resource.
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * The number of seconds a call rings when no timeout is given.
+     */
+    private static final int DEFAULT_TIMEOUT_SECONDS = 60;
+
+    /**
+     * The timeout of the webhook requests.
+     */
+    private static final int WEBHOOK_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(15);
+
+    /**
+     * The configuration.
+     */
+    private final SimulatorArguments arguments;
+
+    /**
+     * The distributions the calls are drawn from.
+     */
+    private final CallOutcomeModel model;
+
+    /**
+     * The statistics.
+     */
+    private final SimulatorStatistics statistics = new SimulatorStatistics();
+
+    /**
+     * The calls created, by SID.
+     */
+    private final Map<String, SimulatedCall> calls = new ConcurrentHashMap<>();
+
+    /**
+     * The calls created, in creation order.
+     */
+    private final List<SimulatedCall> history = new ArrayList<>();
+
+    /**
+     * The sequence used to generate the call SIDs.
+     */
+    private final AtomicLong sidSequence = new AtomicLong();
+
+    /**
+     * Limits the calls created per second, {@code null} if unlimited.
+     */
+    private final RateLimiter callLimiter;
+
+    /**
+     * Limits the webhook requests sent per second, {@code null} if unlimited.
+     */
+    private final RateLimiter webhookLimiter;
+
+    /**
+     * Runs the lifecycle of the calls.
+     */
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+
+    /**
+     * Sends the webhook requests.
+     */
+    private final ExecutorService webhookSenders;
+
+    /**
+     * Handles the requests to the emulated API.
+     */
+    private final ExecutorService requestHandlers = Executors.newCachedThreadPool();
+
+    /**
+     * The HTTP server.
+     */
+    private HttpServer server;
+
+    /**
+     * Creates a new instance of {@link TwilioSimulator}.
+     *
+     * @param arguments The configuration.
+     * @throws IllegalArgumentException If the configuration is invalid.
+     */
+    public TwilioSimulator(SimulatorArguments arguments) throws IllegalArgumentException {
+        this.arguments = arguments;
+        this.model = new CallOutcomeModel(arguments);
+        this.callLimiter = arguments.callsPerSecond > 0 ? RateLimiter.create(arguments.callsPerSecond) : null;
+        this.webhookLimiter = arguments.webhooksPerSecond > 0 ? RateLimiter.create(arguments.webhooksPerSecond) : null;
+        this.webhookSenders = Executors.newFixedThreadPool(arguments.webhookThreads);
+    }
+
+    public static void main(String[] args) throws IOException {
+        SimulatorArguments arguments = new SimulatorArguments();
+        JCommander cmd = new JCommander(arguments, args);
+
+        if (arguments.help) {
+            arguments.printHelpAndExit(cmd);
+        }
+        logger.debug("All arguments read successfully: {}", arguments);
+
+        TwilioSimulator simulator = new TwilioSimulator(arguments);
+        simulator.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::close));
+
+        simulator.scheduler.scheduleAtFixedRate(() -> logger.info("Statistics: {}", simulator.statistics.toJson()), 10, 10, TimeUnit.SECONDS);
+        logger.info("Twilio simulator listening on {}", simulator.getBaseURL());
+    }
+
+    /**
+     * Starts serving the emulated API, over HTTPS if so configured.
+     *
+     * @throws IOException  If the server can't be started or the key store can't be generated or read.
+     */
+    public void start() throws IOException {
+        // Otherwise responses written in several segments wait for the delayed ACK of the client, adding 40ms to requests.
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+
+        InetSocketAddress address = new InetSocketAddress("localhost", arguments.port);
+        if (arguments.https) {
+            SimulatorKeyStore.generate(Paths.get(arguments.keyStore), arguments.keyStorePassword);
+            HttpsServer httpsServer = HttpsServer.create(address, 1024);
+            httpsServer.setHttpsConfigurator(new HttpsConfigurator(
+                    SimulatorKeyStore.sslContext(Paths.get(arguments.keyStore), arguments.keyStorePassword)));
+            server = httpsServer;
+        } else {
+            server = HttpServer.create(address, 1024);
+        }
+        server.createContext("/", this::handle);
+        server.setExecutor(requestHandlers);
+        server.start();
+    }
+
+    /**
+     * Gets the port the emulated API listens on.
+     *
+     * @return  The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the URL the emulated API is served at, to be used as the API endpoint of the Twilio clients.
+     *
+     * @return  The URL, e.g. {@code https://localhost:8089}.
+     */
+    public String getBaseURL() {
+        return (arguments.https ? "https" : "http") + "://localhost:" + getPort();
+    }
+
+    /**
+     * Gets the statistics.
+     *
+     * @return  The statistics.
+     */
+    public SimulatorStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Gets the number of calls created that are not over yet.
+     *
+     * @return  The number of calls not over yet.
+     */
+    public long getPendingCalls() {
+        return statistics.getCallsCreated() - statistics.getCallsEnded();
+    }
+
+    /**
+     * Stops serving the emulated API and drops the calls not over yet.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        scheduler.shutdownNow();
+        webhookSenders.shutdownNow();
+        requestHandlers.shutdownNow();
+    }
+
+    /**
+     * Routes a request to the emulated API.
+     *
+     * @param exchange  The request.
+     */
+    private void handle(HttpExchange exchange) {
+        try {
+            if (arguments.apiLatencyMillis > 0) {
+                Thread.sleep(arguments.apiLatencyMillis);
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            boolean post = "POST".equalsIgnoreCase(exchange.getRequestMethod());
+            Matcher matcher;
+
+            if (STATISTICS_PATH.equals(path)) {
+                respond(exchange, 200, statistics.toJson());
+            } else if (!exchange.getRequestHeaders().containsKey("Authorization")) {
+                statistics.authenticationChallenged();
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"Twilio API\"");
+                error(exchange, 401, 20003, "Authenticate");
+            } else if ((matcher = CALLS_PATH.matcher(path)).matches()) {
+                if (post) {
+                    createCall(exchange, matcher.group(1));
+                } else {
+                    listCalls(exchange, matcher.group(1));
+                }
+            } else if ((matcher = CALL_PATH.matcher(path)).matches()) {
+                SimulatedCall call = calls.get(matcher.group(2));
+                if (call == null) {
+                    error(exchange, 404, 20404, "The requested resource was not found");
+                } else {
+                    StringBuilder json = new StringBuilder(512);
+                    call.appendJson(json);
+                    respond(exchange, 200, json.toString());
+                }
+            } else if ((matcher = ACCOUNT_PATH.matcher(path)).matches()) {
+                StringBuilder json = new StringBuilder("{");
+                JsonStrings.field(json, "sid", matcher.group(1)).append(',');
+                JsonStrings.field(json, "friendly_name", "Simulated account").append(',');
+                JsonStrings.field(json, "status", "active").append(',');
+                JsonStrings.field(json, "type", "Full").append('}');
+                respond(exchange, 200, json.toString());
+            } else {
+                error(exchange, 404, 20404, "The requested resource was not found");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to handle request {}: {}", exchange.getRequestURI(), e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Creates a call and starts its lifecycle.
+     *
+     * @param exchange      The request.
+     * @param accountSid    The SID of the account creating the call.
+     * @throws IOException  If an error occurs reading the request or writing the response.
+     */
+    private void createCall(HttpExchange exchange, String accountSid) throws IOException {
+        Map<String, String> params = parseForm(new String(readFully(exchange.getRequestBody()), StandardCharsets.UTF_8));
+
+        if (callLimiter != null && !callLimiter.tryAcquire()) {
+            statistics.callRejected();
+            error(exchange, 429, 20429, "Too Many Requests");
+            return;
+        }
+
+        if (model.nextApiError()) {
+            statistics.apiError();
+            error(exchange, 503, 20503, "Service Unavailable");
+            return;
+        }
+
+        if (params.get("To") == null || params.get("From") == null || params.get("Url") == null) {
+            error(exchange, 400, 21201, "The To, From and Url parameters are required");
+            return;
+        }
+
+        int timeout;
+        try {
+            timeout = params.containsKey("Timeout") ? Integer.parseInt(params.get("Timeout")) : DEFAULT_TIMEOUT_SECONDS;
+        } catch (NumberFormatException e) {
+            error(exchange, 400, 21212, "Invalid Timeout");
+            return;
+        }
+
+        SimulatedCall call = new SimulatedCall(
+                String.format("CA%032x", sidSequence.incrementAndGet()),
+                accountSid,
+                params.get("From"),
+                params.get("To"),
+                params.get("Url"),
+                params.get("StatusCallback"),
+                params.containsKey("StatusCallbackEvent") ?
+                        new HashSet<>(Arrays.asList(params.get("StatusCallbackEvent").split(" "))) : new HashSet<>(),
+                "Hangup".equalsIgnoreCase(params.get("IfMachine")),
+                timeout
+        );
+
+        calls.put(call.getSid(), call);
+        synchronized (history) {
+            history.add(call);
+        }
+        statistics.callCreated();
+
+        StringBuilder json = new StringBuilder(512);
+        call.appendJson(json);
+        respond(exchange, 201, json.toString());
+
+        play(call);
+    }
+
+    /**
+     * Serves a page of the Calls list resource, newest calls first.
+     *
+     * @param exchange      The request.
+     * @param accountSid    The SID of the account listing its calls.
+     * @throws IOException  If an error occurs writing the response.
+     */
+    private void listCalls(HttpExchange exchange, String accountSid) throws IOException {
+        Map<String, String> params = parseForm(exchange.getRequestURI().getRawQuery());
+        int page = Math.max(0, parseInt(params.get("Page"), 0));
+        int pageSize = Math.min(MAX_PAGE_SIZE, Math.max(1, parseInt(params.get("PageSize"), DEFAULT_PAGE_SIZE)));
+
+        List<SimulatedCall> selected = new ArrayList<>(pageSize);
+        boolean more = false;
+        synchronized (history) {
+            int skipped = 0;
+            for (int i = history.size() - 1; i >= 0; i--) {
+                SimulatedCall call = history.get(i);
+                if (!call.getAccountSid().equals(accountSid)) {
+                    continue;
+                }
+                if (skipped++ < page * pageSize) {
+                    continue;
+                }
+                if (selected.size() == pageSize) {
+                    more = true;
+                    break;
+                }
+                selected.add(call);
+            }
+        }
+
+        String uri = "/" + SimulatedCall.API_VERSION + "/Accounts/" + accountSid + "/Calls.json";
+        StringBuilder json = new StringBuilder(256 + selected.size() * 512);
+        json.append("{\"calls\":[");
+        for (int i = 0; i < selected.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            selected.get(i).appendJson(json);
+        }
+        json.append("],\"page\":").append(page).append(",\"page_size\":").append(pageSize).append(',');
+        JsonStrings.field(json, "uri", uri + "?Page=" + page + "&PageSize=" + pageSize).append(',');
+        JsonStrings.field(json, "next_page_uri", more ? uri + "?Page=" + (page + 1) + "&PageSize=" + pageSize : null);
+        json.append('}');
+
+        respond(exchange, 200, json.toString());
+    }
+
+    /**
+     * Schedules the lifecycle of a call.
+     *
+     * @param call  The call.
+     */
+    private void play(SimulatedCall call) {
+        CallOutcome outcome = model.nextOutcome();
+        double ringSeconds = Math.min(model.nextRingSeconds(), call.getTimeoutSeconds());
+        if (outcome != CallOutcome.FAILED) {
+            call.ring();
+            sendProgress(call, "ringing");
+        }
+
+        switch (outcome) {
+            case FAILED:
+                later(1, () -> finish(call, outcome, 0));
+                break;
+            case BUSY:
+                later(ringSeconds, () -> finish(call, outcome, 0));
+                break;
+            case NO_ANSWER:
+                later(call.getTimeoutSeconds(), () -> finish(call, outcome, 0));
+                break;
+            case MACHINE:
+                int detectionSeconds = model.machineDetectionSeconds();
+                later(ringSeconds, () -> {
+                    call.answer(outcome.getAnsweredBy());
+                    sendProgress(call, "answered");
+                    if (!call.isHangupOnMachine()) {
+                        sendWebhook(call.getUrl(), call, false);
+                    }
+                    later(detectionSeconds, () -> finish(call, outcome, detectionSeconds));
+                });
+                break;
+            default:
+                int talkSeconds = model.nextTalkSeconds();
+                later(ringSeconds, () -> {
+                    call.answer(outcome.getAnsweredBy());
+                    sendProgress(call, "answered");
+                    sendWebhook(call.getUrl(), call, false);
+                    later(talkSeconds, () -> finish(call, outcome, talkSeconds));
+                });
+        }
+    }
+
+    /**
+     * Ends a call, sending its final status to the status callback.
+     *
+     * @param call      The call.
+     * @param outcome   The {@link CallOutcome outcome} of the call.
+     * @param duration  The duration of the call in seconds.
+     */
+    private void finish(SimulatedCall call, CallOutcome outcome, int duration) {
+        call.finish(outcome.getFinalStatus(), duration);
+        statistics.callEnded(outcome);
+
+        if (call.getStatusCallback() != null) {
+            sendWebhook(call.getStatusCallback(), call, true);
+        }
+    }
+
+    /**
+     * Runs a step of a lifecycle after a simulated delay.
+     *
+     * @param seconds   The simulated delay in seconds.
+     * @param step      The step.
+     */
+    private void later(double seconds, Runnable step) {
+        scheduler.schedule(step, model.toWallMillis(seconds), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a webhook request with the current state of a call.
+     *
+     * @param url               The URL of the webhook.
+     * @param call              The call.
+     * @param statusCallback    Whether it's a status callback, or a request to the call URL otherwise.
+     */
+    private void sendWebhook(String url, SimulatedCall call, boolean statusCallback) {
+        String body = toForm(call.toWebhookParameters());
+
+        webhookSenders.execute(() -> {
+            if (webhookLimiter != null) {
+                webhookLimiter.acquire();
+            }
+
+            long start = System.nanoTime();
+            boolean failed = !post(url, body);
+            statistics.webhookSent(statusCallback, System.nanoTime() - start, failed);
+        });
+    }
+
+    /**
+     * Sends the current status of a call to its status callback, if that progress was asked for.
+     *
+     * @param call  The call.
+     * @param event The progress, {@code ringing} or {@code answered}.
+     */
+    private void sendProgress(SimulatedCall call, String event) {
+        if (!call.isProgressRequested(event)) {
+            return;
+        }
+
+        String body = toForm(call.toWebhookParameters());
+        webhookSenders.execute(() -> {
+            if (webhookLimiter != null) {
+                webhookLimiter.acquire();
+            }
+
+            long start = System.nanoTime();
+            boolean failed = !post(call.getStatusCallback(), body);
+            statistics.progressCallbackSent(System.nanoTime() - start, failed);
+        });
+    }
+
+    /**
+     * Posts a form to an URL.
+     *
+     * @param url   The URL.
+     * @param body  The form, URL encoded.
+     * @return      {@code true} if the request got a successful response, {@code false} otherwise.
+     */
+    private static boolean post(String url, String body) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(WEBHOOK_TIMEOUT_MILLIS);
+            connection.setReadTimeout(WEBHOOK_TIMEOUT_MILLIS);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                // Reading the whole response lets the connection be reused.
+                try (InputStream response = in) {
+                    readFully(response);
+                }
+            }
+            return status < 400;
+        } catch (IOException e) {
+            logger.debug("Unable to send the webhook request to {}: {}", url, e.getMessage());
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Responds with a Twilio error.
+     *
+     * @param exchange      The request.
+     * @param status        The HTTP status.
+     * @param code          The Twilio error code.
+     * @param message       The error message.
+     * @throws IOException  If an error occurs writing the response.
+     */
+    private static void error(HttpExchange exchange, int status, int code, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"code\":").append(code).append(',');
+        JsonStrings.field(json, "message", message).append(',');
+        JsonStrings.field(json, "more_info", "https://www.twilio.com/docs/errors/" + code).append(',');
+        json.append("\"status\":").append(status).append('}');
+        respond(exchange, status, json.toString());
+    }
+
+    /**
+     * Responds with a JSON body.
+     *
+     * @param exchange      The request.
+     * @param status        The HTTP status.
+     * @param json          The body.
+     * @throws IOException  If an error occurs writing the response.
+     */
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Reads a stream until its end.
+     *
+     * @param in            The stream.
+     * @return              The bytes read.
+     * @throws IOException  If an error occurs reading the stream.
+     */
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Parses an URL encoded form or query string. The values of a repeated parameter, e.g. {@code StatusCallbackEvent},
+     * are joined with spaces.
+     *
+     * @param form  The form, may be {@code null}.
+     * @return      The parameters.
+     */
+    static Map<String, String> parseForm(String form) {
+        Map<String, String> params = new HashMap<>();
+        if (form == null || form.isEmpty()) {
+            return params;
+        }
+
+        try {
+            for (String pair : form.split("&")) {
+                int separator = pair.indexOf('=');
+                String name = separator < 0 ? pair : pair.substring(0, separator);
+                String value = separator < 0 ? "" : pair.substring(separator + 1);
+                params.merge(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"), (first, second) -> first + ' ' + second);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported.", e);
+        }
+        return params;
+    }
+
+    /**
+     * Encodes parameters as an URL encoded form.
+     *
+     * @param params    The parameters.
+     * @return          The form.
+     */
+    static String toForm(Map<String, String> params) {
+        StringBuilder form = new StringBuilder(256);
+        try {
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                if (form.length() > 0) {
+                    form.append('&');
+                }
+                form.append(URLEncoder.encode(param.getKey(), "UTF-8")).append('=').append(URLEncoder.encode(param.getValue(), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported.", e);
+        }
+        return form.toString();
+    }
+
+    /**
+     * Parses an integer parameter.
+     *
+     * @param value         The value, may be {@code null}.
+     * @param defaultValue  The value used when missing or invalid.
+     * @return              The integer.
+     */
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class CallOutcomeModelTest {
+
+    private static final int DRAWS = 100_000;
+
+    private static SimulatorArguments arguments(double human, double machine, double busy, double noAnswer, double failed) {
+        SimulatorArguments arguments = new SimulatorArguments();
+        arguments.humanWeight = human;
+        arguments.machineWeight = machine;
+        arguments.busyWeight = busy;
+        arguments.noAnswerWeight = noAnswer;
+        arguments.failedWeight = failed;
+        return arguments;
+    }
+
+    @Test
+    public void testOutcomesFollowTheWeights() throws Exception {
+        CallOutcomeModel model = new CallOutcomeModel(arguments(4, 3, 2, 1, 0));
+
+        Map<CallOutcome, Integer> counts = new EnumMap<>(CallOutcome.class);
+        for (int i = 0; i < DRAWS; i++) {
+            counts.merge(model.nextOutcome(), 1, Integer::sum);
+        }
+
+        assertEquals("Should draw calls answered by a person by their weight", 0.4, counts.get(CallOutcome.HUMAN) / (double) DRAWS, 0.01);
+        assertEquals("Should draw calls answered by a machine by their weight", 0.3, counts.get(CallOutcome.MACHINE) / (double) DRAWS, 0.01);
+        assertEquals("Should draw busy calls by their weight", 0.2, counts.get(CallOutcome.BUSY) / (double) DRAWS, 0.01);
+        assertEquals("Should draw unanswered calls by their weight", 0.1, counts.get(CallOutcome.NO_ANSWER) / (double) DRAWS, 0.01);
+        assertNull("Should never draw an outcome without weight", counts.get(CallOutcome.FAILED));
+    }
+
+    @Test
+    public void testOutcomesAreReproducible() throws Exception {
+        CallOutcomeModel first = new CallOutcomeModel(arguments(1, 1, 1, 1, 1));
+        CallOutcomeModel second = new CallOutcomeModel(arguments(1, 1, 1, 1, 1));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals("Should draw the same outcomes with the same seed", first.nextOutcome(), second.nextOutcome());
+        }
+    }
+
+    @Test
+    public void testDurationsFollowTheirDistributions() throws Exception {
+        SimulatorArguments arguments = arguments(1, 0, 0, 0, 0);
+        arguments.minRingSeconds = 2;
+        arguments.maxRingSeconds = 6;
+        arguments.meanTalkSeconds = 30;
+        arguments.machineDetectionSeconds = 3.2;
+        arguments.timeScale = 0.01;
+        CallOutcomeModel model = new CallOutcomeModel(arguments);
+
+        double ringSum = 0;
+        double talkSum = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            double ring = model.nextRingSeconds();
+            assertTrue("Should ring within the configured range", ring >= 2 && ring < 6);
+            ringSum += ring;
+
+            int talk = model.nextTalkSeconds();
+            assertTrue("Should talk for at least a second", talk >= 1);
+            talkSum += talk;
+        }
+
+        assertEquals("Should ring for the middle of the range on average", 4, ringSum / DRAWS, 0.05);
+        assertEquals("Should talk for the configured mean", 30, talkSum / DRAWS, 0.5);
+        assertEquals("Should round the machine detection up to whole seconds", 4, model.machineDetectionSeconds());
+        assertEquals("Should apply the time scale", 300, model.toWallMillis(30));
+    }
+
+    @Test
+    public void testApiErrorsFollowTheRate() throws Exception {
+        SimulatorArguments arguments = arguments(1, 0, 0, 0, 0);
+        arguments.apiErrorRate = 0.2;
+        CallOutcomeModel model = new CallOutcomeModel(arguments);
+
+        int errors = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            errors += model.nextApiError() ? 1 : 0;
+        }
+
+        assertEquals("Should fail requests at the configured rate", 0.2, errors / (double) DRAWS, 0.01);
+        assertFalse("Should never fail requests by default", new CallOutcomeModel(arguments(1, 0, 0, 0, 0)).nextApiError());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeightsAreRejected() throws Exception {
+        new CallOutcomeModel(arguments(1, -1, 0, 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAllZeroWeightsAreRejected() throws Exception {
+        new CallOutcomeModel(arguments(0, 0, 0, 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvertedRingRangeIsRejected() throws Exception {
+        SimulatorArguments arguments = arguments(1, 0, 0, 0, 0);
+        arguments.minRingSeconds = 10;
+        arguments.maxRingSeconds = 5;
+        new CallOutcomeModel(arguments);
+    }
+}
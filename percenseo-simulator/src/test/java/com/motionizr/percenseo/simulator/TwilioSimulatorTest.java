@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2015 Miguel José Carvalho Bento (migueljbento@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.motionizr.percenseo.simulator;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Miguel Bento (migueljbento@gmail.com)
+ * @version 1.0.0
+ */
+public class TwilioSimulatorTest {
+
+    private static final String CALLS_PATH = "/2010-04-01/Accounts/AC00000000000000000000000000000000/Calls.json";
+
+    private TwilioSimulator simulator;
+
+    private TwilioSimulator start(SimulatorArguments arguments) throws IOException {
+        arguments.port = 0;
+        arguments.failedWeight = 1;
+        arguments.humanWeight = arguments.machineWeight = arguments.busyWeight = arguments.noAnswerWeight = 0;
+        arguments.timeScale = 0.001;
+        arguments.webhookThreads = 1;
+        simulator = new TwilioSimulator(arguments);
+        simulator.start();
+        return simulator;
+    }
+
+    private HttpURLConnection createCall(boolean authenticated) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(simulator.getBaseURL() + CALLS_PATH).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if (authenticated) {
+            connection.setRequestProperty("Authorization", "Basic " +
+                    Base64.getEncoder().encodeToString("AC00000000000000000000000000000000:token".getBytes(StandardCharsets.UTF_8)));
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write("To=%2B351910000000&From=%2B351210000000&Url=http%3A%2F%2Flocalhost%3A1%2Fcall".getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private static String errorBody(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getErrorStream()) {
+            return new String(TwilioSimulator.readFully(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testCallsOverTheLimitAreRejected() throws Exception {
+        SimulatorArguments arguments = new SimulatorArguments();
+        arguments.callsPerSecond = 0.1;
+        start(arguments);
+
+        assertEquals("Should create the first call", 201, createCall(true).getResponseCode());
+
+        HttpURLConnection rejected = createCall(true);
+        assertEquals("Should reject calls over the limit", 429, rejected.getResponseCode());
+        assertTrue("Should answer with the Twilio error code", errorBody(rejected).contains("\"code\":20429"));
+        assertEquals("Should count the created call", 1, simulator.getStatistics().getCallsCreated());
+        assertEquals("Should count the rejected call", 1, simulator.getStatistics().getCallsRejected());
+    }
+
+    @Test
+    public void testServerErrorsAreInjected() throws Exception {
+        SimulatorArguments arguments = new SimulatorArguments();
+        arguments.apiErrorRate = 1;
+        start(arguments);
+
+        HttpURLConnection failed = createCall(true);
+        assertEquals("Should fail the call creation", 503, failed.getResponseCode());
+        assertTrue("Should answer with the Twilio error code", errorBody(failed).contains("\"code\":20503"));
+        assertEquals("Should not create the call", 0, simulator.getStatistics().getCallsCreated());
+        assertTrue("Should count the error", simulator.getStatistics().toJson().contains("\"apiErrors\":1"));
+    }
+
+    @Test
+    public void testRequestsWithoutCredentialsAreChallenged() throws Exception {
+        start(new SimulatorArguments());
+
+        HttpURLConnection challenged = createCall(false);
+        assertEquals("Should ask for credentials", 401, challenged.getResponseCode());
+        assertTrue("Should ask for basic authentication", challenged.getHeaderField("WWW-Authenticate").startsWith("Basic"));
+        assertEquals("Should not create the call", 0, simulator.getStatistics().getCallsCreated());
+        assertEquals("Should count the challenge", 1, simulator.getStatistics().getAuthenticationChallenges());
+    }
+}